@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.Vector;
+import org.apache.mahout.math.function.Functions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Operations combining two vectors, for every pairing of vector implementations. This covers the dot,
+ * plus, minus, times and distance measurements of the old hand-timed benchmark suite.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BinaryVectorBenchmark {
+
+  private static final int NUM_VECTORS = 64;
+
+  @Param({"DENSE", "RANDOM_ACCESS_SPARSE", "SEQUENTIAL_ACCESS_SPARSE"})
+  private VectorType left;
+
+  @Param({"DENSE", "RANDOM_ACCESS_SPARSE", "SEQUENTIAL_ACCESS_SPARSE"})
+  private VectorType right;
+
+  @Param({"1000", "100000"})
+  private int cardinality;
+
+  @Param({"0.01", "0.1"})
+  private double density;
+
+  private Vector[] lefts;
+  private Vector[] rights;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Random random = RandomUtils.getRandom(42L);
+    int numNonZeros = VectorType.numNonZeros(cardinality, density);
+    lefts = left.randomVectors(random, NUM_VECTORS, cardinality, numNonZeros);
+    rights = right.randomVectors(random, NUM_VECTORS, cardinality, numNonZeros);
+  }
+
+  private int nextIndex() {
+    next = (next + 1) % NUM_VECTORS;
+    return next;
+  }
+
+  @Benchmark
+  public double dot() {
+    int i = nextIndex();
+    return lefts[i].dot(rights[i]);
+  }
+
+  @Benchmark
+  public Vector plus() {
+    int i = nextIndex();
+    return lefts[i].plus(rights[i]);
+  }
+
+  @Benchmark
+  public Vector minus() {
+    int i = nextIndex();
+    return lefts[i].minus(rights[i]);
+  }
+
+  @Benchmark
+  public Vector times() {
+    int i = nextIndex();
+    return lefts[i].times(rights[i]);
+  }
+
+  @Benchmark
+  public double getDistanceSquared() {
+    int i = nextIndex();
+    return lefts[i].getDistanceSquared(rights[i]);
+  }
+
+  @Benchmark
+  public Vector assignPlusMult() {
+    int i = nextIndex();
+    return lefts[i].clone().assign(rights[i], Functions.plusMult(0.5));
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.CholeskyDecomposition;
+import org.apache.mahout.math.DenseMatrix;
+import org.apache.mahout.math.Matrix;
+import org.apache.mahout.math.ParallelContext;
+import org.apache.mahout.math.QRDecomposition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cholesky and QR decompositions of square dense matrices, from the sizes of ALS normal equations up to
+ * large in-core SSVD steps, optionally running on a {@link ParallelContext}.  At the largest size a single
+ * decomposition takes seconds, so restrict the sizes with {@code -p size=...} for quick runs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Thread)
+public class DecompositionBenchmark {
+
+  @Param({"50", "200", "1000", "5000"})
+  private int size;
+
+  /** Threads of the installed {@link ParallelContext}, or 0 to run serially. */
+  @Param({"0"})
+  private int threads;
+
+  private Matrix general;
+  private Matrix symmetric;
+  private CholeskyDecomposition cholesky;
+  private Matrix rhs;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    if (threads > 0) {
+      ParallelContext.set(new ParallelContext(threads, ParallelContext.DEFAULT_THRESHOLD));
+    }
+    Random random = RandomUtils.getRandom(42L);
+    general = new DenseMatrix(size, size);
+    for (int row = 0; row < size; row++) {
+      for (int column = 0; column < size; column++) {
+        general.setQuick(row, column, random.nextGaussian());
+      }
+    }
+    symmetric = general.times(general.transpose());
+    cholesky = new CholeskyDecomposition(symmetric, false);
+    rhs = general.viewPart(0, size, 0, Math.min(size, 20)).clone();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    ParallelContext context = ParallelContext.get();
+    if (context != null) {
+      context.close();
+    }
+  }
+
+  @Benchmark
+  public CholeskyDecomposition cholesky() {
+    return new CholeskyDecomposition(symmetric, false);
+  }
+
+  @Benchmark
+  public CholeskyDecomposition pivotedCholesky() {
+    return new CholeskyDecomposition(symmetric, true);
+  }
+
+  @Benchmark
+  public Matrix choleskySolveLeft() {
+    return cholesky.solveLeft(rhs);
+  }
+
+  @Benchmark
+  public QRDecomposition qr() {
+    return new QRDecomposition(general);
+  }
+}
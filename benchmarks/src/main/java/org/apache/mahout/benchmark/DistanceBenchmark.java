@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mahout.common.ClassUtils;
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.common.distance.DistanceMeasure;
+import org.apache.mahout.math.Vector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Distance measures between vectors, and the closest-centroid search that k-means style clustering
+ * performs for every point.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DistanceBenchmark {
+
+  private static final int NUM_VECTORS = 64;
+  private static final String MEASURE_PACKAGE = "org.apache.mahout.common.distance.";
+
+  @Param({"Cosine", "Euclidean", "SquaredEuclidean", "Manhattan", "Chebyshev", "Minkowski", "Tanimoto"})
+  private String measure;
+
+  @Param({"DENSE", "RANDOM_ACCESS_SPARSE", "SEQUENTIAL_ACCESS_SPARSE"})
+  private VectorType type;
+
+  @Param({"1000", "100000"})
+  private int cardinality;
+
+  @Param({"0.01", "0.1"})
+  private double density;
+
+  @Param("20")
+  private int numClusters;
+
+  private DistanceMeasure distanceMeasure;
+  private Vector[] vectors;
+  private Vector[] centroids;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    distanceMeasure =
+        ClassUtils.instantiateAs(MEASURE_PACKAGE + measure + "DistanceMeasure", DistanceMeasure.class);
+    Random random = RandomUtils.getRandom(42L);
+    int numNonZeros = VectorType.numNonZeros(cardinality, density);
+    vectors = type.randomVectors(random, NUM_VECTORS, cardinality, numNonZeros);
+    // centroids are the averages of many points and hence much denser than the points themselves
+    centroids = VectorType.RANDOM_ACCESS_SPARSE.randomVectors(random, numClusters, cardinality,
+        Math.min(cardinality, numNonZeros * 10));
+  }
+
+  private int nextIndex() {
+    next = (next + 1) % NUM_VECTORS;
+    return next;
+  }
+
+  @Benchmark
+  public double distance() {
+    int i = nextIndex();
+    return distanceMeasure.distance(vectors[i], vectors[(i + 1) % NUM_VECTORS]);
+  }
+
+  @Benchmark
+  public int closestCentroid() {
+    Vector point = vectors[nextIndex()];
+    int closest = -1;
+    double minDistance = Double.MAX_VALUE;
+    for (int c = 0; c < centroids.length; c++) {
+      double distance = distanceMeasure.distance(centroids[c], point);
+      if (distance < minDistance) {
+        minDistance = distance;
+        closest = c;
+      }
+    }
+    return closest;
+  }
+}
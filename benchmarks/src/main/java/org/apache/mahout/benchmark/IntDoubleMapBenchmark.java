@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.function.IntDoubleProcedure;
+import org.apache.mahout.math.map.AbstractIntDoubleMap;
+import org.apache.mahout.math.map.OpenIntDoubleHashMap;
+import org.apache.mahout.math.map.RobinHoodIntDoubleHashMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookups, inserts and iteration of the int to double maps that back {@link
+ * org.apache.mahout.math.RandomAccessSparseVector}, at sizes that fit in cache and at sizes that do not.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IntDoubleMapBenchmark {
+
+  private static final int NUM_PROBES = 1024;
+
+  public enum MapType {
+    OPEN {
+      @Override
+      AbstractIntDoubleMap create(int capacity) {
+        return new OpenIntDoubleHashMap(capacity);
+      }
+    },
+    ROBIN_HOOD {
+      @Override
+      AbstractIntDoubleMap create(int capacity) {
+        return new RobinHoodIntDoubleHashMap(capacity);
+      }
+    };
+
+    abstract AbstractIntDoubleMap create(int capacity);
+  }
+
+  @Param({"OPEN", "ROBIN_HOOD"})
+  private MapType type;
+
+  @Param({"1000", "1000000"})
+  private int size;
+
+  private int[] keys;
+  private int[] hits;
+  private int[] misses;
+  private AbstractIntDoubleMap map;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Random random = RandomUtils.getRandom(42L);
+    // feature indices of a sparse vector: distinct, spread over a range much larger than the number of keys
+    keys = new int[size];
+    map = type.create(11);
+    for (int i = 0; i < size; i++) {
+      int key;
+      do {
+        key = random.nextInt(100 * size);
+      } while (map.containsKey(key));
+      keys[i] = key;
+      map.put(key, random.nextGaussian());
+    }
+    hits = new int[NUM_PROBES];
+    misses = new int[NUM_PROBES];
+    for (int i = 0; i < NUM_PROBES; i++) {
+      hits[i] = keys[random.nextInt(size)];
+      int miss;
+      do {
+        miss = random.nextInt(100 * size);
+      } while (map.containsKey(miss));
+      misses[i] = miss;
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_PROBES)
+  public double getHit() {
+    double sum = 0;
+    for (int key : hits) {
+      sum += map.get(key);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_PROBES)
+  public double getMiss() {
+    double sum = 0;
+    for (int key : misses) {
+      sum += map.get(key);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_PROBES)
+  public double adjustOrPutValue() {
+    double sum = 0;
+    for (int key : hits) {
+      sum += map.adjustOrPutValue(key, 1.0, 1.0e-9);
+    }
+    return sum;
+  }
+
+  /**
+   * Builds a map of {@code size} keys from the default capacity of a sparse vector, including all the rehashing.
+   */
+  @Benchmark
+  public AbstractIntDoubleMap putAll() {
+    AbstractIntDoubleMap result = type.create(11);
+    for (int key : keys) {
+      result.put(key, 1.0);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public double forEachPair() {
+    final double[] sum = new double[1];
+    map.forEachPair(new IntDoubleProcedure() {
+      @Override
+      public boolean apply(int key, double value) {
+        sum[0] += value;
+        return true;
+      }
+    });
+    return sum[0];
+  }
+}
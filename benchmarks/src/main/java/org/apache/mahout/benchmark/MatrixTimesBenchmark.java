@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.CompressedSparseRowMatrix;
+import org.apache.mahout.math.DenseMatrix;
+import org.apache.mahout.math.DenseRowMajorMatrix;
+import org.apache.mahout.math.Matrix;
+import org.apache.mahout.math.ParallelContext;
+import org.apache.mahout.math.SparseRowMatrix;
+import org.apache.mahout.math.Vector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Square matrix products and matrix-vector products for dense, row-sparse and compressed sparse row left
+ * operands, optionally running on a {@link ParallelContext}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MatrixTimesBenchmark {
+
+  @Param({"DENSE", "DENSE_ROW_MAJOR", "SPARSE_ROW", "COMPRESSED_SPARSE_ROW"})
+  private String leftType;
+
+  @Param({"100", "500", "1000"})
+  private int size;
+
+  @Param("0.05")
+  private double density;
+
+  /** Threads of the installed {@link ParallelContext}, or 0 to run serially. */
+  @Param({"0"})
+  private int threads;
+
+  private Matrix left;
+  private Matrix right;
+  private Vector vector;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    if (threads > 0) {
+      ParallelContext.set(new ParallelContext(threads, ParallelContext.DEFAULT_THRESHOLD));
+    }
+    Random random = RandomUtils.getRandom(42L);
+    right = randomDense(random, size);
+    if ("DENSE".equals(leftType)) {
+      left = randomDense(random, size);
+    } else if ("DENSE_ROW_MAJOR".equals(leftType)) {
+      left = new DenseRowMajorMatrix(randomDense(random, size));
+      right = new DenseRowMajorMatrix(right);
+    } else {
+      Vector[] rows = VectorType.SEQUENTIAL_ACCESS_SPARSE.randomVectors(random, size, size,
+          VectorType.numNonZeros(size, density));
+      left = new SparseRowMatrix(size, size, rows, true, false);
+      if ("COMPRESSED_SPARSE_ROW".equals(leftType)) {
+        left = CompressedSparseRowMatrix.copyOf(left);
+      }
+    }
+    vector = VectorType.DENSE.copyOf(VectorType.randomSparseVector(random, size, size));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    ParallelContext context = ParallelContext.get();
+    if (context != null) {
+      context.close();
+    }
+  }
+
+  private static Matrix randomDense(Random random, int size) {
+    Matrix m = new DenseMatrix(size, size);
+    for (int row = 0; row < size; row++) {
+      for (int column = 0; column < size; column++) {
+        m.setQuick(row, column, random.nextGaussian());
+      }
+    }
+    return m;
+  }
+
+  @Benchmark
+  public Matrix times() {
+    return left.times(right);
+  }
+
+  @Benchmark
+  public Vector timesVector() {
+    return left.times(vector);
+  }
+
+  @Benchmark
+  public Vector timesSquared() {
+    return left.timesSquared(vector);
+  }
+
+  @Benchmark
+  public Matrix transpose() {
+    return left.transpose();
+  }
+}
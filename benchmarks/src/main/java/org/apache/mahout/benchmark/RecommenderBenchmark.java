@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mahout.cf.taste.common.TasteException;
+import org.apache.mahout.cf.taste.impl.common.FastByIDMap;
+import org.apache.mahout.cf.taste.impl.common.FastIDSet;
+import org.apache.mahout.cf.taste.impl.model.GenericDataModel;
+import org.apache.mahout.cf.taste.impl.model.GenericUserPreferenceArray;
+import org.apache.mahout.cf.taste.impl.neighborhood.NearestNUserNeighborhood;
+import org.apache.mahout.cf.taste.impl.recommender.GenericItemBasedRecommender;
+import org.apache.mahout.cf.taste.impl.recommender.GenericUserBasedRecommender;
+import org.apache.mahout.cf.taste.impl.recommender.svd.ALSWRFactorizer;
+import org.apache.mahout.cf.taste.impl.recommender.svd.SVDRecommender;
+import org.apache.mahout.cf.taste.impl.similarity.LogLikelihoodSimilarity;
+import org.apache.mahout.cf.taste.impl.similarity.PearsonCorrelationSimilarity;
+import org.apache.mahout.cf.taste.model.DataModel;
+import org.apache.mahout.cf.taste.model.PreferenceArray;
+import org.apache.mahout.cf.taste.recommender.RecommendedItem;
+import org.apache.mahout.cf.taste.recommender.Recommender;
+import org.apache.mahout.common.RandomUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link Recommender#recommend(long, int)} latency of the non-distributed recommenders on a random,
+ * in-memory {@link DataModel}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecommenderBenchmark {
+
+  private static final int HOW_MANY = 10;
+
+  @Param({"ITEM_BASED", "USER_BASED", "SVD"})
+  private String recommenderType;
+
+  @Param({"2000"})
+  private int numUsers;
+
+  @Param({"1000"})
+  private int numItems;
+
+  @Param({"20", "100"})
+  private int prefsPerUser;
+
+  private Recommender recommender;
+
+  @Setup(Level.Trial)
+  public void setUp() throws TasteException {
+    DataModel dataModel = randomDataModel(RandomUtils.getRandom(42L));
+    if ("ITEM_BASED".equals(recommenderType)) {
+      recommender = new GenericItemBasedRecommender(dataModel, new LogLikelihoodSimilarity(dataModel));
+    } else if ("USER_BASED".equals(recommenderType)) {
+      PearsonCorrelationSimilarity similarity = new PearsonCorrelationSimilarity(dataModel);
+      recommender = new GenericUserBasedRecommender(dataModel,
+          new NearestNUserNeighborhood(50, similarity, dataModel), similarity);
+    } else if ("SVD".equals(recommenderType)) {
+      recommender = new SVDRecommender(dataModel, new ALSWRFactorizer(dataModel, 20, 0.065, 5));
+    } else {
+      throw new IllegalArgumentException("Unknown recommender type: " + recommenderType);
+    }
+  }
+
+  private DataModel randomDataModel(Random random) {
+    FastByIDMap<PreferenceArray> userData = new FastByIDMap<PreferenceArray>(numUsers);
+    for (int user = 0; user < numUsers; user++) {
+      FastIDSet items = new FastIDSet(prefsPerUser);
+      while (items.size() < prefsPerUser) {
+        // skew popularity towards low item IDs, as in real data
+        items.add((long) (numItems * random.nextDouble() * random.nextDouble()));
+      }
+      PreferenceArray prefs = new GenericUserPreferenceArray(prefsPerUser);
+      prefs.setUserID(0, user);
+      int i = 0;
+      for (long itemID : items) {
+        prefs.setItemID(i, itemID);
+        prefs.setValue(i, 1 + random.nextInt(5));
+        i++;
+      }
+      userData.put(user, prefs);
+    }
+    return new GenericDataModel(userData);
+  }
+
+  @State(Scope.Thread)
+  public static class UserCursor {
+    private long next;
+
+    long nextUserID(int numUsers) {
+      next = (next + 1) % numUsers;
+      return next;
+    }
+  }
+
+  @Benchmark
+  public List<RecommendedItem> recommend(UserCursor cursor) throws TasteException {
+    return recommender.recommend(cursor.nextUserID(numUsers), HOW_MANY);
+  }
+
+  @Benchmark
+  public float estimatePreference(UserCursor cursor) throws TasteException {
+    return recommender.estimatePreference(cursor.nextUserID(numUsers), cursor.next % numItems);
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.common.distance.DistanceMeasure;
+import org.apache.mahout.common.distance.SquaredEuclideanDistanceMeasure;
+import org.apache.mahout.math.Vector;
+import org.apache.mahout.math.neighborhood.BruteSearch;
+import org.apache.mahout.math.neighborhood.FastProjectionSearch;
+import org.apache.mahout.math.neighborhood.LocalitySensitiveHashSearch;
+import org.apache.mahout.math.neighborhood.ProjectionSearch;
+import org.apache.mahout.math.neighborhood.Searcher;
+import org.apache.mahout.math.random.WeightedThing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Query latency of the {@link Searcher} implementations in {@code org.apache.mahout.math.neighborhood}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SearcherBenchmark {
+
+  private static final int NUM_QUERIES = 64;
+  private static final int NUM_PROJECTIONS = 3;
+  private static final int SEARCH_SIZE = 10;
+
+  @Param({"Brute", "Projection", "FastProjection", "LocalitySensitiveHash"})
+  private String searcherType;
+
+  @Param({"20", "100"})
+  private int dimension;
+
+  @Param({"10000"})
+  private int numVectors;
+
+  @Param({"1", "10"})
+  private int limit;
+
+  private Searcher searcher;
+  private Vector[] queries;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    DistanceMeasure measure = new SquaredEuclideanDistanceMeasure();
+    if ("Brute".equals(searcherType)) {
+      searcher = new BruteSearch(measure);
+    } else if ("Projection".equals(searcherType)) {
+      searcher = new ProjectionSearch(measure, NUM_PROJECTIONS, SEARCH_SIZE);
+    } else if ("FastProjection".equals(searcherType)) {
+      searcher = new FastProjectionSearch(measure, NUM_PROJECTIONS, SEARCH_SIZE);
+    } else if ("LocalitySensitiveHash".equals(searcherType)) {
+      searcher = new LocalitySensitiveHashSearch(measure, SEARCH_SIZE);
+    } else {
+      throw new IllegalArgumentException("Unknown searcher type: " + searcherType);
+    }
+    Random random = RandomUtils.getRandom(42L);
+    for (Vector v : VectorType.DENSE.randomVectors(random, numVectors, dimension, dimension)) {
+      searcher.add(v);
+    }
+    queries = VectorType.DENSE.randomVectors(random, NUM_QUERIES, dimension, dimension);
+  }
+
+  private Vector nextQuery() {
+    next = (next + 1) % NUM_QUERIES;
+    return queries[next];
+  }
+
+  @Benchmark
+  public List<WeightedThing<Vector>> search() {
+    return searcher.search(nextQuery(), limit);
+  }
+
+  @Benchmark
+  public WeightedThing<Vector> searchFirst() {
+    return searcher.searchFirst(nextQuery(), false);
+  }
+}
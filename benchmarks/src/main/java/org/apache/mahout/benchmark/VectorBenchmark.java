@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.Vector;
+import org.apache.mahout.math.function.Functions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single-vector operations (norms, copies, element-wise functions) for each vector implementation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VectorBenchmark {
+
+  private static final int NUM_VECTORS = 64;
+
+  @Param({"DENSE", "RANDOM_ACCESS_SPARSE", "SEQUENTIAL_ACCESS_SPARSE"})
+  private VectorType type;
+
+  @Param({"1000", "100000"})
+  private int cardinality;
+
+  @Param({"0.01", "0.1"})
+  private double density;
+
+  private Vector source;
+  private Vector[] vectors;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Random random = RandomUtils.getRandom(42L);
+    int numNonZeros = VectorType.numNonZeros(cardinality, density);
+    source = VectorType.randomSparseVector(random, cardinality, numNonZeros);
+    vectors = type.randomVectors(random, NUM_VECTORS, cardinality, numNonZeros);
+  }
+
+  private Vector nextVector() {
+    next = (next + 1) % NUM_VECTORS;
+    return vectors[next];
+  }
+
+  @Benchmark
+  public Vector createCopy() {
+    return type.copyOf(source);
+  }
+
+  @Benchmark
+  public Vector createIncrementally() {
+    Vector vector = type.copyOf(source).like();
+    for (Vector.Element e : source.nonZeroes()) {
+      vector.set(e.index(), e.get());
+    }
+    return vector;
+  }
+
+  @Benchmark
+  public Vector cloneVector() {
+    return nextVector().clone();
+  }
+
+  @Benchmark
+  public double norm1() {
+    return nextVector().norm(1);
+  }
+
+  @Benchmark
+  public double norm2() {
+    return nextVector().norm(2);
+  }
+
+  @Benchmark
+  public double getLengthSquared() {
+    return nextVector().getLengthSquared();
+  }
+
+  @Benchmark
+  public Vector logNormalize() {
+    return nextVector().logNormalize();
+  }
+
+  @Benchmark
+  public Vector timesScalar() {
+    return nextVector().times(1.5);
+  }
+
+  @Benchmark
+  public double zSum() {
+    return nextVector().zSum();
+  }
+
+  @Benchmark
+  public double maxValue() {
+    return nextVector().maxValue();
+  }
+
+  @Benchmark
+  public Vector assignFunction() {
+    return nextVector().clone().assign(Functions.ABS);
+  }
+}
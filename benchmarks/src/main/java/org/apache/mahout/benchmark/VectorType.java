@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.benchmark;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.apache.mahout.math.DenseVector;
+import org.apache.mahout.math.RandomAccessSparseVector;
+import org.apache.mahout.math.SequentialAccessSparseVector;
+import org.apache.mahout.math.Vector;
+
+/**
+ * The vector implementations covered by the benchmarks, usable directly as a JMH {@code @Param}.
+ */
+public enum VectorType {
+
+  DENSE {
+    @Override
+    public Vector copyOf(Vector vector) {
+      return new DenseVector(vector);
+    }
+  },
+
+  RANDOM_ACCESS_SPARSE {
+    @Override
+    public Vector copyOf(Vector vector) {
+      return new RandomAccessSparseVector(vector);
+    }
+  },
+
+  SEQUENTIAL_ACCESS_SPARSE {
+    @Override
+    public Vector copyOf(Vector vector) {
+      return new SequentialAccessSparseVector(vector);
+    }
+  };
+
+  /**
+   * @return a copy of {@code vector} backed by this implementation
+   */
+  public abstract Vector copyOf(Vector vector);
+
+  /**
+   * @return {@code count} copies of random vectors with {@code numNonZeros} gaussian entries each
+   */
+  public Vector[] randomVectors(Random random, int count, int cardinality, int numNonZeros) {
+    Vector[] vectors = new Vector[count];
+    for (int i = 0; i < count; i++) {
+      vectors[i] = copyOf(randomSparseVector(random, cardinality, numNonZeros));
+    }
+    return vectors;
+  }
+
+  /**
+   * Builds a random vector with exactly {@code numNonZeros} distinct, non-zero gaussian entries.
+   */
+  public static Vector randomSparseVector(Random random, int cardinality, int numNonZeros) {
+    Vector vector = new SequentialAccessSparseVector(cardinality, numNonZeros);
+    BitSet featureSpace = new BitSet(cardinality);
+    int j = 0;
+    while (j < numNonZeros) {
+      double value = random.nextGaussian();
+      int index = random.nextInt(cardinality);
+      if (!featureSpace.get(index) && value != 0) {
+        featureSpace.set(index);
+        vector.setQuick(index, value);
+        j++;
+      }
+    }
+    return vector;
+  }
+
+  /**
+   * @return the number of non-zeros for a vector of the given cardinality and fraction of non-zero entries
+   */
+  public static int numNonZeros(int cardinality, double density) {
+    return Math.max(1, Math.min(cardinality, (int) Math.round(cardinality * density)));
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.benchmark;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.Vector;
+import org.apache.mahout.math.VectorWritable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialization and deserialization of vectors through {@link VectorWritable}, in memory so that the
+ * numbers are not dominated by the file system.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VectorWritableBenchmark {
+
+  private static final int NUM_VECTORS = 64;
+
+  @Param({"DENSE", "RANDOM_ACCESS_SPARSE", "SEQUENTIAL_ACCESS_SPARSE"})
+  private VectorType type;
+
+  @Param({"1000", "100000"})
+  private int cardinality;
+
+  @Param({"0.01", "0.1"})
+  private double density;
+
+  @Param({"false", "true"})
+  private boolean laxPrecision;
+
+  private Vector[] vectors;
+  private byte[][] serialized;
+  private final DataOutputBuffer out = new DataOutputBuffer();
+  private final DataInputBuffer in = new DataInputBuffer();
+  private final VectorWritable writable = new VectorWritable();
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    Random random = RandomUtils.getRandom(42L);
+    vectors = type.randomVectors(random, NUM_VECTORS, cardinality, VectorType.numNonZeros(cardinality, density));
+    serialized = new byte[NUM_VECTORS][];
+    for (int i = 0; i < NUM_VECTORS; i++) {
+      out.reset();
+      VectorWritable.writeVector(out, vectors[i], laxPrecision);
+      serialized[i] = new byte[out.getLength()];
+      System.arraycopy(out.getData(), 0, serialized[i], 0, out.getLength());
+    }
+  }
+
+  private int nextIndex() {
+    next = (next + 1) % NUM_VECTORS;
+    return next;
+  }
+
+  @Benchmark
+  public int write() throws IOException {
+    out.reset();
+    VectorWritable.writeVector(out, vectors[nextIndex()], laxPrecision);
+    return out.getLength();
+  }
+
+  @Benchmark
+  public Vector read() throws IOException {
+    byte[] bytes = serialized[nextIndex()];
+    in.reset(bytes, bytes.length);
+    writable.readFields(in);
+    return writable.get();
+  }
+
+  @Benchmark
+  public Vector roundTrip() throws IOException {
+    out.reset();
+    VectorWritable.writeVector(out, vectors[nextIndex()], laxPrecision);
+    in.reset(out.getData(), out.getLength());
+    writable.readFields(in);
+    return writable.get();
+  }
+}
@@ -0,0 +1,10 @@
+/**
+ * <p>JMH micro-benchmarks for Mahout's in-core code: vector operations for every vector implementation,
+ * distance measures, matrix products and decompositions, {@code VectorWritable} serialization, the non-distributed
+ * recommenders and the nearest-neighbor searchers.</p>
+ *
+ * <p>Build the module with {@code mvn package} and run the self-contained jar, for example
+ * {@code java -jar target/mahout-benchmarks-1.0-SNAPSHOT-benchmarks.jar BinaryVectorBenchmark.dot -p cardinality=1000}.
+ * All of JMH's command line options apply; {@code -h} lists them.</p>
+ */
+package org.apache.mahout.benchmark;
@@ -0,0 +1,613 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.mahout.math.map;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.mahout.math.function.${keyTypeCap}${valueTypeCap}Procedure;
+import org.apache.mahout.math.function.${keyTypeCap}Procedure;
+import org.apache.mahout.math.list.${keyTypeCap}ArrayList;
+
+#if (${keyType} != ${valueType})
+import org.apache.mahout.math.list.${valueTypeCap}ArrayList;
+#end
+
+/**
+ * Open hash map from ${keyType} keys to ${valueType} values using linear probing with Robin Hood insertion and
+ * backward shift deletion.
+ * <p>
+ * Compared to {@link Open${keyTypeCap}${valueTypeCap}HashMap} there is no per slot state array and no tombstones:
+ * a slot is free when it holds the key <tt>0</tt>, and that key itself is stored beside the table. The capacity is a
+ * power of two, so a probe is a mask instead of a modulus and walks adjacent slots instead of jumping around the
+ * table. Robin Hood insertion keeps every key close to its home slot, so the map stays fast at load factors where
+ * double hashing degrades, and lookups for missing keys stop as soon as they pass a key closer to home than they
+ * are. Together this gives fewer cache misses per lookup and fewer bytes per entry.
+ * <p>
+ * Iterating while the map is modified, other than through {@link MapElement#set}, is not supported.
+ **/
+public class RobinHood${keyTypeCap}${valueTypeCap}HashMap extends Abstract${keyTypeCap}${valueTypeCap}Map {
+
+  public static final double DEFAULT_MIN_LOAD_FACTOR = 0.2;
+  public static final double DEFAULT_MAX_LOAD_FACTOR = 0.75;
+
+  /** Marks a free slot of the table; the mapping for this key, if any, is kept in {@link #freeKeyValue}. */
+  protected static final ${keyType} FREE_KEY = 0;
+
+  /** The hash table keys. */
+  protected ${keyType}[] table;
+
+  /** The hash table values. */
+  protected ${valueType}[] values;
+
+  /** The table length minus one. */
+  protected int mask;
+
+  /** Whether {@link #FREE_KEY} is mapped. */
+  protected boolean hasFreeKey;
+
+  /** The value mapped to {@link #FREE_KEY}, if any. */
+  protected ${valueType} freeKeyValue;
+
+  /** Constructs an empty map with default capacity and default load factors. */
+  public RobinHood${keyTypeCap}${valueTypeCap}HashMap() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructs an empty map with the specified initial capacity and default load factors.
+   *
+   * @param initialCapacity the number of mappings the map can hold before it grows.
+   * @throws IllegalArgumentException if the initial capacity is less than zero.
+   */
+  public RobinHood${keyTypeCap}${valueTypeCap}HashMap(int initialCapacity) {
+    this(initialCapacity, DEFAULT_MIN_LOAD_FACTOR, DEFAULT_MAX_LOAD_FACTOR);
+  }
+
+  /**
+   * Constructs an empty map with the specified initial capacity and the specified minimum and maximum load factor.
+   *
+   * @param initialCapacity the number of mappings the map can hold before it grows.
+   * @param minLoadFactor   the minimum load factor.
+   * @param maxLoadFactor   the maximum load factor.
+   * @throws IllegalArgumentException if <tt>initialCapacity < 0 || (minLoadFactor < 0.0 || minLoadFactor >= 1.0) ||
+   *                                  (maxLoadFactor <= 0.0 || maxLoadFactor >= 1.0) || (minLoadFactor >=
+   *                                  maxLoadFactor)</tt>.
+   */
+  public RobinHood${keyTypeCap}${valueTypeCap}HashMap(int initialCapacity, double minLoadFactor, double maxLoadFactor) {
+    setUp(initialCapacity, minLoadFactor, maxLoadFactor);
+  }
+
+  /**
+   * Removes all (key,value) associations from the receiver. Unlike {@link Open${keyTypeCap}${valueTypeCap}HashMap}
+   * the capacity is kept, as a cleared map is usually filled again.
+   */
+  @Override
+  public void clear() {
+    Arrays.fill(table, FREE_KEY);
+    hasFreeKey = false;
+    distinct = 0;
+  }
+
+  /**
+   * Returns a deep copy of the receiver.
+   *
+   * @return a deep copy of the receiver.
+   */
+  @Override
+  public Object clone() {
+    RobinHood${keyTypeCap}${valueTypeCap}HashMap copy = (RobinHood${keyTypeCap}${valueTypeCap}HashMap) super.clone();
+    copy.table = copy.table.clone();
+    copy.values = copy.values.clone();
+    return copy;
+  }
+
+  @Override
+  public boolean containsKey(${keyType} key) {
+    return key == FREE_KEY ? hasFreeKey : indexOfKey(key) >= 0;
+  }
+
+  @Override
+  public boolean containsValue(${valueType} value) {
+    if (hasFreeKey && freeKeyValue == value) {
+      return true;
+    }
+    for (int i = 0; i < table.length; i++) {
+      if (table[i] != FREE_KEY && values[i] == value) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Ensures that the receiver can hold at least the specified number of associations without growing.
+   *
+   * @param minCapacity the desired minimum capacity.
+   */
+  @Override
+  public void ensureCapacity(int minCapacity) {
+    if (highWaterMark < minCapacity) {
+      rehash(chooseTableLength(minCapacity, maxLoadFactor));
+    }
+  }
+
+  /**
+   * Applies a procedure to each key of the receiver, if any, in no particular order.
+   *
+   * @param procedure the procedure to be applied. Stops iteration if the procedure returns <tt>false</tt>, otherwise
+   *                  continues.
+   * @return <tt>false</tt> if the procedure stopped before all keys where iterated over, <tt>true</tt> otherwise.
+   */
+  @Override
+  public boolean forEachKey(${keyTypeCap}Procedure procedure) {
+    if (hasFreeKey && !procedure.apply(FREE_KEY)) {
+      return false;
+    }
+    for (int i = 0; i < table.length; i++) {
+      if (table[i] != FREE_KEY && !procedure.apply(table[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Applies a procedure to each (key,value) pair of the receiver, if any. Iteration order is guaranteed to be
+   * <i>identical</i> to the order used by method {@link #forEachKey(${keyTypeCap}Procedure)}.
+   *
+   * @param procedure the procedure to be applied. Stops iteration if the procedure returns <tt>false</tt>, otherwise
+   *                  continues.
+   * @return <tt>false</tt> if the procedure stopped before all keys where iterated over, <tt>true</tt> otherwise.
+   */
+  @Override
+  public boolean forEachPair(${keyTypeCap}${valueTypeCap}Procedure procedure) {
+    if (hasFreeKey && !procedure.apply(FREE_KEY, freeKeyValue)) {
+      return false;
+    }
+    for (int i = 0; i < table.length; i++) {
+      if (table[i] != FREE_KEY && !procedure.apply(table[i], values[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the value associated with the specified key.
+   *
+   * @param key the key to be searched for.
+   * @return the value associated with the specified key; <tt>0</tt> if no such key is present.
+   */
+  @Override
+  public ${valueType} get(${keyType} key) {
+    if (key == FREE_KEY) {
+      return hasFreeKey ? freeKeyValue : 0;
+    }
+    int i = indexOfKey(key);
+    return i < 0 ? 0 : values[i];
+  }
+
+  /**
+   * @return the home slot of a key that is not {@link #FREE_KEY}.
+   */
+  protected int slot(${keyType} key) {
+    // HashFunctions leaves small keys nearly unchanged, so spread them over the high bits a mask looks at
+    int h = HashFunctions.hash(key) * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & mask;
+  }
+
+  /**
+   * @return how far the key stored at slot {@code i} is from its home slot.
+   */
+  private int distance(int i, ${keyType} key) {
+    return (i - slot(key)) & mask;
+  }
+
+  /**
+   * @param key the key to be searched in the receiver, not {@link #FREE_KEY}.
+   * @return the slot where the key is contained in the receiver, returns -1 if the key was not found.
+   */
+  protected int indexOfKey(${keyType} key) {
+    int i = slot(key);
+    for (int distance = 0;; distance++) {
+      ${keyType} k = table[i];
+      if (k == key) {
+        return i;
+      }
+      // the key would have displaced any key that is closer to its home slot
+      if (k == FREE_KEY || distance(i, k) < distance) {
+        return -1;
+      }
+      i = (i + 1) & mask;
+    }
+  }
+
+  /**
+   * Fills all keys contained in the receiver into the specified list. Iteration order is guaranteed to be
+   * <i>identical</i> to the order used by method {@link #forEachKey(${keyTypeCap}Procedure)}.
+   *
+   * @param list the list to be filled, can have any size.
+   */
+  @Override
+  public void keys(${keyTypeCap}ArrayList list) {
+    list.setSize(distinct);
+    ${keyType}[] elements = list.elements();
+
+    int j = 0;
+    if (hasFreeKey) {
+      elements[j++] = FREE_KEY;
+    }
+    for (int i = 0; i < table.length; i++) {
+      if (table[i] != FREE_KEY) {
+        elements[j++] = table[i];
+      }
+    }
+  }
+
+  /**
+   * Fills all values contained in the receiver into the specified list. Iteration order is guaranteed to be
+   * <i>identical</i> to the order used by method {@link #forEachKey(${keyTypeCap}Procedure)}.
+   *
+   * @param list the list to be filled, can have any size.
+   */
+  @Override
+  public void values(${valueTypeCap}ArrayList list) {
+    list.setSize(distinct);
+    ${valueType}[] elements = list.elements();
+
+    int j = 0;
+    if (hasFreeKey) {
+      elements[j++] = freeKeyValue;
+    }
+    for (int i = 0; i < table.length; i++) {
+      if (table[i] != FREE_KEY) {
+        elements[j++] = values[i];
+      }
+    }
+  }
+
+  /**
+   * Fills all pairs satisfying a given condition into the specified lists. Iteration order is guaranteed to be
+   * <i>identical</i> to the order used by method {@link #forEachKey(${keyTypeCap}Procedure)}.
+   *
+   * @param condition the condition to be matched. Takes the current key as first and the current value as second
+   *                  argument.
+   * @param keyList   the list to be filled with keys, can have any size.
+   * @param valueList the list to be filled with values, can have any size.
+   */
+  @Override
+  public void pairsMatching(${keyTypeCap}${valueTypeCap}Procedure condition,
+                            ${keyTypeCap}ArrayList keyList,
+                            ${valueTypeCap}ArrayList valueList) {
+    keyList.clear();
+    valueList.clear();
+
+    if (hasFreeKey && condition.apply(FREE_KEY, freeKeyValue)) {
+      keyList.add(FREE_KEY);
+      valueList.add(freeKeyValue);
+    }
+    for (int i = 0; i < table.length; i++) {
+      if (table[i] != FREE_KEY && condition.apply(table[i], values[i])) {
+        keyList.add(table[i]);
+        valueList.add(values[i]);
+      }
+    }
+  }
+
+  public Iterator<MapElement> iterator() {
+    return new MapIterator();
+  }
+
+  /**
+   * A mapping seen by a {@link MapIterator}. The slot one past the end of the table stands for {@link #FREE_KEY}.
+   */
+  public final class MapElement {
+    private int offset = -1;
+    int seen = 0;
+
+    boolean advanceOffset() {
+      offset++;
+      while (offset < table.length && table[offset] == FREE_KEY) {
+        offset++;
+      }
+      if (offset < table.length || offset == table.length && hasFreeKey) {
+        seen++;
+        return true;
+      }
+      return false;
+    }
+
+    public ${valueType} get() {
+      return offset == table.length ? freeKeyValue : values[offset];
+    }
+
+    public ${keyType} index() {
+      return offset == table.length ? FREE_KEY : table[offset];
+    }
+
+    public void set(${valueType} value) {
+      if (offset == table.length) {
+        freeKeyValue = value;
+      } else {
+        values[offset] = value;
+      }
+    }
+  }
+
+  public final class MapIterator implements Iterator<MapElement> {
+    private final MapElement element = new MapElement();
+
+    private MapIterator() { }
+
+    @Override
+    public boolean hasNext() {
+      return element.seen < distinct;
+    }
+
+    @Override
+    public MapElement next() {
+      if (element.seen < distinct && element.advanceOffset()) {
+        return element;
+      }
+      throw new NoSuchElementException();
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Associates the given key with the given value. Replaces any old <tt>(key,someOtherValue)</tt> association, if
+   * existing.
+   *
+   * @param key   the key the value shall be associated with.
+   * @param value the value to be associated.
+   * @return <tt>true</tt> if the receiver did not already contain such a key; <tt>false</tt> if the receiver did
+   *         already contain such a key - the new value has now replaced the formerly associated value.
+   */
+  @Override
+  public boolean put(${keyType} key, ${valueType} value) {
+    if (key == FREE_KEY) {
+      freeKeyValue = value;
+      if (hasFreeKey) {
+        return false;
+      }
+      hasFreeKey = true;
+      distinct++;
+      return true;
+    }
+
+    int i = slot(key);
+    for (int distance = 0;; distance++) {
+      ${keyType} k = table[i];
+      if (k == FREE_KEY) {
+        table[i] = key;
+        values[i] = value;
+        added();
+        return true;
+      }
+      if (k == key) {
+        values[i] = value;
+        return false;
+      }
+      int existing = distance(i, k);
+      if (existing < distance) {
+        // the key is not in the table, and takes the place of one that is closer to its home slot
+        shiftIn(i, key, value, existing);
+        added();
+        return true;
+      }
+      i = (i + 1) & mask;
+    }
+  }
+
+  /**
+   * Places a key at slot {@code i}, carrying the keys it displaces further down the table.
+   *
+   * @param distance the distance from its home slot of the key currently at slot {@code i}
+   */
+  private void shiftIn(int i, ${keyType} key, ${valueType} value, int distance) {
+    ${keyType} carriedKey = key;
+    ${valueType} carriedValue = value;
+    int carriedDistance = distance;
+    for (;;) {
+      ${keyType} k = table[i];
+      ${valueType} v = values[i];
+      table[i] = carriedKey;
+      values[i] = carriedValue;
+      if (k == FREE_KEY) {
+        return;
+      }
+      carriedKey = k;
+      carriedValue = v;
+      // find the next slot where the carried key is further from home than the resident one
+      do {
+        i = (i + 1) & mask;
+        carriedDistance++;
+      } while (table[i] != FREE_KEY && distance(i, table[i]) >= carriedDistance);
+      if (table[i] != FREE_KEY) {
+        carriedDistance = distance(i, table[i]);
+      }
+    }
+  }
+
+  private void added() {
+    distinct++;
+    if (distinct - (hasFreeKey ? 1 : 0) > highWaterMark) {
+      rehash(chooseTableLength(distinct + 1, (minLoadFactor + 3 * maxLoadFactor) / 4));
+    }
+  }
+
+  @Override
+  public ${valueType} adjustOrPutValue(${keyType} key, ${valueType} newValue, ${valueType} incrValue) {
+    if (key == FREE_KEY) {
+      if (hasFreeKey) {
+        freeKeyValue += incrValue;
+        return freeKeyValue;
+      }
+    } else {
+      int i = indexOfKey(key);
+      if (i >= 0) {
+        values[i] += incrValue;
+        return values[i];
+      }
+    }
+    put(key, newValue);
+    return newValue;
+  }
+
+  /**
+   * Removes the given key with its associated element from the receiver, if present. The keys following it in the
+   * probe sequence are shifted back one slot, so no tombstone is left behind.
+   *
+   * @param key the key to be removed from the receiver.
+   * @return <tt>true</tt> if the receiver contained the specified key, <tt>false</tt> otherwise.
+   */
+  @Override
+  public boolean removeKey(${keyType} key) {
+    if (key == FREE_KEY) {
+      if (!hasFreeKey) {
+        return false;
+      }
+      hasFreeKey = false;
+      distinct--;
+      return true;
+    }
+
+    int i = indexOfKey(key);
+    if (i < 0) {
+      return false;
+    }
+    int next = (i + 1) & mask;
+    while (table[next] != FREE_KEY && distance(next, table[next]) > 0) {
+      table[i] = table[next];
+      values[i] = values[next];
+      i = next;
+      next = (next + 1) & mask;
+    }
+    table[i] = FREE_KEY;
+    distinct--;
+
+    if (distinct < lowWaterMark) {
+      rehash(chooseTableLength(distinct, (minLoadFactor + maxLoadFactor) / 2));
+    }
+    return true;
+  }
+
+  /**
+   * @return the smallest power of two table length that holds {@code size} keys at the given load.
+   */
+  protected static int chooseTableLength(int size, double load) {
+    int length = 2;
+    while (length < (1 << 30) && length * load < size + 1) {
+      length <<= 1;
+    }
+    return length;
+  }
+
+  /**
+   * Rehashes the contents of the receiver into a new table with a smaller or larger capacity.
+   */
+  protected void rehash(int newLength) {
+    ${keyType}[] oldTable = table;
+    ${valueType}[] oldValues = values;
+
+    table = new ${keyType}[newLength];
+    values = new ${valueType}[newLength];
+    mask = newLength - 1;
+    lowWaterMark = chooseLowWaterMark(newLength, minLoadFactor);
+    highWaterMark = Math.min(newLength - 1, chooseHighWaterMark(newLength, maxLoadFactor));
+
+    for (int i = 0; i < oldTable.length; i++) {
+      ${keyType} key = oldTable[i];
+      if (key != FREE_KEY) {
+        int j = slot(key);
+        for (int distance = 0;; distance++) {
+          ${keyType} k = table[j];
+          if (k == FREE_KEY) {
+            table[j] = key;
+            values[j] = oldValues[i];
+            break;
+          }
+          int existing = distance(j, k);
+          if (existing < distance) {
+            shiftIn(j, key, oldValues[i], existing);
+            break;
+          }
+          j = (j + 1) & mask;
+        }
+      }
+    }
+  }
+
+  /**
+   * Initializes the receiver.
+   *
+   * @param initialCapacity the number of mappings the receiver can hold before it grows.
+   * @param minLoadFactor   the minLoadFactor of the receiver.
+   * @param maxLoadFactor   the maxLoadFactor of the receiver.
+   * @throws IllegalArgumentException if <tt>initialCapacity < 0 || (minLoadFactor < 0.0 || minLoadFactor >= 1.0) ||
+   *                                  (maxLoadFactor <= 0.0 || maxLoadFactor >= 1.0) || (minLoadFactor >=
+   *                                  maxLoadFactor)</tt>.
+   */
+  @Override
+  protected final void setUp(int initialCapacity, double minLoadFactor, double maxLoadFactor) {
+    super.setUp(initialCapacity, minLoadFactor, maxLoadFactor);
+    this.minLoadFactor = minLoadFactor;
+    this.maxLoadFactor = maxLoadFactor;
+
+    int length = chooseTableLength(initialCapacity, maxLoadFactor);
+    this.table = new ${keyType}[length];
+    this.values = new ${valueType}[length];
+    this.mask = length - 1;
+    this.distinct = 0;
+    this.hasFreeKey = false;
+
+    // as in Open${keyTypeCap}${valueTypeCap}HashMap the low water mark is only established upon the first rehash,
+    // so a map that starts out large does not shrink on the first removal
+    this.lowWaterMark = 0;
+    this.highWaterMark = Math.min(length - 1, chooseHighWaterMark(length, maxLoadFactor));
+  }
+
+  /**
+   * Trims the capacity of the receiver to the smallest power of two that holds the current mappings at the maximum
+   * load factor.
+   */
+  @Override
+  public void trimToSize() {
+    int newLength = chooseTableLength(size(), maxLoadFactor);
+    if (table.length > newLength) {
+      rehash(newLength);
+    }
+  }
+
+  /**
+   * Access for unit tests.
+   */
+  protected void getInternalFactors(int[] capacity, double[] minLoadFactor, double[] maxLoadFactor) {
+    capacity[0] = table.length;
+    minLoadFactor[0] = this.minLoadFactor;
+    maxLoadFactor[0] = this.maxLoadFactor;
+  }
+}
@@ -22,8 +22,10 @@ import java.util.Map;
 import java.util.Random;
 import java.util.WeakHashMap;
 
+import com.google.common.base.Preconditions;
 import com.google.common.primitives.Longs;
 import org.apache.commons.math3.primes.Primes;
+import org.apache.mahout.math.jet.random.engine.Xoroshiro128Engine;
 
 /**
  * <p>
@@ -67,6 +69,58 @@ public final class RandomUtils {
     return random;
   }
   
+  /**
+   * Returns the {@code stream}'th of a family of non-overlapping random streams derived from {@code seed}. The
+   * result depends only on the two arguments, so parallel workers can each build their own generator from their
+   * task index and get the same numbers however the tasks are scheduled. The streams are backed by a
+   * {@link Xoroshiro128Engine} and are {@link Xoroshiro128Engine#jump()} apart; creating stream {@code n} costs
+   * {@code n} jumps, so prefer {@link #getStreams(long, int)} when many are needed at once.
+   */
+  public static RandomWrapper getStream(long seed, int stream) {
+    Preconditions.checkArgument(stream >= 0, "stream must be non-negative: %s", stream);
+    Xoroshiro128Engine engine = new Xoroshiro128Engine(seed);
+    for (int i = 0; i < stream; i++) {
+      engine.jump();
+    }
+    return register(new RandomWrapper(new StreamRandomGenerator(engine, stream)));
+  }
+
+  /**
+   * Returns streams {@code 0 .. count-1} of {@link #getStream(long, int)}, built with {@code count - 1} jumps in
+   * total.
+   */
+  public static RandomWrapper[] getStreams(long seed, int count) {
+    Preconditions.checkArgument(count >= 0, "count must be non-negative: %s", count);
+    RandomWrapper[] streams = new RandomWrapper[count];
+    Xoroshiro128Engine engine = new Xoroshiro128Engine(seed);
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        engine.jump();
+      }
+      streams[i] = register(new RandomWrapper(new StreamRandomGenerator(engine.copy(), i)));
+    }
+    return streams;
+  }
+
+  /**
+   * Like {@link #getStreams(long, int)} with a seed taken from {@link #getRandom()}, so the streams are repeatable
+   * after {@link #useTestSeed()} and distinct from run to run otherwise.
+   */
+  public static RandomWrapper[] getStreams(int count) {
+    RandomWrapper[] streams = getStreams(getRandom().nextLong(), count);
+    if (testSeed) {
+      for (RandomWrapper stream : streams) {
+        stream.resetToTestSeed();
+      }
+    }
+    return streams;
+  }
+
+  private static RandomWrapper register(RandomWrapper random) {
+    INSTANCES.put(random, Boolean.TRUE);
+    return random;
+  }
+
   /** @return what {@link Double#hashCode()} would return for the same value */
   public static int hashDouble(double value) {
     return Longs.hashCode(Double.doubleToLongBits(value));
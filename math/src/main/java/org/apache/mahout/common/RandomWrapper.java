@@ -37,6 +37,10 @@ public final class RandomWrapper extends Random {
     random = new MersenneTwister(seed);
   }
 
+  RandomWrapper(RandomGenerator random) {
+    this.random = random;
+  }
+
   @Override
   public void setSeed(long seed) {
     // Since this will be called by the java.util.Random() constructor before we construct
@@ -0,0 +1,86 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.common;
+
+import org.apache.commons.math3.random.BitsStreamGenerator;
+import org.apache.mahout.math.jet.random.engine.Xoroshiro128Engine;
+
+/**
+ * Adapts a {@link Xoroshiro128Engine} to the commons-math {@link org.apache.commons.math3.random.RandomGenerator}
+ * interface so it can sit behind a {@link RandomWrapper}. The generator remembers which jump stream it was
+ * created for, so reseeding it (for instance from {@link RandomUtils#useTestSeed()}) puts it back at the start
+ * of the same stream rather than collapsing all streams onto one sequence.
+ */
+final class StreamRandomGenerator extends BitsStreamGenerator {
+
+  private final Xoroshiro128Engine engine;
+  private final int stream;
+
+  StreamRandomGenerator(Xoroshiro128Engine engine, int stream) {
+    this.engine = engine;
+    this.stream = stream;
+  }
+
+  int getStream() {
+    return stream;
+  }
+
+  @Override
+  public void setSeed(int seed) {
+    setSeed((long) seed);
+  }
+
+  @Override
+  public void setSeed(int[] seed) {
+    long combined = 0;
+    for (int s : seed) {
+      combined = combined * 31 + (s & 0xFFFFFFFFL);
+    }
+    setSeed(combined);
+  }
+
+  @Override
+  public void setSeed(long seed) {
+    engine.setSeed(seed);
+    for (int i = 0; i < stream; i++) {
+      engine.jump();
+    }
+    clear();
+  }
+
+  @Override
+  protected int next(int bits) {
+    return (int) (engine.nextLong() >>> (64 - bits));
+  }
+
+  @Override
+  public int nextInt() {
+    return engine.nextInt();
+  }
+
+  @Override
+  public long nextLong() {
+    return engine.nextLong();
+  }
+
+  @Override
+  public double nextDouble() {
+    // [0,1) as the RandomGenerator contract asks, unlike the engine's open interval
+    return (engine.nextLong() >>> 11) * 0x1.0p-53;
+  }
+}
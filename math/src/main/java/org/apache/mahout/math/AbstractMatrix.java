@@ -215,20 +215,30 @@ public abstract class AbstractMatrix implements Matrix {
   }
 
   @Override
-  public Matrix assign(Matrix other, DoubleDoubleFunction function) {
+  public Matrix assign(final Matrix other, final DoubleDoubleFunction function) {
     int rows = rowSize();
     if (rows != other.rowSize()) {
       throw new CardinalityException(rows, other.rowSize());
     }
-    int columns = columnSize();
+    final int columns = columnSize();
     if (columns != other.columnSize()) {
       throw new CardinalityException(columns, other.columnSize());
     }
-    for (int row = 0; row < rows; row++) {
-      for (int col = 0; col < columns; col++) {
-        setQuick(row, col, function.apply(getQuick(row, col), other.getQuick(
-          row, col)));
+    ParallelContext.RangeTask task = new ParallelContext.RangeTask() {
+      @Override
+      public void run(int start, int end) {
+        for (int row = start; row < end; row++) {
+          for (int col = 0; col < columns; col++) {
+            setQuick(row, col, function.apply(getQuick(row, col), other.getQuick(
+              row, col)));
+          }
+        }
       }
+    };
+    if (ParallelContext.hasIndependentRows(this)) {
+      ParallelContext.forEachRange((long) rows * columns, rows, task);
+    } else {
+      task.run(0, rows);
     }
     return this;
   }
@@ -270,11 +280,21 @@ public abstract class AbstractMatrix implements Matrix {
    * @return The vector of results.
    */
   @Override
-  public Vector aggregateRows(VectorFunction f) {
-    Vector r = new DenseVector(numRows());
+  public Vector aggregateRows(final VectorFunction f) {
+    final Vector r = new DenseVector(numRows());
     int n = numRows();
-    for (int row = 0; row < n; row++) {
-      r.set(row, f.apply(viewRow(row)));
+    ParallelContext.RangeTask task = new ParallelContext.RangeTask() {
+      @Override
+      public void run(int start, int end) {
+        for (int row = start; row < end; row++) {
+          r.set(row, f.apply(viewRow(row)));
+        }
+      }
+    };
+    if (ParallelContext.hasIndependentRows(this)) {
+      ParallelContext.forEachRange((long) n * numCols(), n, task);
+    } else {
+      task.run(0, n);
     }
     return r;
   }
@@ -334,10 +354,22 @@ public abstract class AbstractMatrix implements Matrix {
    * @return The vector of results.
    */
   @Override
-  public Vector aggregateColumns(VectorFunction f) {
-    Vector r = new DenseVector(numCols());
-    for (int col = 0; col < numCols(); col++) {
-      r.set(col, f.apply(viewColumn(col)));
+  public Vector aggregateColumns(final VectorFunction f) {
+    final Vector r = new DenseVector(numCols());
+    int n = numCols();
+    ParallelContext.RangeTask task = new ParallelContext.RangeTask() {
+      @Override
+      public void run(int start, int end) {
+        for (int col = start; col < end; col++) {
+          r.set(col, f.apply(viewColumn(col)));
+        }
+      }
+    };
+    // column views read through getQuick, which is only known to be safe from several threads for these types
+    if (ParallelContext.hasIndependentRows(this)) {
+      ParallelContext.forEachRange((long) numRows() * n, n, task);
+    } else {
+      task.run(0, n);
     }
     return r;
   }
@@ -513,22 +545,32 @@ public abstract class AbstractMatrix implements Matrix {
   }
 
   @Override
-  public Matrix times(Matrix other) {
-    int columns = columnSize();
+  public Matrix times(final Matrix other) {
+    final int columns = columnSize();
     if (columns != other.rowSize()) {
       throw new CardinalityException(columns, other.rowSize());
     }
     int rows = rowSize();
-    int otherColumns = other.columnSize();
-    Matrix result = like(rows, otherColumns);
-    for (int row = 0; row < rows; row++) {
-      for (int col = 0; col < otherColumns; col++) {
-        double sum = 0.0;
-        for (int k = 0; k < columns; k++) {
-          sum += getQuick(row, k) * other.getQuick(k, col);
+    final int otherColumns = other.columnSize();
+    final Matrix result = like(rows, otherColumns);
+    ParallelContext.RangeTask task = new ParallelContext.RangeTask() {
+      @Override
+      public void run(int start, int end) {
+        for (int row = start; row < end; row++) {
+          for (int col = 0; col < otherColumns; col++) {
+            double sum = 0.0;
+            for (int k = 0; k < columns; k++) {
+              sum += getQuick(row, k) * other.getQuick(k, col);
+            }
+            result.setQuick(row, col, sum);
+          }
         }
-        result.setQuick(row, col, sum);
       }
+    };
+    if (ParallelContext.hasIndependentRows(result)) {
+      ParallelContext.forEachRange((long) rows * otherColumns * columns, rows, task);
+    } else {
+      task.run(0, rows);
     }
     return result;
   }
@@ -568,12 +610,26 @@ public abstract class AbstractMatrix implements Matrix {
 
   @Override
   public Matrix transpose() {
-    int rows = rowSize();
+    final int rows = rowSize();
     int columns = columnSize();
-    Matrix result = like(columns, rows);
-    for (int row = 0; row < rows; row++) {
-      for (int col = 0; col < columns; col++) {
-        result.setQuick(col, row, getQuick(row, col));
+    final Matrix result = like(columns, rows);
+    if (ParallelContext.hasIndependentRows(result)) {
+      // each block fills whole rows of the result
+      ParallelContext.forEachRange((long) rows * columns, columns, new ParallelContext.RangeTask() {
+        @Override
+        public void run(int start, int end) {
+          for (int row = 0; row < rows; row++) {
+            for (int col = start; col < end; col++) {
+              result.setQuick(col, row, getQuick(row, col));
+            }
+          }
+        }
+      });
+    } else {
+      for (int row = 0; row < rows; row++) {
+        for (int col = 0; col < columns; col++) {
+          result.setQuick(col, row, getQuick(row, col));
+        }
       }
     }
     return result;
@@ -17,8 +17,9 @@
 
 package org.apache.mahout.math;
 
+import java.util.Arrays;
+
 import com.google.common.base.Preconditions;
-import org.apache.mahout.math.function.Functions;
 
 /**
  * Cholesky decomposition shamelessly ported from JAMA.
@@ -26,9 +27,21 @@ import org.apache.mahout.math.function.Functions;
  * A Cholesky decomposition of a semi-positive definite matrix A is a lower triangular matrix L such
  * that L L^* = A.  If A is full rank, L is unique.  If A is real, then it must be symmetric and R
  * will also be real.
+ * <p/>
+ * The factorization is blocked and right-looking: {@link #BLOCK_SIZE} columns at a time are factored
+ * against each other, and then all the columns to their right are updated with the whole panel in a
+ * single pass.  That update is where nearly all the arithmetic is, and it is split over the columns
+ * by the installed {@link ParallelContext}.  With pivoting, the diagonal of the trailing matrix is kept
+ * current so that pivots can still be chosen one column at a time.
  */
 public class CholeskyDecomposition {
+
+  /** Columns factored together before the trailing matrix is updated. */
+  private static final int BLOCK_SIZE = 32;
+
   private final PivotedMatrix L;
+  /** The rows of {@code L.getBase()}. */
+  private final double[][] lower;
   private boolean isPositiveDefinite = true;
 
   public CholeskyDecomposition(Matrix a) {
@@ -37,103 +50,209 @@ public class CholeskyDecomposition {
 
   public CholeskyDecomposition(Matrix a, boolean pivot) {
     int rows = a.rowSize();
-    L = new PivotedMatrix(new DenseMatrix(rows, rows));
 
     // must be square
     Preconditions.checkArgument(rows == a.columnSize(), "Must be a Square Matrix");
 
-    if (pivot) {
-      decomposeWithPivoting(a);
-    } else {
-      decompose(a);
+    double[][] columns = new double[rows][rows];
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j <= i; j++) {
+        columns[j][i] = a.getQuick(i, j);
+      }
     }
+    int[] permutation = new int[rows];
+    for (int i = 0; i < rows; i++) {
+      permutation[i] = i;
+    }
+
+    decompose(columns, permutation, pivot);
+
+    lower = toRows(columns, permutation);
+    L = new PivotedMatrix(new DenseMatrix(lower, true), permutation);
   }
 
-  private void decomposeWithPivoting(Matrix a) {
-    int n = a.rowSize();
-    L.assign(a);
-
-    // pivoted column-wise submatrix cholesky with simple pivoting
-    double uberMax = L.viewDiagonal().aggregate(Functions.MAX, Functions.ABS);
-    for (int k = 0; k < n; k++) {
-      double max = 0;
-      int pivot = k;
-      for (int j = k; j < n; j++) {
-        if (L.get(j, j) > max) {
-          max = L.get(j, j);
-          pivot = j;
-          if (uberMax < Math.abs(max)) {
-            uberMax = Math.abs(max);
+  /**
+   * Overwrites the lower triangle of {@code columns}, given as an array of columns, with L in pivoted order.
+   * Entries above the diagonal are zeroed.
+   */
+  private void decompose(double[][] columns, int[] permutation, boolean pivot) {
+    int n = columns.length;
+
+    // the diagonal of the trailing matrix, up to date with every column factored so far
+    double[] diagonal = new double[n];
+    double uberMax = 0;
+    for (int i = 0; i < n; i++) {
+      diagonal[i] = columns[i][i];
+      uberMax = Math.max(uberMax, Math.abs(diagonal[i]));
+    }
+
+    for (int start = 0; start < n; start += BLOCK_SIZE) {
+      int end = Math.min(n, start + BLOCK_SIZE);
+      for (int k = start; k < end; k++) {
+        if (pivot) {
+          double max = 0;
+          int pivotIndex = k;
+          for (int j = k; j < n; j++) {
+            if (diagonal[j] > max) {
+              max = diagonal[j];
+              pivotIndex = j;
+              if (uberMax < Math.abs(max)) {
+                uberMax = Math.abs(max);
+              }
+            }
           }
-        }
-      }
-      L.swap(k, pivot);
-
-      double akk = L.get(k, k);
-      double epsilon = 1.0e-10 * Math.max(uberMax, L.viewColumn(k).aggregate(Functions.MAX, Functions.ABS));
-
-      if (akk < -epsilon) {
-        // can't have decidedly negative element on diagonal
-        throw new IllegalArgumentException("Matrix is not positive semi-definite");
-      } else if (akk <= epsilon) {
-        // degenerate column case.  Set all to zero
-        L.viewColumn(k).assign(0);
-        isPositiveDefinite = false;
-
-        // no need to subtract from remaining sub-matrix
-      } else {
-        // normalize column by diagonal element
-        akk = Math.sqrt(Math.max(0, akk));
-        L.viewColumn(k).viewPart(k, n - k).assign(Functions.div(akk));
-        L.viewColumn(k).viewPart(0, k).assign(0);
-
-        // subtract off scaled version of this column to the right
-        for (int j = k + 1; j < n; j++) {
-          Vector columnJ = L.viewColumn(j).viewPart(k, n - k);
-          Vector columnK = L.viewColumn(k).viewPart(k, n - k);
-          columnJ.assign(columnK, Functions.minusMult(columnK.get(j - k)));
+          swap(columns, diagonal, permutation, k, pivotIndex);
         }
 
-      }
-    }
-  }
+        // catch up with the columns of this panel factored so far
+        subtractPanel(columns, start, k, k);
 
-  private void decompose(Matrix a) {
-    int n = a.rowSize();
-    L.assign(a);
+        double[] columnK = columns[k];
+        double akk = columnK[k];
+        double columnMax = 0;
+        for (int i = k; i < n; i++) {
+          columnMax = Math.max(columnMax, Math.abs(columnK[i]));
+        }
+        double epsilon = 1.0e-10 * (pivot ? Math.max(uberMax, columnMax) : columnMax);
 
-    // column-wise submatrix cholesky with simple pivoting
-    for (int k = 0; k < n; k++) {
+        if (pivot && akk < -epsilon) {
+          // can't have decidedly negative element on diagonal
+          throw new IllegalArgumentException("Matrix is not positive semi-definite");
+        }
 
-      double akk = L.get(k, k);
+        // set upper part of column to 0.
+        Arrays.fill(columnK, 0, k, 0);
 
-      // set upper part of column to 0.
-      L.viewColumn(k).viewPart(0, k).assign(0);
+        if (akk <= epsilon) {
+          // degenerate column case.  Set all to zero
+          Arrays.fill(columnK, k, n, 0);
+          isPositiveDefinite = false;
 
-      double epsilon = 1.0e-10 * L.viewColumn(k).aggregate(Functions.MAX, Functions.ABS);
-      if (akk <= epsilon) {
-        // degenerate column case.  Set diagonal to 1, all others to zero
-        L.viewColumn(k).viewPart(k, n - k).assign(0);
+          // no need to subtract from remaining sub-matrix
+        } else {
+          // normalize column by diagonal element
+          akk = Math.sqrt(Math.max(0, akk));
+          columnK[k] = akk;
+          for (int i = k + 1; i < n; i++) {
+            columnK[i] /= akk;
+            diagonal[i] -= columnK[i] * columnK[i];
+          }
+        }
+      }
+      updateTrailing(columns, start, end);
+    }
+  }
 
-        isPositiveDefinite = false;
+  /**
+   * Exchanges rows and columns {@code k < p} of the partially factored matrix.  Columns before {@code k}
+   * are finished columns of L, so only their rows are exchanged; the trailing matrix from {@code k} on
+   * is symmetric and kept in its lower triangle.
+   */
+  private static void swap(double[][] columns, double[] diagonal, int[] permutation, int k, int p) {
+    if (k == p) {
+      return;
+    }
+    for (int j = 0; j < k; j++) {
+      swap(columns[j], k, columns[j], p);
+    }
+    swap(columns[k], k, columns[p], p);
+    for (int i = k + 1; i < p; i++) {
+      swap(columns[k], i, columns[i], p);
+    }
+    for (int i = p + 1; i < columns.length; i++) {
+      swap(columns[k], i, columns[p], i);
+    }
+    swap(diagonal, k, diagonal, p);
+    int tmp = permutation[k];
+    permutation[k] = permutation[p];
+    permutation[p] = tmp;
+  }
 
-        // no need to subtract from remaining sub-matrix
-      } else {
-        // normalize column by diagonal element
-        akk = Math.sqrt(Math.max(0, akk));
-        L.set(k, k, akk);
-        L.viewColumn(k).viewPart(k + 1, n - k - 1).assign(Functions.div(akk));
+  private static void swap(double[] x, int i, double[] y, int j) {
+    double tmp = x[i];
+    x[i] = y[j];
+    y[j] = tmp;
+  }
 
-        // now subtract scaled version of column
-        for (int j = k + 1; j < n; j++) {
-          Vector columnJ = L.viewColumn(j).viewPart(j, n - j);
-          Vector columnK = L.viewColumn(k).viewPart(j, n - j);
-          columnJ.assign(columnK, Functions.minusMult(L.get(j, k)));
+  /**
+   * Subtracts the outer product of the panel columns {@code [start, end)} from every column to the right
+   * of the panel.  Column j costs n - j, so the range handed to the {@link ParallelContext} runs over pairs
+   * of columns taken from both ends, which all cost the same.
+   */
+  private static void updateTrailing(final double[][] columns, final int start, final int end) {
+    final int n = columns.length;
+    int remaining = n - end;
+    ParallelContext.forEachRange((long) remaining * remaining * (end - start) / 2, (remaining + 1) / 2,
+        new ParallelContext.RangeTask() {
+          @Override
+          public void run(int from, int to) {
+            for (int t = from; t < to; t++) {
+              int left = end + t;
+              int right = n - 1 - t;
+              subtractPanel(columns, start, end, left);
+              if (right != left) {
+                subtractPanel(columns, start, end, right);
+              }
+            }
+          }
+        });
+  }
+
+  /**
+   * Subtracts {@code L[j, q] * L[i, q]} for every panel column q in {@code [start, end)} from the entries
+   * of column j on and below the diagonal, four panel columns per pass.
+   */
+  private static void subtractPanel(double[][] columns, int start, int end, int j) {
+    int n = columns.length;
+    double[] target = columns[j];
+    int q = start;
+    for (; q + 3 < end; q += 4) {
+      double[] c0 = columns[q];
+      double[] c1 = columns[q + 1];
+      double[] c2 = columns[q + 2];
+      double[] c3 = columns[q + 3];
+      double f0 = c0[j];
+      double f1 = c1[j];
+      double f2 = c2[j];
+      double f3 = c3[j];
+      for (int i = j; i < n; i++) {
+        target[i] -= f0 * c0[i] + f1 * c1[i] + f2 * c2[i] + f3 * c3[i];
+      }
+    }
+    for (; q < end; q++) {
+      double[] c = columns[q];
+      double f = c[j];
+      if (f != 0) {
+        for (int i = j; i < n; i++) {
+          target[i] -= f * c[i];
         }
       }
     }
   }
 
+  /**
+   * Turns the factored columns into the rows of the unpivoted matrix, reusing their arrays.
+   */
+  private static double[][] toRows(double[][] columns, int[] permutation) {
+    int n = columns.length;
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < i; j++) {
+        swap(columns[i], j, columns[j], i);
+      }
+    }
+    double[][] rows = new double[n][];
+    double[] buffer = new double[n];
+    for (int i = 0; i < n; i++) {
+      double[] row = columns[i];
+      for (int j = 0; j < n; j++) {
+        buffer[permutation[j]] = row[j];
+      }
+      System.arraycopy(buffer, 0, row, 0, n);
+      rows[permutation[i]] = row;
+    }
+    return rows;
+  }
+
   public boolean isPositiveDefinite() {
     return isPositiveDefinite;
   }
@@ -163,65 +282,88 @@ public class CholeskyDecomposition {
    * @param z
    */
   public Matrix solveLeft(Matrix z) {
-    int n = L.columnSize();
+    final int n = L.columnSize();
     int nx = z.columnSize();
 
-    Matrix X = new DenseMatrix(n, z.columnSize());
-    X.assign(z);
+    final double[][] x = new double[n][];
+    for (int i = 0; i < n; i++) {
+      x[i] = new double[nx];
+      for (int j = 0; j < nx; j++) {
+        x[i][j] = z.getQuick(i, j);
+      }
+    }
+    final int[] unpivot = L.getInverseRowPivot();
 
     // Solve L*Y = Z using back-substitution
     // note that k and i have to go in a funny order because L is pivoted
-    for (int internalK = 0; internalK < n; internalK++) {
-      int k = L.rowUnpivot(internalK);
-      for (int j = 0; j < nx; j++) {
-        for (int internalI = 0; internalI < internalK; internalI++) {
-          int i = L.rowUnpivot(internalI);
-          X.set(k, j, X.get(k, j) - X.get(i, j) * L.get(k, i));
-        }
-        if (L.get(k, k) != 0) {
-          X.set(k, j, X.get(k, j) / L.get(k, k));
-        } else {
-          X.set(k, j, 0);
+    // the columns of Z are independent, so they are split over the ParallelContext
+    ParallelContext.forEachRange((long) n * n * nx / 2, nx, new ParallelContext.RangeTask() {
+      @Override
+      public void run(int start, int end) {
+        for (int internalK = 0; internalK < n; internalK++) {
+          double[] xk = x[unpivot[internalK]];
+          double[] lk = lower[internalK];
+          for (int internalI = 0; internalI < internalK; internalI++) {
+            double[] xi = x[unpivot[internalI]];
+            double lki = lk[internalI];
+            for (int j = start; j < end; j++) {
+              xk[j] -= xi[j] * lki;
+            }
+          }
+          double lkk = lk[internalK];
+          for (int j = start; j < end; j++) {
+            xk[j] = lkk != 0 ? xk[j] / lkk : 0;
+          }
         }
       }
-    }
-    return X;
+    });
+    return new DenseMatrix(x, true);
   }
 
   /**
    * Compute z * inv(L') efficiently
    */
   public Matrix solveRight(Matrix z) {
-    int n = z.columnSize();
+    final int n = z.columnSize();
     int nx = z.rowSize();
 
-    Matrix x = new DenseMatrix(z.rowSize(), z.columnSize());
-    x.assign(z);
+    final double[][] x = new double[nx][];
+    for (int i = 0; i < nx; i++) {
+      x[i] = new double[n];
+      for (int j = 0; j < n; j++) {
+        x[i][j] = z.getQuick(i, j);
+      }
+    }
+    final int[] unpivot = L.getInverseRowPivot();
 
     // Solve Y*L' = Z using back-substitution
-    for (int internalK = 0; internalK < n; internalK++) {
-      int k = L.rowUnpivot(internalK);
-      for (int j = 0; j < nx; j++) {
-        for (int internalI = 0; internalI < k; internalI++) {
-          int i = L.rowUnpivot(internalI);
-          x.set(j, k, x.get(j, k) - x.get(j, i) * L.get(k, i));
-          if (Double.isInfinite(x.get(j, k)) || Double.isNaN(x.get(j, k))) {
-            throw new IllegalStateException(
-                String.format("Invalid value found at %d,%d (should not be possible)", j, k));
+    // each row of Z is solved on its own, so the rows are split over the ParallelContext
+    ParallelContext.forEachRange((long) n * n * nx / 2, nx, new ParallelContext.RangeTask() {
+      @Override
+      public void run(int start, int end) {
+        for (int j = start; j < end; j++) {
+          double[] xj = x[j];
+          for (int internalK = 0; internalK < n; internalK++) {
+            int k = unpivot[internalK];
+            double[] lk = lower[internalK];
+            for (int internalI = 0; internalI < k; internalI++) {
+              xj[k] -= xj[unpivot[internalI]] * lk[internalI];
+            }
+            if (Double.isInfinite(xj[k]) || Double.isNaN(xj[k])) {
+              throw new IllegalStateException(
+                  String.format("Invalid value found at %d,%d (should not be possible)", j, k));
+            }
+            double lkk = lk[internalK];
+            xj[k] = lkk != 0 ? xj[k] / lkk : 0;
+            if (Double.isInfinite(xj[k]) || Double.isNaN(xj[k])) {
+              throw new IllegalStateException(
+                  String.format("Invalid value found at %d,%d (should not be possible)", j, k));
+            }
           }
         }
-        if (L.get(k, k) != 0) {
-          x.set(j, k, x.get(j, k) / L.get(k, k));
-        } else {
-          x.set(j, k, 0);
-        }
-        if (Double.isInfinite(x.get(j, k)) || Double.isNaN(x.get(j, k))) {
-          throw new IllegalStateException(String.format("Invalid value found at %d,%d (should not be possible)", j, k));
-        }
       }
-    }
-    return x;
+    });
+    return new DenseMatrix(x, true);
   }
 
 }
-
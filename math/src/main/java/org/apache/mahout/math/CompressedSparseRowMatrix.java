@@ -0,0 +1,569 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.google.common.base.Preconditions;
+import org.apache.mahout.math.function.Functions;
+import org.apache.mahout.math.function.IntComparator;
+
+/**
+ * Immutable sparse matrix in compressed sparse row form. The non-zero cells of row {@code i} are
+ * {@code values[rowPointers[i] .. rowPointers[i + 1])}, at the columns in the same range of {@code columnIndices},
+ * which are strictly increasing within each row.
+ * <p/>
+ * Compared to a {@link SparseRowMatrix} this has no per row objects, so {@link #times(Vector)},
+ * {@link #timesSquared(Vector)} and {@link #transposeTimes(Vector)} are straight loops over three arrays. This
+ * makes it a good corpus for {@link org.apache.mahout.math.decomposer.lanczos.LanczosSolver} and
+ * {@link org.apache.mahout.math.solver.LSMR}. Rows returned by {@link #viewRow(int)} are read-only views on the
+ * arrays and do not copy anything.
+ * <p/>
+ * Use {@link Builder} or {@link #copyOf(Matrix)} to create one.
+ */
+public final class CompressedSparseRowMatrix extends AbstractMatrix {
+
+  private final int[] rowPointers;
+  private final int[] columnIndices;
+  private final double[] values;
+
+  /**
+   * Constructs a matrix on the given arrays, which are not copied and must not be modified afterwards.
+   *
+   * @param rowPointers   {@code rows + 1} offsets into the other two arrays, starting with 0
+   * @param columnIndices column of each non-zero cell, strictly increasing within each row
+   * @param values        value of each non-zero cell
+   */
+  public CompressedSparseRowMatrix(int rows, int columns, int[] rowPointers, int[] columnIndices, double[] values) {
+    super(rows, columns);
+    Preconditions.checkArgument(rowPointers.length == rows + 1, "need rows + 1 row pointers");
+    Preconditions.checkArgument(rowPointers[0] == 0, "first row pointer must be 0");
+    Preconditions.checkArgument(columnIndices.length >= rowPointers[rows] && values.length >= rowPointers[rows],
+        "fewer column indices or values than row pointers");
+    for (int row = 0; row < rows; row++) {
+      int start = rowPointers[row];
+      int end = rowPointers[row + 1];
+      Preconditions.checkArgument(start <= end, "row pointers must not decrease");
+      int previous = -1;
+      for (int k = start; k < end; k++) {
+        if (columnIndices[k] <= previous || columnIndices[k] >= columns) {
+          throw new IllegalArgumentException("column indices of row " + row + " are unordered or out of range");
+        }
+        previous = columnIndices[k];
+      }
+    }
+    this.rowPointers = rowPointers;
+    this.columnIndices = columnIndices;
+    this.values = values;
+  }
+
+  /**
+   * @return a compressed copy of the non-zero cells of {@code m}
+   */
+  public static CompressedSparseRowMatrix copyOf(Matrix m) {
+    Builder builder = new Builder(m.columnSize());
+    for (int row = 0; row < m.rowSize(); row++) {
+      builder.addRow(m.viewRow(row));
+    }
+    return builder.build();
+  }
+
+  /**
+   * @return a matrix with {@code columns} columns and one row per element of {@code rows}
+   */
+  public static CompressedSparseRowMatrix fromRows(int columns, Iterable<? extends Vector> rows) {
+    Builder builder = new Builder(columns);
+    for (Vector row : rows) {
+      builder.addRow(row);
+    }
+    return builder.build();
+  }
+
+  /**
+   * @return the number of stored cells
+   */
+  public int getNumNonZeros() {
+    return rowPointers[rows];
+  }
+
+  @Override
+  public double getQuick(int row, int column) {
+    int k = Arrays.binarySearch(columnIndices, rowPointers[row], rowPointers[row + 1], column);
+    return k < 0 ? 0.0 : values[k];
+  }
+
+  @Override
+  public void setQuick(int row, int column, double value) {
+    throw new UnsupportedOperationException("CompressedSparseRowMatrix is immutable");
+  }
+
+  @Override
+  public Matrix assignRow(int row, Vector other) {
+    throw new UnsupportedOperationException("CompressedSparseRowMatrix is immutable");
+  }
+
+  @Override
+  public Matrix assignColumn(int column, Vector other) {
+    throw new UnsupportedOperationException("CompressedSparseRowMatrix is immutable");
+  }
+
+  @Override
+  public Matrix like() {
+    return new SparseRowMatrix(rows, columns);
+  }
+
+  @Override
+  public Matrix like(int rows, int columns) {
+    return new SparseRowMatrix(rows, columns);
+  }
+
+  @Override
+  public int[] getNumNondefaultElements() {
+    int[] result = new int[2];
+    result[ROW] = rows;
+    for (int row = 0; row < rows; row++) {
+      result[COL] = Math.max(result[COL], rowPointers[row + 1] - rowPointers[row]);
+    }
+    return result;
+  }
+
+  @Override
+  public Vector viewRow(int row) {
+    if (row < 0 || row >= rows) {
+      throw new IndexException(row, rows);
+    }
+    return new RowView(rowPointers[row], rowPointers[row + 1]);
+  }
+
+  @Override
+  public Vector times(Vector v) {
+    if (columns != v.size()) {
+      throw new CardinalityException(columns, v.size());
+    }
+    final double[] x = toArray(v);
+    final double[] y = new double[rows];
+    ParallelContext.forEachRange(getNumNonZeros(), rows, new ParallelContext.RangeTask() {
+      @Override
+      public void run(int start, int end) {
+        for (int row = start; row < end; row++) {
+          double sum = 0.0;
+          for (int k = rowPointers[row]; k < rowPointers[row + 1]; k++) {
+            sum += values[k] * x[columnIndices[k]];
+          }
+          y[row] = sum;
+        }
+      }
+    });
+    return new DenseVector(y, true);
+  }
+
+  /**
+   * Computes {@code A' v} without forming the transpose.
+   */
+  public Vector transposeTimes(Vector v) {
+    if (rows != v.size()) {
+      throw new CardinalityException(rows, v.size());
+    }
+    final double[] x = toArray(v);
+    final double[] y = new double[columns];
+    ParallelContext.forEachRange(getNumNonZeros(), rows, new ParallelContext.RangeTask() {
+      @Override
+      public void run(int start, int end) {
+        double[] partial = start == 0 && end == rows ? y : new double[columns];
+        for (int row = start; row < end; row++) {
+          double xi = x[row];
+          if (xi != 0.0) {
+            for (int k = rowPointers[row]; k < rowPointers[row + 1]; k++) {
+              partial[columnIndices[k]] += values[k] * xi;
+            }
+          }
+        }
+        addTo(y, partial);
+      }
+    });
+    return new DenseVector(y, true);
+  }
+
+  /**
+   * Computes {@code A' A v} in a single pass over the cells.
+   */
+  @Override
+  public Vector timesSquared(Vector v) {
+    if (columns != v.size()) {
+      throw new CardinalityException(columns, v.size());
+    }
+    final double[] x = toArray(v);
+    final double[] y = new double[columns];
+    ParallelContext.forEachRange(2L * getNumNonZeros(), rows, new ParallelContext.RangeTask() {
+      @Override
+      public void run(int start, int end) {
+        double[] partial = start == 0 && end == rows ? y : new double[columns];
+        for (int row = start; row < end; row++) {
+          int rowStart = rowPointers[row];
+          int rowEnd = rowPointers[row + 1];
+          double d = 0.0;
+          for (int k = rowStart; k < rowEnd; k++) {
+            d += values[k] * x[columnIndices[k]];
+          }
+          if (d != 0.0) {
+            for (int k = rowStart; k < rowEnd; k++) {
+              partial[columnIndices[k]] += values[k] * d;
+            }
+          }
+        }
+        addTo(y, partial);
+      }
+    });
+    return new DenseVector(y, true);
+  }
+
+  /**
+   * Multiplies by a dense right operand by scaling and adding its rows; anything else goes through
+   * {@link AbstractMatrix#times(Matrix)}.
+   */
+  @Override
+  public Matrix times(Matrix other) {
+    if (columns != other.rowSize()) {
+      throw new CardinalityException(columns, other.rowSize());
+    }
+    if (!DenseGemm.isDense(other)) {
+      return super.times(other);
+    }
+    final int n = other.columnSize();
+    final double[][] b = DenseGemm.rows(other);
+    final DenseMatrix result = new DenseMatrix(rows, n);
+    final double[][] c = result.getBackingArray();
+    ParallelContext.forEachRange((long) getNumNonZeros() * n, rows, new ParallelContext.RangeTask() {
+      @Override
+      public void run(int start, int end) {
+        for (int row = start; row < end; row++) {
+          double[] sums = c[row];
+          for (int k = rowPointers[row]; k < rowPointers[row + 1]; k++) {
+            double a = values[k];
+            double[] bk = b[columnIndices[k]];
+            for (int j = 0; j < n; j++) {
+              sums[j] += a * bk[j];
+            }
+          }
+        }
+      }
+    });
+    return result;
+  }
+
+  /**
+   * @return the transpose, also in compressed sparse row form, built with a counting sort in O(rows + columns + nnz)
+   */
+  @Override
+  public Matrix transpose() {
+    int nnz = getNumNonZeros();
+    int[] pointers = new int[columns + 1];
+    for (int k = 0; k < nnz; k++) {
+      pointers[columnIndices[k] + 1]++;
+    }
+    for (int column = 0; column < columns; column++) {
+      pointers[column + 1] += pointers[column];
+    }
+    int[] next = pointers.clone();
+    int[] indices = new int[nnz];
+    double[] transposed = new double[nnz];
+    for (int row = 0; row < rows; row++) {
+      for (int k = rowPointers[row]; k < rowPointers[row + 1]; k++) {
+        int target = next[columnIndices[k]]++;
+        indices[target] = row;
+        transposed[target] = values[k];
+      }
+    }
+    return new CompressedSparseRowMatrix(columns, rows, pointers, indices, transposed);
+  }
+
+  private static double[] toArray(Vector v) {
+    double[] x = new double[v.size()];
+    for (Vector.Element e : v.nonZeroes()) {
+      x[e.index()] = e.get();
+    }
+    return x;
+  }
+
+  private static void addTo(double[] y, double[] partial) {
+    if (partial != y) {
+      synchronized (y) {
+        for (int i = 0; i < y.length; i++) {
+          y[i] += partial[i];
+        }
+      }
+    }
+  }
+
+  /**
+   * Accumulates rows into the arrays of a {@link CompressedSparseRowMatrix}. Rows may be of any vector type;
+   * rows which are not {@link Vector#isSequentialAccess() sequential access} are sorted on the way in.
+   */
+  public static final class Builder {
+
+    private final int columns;
+    private int rows;
+    private int[] rowPointers = new int[16];
+    private int[] columnIndices = new int[16];
+    private double[] values = new double[16];
+
+    public Builder(int columns) {
+      this.columns = columns;
+    }
+
+    public Builder addRow(Vector row) {
+      if (row.size() != columns) {
+        throw new CardinalityException(columns, row.size());
+      }
+      int start = rowPointers[rows];
+      int end = start;
+      ensureCapacity(start + row.getNumNondefaultElements());
+      for (Vector.Element e : row.nonZeroes()) {
+        if (e.get() != 0.0) {
+          if (end == columnIndices.length) {
+            ensureCapacity(end + 1);
+          }
+          columnIndices[end] = e.index();
+          values[end] = e.get();
+          end++;
+        }
+      }
+      if (!row.isSequentialAccess()) {
+        Sorting.quickSort(start, end, new IntComparator() {
+          @Override
+          public int compare(int a, int b) {
+            return columnIndices[a] < columnIndices[b] ? -1 : columnIndices[a] > columnIndices[b] ? 1 : 0;
+          }
+        }, new Swapper() {
+          @Override
+          public void swap(int a, int b) {
+            int index = columnIndices[a];
+            columnIndices[a] = columnIndices[b];
+            columnIndices[b] = index;
+            double value = values[a];
+            values[a] = values[b];
+            values[b] = value;
+          }
+        });
+      }
+      if (rows + 2 > rowPointers.length) {
+        rowPointers = Arrays.copyOf(rowPointers, 2 * rowPointers.length);
+      }
+      rowPointers[++rows] = end;
+      return this;
+    }
+
+    /**
+     * @return the matrix of all rows added so far; the builder can not be used afterwards
+     */
+    public CompressedSparseRowMatrix build() {
+      int nnz = rowPointers[rows];
+      CompressedSparseRowMatrix result = new CompressedSparseRowMatrix(rows, columns,
+          Arrays.copyOf(rowPointers, rows + 1),
+          Arrays.copyOf(columnIndices, nnz),
+          Arrays.copyOf(values, nnz));
+      rowPointers = null;
+      columnIndices = null;
+      values = null;
+      return result;
+    }
+
+    private void ensureCapacity(int capacity) {
+      if (capacity > columnIndices.length) {
+        int newCapacity = Math.max(capacity, 2 * columnIndices.length);
+        columnIndices = Arrays.copyOf(columnIndices, newCapacity);
+        values = Arrays.copyOf(values, newCapacity);
+      }
+    }
+  }
+
+  /**
+   * Read-only sequential access view of one row, backed by the matrix arrays.
+   */
+  private final class RowView extends AbstractVector {
+
+    private final int start;
+    private final int end;
+
+    RowView(int start, int end) {
+      super(columns);
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public double getQuick(int index) {
+      int k = Arrays.binarySearch(columnIndices, start, end, index);
+      return k < 0 ? 0.0 : values[k];
+    }
+
+    @Override
+    public void setQuick(int index, double value) {
+      throw new UnsupportedOperationException("CompressedSparseRowMatrix is immutable");
+    }
+
+    @Override
+    public void mergeUpdates(OrderedIntDoubleMapping updates) {
+      throw new UnsupportedOperationException("CompressedSparseRowMatrix is immutable");
+    }
+
+    @Override
+    public double dot(Vector x) {
+      if (size() != x.size()) {
+        throw new CardinalityException(size(), x.size());
+      }
+      double sum = 0.0;
+      for (int k = start; k < end; k++) {
+        sum += values[k] * x.getQuick(columnIndices[k]);
+      }
+      return sum;
+    }
+
+    @Override
+    public Vector like() {
+      return new SequentialAccessSparseVector(size());
+    }
+
+    @Override
+    protected Matrix matrixLike(int rows, int columns) {
+      return new SparseRowMatrix(rows, columns);
+    }
+
+    @Override
+    public boolean isDense() {
+      return false;
+    }
+
+    @Override
+    public boolean isSequentialAccess() {
+      return true;
+    }
+
+    @Override
+    public int getNumNondefaultElements() {
+      return end - start;
+    }
+
+    @Override
+    public double getLookupCost() {
+      return Math.max(1, Math.round(Functions.LOG2.apply(end - start)));
+    }
+
+    @Override
+    public double getIteratorAdvanceCost() {
+      return 1;
+    }
+
+    @Override
+    public boolean isAddConstantTime() {
+      return false;
+    }
+
+    @Override
+    protected Iterator<Element> iterateNonZero() {
+      return new NonZeroIterator();
+    }
+
+    @Override
+    protected Iterator<Element> iterator() {
+      return new AllIterator();
+    }
+
+    private final class NonZeroIterator implements Iterator<Element>, Element {
+      private int offset = start - 1;
+
+      @Override
+      public boolean hasNext() {
+        return offset + 1 < end;
+      }
+
+      @Override
+      public Element next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        offset++;
+        return this;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public double get() {
+        return values[offset];
+      }
+
+      @Override
+      public int index() {
+        return columnIndices[offset];
+      }
+
+      @Override
+      public void set(double value) {
+        throw new UnsupportedOperationException("CompressedSparseRowMatrix is immutable");
+      }
+    }
+
+    private final class AllIterator implements Iterator<Element>, Element {
+      private int index = -1;
+      private int offset = start;
+
+      @Override
+      public boolean hasNext() {
+        return index + 1 < size();
+      }
+
+      @Override
+      public Element next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        index++;
+        if (offset < end && index > columnIndices[offset]) {
+          offset++;
+        }
+        return this;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public double get() {
+        return offset < end && index == columnIndices[offset] ? values[offset] : 0.0;
+      }
+
+      @Override
+      public int index() {
+        return index;
+      }
+
+      @Override
+      public void set(double value) {
+        throw new UnsupportedOperationException("CompressedSparseRowMatrix is immutable");
+      }
+    }
+  }
+}
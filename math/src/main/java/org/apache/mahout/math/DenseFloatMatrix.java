@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math;
+
+import java.util.Arrays;
+
+/**
+ * Matrix of floats implemented using a 2-d array, using half the memory of a {@link DenseMatrix}. Suitable for
+ * factor matrices, topic models and centroid sets that do not need double precision. Values are rounded to float
+ * when they are set; products are accumulated in double.
+ */
+public class DenseFloatMatrix extends AbstractMatrix {
+
+  private float[][] values;
+
+  /**
+   * Construct a matrix from the given values
+   *
+   * @param values      a float[][]
+   * @param shallowCopy directly use the supplied array?
+   */
+  public DenseFloatMatrix(float[][] values, boolean shallowCopy) {
+    super(values.length, values[0].length);
+    if (shallowCopy) {
+      this.values = values;
+    } else {
+      this.values = new float[values.length][];
+      for (int i = 0; i < values.length; i++) {
+        this.values[i] = values[i].clone();
+      }
+    }
+  }
+
+  /**
+   * Constructs an empty matrix of the given size.
+   * @param rows  The number of rows in the result.
+   * @param columns The number of columns in the result.
+   */
+  public DenseFloatMatrix(int rows, int columns) {
+    super(rows, columns);
+    this.values = new float[rows][columns];
+  }
+
+  /**
+   * Copies {@code m}, rounding its values to float.
+   */
+  public DenseFloatMatrix(Matrix m) {
+    this(m.rowSize(), m.columnSize());
+    assign(m);
+  }
+
+  @Override
+  public Matrix clone() {
+    DenseFloatMatrix clone = (DenseFloatMatrix) super.clone();
+    clone.values = new float[values.length][];
+    for (int i = 0; i < values.length; i++) {
+      clone.values[i] = values[i].clone();
+    }
+    return clone;
+  }
+
+  @Override
+  public double getQuick(int row, int column) {
+    return values[row][column];
+  }
+
+  @Override
+  public Matrix like() {
+    return like(rowSize(), columnSize());
+  }
+
+  @Override
+  public Matrix like(int rows, int columns) {
+    return new DenseFloatMatrix(rows, columns);
+  }
+
+  @Override
+  public void setQuick(int row, int column, double value) {
+    values[row][column] = (float) value;
+  }
+
+  @Override
+  public Matrix viewPart(int[] offset, int[] size) {
+    return viewPart(offset[ROW], size[ROW], offset[COL], size[COL]);
+  }
+
+  @Override
+  public Matrix viewPart(int rowOffset, int rowsRequested, int columnOffset, int columnsRequested) {
+    if (rowOffset < 0) {
+      throw new IndexException(rowOffset, rowSize());
+    }
+    if (rowOffset + rowsRequested > rowSize()) {
+      throw new IndexException(rowOffset + rowsRequested, rowSize());
+    }
+    if (columnOffset < 0) {
+      throw new IndexException(columnOffset, columnSize());
+    }
+    if (columnOffset + columnsRequested > columnSize()) {
+      throw new IndexException(columnOffset + columnsRequested, columnSize());
+    }
+    return new MatrixView(this, new int[]{rowOffset, columnOffset}, new int[]{rowsRequested, columnsRequested});
+  }
+
+  @Override
+  public Matrix assign(double value) {
+    for (int row = 0; row < rowSize(); row++) {
+      Arrays.fill(values[row], (float) value);
+    }
+    return this;
+  }
+
+  @Override
+  public Matrix assignColumn(int column, Vector other) {
+    if (rowSize() != other.size()) {
+      throw new CardinalityException(rowSize(), other.size());
+    }
+    if (column < 0 || column >= columnSize()) {
+      throw new IndexException(column, columnSize());
+    }
+    for (int row = 0; row < rowSize(); row++) {
+      values[row][column] = (float) other.getQuick(row);
+    }
+    return this;
+  }
+
+  @Override
+  public Matrix assignRow(int row, Vector other) {
+    if (columnSize() != other.size()) {
+      throw new CardinalityException(columnSize(), other.size());
+    }
+    if (row < 0 || row >= rowSize()) {
+      throw new IndexException(row, rowSize());
+    }
+    for (int col = 0; col < columnSize(); col++) {
+      values[row][col] = (float) other.getQuick(col);
+    }
+    return this;
+  }
+
+  /**
+   * @return a {@link DenseFloatVector} backed by the row, so writes to it change the matrix
+   */
+  @Override
+  public Vector viewRow(int row) {
+    if (row < 0 || row >= rowSize()) {
+      throw new IndexException(row, rowSize());
+    }
+    return new DenseFloatVector(values[row], true);
+  }
+
+  @Override
+  public Vector times(Vector v) {
+    if (columns != v.size()) {
+      throw new CardinalityException(columns, v.size());
+    }
+    double[] x = new double[columns];
+    for (Vector.Element e : v.nonZeroes()) {
+      x[e.index()] = e.get();
+    }
+    double[] y = new double[rows];
+    for (int row = 0; row < rows; row++) {
+      float[] a = values[row];
+      double sum = 0.0;
+      for (int col = 0; col < columns; col++) {
+        sum += a[col] * x[col];
+      }
+      y[row] = sum;
+    }
+    return new DenseVector(y, true);
+  }
+
+  /**
+   * Multiplies by another float matrix one row of the result at a time, accumulating in double; any other right
+   * operand goes through {@link AbstractMatrix#times(Matrix)}.
+   */
+  @Override
+  public Matrix times(Matrix other) {
+    if (columns != other.rowSize()) {
+      throw new CardinalityException(columns, other.rowSize());
+    }
+    if (!(other instanceof DenseFloatMatrix)) {
+      return super.times(other);
+    }
+    final float[][] b = ((DenseFloatMatrix) other).values;
+    final int n = other.columnSize();
+    final DenseFloatMatrix result = new DenseFloatMatrix(rows, n);
+    ParallelContext.forEachRange((long) rows * columns * n, rows, new ParallelContext.RangeTask() {
+      @Override
+      public void run(int start, int end) {
+        double[] sums = new double[n];
+        for (int row = start; row < end; row++) {
+          Arrays.fill(sums, 0.0);
+          float[] a = values[row];
+          for (int k = 0; k < columns; k++) {
+            double aik = a[k];
+            if (aik != 0.0) {
+              float[] bk = b[k];
+              for (int j = 0; j < n; j++) {
+                sums[j] += aik * bk[j];
+              }
+            }
+          }
+          float[] c = result.values[row];
+          for (int j = 0; j < n; j++) {
+            c[j] = (float) sums[j];
+          }
+        }
+      }
+    });
+    return result;
+  }
+}
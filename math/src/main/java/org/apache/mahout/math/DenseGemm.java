@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math;
+
+import java.util.Arrays;
+
+/**
+ * Cache-blocked dense matrix multiplication kernel used by {@link DenseMatrix} and
+ * {@link DenseRowMajorMatrix}.
+ * <p/>
+ * The product is accumulated one block of B at a time, K_BLOCK rows by N_BLOCK columns. The block is first
+ * packed into its own row arrays so it stays in cache while every row of A streams past it. Each row of C is
+ * updated in a separate accumulator with four rows of the block at a time, which keeps the partial sums in
+ * registers and gives the JIT simple zero-based loops over distinct arrays that it can vectorize.
+ * <p/>
+ * Both storage layouts are handled by describing a matrix as an array of row arrays plus the offset of each
+ * row in its array: a {@link DenseMatrix} has one array per row at offset zero, while a
+ * {@link DenseRowMajorMatrix} repeats its single array with offsets advancing by the row length.
+ */
+final class DenseGemm {
+
+  /** Rows of B (columns of A) per block; with N_BLOCK this keeps a 256KB block of B in cache. */
+  private static final int K_BLOCK = 128;
+  /** Columns of B and C per block. */
+  private static final int N_BLOCK = 256;
+
+  private DenseGemm() {}
+
+  static boolean isDense(Matrix m) {
+    return m instanceof DenseMatrix || m instanceof DenseRowMajorMatrix;
+  }
+
+  /**
+   * Computes {@code c += a * b} where all three are row-major arrays, a is m x p and b is p x n.
+   */
+  static void multiply(double[] a, double[] b, double[] c, int m, int p, int n) {
+    multiply(repeat(a, m), offsets(m, p), repeat(b, p), offsets(p, n), repeat(c, m), offsets(m, n), m, p, n);
+  }
+
+  /**
+   * Computes {@code c += a * b} where all three are arrays of rows, a is m x p and b is p x n.
+   */
+  static void multiply(double[][] a, double[][] b, double[][] c, int m, int p, int n) {
+    multiply(a, new int[m], b, new int[p], c, new int[m], m, p, n);
+  }
+
+  /**
+   * Splits the rows of A and C into blocks for the {@link ParallelContext}; each block packs its own copy of
+   * the blocks of B.
+   */
+  private static void multiply(final double[][] a, final int[] aOffsets, final double[][] b, final int[] bOffsets,
+                               final double[][] c, final int[] cOffsets, int m, final int p, final int n) {
+    ParallelContext.forEachRange((long) m * p * n, m, new ParallelContext.RangeTask() {
+      @Override
+      public void run(int start, int end) {
+        multiply(a, aOffsets, b, bOffsets, c, cOffsets, start, end, p, n);
+      }
+    });
+  }
+
+  private static void multiply(double[][] a, int[] aOffsets, double[][] b, int[] bOffsets,
+                               double[][] c, int[] cOffsets, int rowStart, int rowEnd, int p, int n) {
+    double[][] block = new double[Math.min(K_BLOCK, p)][Math.min(N_BLOCK, n)];
+    double[] sums = new double[Math.min(N_BLOCK, n)];
+    for (int kk = 0; kk < p; kk += K_BLOCK) {
+      int kLength = Math.min(K_BLOCK, p - kk);
+      for (int jj = 0; jj < n; jj += N_BLOCK) {
+        int length = Math.min(N_BLOCK, n - jj);
+        for (int k = 0; k < kLength; k++) {
+          System.arraycopy(b[kk + k], bOffsets[kk + k] + jj, block[k], 0, length);
+        }
+        for (int i = rowStart; i < rowEnd; i++) {
+          double[] ai = a[i];
+          int aOffset = aOffsets[i] + kk;
+          System.arraycopy(c[i], cOffsets[i] + jj, sums, 0, length);
+          int k = 0;
+          for (; k + 3 < kLength; k += 4) {
+            double x0 = ai[aOffset + k];
+            double x1 = ai[aOffset + k + 1];
+            double x2 = ai[aOffset + k + 2];
+            double x3 = ai[aOffset + k + 3];
+            double[] b0 = block[k];
+            double[] b1 = block[k + 1];
+            double[] b2 = block[k + 2];
+            double[] b3 = block[k + 3];
+            for (int j = 0; j < length; j++) {
+              sums[j] += x0 * b0[j] + x1 * b1[j] + x2 * b2[j] + x3 * b3[j];
+            }
+          }
+          for (; k < kLength; k++) {
+            double x0 = ai[aOffset + k];
+            double[] b0 = block[k];
+            for (int j = 0; j < length; j++) {
+              sums[j] += x0 * b0[j];
+            }
+          }
+          System.arraycopy(sums, 0, c[i], cOffsets[i] + jj, length);
+        }
+      }
+    }
+  }
+
+  private static double[][] repeat(double[] values, int rows) {
+    double[][] result = new double[rows][];
+    Arrays.fill(result, values);
+    return result;
+  }
+
+  private static int[] offsets(int rows, int stride) {
+    int[] result = new int[rows];
+    for (int row = 0; row < rows; row++) {
+      result[row] = row * stride;
+    }
+    return result;
+  }
+
+  /**
+   * @return the cells of a dense matrix as one row-major array, without copying if the matrix already
+   * stores them that way
+   */
+  static double[] rowMajor(Matrix m) {
+    if (m instanceof DenseRowMajorMatrix) {
+      return ((DenseRowMajorMatrix) m).getBackingArray();
+    }
+    int rows = m.rowSize();
+    int columns = m.columnSize();
+    double[] result = new double[rows * columns];
+    if (m instanceof DenseMatrix) {
+      double[][] values = ((DenseMatrix) m).getBackingArray();
+      for (int row = 0; row < rows; row++) {
+        System.arraycopy(values[row], 0, result, row * columns, columns);
+      }
+    } else {
+      for (int row = 0; row < rows; row++) {
+        for (int column = 0; column < columns; column++) {
+          result[row * columns + column] = m.getQuick(row, column);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the cells of a dense matrix as an array of rows, without copying if the matrix already
+   * stores them that way
+   */
+  static double[][] rows(Matrix m) {
+    if (m instanceof DenseMatrix) {
+      return ((DenseMatrix) m).getBackingArray();
+    }
+    int rows = m.rowSize();
+    int columns = m.columnSize();
+    double[][] result = new double[rows][columns];
+    if (m instanceof DenseRowMajorMatrix) {
+      double[] values = ((DenseRowMajorMatrix) m).getBackingArray();
+      for (int row = 0; row < rows; row++) {
+        System.arraycopy(values, row * columns, result[row], 0, columns);
+      }
+    } else {
+      for (int row = 0; row < rows; row++) {
+        for (int column = 0; column < columns; column++) {
+          result[row][column] = m.getQuick(row, column);
+        }
+      }
+    }
+    return result;
+  }
+}
@@ -20,7 +20,7 @@ package org.apache.mahout.math;
 import java.util.Arrays;
 
 /** Matrix of doubles implemented using a 2-d array */
-public class DenseMatrix extends AbstractMatrix {
+public class DenseMatrix extends AbstractMatrix implements MatrixTimesOps {
 
   private double[][] values;
 
@@ -63,6 +63,10 @@ public class DenseMatrix extends AbstractMatrix {
     this.values = new double[rows][columns];
   }
 
+  double[][] getBackingArray() {
+    return values;
+  }
+
   @Override
   public Matrix clone() {
     DenseMatrix clone = (DenseMatrix) super.clone();
@@ -175,5 +179,38 @@ public class DenseMatrix extends AbstractMatrix {
     }
     return new DenseVector(values[row], true);
   }
-  
+
+  @Override
+  public Matrix times(Matrix other) {
+    return timesRight(other);
+  }
+
+  @Override
+  public Matrix timesRight(Matrix that) {
+    if (columnSize() != that.rowSize()) {
+      throw new CardinalityException(columnSize(), that.rowSize());
+    }
+    if (!DenseGemm.isDense(that)) {
+      return super.times(that);
+    }
+    int n = that.columnSize();
+    DenseMatrix result = new DenseMatrix(rowSize(), n);
+    DenseGemm.multiply(values, DenseGemm.rows(that), result.values, rowSize(), columnSize(), n);
+    return result;
+  }
+
+  @Override
+  public Matrix timesLeft(Matrix that) {
+    if (that.columnSize() != rowSize()) {
+      throw new CardinalityException(that.columnSize(), rowSize());
+    }
+    if (!DenseGemm.isDense(that)) {
+      return that.times(this);
+    }
+    int m = that.rowSize();
+    DenseMatrix result = new DenseMatrix(m, columnSize());
+    DenseGemm.multiply(DenseGemm.rows(that), values, result.values, m, rowSize(), columnSize());
+    return result;
+  }
+
 }
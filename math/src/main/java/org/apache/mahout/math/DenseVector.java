@@ -69,9 +69,14 @@ public class DenseVector extends AbstractVector {
     }
   }
 
+  double[] getBackingArray() {
+    return values;
+  }
+
   @Override
   public double dot(Vector x) {
-    if (!x.isDense()) {
+    if (!x.isDense() || x instanceof DenseVector) {
+      // both go through the kernels in VectorBinaryAggregate
       return super.dot(x);
     } else {
 
@@ -0,0 +1,310 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.math;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * A dense matrix stored in a memory-mapped file.  Unlike {@link FileBasedMatrix} it can be created from scratch,
+ * written in place with {@link #setQuick}, store cells as floats or doubles in row- or column-major order, and hold
+ * far more than 2GB: the file is mapped in 1GB chunks and cells are addressed by a long offset.
+ * <p>
+ * The data lives outside the Java heap and in the page cache, so opening a matrix is instant, several JVMs on one
+ * machine can map the same file, and writes become visible to them once the operating system sees them (call
+ * {@link #force()} to push them to disk).  The file starts with a small header recording the shape, cell type and
+ * layout, followed by the cells in little-endian order.
+ * <p>
+ * Reads may run concurrently.  Writes to distinct cells may run concurrently too, but, as with
+ * {@link DenseMatrix}, nothing orders a write in one thread with a read of the same cell in another.
+ */
+public final class MemoryMappedMatrix extends AbstractMatrix implements Closeable {
+
+  public enum CellType {
+    FLOAT(4), DOUBLE(8);
+
+    private final int bytes;
+
+    CellType(int bytes) {
+      this.bytes = bytes;
+    }
+
+    public int bytes() {
+      return bytes;
+    }
+  }
+
+  public enum Layout {
+    ROW_MAJOR, COLUMN_MAJOR
+  }
+
+  private static final int MAGIC = 0x4D4D4D58;  // "MMMX"
+  private static final int VERSION = 1;
+  // the header is padded so that cells stay aligned
+  static final int HEADER_BYTES = 64;
+  static final int DEFAULT_CHUNK_BITS = 30;
+
+  private final File file;
+  private final CellType cellType;
+  private final Layout layout;
+  private final boolean writable;
+  private final int chunkBits;
+  private final long chunkMask;
+  private final int cellShift;
+  private ByteBuffer[] chunks;
+
+  private MemoryMappedMatrix(File file, int rows, int columns, CellType cellType, Layout layout, boolean writable,
+                             int chunkBits) {
+    super(rows, columns);
+    Preconditions.checkArgument(chunkBits >= 6 && chunkBits <= 30, "Chunks must be from 64 bytes to 1GB");
+    this.file = file;
+    this.cellType = cellType;
+    this.layout = layout;
+    this.writable = writable;
+    this.chunkBits = chunkBits;
+    this.chunkMask = (1L << chunkBits) - 1;
+    this.cellShift = Integer.numberOfTrailingZeros(cellType.bytes());
+  }
+
+  /**
+   * Creates a zero-filled matrix in a new file, replacing any existing file.  On file systems with sparse files
+   * no disk space is used until cells are written.
+   */
+  public static MemoryMappedMatrix create(File file, int rows, int columns, CellType cellType, Layout layout)
+    throws IOException {
+    return create(file, rows, columns, cellType, layout, DEFAULT_CHUNK_BITS);
+  }
+
+  static MemoryMappedMatrix create(File file, int rows, int columns, CellType cellType, Layout layout, int chunkBits)
+    throws IOException {
+    Preconditions.checkArgument(rows >= 0 && columns >= 0, "Negative size %s x %s", rows, columns);
+    MemoryMappedMatrix m = new MemoryMappedMatrix(file, rows, columns, cellType, layout, true, chunkBits);
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.setLength(0);
+      raf.setLength(m.fileLength());
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      header.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(columns)
+          .putInt(cellType.ordinal()).putInt(layout.ordinal());
+      header.clear();
+      raf.getChannel().write(header, 0);
+      m.map(raf.getChannel());
+    } finally {
+      raf.close();
+    }
+    return m;
+  }
+
+  /**
+   * Creates a new file holding a copy of {@code source}.
+   */
+  public static MemoryMappedMatrix create(File file, Matrix source, CellType cellType, Layout layout)
+    throws IOException {
+    MemoryMappedMatrix m = create(file, source.rowSize(), source.columnSize(), cellType, layout);
+    for (MatrixSlice row : source) {
+      for (Vector.Element element : row.vector().nonZeroes()) {
+        m.setQuick(row.index(), element.index(), element.get());
+      }
+    }
+    return m;
+  }
+
+  /**
+   * Maps an existing matrix file.
+   *
+   * @param writable  whether to map the file read-write; a read-only matrix throws on {@link #setQuick}
+   */
+  public static MemoryMappedMatrix open(File file, boolean writable) throws IOException {
+    return open(file, writable, DEFAULT_CHUNK_BITS);
+  }
+
+  static MemoryMappedMatrix open(File file, boolean writable, int chunkBits) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, writable ? "rw" : "r");
+    try {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      while (header.hasRemaining()) {
+        if (raf.getChannel().read(header, header.position()) < 0) {
+          throw new IOException("File " + file + " is too short to be a matrix");
+        }
+      }
+      header.flip();
+      if (header.getInt() != MAGIC) {
+        throw new IOException("File " + file + " is not a memory mapped matrix");
+      }
+      int version = header.getInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported matrix file version " + version + " in " + file);
+      }
+      int rows = header.getInt();
+      int columns = header.getInt();
+      if (rows < 0 || columns < 0) {
+        throw new IOException("Negative size " + rows + " x " + columns + " in " + file);
+      }
+      CellType cellType = headerValue(CellType.values(), header.getInt(), "cell type", file);
+      Layout layout = headerValue(Layout.values(), header.getInt(), "layout", file);
+      MemoryMappedMatrix m = new MemoryMappedMatrix(file, rows, columns, cellType, layout, writable, chunkBits);
+      if (raf.length() != m.fileLength()) {
+        throw new IOException("File " + file + " is " + raf.length() + " bytes but should be " + m.fileLength());
+      }
+      m.map(raf.getChannel());
+      return m;
+    } finally {
+      raf.close();
+    }
+  }
+
+  private static <T extends Enum<T>> T headerValue(T[] values, int ordinal, String name, File file)
+    throws IOException {
+    if (ordinal < 0 || ordinal >= values.length) {
+      throw new IOException("Unknown " + name + " " + ordinal + " in " + file);
+    }
+    return values[ordinal];
+  }
+
+  private long fileLength() {
+    return HEADER_BYTES + ((long) rows * columns << cellShift);
+  }
+
+  private void map(FileChannel channel) throws IOException {
+    // the mappings stay valid after the channel is closed
+    long length = fileLength();
+    FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+    List<ByteBuffer> mapped = Lists.newArrayList();
+    for (long start = 0; start < length; start += 1L << chunkBits) {
+      MappedByteBuffer buffer = channel.map(mode, start, Math.min(1L << chunkBits, length - start));
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+      mapped.add(buffer);
+    }
+    chunks = mapped.toArray(new ByteBuffer[mapped.size()]);
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  public CellType getCellType() {
+    return cellType;
+  }
+
+  public Layout getLayout() {
+    return layout;
+  }
+
+  /** Reads all of the file into physical memory, as far as the operating system allows. */
+  public void load() {
+    for (ByteBuffer chunk : chunks) {
+      ((MappedByteBuffer) chunk).load();
+    }
+  }
+
+  /** Writes any changes through to the file. */
+  public void force() {
+    if (writable) {
+      for (ByteBuffer chunk : chunks) {
+        ((MappedByteBuffer) chunk).force();
+      }
+    }
+  }
+
+  /**
+   * Forces outstanding writes and drops this matrix's references to the mapping.  The memory is released when the
+   * buffers are garbage collected; the matrix must not be used afterwards.
+   */
+  @Override
+  public void close() {
+    force();
+    chunks = new ByteBuffer[0];
+  }
+
+  private long offset(int row, int column) {
+    long cell = layout == Layout.ROW_MAJOR ? (long) row * columns + column : (long) column * rows + row;
+    return HEADER_BYTES + (cell << cellShift);
+  }
+
+  @Override
+  public double getQuick(int row, int column) {
+    long offset = offset(row, column);
+    ByteBuffer chunk = chunks[(int) (offset >>> chunkBits)];
+    int position = (int) (offset & chunkMask);
+    return cellType == CellType.DOUBLE ? chunk.getDouble(position) : chunk.getFloat(position);
+  }
+
+  @Override
+  public void setQuick(int row, int column, double value) {
+    if (!writable) {
+      throw new UnsupportedOperationException("Matrix " + file + " is mapped read-only");
+    }
+    long offset = offset(row, column);
+    ByteBuffer chunk = chunks[(int) (offset >>> chunkBits)];
+    int position = (int) (offset & chunkMask);
+    if (cellType == CellType.DOUBLE) {
+      chunk.putDouble(position, value);
+    } else {
+      chunk.putFloat(position, (float) value);
+    }
+  }
+
+  @Override
+  public Matrix assignColumn(int column, Vector other) {
+    if (rows != other.size()) {
+      throw new CardinalityException(rows, other.size());
+    }
+    for (int row = 0; row < rows; row++) {
+      setQuick(row, column, other.getQuick(row));
+    }
+    return this;
+  }
+
+  @Override
+  public Matrix assignRow(int row, Vector other) {
+    if (columns != other.size()) {
+      throw new CardinalityException(columns, other.size());
+    }
+    for (int column = 0; column < columns; column++) {
+      setQuick(row, column, other.getQuick(column));
+    }
+    return this;
+  }
+
+  @Override
+  public Matrix like() {
+    return like(rows, columns);
+  }
+
+  /**
+   * @return a {@link DenseMatrix}, since there's no good way to pick a file for the new matrix
+   */
+  @Override
+  public Matrix like(int rows, int columns) {
+    return new DenseMatrix(rows, columns);
+  }
+
+  @Override
+  public Matrix viewPart(int[] offset, int[] size) {
+    return new MatrixView(this, offset, size);
+  }
+}
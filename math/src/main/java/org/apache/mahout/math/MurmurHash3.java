@@ -18,6 +18,10 @@ package org.apache.mahout.math;
  *  platforms.
  *  <p>
  *  The 32 bit x86 version of this hash should be the fastest variant for relatively short keys like ids.
+ *  The 128 bit x64 version is useful when several independent hash values are needed for one key, as when a
+ *  feature is spread over several probe locations: all of them can be derived from its two 64 bit halves.
+ *  Its {@link CharSequence} and {@code char[]} forms hash the UTF-8 encoding of the characters (with
+ *  unpaired surrogates replaced by {@code '?'}, as {@link String#getBytes} does) without materializing it.
  *  <p>
  *  Note - The x86 and x64 versions do _not_ produce the same results, as the
  *  algorithms are optimized for their respective platforms.
@@ -81,4 +85,165 @@ public final class MurmurHash3 {
     return h1;
   }
 
+  /**
+   * Computes the MurmurHash3_x64_128 hash of {@code data[offset .. offset+len-1]}.
+   *
+   * @param out  receives the first 64 bits of the hash in {@code out[0]} and the second in {@code out[1]}
+   */
+  public static void murmurhash3x64128(byte[] data, int offset, int len, long seed, long[] out) {
+    long h1 = seed;
+    long h2 = seed;
+    int roundedEnd = offset + (len & 0xfffffff0);  // round down to 16 byte block
+
+    for (int i = offset; i < roundedEnd; i += 16) {
+      long k1 = getLongLittleEndian(data, i);
+      long k2 = getLongLittleEndian(data, i + 8);
+      h1 ^= mixK1(k1);
+      h1 = Long.rotateLeft(h1, 27) + h2;
+      h1 = h1 * 5 + 0x52dce729;
+      h2 ^= mixK2(k2);
+      h2 = Long.rotateLeft(h2, 31) + h1;
+      h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    // tail
+    int tail = len & 0x0f;
+    long k1 = 0;
+    long k2 = 0;
+    for (int i = tail - 1; i >= 8; i--) {
+      k2 = (k2 << 8) | (data[roundedEnd + i] & 0xff);
+    }
+    for (int i = Math.min(tail, 8) - 1; i >= 0; i--) {
+      k1 = (k1 << 8) | (data[roundedEnd + i] & 0xff);
+    }
+    finish128(h1, h2, k1, k2, tail, len, out);
+  }
+
+  /**
+   * Computes the same hash as {@link #murmurhash3x64128(byte[], int, int, long, long[])} would for the UTF-8
+   * encoding of {@code data.subSequence(start, end)}, without allocating.
+   */
+  public static void murmurhash3x64128(CharSequence data, int start, int end, long seed, long[] out) {
+    hashUtf8(data, null, start, end, seed, out);
+  }
+
+  /**
+   * Computes the same hash as {@link #murmurhash3x64128(byte[], int, int, long, long[])} would for the UTF-8
+   * encoding of {@code data[offset .. offset+len-1]}, without allocating.
+   */
+  public static void murmurhash3x64128(char[] data, int offset, int len, long seed, long[] out) {
+    hashUtf8(null, data, offset, offset + len, seed, out);
+  }
+
+  // exactly one of sequence and array is non-null
+  private static void hashUtf8(CharSequence sequence, char[] array, int start, int end, long seed, long[] out) {
+    long h1 = seed;
+    long h2 = seed;
+    // the current 16 byte block is assembled little endian in k1 and k2
+    long k1 = 0;
+    long k2 = 0;
+    int pos = 0;
+    int len = 0;
+
+    for (int i = start; i < end; i++) {
+      char c = array != null ? array[i] : sequence.charAt(i);
+      int bytes;
+      int count;
+      if (c < 0x80) {
+        bytes = c;
+        count = 1;
+      } else if (c < 0x800) {
+        bytes = (0xc0 | c >>> 6) | (0x80 | c & 0x3f) << 8;
+        count = 2;
+      } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+        char low = i + 1 < end ? (array != null ? array[i + 1] : sequence.charAt(i + 1)) : 0;
+        if (Character.isHighSurrogate(c) && Character.isLowSurrogate(low)) {
+          int cp = Character.toCodePoint(c, low);
+          bytes = (0xf0 | cp >>> 18) | (0x80 | cp >>> 12 & 0x3f) << 8 | (0x80 | cp >>> 6 & 0x3f) << 16
+              | (0x80 | cp & 0x3f) << 24;
+          count = 4;
+          i++;
+        } else {
+          bytes = '?';
+          count = 1;
+        }
+      } else {
+        bytes = (0xe0 | c >>> 12) | (0x80 | c >>> 6 & 0x3f) << 8 | (0x80 | c & 0x3f) << 16;
+        count = 3;
+      }
+
+      len += count;
+      for (int j = 0; j < count; j++) {
+        long b = bytes & 0xff;
+        bytes >>>= 8;
+        if (pos < 8) {
+          k1 |= b << (pos << 3);
+        } else {
+          k2 |= b << ((pos - 8) << 3);
+        }
+        if (++pos == 16) {
+          h1 ^= mixK1(k1);
+          h1 = Long.rotateLeft(h1, 27) + h2;
+          h1 = h1 * 5 + 0x52dce729;
+          h2 ^= mixK2(k2);
+          h2 = Long.rotateLeft(h2, 31) + h1;
+          h2 = h2 * 5 + 0x38495ab5;
+          k1 = 0;
+          k2 = 0;
+          pos = 0;
+        }
+      }
+    }
+    finish128(h1, h2, k1, k2, pos, len, out);
+  }
+
+  private static void finish128(long h1, long h2, long k1, long k2, int tail, int len, long[] out) {
+    if (tail > 8) {
+      h2 ^= mixK2(k2);
+    }
+    if (tail > 0) {
+      h1 ^= mixK1(k1);
+    }
+
+    // finalization
+    h1 ^= len;
+    h2 ^= len;
+    h1 += h2;
+    h2 += h1;
+    h1 = fmix64(h1);
+    h2 = fmix64(h2);
+    h1 += h2;
+    h2 += h1;
+
+    out[0] = h1;
+    out[1] = h2;
+  }
+
+  private static long mixK1(long k1) {
+    k1 *= 0x87c37b91114253d5L;
+    k1 = Long.rotateLeft(k1, 31);
+    return k1 * 0x4cf5ad432745937fL;
+  }
+
+  private static long mixK2(long k2) {
+    k2 *= 0x4cf5ad432745937fL;
+    k2 = Long.rotateLeft(k2, 33);
+    return k2 * 0x87c37b91114253d5L;
+  }
+
+  private static long fmix64(long k) {
+    k ^= k >>> 33;
+    k *= 0xff51afd7ed558ccdL;
+    k ^= k >>> 33;
+    k *= 0xc4ceb9fe1a85ec53L;
+    k ^= k >>> 33;
+    return k;
+  }
+
+  private static long getLongLittleEndian(byte[] data, int i) {
+    return (data[i] & 0xffL) | (data[i + 1] & 0xffL) << 8 | (data[i + 2] & 0xffL) << 16
+        | (data[i + 3] & 0xffL) << 24 | (data[i + 4] & 0xffL) << 32 | (data[i + 5] & 0xffL) << 40
+        | (data[i + 6] & 0xffL) << 48 | (data[i + 7] & 0xffL) << 56;
+  }
+
 }
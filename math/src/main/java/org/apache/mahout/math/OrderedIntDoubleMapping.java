@@ -78,6 +78,11 @@ public final class OrderedIntDoubleMapping implements Serializable, Cloneable {
     return numMappings;
   }
 
+  /** Removes all mappings but keeps the arrays, so that refilling in index order doesn't allocate. */
+  void clear() {
+    numMappings = 0;
+  }
+
   private void growTo(int newCapacity) {
     if (newCapacity > indices.length) {
       int[] newIndices = new int[newCapacity];
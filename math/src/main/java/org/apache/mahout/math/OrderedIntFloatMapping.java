@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math;
+
+import java.io.Serializable;
+
+/**
+ * Single precision counterpart of {@link OrderedIntDoubleMapping}: sorted indices with a parallel float[] of
+ * values. Assigning zero removes a mapping.
+ */
+final class OrderedIntFloatMapping implements Serializable, Cloneable {
+
+  private int[] indices;
+  private float[] values;
+  private int numMappings;
+
+  OrderedIntFloatMapping(int capacity) {
+    indices = new int[capacity];
+    values = new float[capacity];
+    numMappings = 0;
+  }
+
+  OrderedIntFloatMapping(int[] indices, float[] values, int numMappings) {
+    this.indices = indices;
+    this.values = values;
+    this.numMappings = numMappings;
+  }
+
+  int[] getIndices() {
+    return indices;
+  }
+
+  int indexAt(int offset) {
+    return indices[offset];
+  }
+
+  float[] getValues() {
+    return values;
+  }
+
+  void setValueAt(int offset, float value) {
+    values[offset] = value;
+  }
+
+  int getNumMappings() {
+    return numMappings;
+  }
+
+  private void growTo(int newCapacity) {
+    if (newCapacity > indices.length) {
+      int[] newIndices = new int[newCapacity];
+      System.arraycopy(indices, 0, newIndices, 0, numMappings);
+      indices = newIndices;
+      float[] newValues = new float[newCapacity];
+      System.arraycopy(values, 0, newValues, 0, numMappings);
+      values = newValues;
+    }
+  }
+
+  private int find(int index) {
+    int low = 0;
+    int high = numMappings - 1;
+    while (low <= high) {
+      int mid = low + (high - low >>> 1);
+      int midVal = indices[mid];
+      if (midVal < index) {
+        low = mid + 1;
+      } else if (midVal > index) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+
+  float get(int index) {
+    int offset = find(index);
+    return offset >= 0 ? values[offset] : 0.0f;
+  }
+
+  void set(int index, float value) {
+    if (numMappings == 0 || index > indices[numMappings - 1]) {
+      if (value != 0.0f) {
+        if (numMappings >= indices.length) {
+          growTo(Math.max((int) (1.2 * numMappings), numMappings + 1));
+        }
+        indices[numMappings] = index;
+        values[numMappings] = value;
+        ++numMappings;
+      }
+    } else {
+      int offset = find(index);
+      if (offset >= 0) {
+        updateOrRemove(offset, value);
+      } else {
+        insertIfNotZero(index, offset, value);
+      }
+    }
+  }
+
+  void increment(int index, float increment) {
+    int offset = find(index);
+    if (offset >= 0) {
+      updateOrRemove(offset, values[offset] + increment);
+    } else {
+      insertIfNotZero(index, offset, increment);
+    }
+  }
+
+  /**
+   * Merges double precision updates in linear time, rounding each value to float.
+   */
+  void merge(OrderedIntDoubleMapping updates) {
+    int[] updateIndices = updates.getIndices();
+    double[] updateValues = updates.getValues();
+    int numUpdates = updates.getNumMappings();
+
+    int newNumMappings = numMappings + numUpdates;
+    int newCapacity = Math.max((int) (1.2 * newNumMappings), newNumMappings + 1);
+    int[] newIndices = new int[newCapacity];
+    float[] newValues = new float[newCapacity];
+
+    int k = 0;
+    int i = 0;
+    int j = 0;
+    for (; i < numMappings && j < numUpdates; ++k) {
+      if (indices[i] < updateIndices[j]) {
+        newIndices[k] = indices[i];
+        newValues[k] = values[i];
+        ++i;
+      } else if (indices[i] > updateIndices[j]) {
+        newIndices[k] = updateIndices[j];
+        newValues[k] = (float) updateValues[j];
+        ++j;
+      } else {
+        newIndices[k] = updateIndices[j];
+        newValues[k] = (float) updateValues[j];
+        ++i;
+        ++j;
+      }
+    }
+    for (; i < numMappings; ++i, ++k) {
+      newIndices[k] = indices[i];
+      newValues[k] = values[i];
+    }
+    for (; j < numUpdates; ++j, ++k) {
+      newIndices[k] = updateIndices[j];
+      newValues[k] = (float) updateValues[j];
+    }
+
+    indices = newIndices;
+    values = newValues;
+    numMappings = k;
+  }
+
+  @SuppressWarnings("CloneDoesntCallSuperClone")
+  @Override
+  public OrderedIntFloatMapping clone() {
+    return new OrderedIntFloatMapping(indices.clone(), values.clone(), numMappings);
+  }
+
+  private void insertIfNotZero(int index, int offset, float value) {
+    if (value != 0.0f) {
+      if (numMappings >= indices.length) {
+        growTo(Math.max((int) (1.2 * numMappings), numMappings + 1));
+      }
+      int at = -offset - 1;
+      if (numMappings > at) {
+        System.arraycopy(indices, at, indices, at + 1, numMappings - at);
+        System.arraycopy(values, at, values, at + 1, numMappings - at);
+      }
+      indices[at] = index;
+      values[at] = value;
+      numMappings++;
+    }
+  }
+
+  private void updateOrRemove(int offset, float newValue) {
+    if (newValue == 0.0f) {
+      System.arraycopy(indices, offset + 1, indices, offset, numMappings - offset - 1);
+      System.arraycopy(values, offset + 1, values, offset, numMappings - offset - 1);
+      numMappings--;
+    } else {
+      values[offset] = newValue;
+    }
+  }
+}
@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opt-in multi-core execution of in-core matrix operations.
+ * <p/>
+ * By default everything in {@code org.apache.mahout.math} runs on the calling thread. Once a context is
+ * installed with {@link #set(ParallelContext)}, operations such as {@link Matrix#times(Matrix)},
+ * {@link Matrix#assign(Matrix, org.apache.mahout.math.function.DoubleDoubleFunction)},
+ * {@link Matrix#aggregateRows}, {@link Matrix#aggregateColumns} and {@link Matrix#transpose()} split their
+ * work into contiguous blocks of rows and run the blocks on the context's executor whenever the amount of
+ * work exceeds the context's threshold. The calling thread runs one of the blocks itself and then waits
+ * for the others.
+ * <p/>
+ * Operations started from inside a block run serially, so nested parallel operations cannot exhaust the
+ * executor. Functions passed to parallel operations must be safe to call from several threads at once.
+ */
+public final class ParallelContext implements Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(ParallelContext.class);
+
+  /** Default minimum number of cells (or multiply-adds) an operation has to touch to be split up. */
+  public static final long DEFAULT_THRESHOLD = 1L << 16;
+
+  /** The blocks each operation is split into, per thread, to even out uneven rows. */
+  private static final int BLOCKS_PER_THREAD = 2;
+
+  private static final ThreadLocal<Boolean> IN_BLOCK = new ThreadLocal<Boolean>() {
+    @Override
+    protected Boolean initialValue() {
+      return Boolean.FALSE;
+    }
+  };
+
+  private static volatile ParallelContext current;
+
+  private final ExecutorService executor;
+  private final int parallelism;
+  private final long threshold;
+
+  /**
+   * A unit of work over a contiguous range of rows, or of whatever else an operation is split on.
+   */
+  public interface RangeTask {
+    /**
+     * @param start first index of the range, inclusive
+     * @param end   last index of the range, exclusive
+     */
+    void run(int start, int end);
+  }
+
+  /**
+   * Creates a context on its own pool of daemon threads, one per available processor.
+   */
+  public ParallelContext() {
+    this(Runtime.getRuntime().availableProcessors(), DEFAULT_THRESHOLD);
+  }
+
+  /**
+   * Creates a context on its own pool of {@code numThreads} daemon threads.
+   */
+  public ParallelContext(int numThreads, long threshold) {
+    this(Executors.newFixedThreadPool(numThreads,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("mahout-math-%d").build()), numThreads, threshold);
+  }
+
+  /**
+   * Creates a context that runs blocks on a caller supplied executor.
+   *
+   * @param executor    executes the blocks; it is shut down by {@link #close()}
+   * @param parallelism the number of threads the executor runs concurrently
+   * @param threshold   operations touching fewer cells than this run serially
+   */
+  public ParallelContext(ExecutorService executor, int parallelism, long threshold) {
+    Preconditions.checkArgument(parallelism > 0, "parallelism must be positive");
+    Preconditions.checkArgument(threshold >= 0, "threshold must not be negative");
+    this.executor = Preconditions.checkNotNull(executor);
+    this.parallelism = parallelism;
+    this.threshold = threshold;
+  }
+
+  /**
+   * Installs the context used by all subsequent matrix operations, or disables parallel execution if
+   * {@code context} is null.
+   */
+  public static synchronized void set(ParallelContext context) {
+    current = context;
+  }
+
+  /**
+   * @return the installed context, or null if operations run serially
+   */
+  public static ParallelContext get() {
+    return current;
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  public long getThreshold() {
+    return threshold;
+  }
+
+  /**
+   * Runs {@code task} over {@code [0, size)}, split into blocks on the installed context if there is one and
+   * {@code work} reaches its threshold, and serially otherwise.
+   *
+   * @param work an estimate of the cost of the whole operation, typically the number of cells touched
+   */
+  public static void forEachRange(long work, int size, RangeTask task) {
+    ParallelContext context = current;
+    if (context == null || work < context.threshold || size < 2 || IN_BLOCK.get()) {
+      task.run(0, size);
+    } else {
+      context.run(size, task);
+    }
+  }
+
+  /**
+   * @return whether different rows of {@code m} can be viewed and written from different threads. This is not
+   *  the case for a {@link SparseMatrix}, for example, whose {@link Matrix#viewRow(int)} adds missing rows to
+   *  an unsynchronized map.
+   */
+  public static boolean hasIndependentRows(Matrix m) {
+    return m instanceof DenseMatrix || m instanceof DenseRowMajorMatrix || m instanceof SparseRowMatrix
+        || m instanceof DenseFloatMatrix;
+  }
+
+  /**
+   * @return whether {@link Matrix#viewRow(int)} can be called on {@code m} from different threads, which also holds
+   *  for the immutable {@link CompressedSparseRowMatrix}
+   */
+  public static boolean hasThreadSafeRowViews(Matrix m) {
+    return hasIndependentRows(m) || m instanceof CompressedSparseRowMatrix;
+  }
+
+  private void run(int size, final RangeTask task) {
+    int numBlocks = Math.min(size, parallelism * BLOCKS_PER_THREAD);
+    List<Future<?>> futures = Lists.newArrayListWithCapacity(numBlocks - 1);
+    for (int block = 1; block < numBlocks; block++) {
+      final int start = (int) ((long) size * block / numBlocks);
+      final int end = (int) ((long) size * (block + 1) / numBlocks);
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() {
+          runBlock(task, start, end);
+          return null;
+        }
+      }));
+    }
+    Throwable failure = null;
+    try {
+      runBlock(task, 0, (int) ((long) size / numBlocks));
+    } catch (RuntimeException e) {
+      failure = e;
+    } catch (Error e) {
+      failure = e;
+    }
+    failure = awaitAll(futures, failure);
+    if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    }
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+    if (failure != null) {
+      throw new IllegalStateException(failure);
+    }
+  }
+
+  private static void runBlock(RangeTask task, int start, int end) {
+    boolean nested = IN_BLOCK.get();
+    IN_BLOCK.set(Boolean.TRUE);
+    try {
+      task.run(start, end);
+    } finally {
+      IN_BLOCK.set(nested);
+    }
+  }
+
+  /**
+   * Waits for every block, even after one has failed, so that no block is still running when the operation
+   * returns or throws.
+   *
+   * @return {@code failure} if it is not null, and otherwise the first failure of a block; later failures are
+   *  logged
+   */
+  private static Throwable awaitAll(List<Future<?>> futures, Throwable failure) {
+    for (Future<?> future : futures) {
+      try {
+        Uninterruptibles.getUninterruptibly(future);
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause();
+        } else {
+          log.warn("Another block of the same parallel operation failed as well", e.getCause());
+        }
+      }
+    }
+    return failure;
+  }
+
+  /**
+   * Shuts down the executor, and uninstalls this context if it is the current one.
+   */
+  @Override
+  public void close() {
+    synchronized (ParallelContext.class) {
+      if (current == this) {
+        current = null;
+      }
+    }
+    executor.shutdown();
+  }
+}
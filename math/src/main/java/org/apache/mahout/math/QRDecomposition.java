@@ -41,6 +41,10 @@ import java.util.Locale;
  */
 
 public class QRDecomposition implements QR {
+
+  /** Columns of Q orthogonalized together before they are projected out of the rest of the matrix. */
+  private static final int BLOCK_SIZE = 32;
+
   private final Matrix q;
   private final Matrix r;
   private final boolean fullRank;
@@ -51,6 +55,11 @@ public class QRDecomposition implements QR {
    * Constructs and returns a new QR decomposition object;  computed by Householder reflections; The
    * decomposed matrices can be retrieved via instance methods of the returned decomposition
    * object.
+   * <p/>
+   * The columns are orthogonalized by modified Gram-Schmidt in panels of {@link #BLOCK_SIZE}: once the
+   * columns of a panel are done, they are projected out of every column to the right of it, each of which
+   * still sees the projections in the same order as it would one column at a time.  The columns to the right
+   * are independent of each other, so that step is split over them by the installed {@link ParallelContext}.
    *
    * @param a A rectangular matrix.
    * @throws IllegalArgumentException if <tt>A.rows() < A.columns()</tt>.
@@ -61,49 +70,109 @@ public class QRDecomposition implements QR {
     int min = Math.min(a.rowSize(), a.columnSize());
     columns = a.columnSize();
 
-    Matrix qTmp = a.clone();
+    double[][] qTmp = new double[columns][rows];
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < columns; j++) {
+        qTmp[j][i] = a.getQuick(i, j);
+      }
+    }
 
     boolean fullRank = true;
 
-    r = new DenseMatrix(min, columns);
+    double[][] rTmp = new double[min][columns];
 
-    for (int i = 0; i < min; i++) {
-      Vector qi = qTmp.viewColumn(i);
-      double alpha = qi.norm(2);
-      if (Math.abs(alpha) > Double.MIN_VALUE) {
-        qi.assign(Functions.div(alpha));
-      } else {
-        if (Double.isInfinite(alpha) || Double.isNaN(alpha)) {
-          throw new ArithmeticException("Invalid intermediate result");
-        }
-        fullRank = false;
-      }
-      r.set(i, i, alpha);
-
-      for (int j = i + 1; j < columns; j++) {
-        Vector qj = qTmp.viewColumn(j);
-        double norm = qj.norm(2);
-        if (Math.abs(norm) > Double.MIN_VALUE) {
-          double beta = qi.dot(qj);
-          r.set(i, j, beta);
-          if (j < min) {
-            qj.assign(qi, Functions.plusMult(-beta));
+    for (int start = 0; start < min; start += BLOCK_SIZE) {
+      int end = Math.min(min, start + BLOCK_SIZE);
+      for (int i = start; i < end; i++) {
+        double[] qi = qTmp[i];
+        double alpha = Math.sqrt(dot(qi, qi));
+        if (Math.abs(alpha) > Double.MIN_VALUE) {
+          for (int k = 0; k < rows; k++) {
+            qi[k] /= alpha;
           }
         } else {
-          if (Double.isInfinite(norm) || Double.isNaN(norm)) {
+          if (Double.isInfinite(alpha) || Double.isNaN(alpha)) {
             throw new ArithmeticException("Invalid intermediate result");
           }
+          fullRank = false;
+        }
+        rTmp[i][i] = alpha;
+
+        for (int j = i + 1; j < end; j++) {
+          project(qTmp, rTmp, i, j, min);
         }
       }
+
+      projectTrailing(qTmp, rTmp, start, end, min);
     }
-    if (columns > min) {
-      q = qTmp.viewPart(0, rows, 0, min).clone();
-    } else {
-      q = qTmp;
+
+    double[][] qRows = new double[rows][min];
+    for (int j = 0; j < min; j++) {
+      double[] qj = qTmp[j];
+      for (int i = 0; i < rows; i++) {
+        qRows[i][j] = qj[i];
+      }
     }
+    q = new DenseMatrix(qRows, true);
+    r = new DenseMatrix(rTmp, true);
     this.fullRank = fullRank;
   }
 
+  /**
+   * Projects the finished panel of columns {@code [start, end)} out of every column to the right of it.
+   */
+  private static void projectTrailing(final double[][] qTmp, final double[][] rTmp, final int start, final int end,
+                                      final int min) {
+    int remaining = qTmp.length - end;
+    ParallelContext.forEachRange((long) remaining * (end - start) * qTmp[0].length, remaining,
+        new ParallelContext.RangeTask() {
+          @Override
+          public void run(int from, int to) {
+            for (int j = end + from; j < end + to; j++) {
+              for (int i = start; i < end; i++) {
+                project(qTmp, rTmp, i, j, min);
+              }
+            }
+          }
+        });
+  }
+
+  /**
+   * Records the component of column j along the finished column i of Q, and subtracts it from column j
+   * if that is one of the columns of Q.  Zero columns are left alone.
+   */
+  private static void project(double[][] qTmp, double[][] rTmp, int i, int j, int min) {
+    double[] qi = qTmp[i];
+    double[] qj = qTmp[j];
+    double beta = 0;
+    double lengthSquared = 0;
+    for (int k = 0; k < qj.length; k++) {
+      beta += qi[k] * qj[k];
+      lengthSquared += qj[k] * qj[k];
+    }
+    double norm = Math.sqrt(lengthSquared);
+    if (Math.abs(norm) > Double.MIN_VALUE) {
+      rTmp[i][j] = beta;
+      if (j < min) {
+        for (int k = 0; k < qj.length; k++) {
+          qj[k] -= beta * qi[k];
+        }
+      }
+    } else {
+      if (Double.isInfinite(norm) || Double.isNaN(norm)) {
+        throw new ArithmeticException("Invalid intermediate result");
+      }
+    }
+  }
+
+  private static double dot(double[] x, double[] y) {
+    double sum = 0;
+    for (int k = 0; k < x.length; k++) {
+      sum += x[k] * y[k];
+    }
+    return sum;
+  }
+
   /**
    * Generates and returns the (economy-sized) orthogonal factor <tt>Q</tt>.
    *
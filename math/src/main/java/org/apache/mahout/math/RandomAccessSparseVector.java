@@ -20,17 +20,19 @@ package org.apache.mahout.math;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
-import org.apache.mahout.math.map.OpenIntDoubleHashMap;
-import org.apache.mahout.math.map.OpenIntDoubleHashMap.MapElement;
-import org.apache.mahout.math.set.AbstractSet;
+import org.apache.mahout.math.list.IntArrayList;
+import org.apache.mahout.math.map.RobinHoodIntDoubleHashMap;
+import org.apache.mahout.math.map.RobinHoodIntDoubleHashMap.MapElement;
 
 
-/** Implements vector that only stores non-zero doubles */
+/**
+ * Implements vector that only stores non-zero doubles, in a {@link RobinHoodIntDoubleHashMap} from index to value.
+ */
 public class RandomAccessSparseVector extends AbstractVector {
 
   private static final int INITIAL_CAPACITY = 11;
 
-  private OpenIntDoubleHashMap values;
+  private RobinHoodIntDoubleHashMap values;
 
   /** For serialization purposes only. */
   public RandomAccessSparseVector() {
@@ -43,7 +45,7 @@ public class RandomAccessSparseVector extends AbstractVector {
 
   public RandomAccessSparseVector(int cardinality, int initialCapacity) {
     super(cardinality);
-    values = new OpenIntDoubleHashMap(initialCapacity);
+    values = new RobinHoodIntDoubleHashMap(initialCapacity);
   }
 
   public RandomAccessSparseVector(Vector other) {
@@ -53,14 +55,14 @@ public class RandomAccessSparseVector extends AbstractVector {
     }
   }
 
-  private RandomAccessSparseVector(int cardinality, OpenIntDoubleHashMap values) {
+  private RandomAccessSparseVector(int cardinality, RobinHoodIntDoubleHashMap values) {
     super(cardinality);
     this.values = values;
   }
 
   public RandomAccessSparseVector(RandomAccessSparseVector other, boolean shallowCopy) {
     super(other.size());
-    values = shallowCopy ? other.values : (OpenIntDoubleHashMap)other.values.clone();
+    values = shallowCopy ? other.values : (RobinHoodIntDoubleHashMap)other.values.clone();
   }
 
   @Override
@@ -70,12 +72,30 @@ public class RandomAccessSparseVector extends AbstractVector {
 
   @Override
   public RandomAccessSparseVector clone() {
-    return new RandomAccessSparseVector(size(), (OpenIntDoubleHashMap) values.clone());
+    return new RandomAccessSparseVector(size(), (RobinHoodIntDoubleHashMap) values.clone());
   }
 
+  /**
+   * Lists the non-zero elements in order of index, whatever order they happen to be hashed in.
+   */
   @Override
   public String toString() {
-    return sparseVectorToString();
+    IntArrayList indices = values.keys();
+    if (indices.isEmpty()) {
+      return "{}";
+    }
+    indices.sort();
+    StringBuilder result = new StringBuilder();
+    result.append('{');
+    for (int i = 0; i < indices.size(); i++) {
+      int index = indices.getQuick(i);
+      result.append(index);
+      result.append(':');
+      result.append(values.get(index));
+      result.append(',');
+    }
+    result.setCharAt(result.length() - 1, '}');
+    return result.toString();
   }
 
   @Override
@@ -90,6 +110,16 @@ public class RandomAccessSparseVector extends AbstractVector {
     return this;
   }
 
+  @Override
+  public Vector assign(double value) {
+    if (value == 0.0) {
+      values.clear();
+      invalidateCachedLength();
+      return this;
+    }
+    return super.assign(value);
+  }
+
   @Override
   public void mergeUpdates(OrderedIntDoubleMapping updates) {
     for (int i = 0; i < updates.getNumMappings(); ++i) {
@@ -152,7 +182,8 @@ public class RandomAccessSparseVector extends AbstractVector {
 
   @Override
   public double getIteratorAdvanceCost() {
-    return 1 + (AbstractSet.DEFAULT_MAX_LOAD_FACTOR + AbstractSet.DEFAULT_MIN_LOAD_FACTOR) / 2;
+    return 1 + (RobinHoodIntDoubleHashMap.DEFAULT_MAX_LOAD_FACTOR
+        + RobinHoodIntDoubleHashMap.DEFAULT_MIN_LOAD_FACTOR) / 2;
   }
 
   /**
@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.mahout.math.function.Functions;
+
+/**
+ * Single precision counterpart of {@link SequentialAccessSparseVector}: the non-zero elements are kept as a sorted
+ * int[] of indices and a parallel float[] of values, which takes two thirds of the memory of the double version.
+ * Values are rounded to float when they are set; all arithmetic is still done in double.
+ */
+public class SequentialAccessSparseFloatVector extends AbstractVector {
+
+  private OrderedIntFloatMapping values;
+
+  /** For serialization purposes only. */
+  public SequentialAccessSparseFloatVector() {
+    super(0);
+  }
+
+  public SequentialAccessSparseFloatVector(int cardinality) {
+    this(cardinality, Math.min(100, cardinality / 1000 < 10 ? 10 : cardinality / 1000));
+  }
+
+  public SequentialAccessSparseFloatVector(int cardinality, int size) {
+    super(cardinality);
+    values = new OrderedIntFloatMapping(size);
+  }
+
+  /**
+   * Copies the non-zero elements of {@code other}, rounding them to float.
+   */
+  public SequentialAccessSparseFloatVector(Vector other) {
+    this(other.size(), other.getNumNondefaultElements());
+    if (other.isSequentialAccess()) {
+      for (Element e : other.nonZeroes()) {
+        set(e.index(), e.get());
+      }
+    } else {
+      // insert in index order, as appending is O(1) but inserting in the middle is O(k)
+      Vector sorted = new SequentialAccessSparseVector(other);
+      for (Element e : sorted.nonZeroes()) {
+        set(e.index(), e.get());
+      }
+    }
+  }
+
+  private SequentialAccessSparseFloatVector(int cardinality, OrderedIntFloatMapping values) {
+    super(cardinality);
+    this.values = values;
+  }
+
+  @Override
+  protected Matrix matrixLike(int rows, int columns) {
+    return new SparseMatrix(rows, columns);
+  }
+
+  @SuppressWarnings("CloneDoesntCallSuperClone")
+  @Override
+  public SequentialAccessSparseFloatVector clone() {
+    return new SequentialAccessSparseFloatVector(size(), values.clone());
+  }
+
+  @Override
+  public void mergeUpdates(OrderedIntDoubleMapping updates) {
+    values.merge(updates);
+  }
+
+  @Override
+  public String toString() {
+    return sparseVectorToString();
+  }
+
+  /**
+   * @return false
+   */
+  @Override
+  public boolean isDense() {
+    return false;
+  }
+
+  /**
+   * @return true
+   */
+  @Override
+  public boolean isSequentialAccess() {
+    return true;
+  }
+
+  /**
+   * Takes O(log n) time, as it does a binary search.
+   */
+  @Override
+  public double getQuick(int index) {
+    return values.get(index);
+  }
+
+  /**
+   * Takes O(log n) time, and O(n) if the index is not yet present and not the largest one.
+   */
+  @Override
+  public void setQuick(int index, double value) {
+    invalidateCachedLength();
+    values.set(index, (float) value);
+  }
+
+  @Override
+  public void incrementQuick(int index, double increment) {
+    invalidateCachedLength();
+    values.increment(index, (float) increment);
+  }
+
+  @Override
+  public SequentialAccessSparseFloatVector like() {
+    return new SequentialAccessSparseFloatVector(size(), values.getNumMappings());
+  }
+
+  @Override
+  public int getNumNondefaultElements() {
+    return values.getNumMappings();
+  }
+
+  @Override
+  public double getLookupCost() {
+    return Math.max(1, Math.round(Functions.LOG2.apply(getNumNondefaultElements())));
+  }
+
+  @Override
+  public double getIteratorAdvanceCost() {
+    return 1;
+  }
+
+  @Override
+  public boolean isAddConstantTime() {
+    return false;
+  }
+
+  @Override
+  public Iterator<Element> iterateNonZero() {
+    return new NonDefaultIterator();
+  }
+
+  @Override
+  public Iterator<Element> iterator() {
+    return new AllIterator();
+  }
+
+  private final class NonDefaultIterator implements Iterator<Element> {
+    private final NonDefaultElement element = new NonDefaultElement();
+
+    @Override
+    public boolean hasNext() {
+      return element.getNextOffset() < values.getNumMappings();
+    }
+
+    @Override
+    public Element next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      element.advanceOffset();
+      return element;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private final class AllIterator implements Iterator<Element> {
+    private final AllElement element = new AllElement();
+
+    @Override
+    public boolean hasNext() {
+      return element.getNextIndex() < SequentialAccessSparseFloatVector.this.size();
+    }
+
+    @Override
+    public Element next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      element.advanceIndex();
+      return element;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private final class NonDefaultElement implements Element {
+    private int offset = -1;
+
+    void advanceOffset() {
+      offset++;
+    }
+
+    int getNextOffset() {
+      return offset + 1;
+    }
+
+    @Override
+    public double get() {
+      return values.getValues()[offset];
+    }
+
+    @Override
+    public int index() {
+      return values.getIndices()[offset];
+    }
+
+    @Override
+    public void set(double value) {
+      invalidateCachedLength();
+      values.setValueAt(offset, (float) value);
+    }
+  }
+
+  private final class AllElement implements Element {
+    private int index = -1;
+    private int nextOffset;
+
+    void advanceIndex() {
+      index++;
+      if (nextOffset < values.getNumMappings() && index > values.getIndices()[nextOffset]) {
+        nextOffset++;
+      }
+    }
+
+    int getNextIndex() {
+      return index + 1;
+    }
+
+    @Override
+    public double get() {
+      if (nextOffset < values.getNumMappings() && index == values.getIndices()[nextOffset]) {
+        return values.getValues()[nextOffset];
+      } else {
+        return 0.0;
+      }
+    }
+
+    @Override
+    public int index() {
+      return index;
+    }
+
+    @Override
+    public void set(double value) {
+      invalidateCachedLength();
+      if (nextOffset < values.getNumMappings() && index == values.indexAt(nextOffset)) {
+        values.setValueAt(nextOffset, (float) value);
+      } else {
+        // the offset of the new index will be nextOffset, as in SequentialAccessSparseVector
+        values.set(index, (float) value);
+      }
+    }
+  }
+}
@@ -21,7 +21,7 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
-import com.google.common.primitives.Doubles;
+import org.apache.mahout.math.function.DoubleDoubleFunction;
 import org.apache.mahout.math.function.Functions;
 
 /**
@@ -60,9 +60,10 @@ public class SequentialAccessSparseVector extends AbstractVector {
   }
 
   public SequentialAccessSparseVector(Vector other) {
-    this(other.size(), other.getNumNondefaultElements());
+    super(other.size());
 
     if (other.isSequentialAccess()) {
+      values = new OrderedIntDoubleMapping(other.getNumNondefaultElements());
       for (Element e : other.nonZeroes()) {
         set(e.index(), e.get());
       }
@@ -72,27 +73,10 @@ public class SequentialAccessSparseVector extends AbstractVector {
       // the number of elements is large as this Vector tries to stay
       // in order as items are added, so it's better to sort the other
       // Vector's elements by index and then add them to this
-      copySortedRandomAccessSparseVector(other);
+      values = new Builder(size(), Functions.SECOND, other.getNumNondefaultElements()).addAll(other).buildMapping();
     }
   }
 
-  // Sorts a RandomAccessSparseVectors Elements before adding them to this
-  private int copySortedRandomAccessSparseVector(Vector other) {
-    int elementCount = other.getNumNondefaultElements();
-    OrderedElement[] sortableElements = new OrderedElement[elementCount];
-    int s = 0;
-    for (Element e : other.nonZeroes()) {
-      sortableElements[s++] = new OrderedElement(e.index(), e.get());
-    }
-    Arrays.sort(sortableElements);
-    for (int i = 0; i < sortableElements.length; i++) {
-      values.setIndexAt(i, sortableElements[i].index);
-      values.setValueAt(i, sortableElements[i].value);
-    }
-    values = new OrderedIntDoubleMapping(values.getIndices(), values.getValues(), elementCount);
-    return elementCount;
-  }
-
   public SequentialAccessSparseVector(SequentialAccessSparseVector other, boolean shallowCopy) {
     super(other.size());
     values = shallowCopy ? other.values : other.values.clone();
@@ -108,6 +92,10 @@ public class SequentialAccessSparseVector extends AbstractVector {
     this.values = values;
   }
 
+  OrderedIntDoubleMapping getMapping() {
+    return values;
+  }
+
   @Override
   protected Matrix matrixLike(int rows, int columns) {
     //return new SparseRowMatrix(rows, columns);
@@ -125,6 +113,20 @@ public class SequentialAccessSparseVector extends AbstractVector {
     values.merge(updates);
   }
 
+  /**
+   * Zeroing drops every mapping while keeping the storage, so a cleared vector can be refilled in index order
+   * without allocating.
+   */
+  @Override
+  public Vector assign(double value) {
+    if (value == 0.0) {
+      values.clear();
+      invalidateCachedLength();
+      return this;
+    }
+    return super.assign(value);
+  }
+
   @Override
   public String toString() {
     return sparseVectorToString();
@@ -325,35 +327,123 @@ public class SequentialAccessSparseVector extends AbstractVector {
     }
   }
 
-  // Comparable Element for sorting Elements by index
-  private static final class OrderedElement implements Comparable<OrderedElement> {
-    private final int index;
-    private final double value;
+  /**
+   * Builds a vector from (index, value) pairs added in any order. Adding to a {@link SequentialAccessSparseVector}
+   * one element at a time inserts into a sorted array, which is quadratic unless the indices arrive in order. The
+   * builder instead collects the pairs, sorts them once with a primitive sort and combines the values of duplicate
+   * indices, in the order they were added, with a {@link DoubleDoubleFunction}: {@link Functions#PLUS} sums them,
+   * {@link Functions#SECOND} keeps the last one. The arrays of the vector are allocated once, at their final size,
+   * and entries that combine to zero are not stored.
+   * <p/>
+   * {@link #build()} can be called more than once; later pairs are combined with the earlier ones.
+   */
+  public static final class Builder {
+    private final int cardinality;
+    private final DoubleDoubleFunction combiner;
+    // the index in the high half and the position the pair was added at in the low half, so that sorting keeps
+    // duplicate indices in the order they were added
+    private long[] keys;
+    private double[] values;
+    private int count;
+
+    /**
+     * A builder that sums the values of duplicate indices.
+     */
+    public Builder(int cardinality) {
+      this(cardinality, Functions.PLUS);
+    }
+
+    public Builder(int cardinality, DoubleDoubleFunction combiner) {
+      this(cardinality, combiner, 16);
+    }
 
-    OrderedElement(int index, double value) {
-      this.index = index;
-      this.value = value;
+    /**
+     * @param expectedSize the expected number of pairs, including duplicates
+     */
+    public Builder(int cardinality, DoubleDoubleFunction combiner, int expectedSize) {
+      this.cardinality = cardinality;
+      this.combiner = combiner;
+      this.keys = new long[Math.max(1, expectedSize)];
+      this.values = new double[keys.length];
     }
 
-    @Override
-    public int compareTo(OrderedElement that) {
-      // both indexes are positive, and neither can be Integer.MAX_VALUE (otherwise there would be
-      // an array somewhere with Integer.MAX_VALUE + 1 elements)
-      return this.index - that.index;
+    public Builder add(int index, double value) {
+      if (index < 0 || index >= cardinality) {
+        throw new IndexException(index, cardinality);
+      }
+      if (count == keys.length) {
+        int newCapacity = Math.max((int) (1.5 * count), count + 1);
+        keys = Arrays.copyOf(keys, newCapacity);
+        values = Arrays.copyOf(values, newCapacity);
+      }
+      keys[count] = (long) index << 32 | count;
+      values[count] = value;
+      count++;
+      return this;
     }
 
-    @Override
-    public int hashCode() {
-      return index ^ Doubles.hashCode(value);
+    /**
+     * Adds the non-zero elements of {@code vector}.
+     */
+    public Builder addAll(Vector vector) {
+      if (cardinality != vector.size()) {
+        throw new CardinalityException(cardinality, vector.size());
+      }
+      for (Element e : vector.nonZeroes()) {
+        add(e.index(), e.get());
+      }
+      return this;
     }
 
-    @Override
-    public boolean equals(Object o) {
-      if (!(o instanceof OrderedElement)) {
-        return false;
+    public SequentialAccessSparseVector build() {
+      return new SequentialAccessSparseVector(cardinality, buildMapping());
+    }
+
+    OrderedIntDoubleMapping buildMapping() {
+      boolean sorted = true;
+      for (int i = 1; i < count && sorted; i++) {
+        sorted = keys[i - 1] < keys[i];
+      }
+      if (!sorted) {
+        Arrays.sort(keys, 0, count);
+      }
+
+      int distinct = 0;
+      int previous = -1;
+      for (int i = 0; i < count; i++) {
+        int index = (int) (keys[i] >>> 32);
+        if (index != previous) {
+          distinct++;
+          previous = index;
+        }
+      }
+
+      int[] indices = new int[distinct];
+      double[] combined = new double[distinct];
+      int n = -1;
+      previous = -1;
+      for (int i = 0; i < count; i++) {
+        int index = (int) (keys[i] >>> 32);
+        double value = values[(int) keys[i]];
+        if (index == previous) {
+          combined[n] = combiner.apply(combined[n], value);
+        } else {
+          n++;
+          indices[n] = index;
+          combined[n] = value;
+          previous = index;
+        }
+      }
+
+      int numMappings = 0;
+      for (int i = 0; i < distinct; i++) {
+        if (combined[i] != 0.0) {
+          indices[numMappings] = indices[i];
+          combined[numMappings] = combined[i];
+          numMappings++;
+        }
       }
-      OrderedElement other = (OrderedElement) o;
-      return index == other.index && value == other.value;
+      return new OrderedIntDoubleMapping(indices, combined, numMappings);
     }
   }
 }
@@ -18,6 +18,7 @@
 package org.apache.mahout.math;
 
 import org.apache.mahout.math.function.DoubleDoubleFunction;
+import org.apache.mahout.math.function.Functions;
 import org.apache.mahout.math.set.OpenIntHashSet;
 
 import java.util.Iterator;
@@ -57,6 +58,10 @@ import java.util.Iterator;
  */
 public abstract class VectorBinaryAggregate {
   public static final VectorBinaryAggregate[] OPERATIONS = {
+    // the fused kernels come first so that they win ties against generic algorithms doing the same work
+    new AggregateDenseFused(),
+    new AggregateSparseDenseFused(),
+
     new AggregateNonzerosIterateThisLookupThat(),
     new AggregateNonzerosIterateThatLookupThis(),
 
@@ -71,6 +76,9 @@ public abstract class VectorBinaryAggregate {
     new AggregateAllLoop(),
   };
 
+  /** Used by the fused kernels when called on vectors or functions they do not handle. */
+  private static final VectorBinaryAggregate GENERIC = new AggregateAllLoop();
+
   /**
    * Returns true iff we can use this algorithm to apply fc to x and y component-wise and aggregate the result using fa.
    */
@@ -113,6 +121,145 @@ public abstract class VectorBinaryAggregate {
     return getBestOperation(x, y, fa, fc).aggregate(x, y, fa, fc);
   }
 
+  /**
+   * Dot products (fa = PLUS, fc = MULT) and squared distances (fa = PLUS, fc = MINUS_SQUARED) of two DenseVectors,
+   * computed directly on the backing arrays without calling fa or fc.
+   */
+  public static class AggregateDenseFused extends VectorBinaryAggregate {
+
+    @Override
+    public boolean isValid(Vector x, Vector y, DoubleDoubleFunction fa, DoubleDoubleFunction fc) {
+      return x instanceof DenseVector && y instanceof DenseVector && isFused(fa, fc);
+    }
+
+    @Override
+    public double estimateCost(Vector x, Vector y, DoubleDoubleFunction fa, DoubleDoubleFunction fc) {
+      return x.size();
+    }
+
+    @Override
+    public double aggregate(Vector x, Vector y, DoubleDoubleFunction fa, DoubleDoubleFunction fc) {
+      if (!isValid(x, y, fa, fc)) {
+        return GENERIC.aggregate(x, y, fa, fc);
+      }
+      double[] xv = ((DenseVector) x).getBackingArray();
+      double[] yv = ((DenseVector) y).getBackingArray();
+      double result = 0;
+      if (fc == Functions.MULT) {
+        for (int i = 0; i < xv.length; i++) {
+          result += xv[i] * yv[i];
+        }
+      } else {
+        for (int i = 0; i < xv.length; i++) {
+          double d = xv[i] - yv[i];
+          result += d * d;
+        }
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Dot products and squared distances of a DenseVector and a sparse vector, in either order. Dot products iterate
+   * through the nonzeros of the sparse vector and index the dense array; squared distances walk the dense array
+   * and the nonzeros of a sequential sparse vector together. SequentialAccessSparseVectors are read directly from
+   * their backing arrays.
+   */
+  public static class AggregateSparseDenseFused extends VectorBinaryAggregate {
+
+    @Override
+    public boolean isValid(Vector x, Vector y, DoubleDoubleFunction fa, DoubleDoubleFunction fc) {
+      if (!isFused(fa, fc)) {
+        return false;
+      }
+      Vector sparse;
+      if (x instanceof DenseVector && !y.isDense()) {
+        sparse = y;
+      } else if (y instanceof DenseVector && !x.isDense()) {
+        sparse = x;
+      } else {
+        return false;
+      }
+      return fc == Functions.MULT || sparse.isSequentialAccess();
+    }
+
+    @Override
+    public double estimateCost(Vector x, Vector y, DoubleDoubleFunction fa, DoubleDoubleFunction fc) {
+      if (fc != Functions.MULT) {
+        return x.size();
+      }
+      Vector sparse = x instanceof DenseVector ? y : x;
+      return sparse.getNumNondefaultElements() * sparse.getIteratorAdvanceCost();
+    }
+
+    @Override
+    public double aggregate(Vector x, Vector y, DoubleDoubleFunction fa, DoubleDoubleFunction fc) {
+      if (!isValid(x, y, fa, fc)) {
+        return GENERIC.aggregate(x, y, fa, fc);
+      }
+      boolean denseFirst = x instanceof DenseVector;
+      double[] dense = ((DenseVector) (denseFirst ? x : y)).getBackingArray();
+      Vector sparse = denseFirst ? y : x;
+      if (sparse instanceof SequentialAccessSparseVector) {
+        OrderedIntDoubleMapping mapping = ((SequentialAccessSparseVector) sparse).getMapping();
+        return fc == Functions.MULT
+            ? dot(dense, mapping.getIndices(), mapping.getValues(), mapping.getNumMappings())
+            : distanceSquared(dense, mapping.getIndices(), mapping.getValues(), mapping.getNumMappings());
+      }
+      double result = 0;
+      if (fc == Functions.MULT) {
+        for (Vector.Element e : sparse.nonZeroes()) {
+          result += dense[e.index()] * e.get();
+        }
+      } else {
+        int i = 0;
+        for (Vector.Element e : sparse.nonZeroes()) {
+          int index = e.index();
+          for (; i < index; i++) {
+            result += dense[i] * dense[i];
+          }
+          double d = dense[i] - e.get();
+          result += d * d;
+          i++;
+        }
+        for (; i < dense.length; i++) {
+          result += dense[i] * dense[i];
+        }
+      }
+      return result;
+    }
+
+    private static double dot(double[] dense, int[] indices, double[] values, int numMappings) {
+      double result = 0;
+      for (int k = 0; k < numMappings; k++) {
+        result += dense[indices[k]] * values[k];
+      }
+      return result;
+    }
+
+    private static double distanceSquared(double[] dense, int[] indices, double[] values, int numMappings) {
+      double result = 0;
+      int i = 0;
+      for (int k = 0; k < numMappings; k++) {
+        int index = indices[k];
+        for (; i < index; i++) {
+          result += dense[i] * dense[i];
+        }
+        double d = dense[i] - values[k];
+        result += d * d;
+        i++;
+      }
+      for (; i < dense.length; i++) {
+        result += dense[i] * dense[i];
+      }
+      return result;
+    }
+  }
+
+  private static boolean isFused(DoubleDoubleFunction fa, DoubleDoubleFunction fc) {
+    return fa == Functions.PLUS && (fc == Functions.MULT || fc == Functions.MINUS_SQUARED);
+  }
+
   public static class AggregateNonzerosIterateThisLookupThat extends VectorBinaryAggregate {
 
     @Override
@@ -19,6 +19,7 @@ package org.apache.mahout.math;
 
 import org.apache.mahout.math.Vector.Element;
 import org.apache.mahout.math.function.DoubleDoubleFunction;
+import org.apache.mahout.math.function.PlusMult;
 import org.apache.mahout.math.set.OpenIntHashSet;
 
 import java.util.Iterator;
@@ -61,6 +62,9 @@ import java.util.Iterator;
  */
 public abstract class VectorBinaryAssign {
   public static final VectorBinaryAssign[] OPERATIONS = {
+    // the fused kernel comes first so that it wins ties against generic algorithms doing the same work
+    new AssignPlusMultDenseFused(),
+
     new AssignNonzerosIterateThisLookupThat(),
     new AssignNonzerosIterateThatLookupThisMergeUpdates(),
     new AssignNonzerosIterateThatLookupThisInplaceUpdates(),
@@ -82,6 +86,9 @@ public abstract class VectorBinaryAssign {
     new AssignAllLoopInplaceUpdates(),
   };
 
+  /** Used by the fused kernel when called on vectors or functions it does not handle. */
+  private static final VectorBinaryAssign GENERIC = new AssignAllLoopInplaceUpdates();
+
   /**
    * Returns true iff we can use this algorithm to apply f to x and y component-wise and assign the result to x.
    */
@@ -125,6 +132,52 @@ public abstract class VectorBinaryAssign {
     return getBestOperation(x, y, f).assign(x, y, f);
   }
 
+  /**
+   * x = x + c * y, for f a PlusMult (which includes Functions.PLUS and Functions.MINUS) and x a DenseVector, written
+   * straight into the backing array of x without calling f. Since f(x, 0) = x only the nonzeros of y are visited;
+   * y is read from its backing array if it is a DenseVector or a SequentialAccessSparseVector.
+   */
+  public static class AssignPlusMultDenseFused extends VectorBinaryAssign {
+
+    @Override
+    public boolean isValid(Vector x, Vector y, DoubleDoubleFunction f) {
+      return x instanceof DenseVector && f instanceof PlusMult;
+    }
+
+    @Override
+    public double estimateCost(Vector x, Vector y, DoubleDoubleFunction f) {
+      return y instanceof DenseVector ? y.size() : y.getNumNondefaultElements() * y.getIteratorAdvanceCost();
+    }
+
+    @Override
+    public Vector assign(Vector x, Vector y, DoubleDoubleFunction f) {
+      if (!isValid(x, y, f)) {
+        return GENERIC.assign(x, y, f);
+      }
+      double[] xv = ((DenseVector) x).getBackingArray();
+      double c = ((PlusMult) f).getMultiplicator();
+      if (y instanceof DenseVector) {
+        double[] yv = ((DenseVector) y).getBackingArray();
+        for (int i = 0; i < xv.length; i++) {
+          xv[i] += c * yv[i];
+        }
+      } else if (y instanceof SequentialAccessSparseVector) {
+        OrderedIntDoubleMapping mapping = ((SequentialAccessSparseVector) y).getMapping();
+        int[] indices = mapping.getIndices();
+        double[] values = mapping.getValues();
+        int numMappings = mapping.getNumMappings();
+        for (int k = 0; k < numMappings; k++) {
+          xv[indices[k]] += c * values[k];
+        }
+      } else {
+        for (Element ye : y.nonZeroes()) {
+          xv[ye.index()] += c * ye.get();
+        }
+      }
+      return x;
+    }
+  }
+
   /**
    * If f(0, y) = 0, the zeros in x don't matter and we can simply iterate through the nonzeros of x.
    * To get the corresponding element of y, we perform a lookup.
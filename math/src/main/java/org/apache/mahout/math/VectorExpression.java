@@ -0,0 +1,640 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math;
+
+import java.util.Iterator;
+
+import com.google.common.collect.AbstractIterator;
+import org.apache.mahout.math.function.DoubleDoubleFunction;
+import org.apache.mahout.math.function.DoubleFunction;
+import org.apache.mahout.math.function.Functions;
+
+/**
+ * A lazily evaluated, read-only vector computed element-wise from other vectors.
+ * <p/>
+ * {@code a.minus(b).times(c).plus(d)} allocates a full vector at every step. The same chain written as
+ * {@code VectorExpression.of(a).minus(b).times(c).plus(d)} only builds a tree of views; nothing is computed until
+ * the expression is assigned with {@link #assignTo(Vector)} or {@link #evaluate()}, or reduced with
+ * {@link #aggregate(DoubleDoubleFunction, DoubleFunction)}, {@link #dot(Vector)}, {@link #zSum()} and friends. Each
+ * of those makes a single pass over the operands without any intermediate vectors.
+ * <p/>
+ * Because an expression is itself a {@link Vector} it reports its density, access order and costs like any other
+ * vector, so {@link VectorBinaryAssign} and {@link VectorBinaryAggregate} pick the iteration order for it. Zeros are
+ * skipped wherever the functions allow: a product only visits the non-zeros of its sparser operand and a sum only
+ * visits the union of the non-zeros of both.
+ * <p/>
+ * An expression reads its operands whenever it is iterated, so changes to the operands are visible through it.
+ * Methods that would modify the expression throw {@link UnsupportedOperationException}.
+ */
+public abstract class VectorExpression extends AbstractVector {
+
+  VectorExpression(int size) {
+    super(size);
+  }
+
+  /**
+   * @return {@code vector} as the leaf of an expression.
+   */
+  public static VectorExpression of(Vector vector) {
+    if (vector instanceof VectorExpression) {
+      return (VectorExpression) vector;
+    }
+    return new Leaf(vector);
+  }
+
+  /**
+   * @return the lazy element-wise {@code f(this, that)}
+   */
+  public VectorExpression combine(Vector that, DoubleDoubleFunction f) {
+    if (size() != that.size()) {
+      throw new CardinalityException(size(), that.size());
+    }
+    return new Binary(operand(this), operand(that), f);
+  }
+
+  /**
+   * @return the lazy element-wise {@code f(this)}
+   */
+  public VectorExpression map(DoubleFunction f) {
+    return new Unary(operand(this), f);
+  }
+
+  /**
+   * Leaves are unwrapped so that evaluation reads the operands directly.
+   */
+  private static Vector operand(Vector vector) {
+    return vector instanceof Leaf ? ((Leaf) vector).vector : vector;
+  }
+
+  @Override
+  public VectorExpression plus(Vector that) {
+    return combine(that, Functions.PLUS);
+  }
+
+  @Override
+  public VectorExpression minus(Vector that) {
+    return combine(that, Functions.MINUS);
+  }
+
+  @Override
+  public VectorExpression times(Vector that) {
+    return combine(that, Functions.MULT);
+  }
+
+  @Override
+  public VectorExpression plus(double x) {
+    return x == 0.0 ? this : map(Functions.plus(x));
+  }
+
+  @Override
+  public VectorExpression times(double x) {
+    return x == 1.0 ? this : map(Functions.mult(x));
+  }
+
+  @Override
+  public VectorExpression divide(double x) {
+    return x == 1.0 ? this : map(Functions.div(x));
+  }
+
+  /**
+   * Computes the expression into a new vector in one pass.
+   *
+   * @return a {@link DenseVector} if the expression is dense, or a sparse vector with the access order of the
+   * expression otherwise
+   */
+  public Vector evaluate() {
+    return like().assign(this, Functions.SECOND_LEFT_ZERO);
+  }
+
+  /**
+   * Overwrites {@code target} with the expression in one pass. The target may be one of the operands; a sparse one
+   * is only overwritten once the expression has been evaluated, as its structure changes under the iteration.
+   *
+   * @return target
+   */
+  public Vector assignTo(Vector target) {
+    return assignTo(target, Functions.SECOND);
+  }
+
+  /**
+   * Sets {@code target} to {@code f(target, this)} element-wise in one pass, e.g. {@link Functions#PLUS} to
+   * accumulate the expression into the target.
+   *
+   * @return target
+   */
+  public Vector assignTo(Vector target, DoubleDoubleFunction f) {
+    if (size() != target.size()) {
+      throw new CardinalityException(size(), target.size());
+    }
+    if (!target.isDense() && reads(target)) {
+      return target.assign(evaluate(), f);
+    }
+    return target.assign(this, f);
+  }
+
+  /**
+   * @return true if {@code vector} is one of the operands of this expression
+   */
+  abstract boolean reads(Vector vector);
+
+  static boolean reads(Vector operand, Vector vector) {
+    return operand == vector || operand instanceof VectorExpression && ((VectorExpression) operand).reads(vector);
+  }
+
+  @Override
+  protected Vector createOptimizedCopy() {
+    return evaluate();
+  }
+
+  @Override
+  public Vector like() {
+    if (isDense()) {
+      return new DenseVector(size());
+    }
+    if (isSequentialAccess()) {
+      return new SequentialAccessSparseVector(size(), getNumNondefaultElements());
+    }
+    return new RandomAccessSparseVector(size(), getNumNondefaultElements());
+  }
+
+  @Override
+  protected Matrix matrixLike(int rows, int columns) {
+    if (isDense()) {
+      return new DenseMatrix(rows, columns);
+    }
+    return new SparseRowMatrix(rows, columns);
+  }
+
+  /**
+   * Never cached, as the operands may change under the expression.
+   */
+  @Override
+  public double getLengthSquared() {
+    return dotSelf();
+  }
+
+  @Override
+  public void setQuick(int index, double value) {
+    throw new UnsupportedOperationException("Vector expressions are read-only");
+  }
+
+  @Override
+  public void mergeUpdates(OrderedIntDoubleMapping updates) {
+    throw new UnsupportedOperationException("Vector expressions are read-only");
+  }
+
+  @Override
+  public boolean isAddConstantTime() {
+    return false;
+  }
+
+  /**
+   * Reused by the iterators of all expressions. The value is computed when the iterator advances, so reading it
+   * does not evaluate the expression again.
+   */
+  private static final class ExpressionElement implements Element {
+    private int index;
+    private double value;
+
+    Element set(int index, double value) {
+      this.index = index;
+      this.value = value;
+      return this;
+    }
+
+    @Override
+    public double get() {
+      return value;
+    }
+
+    @Override
+    public int index() {
+      return index;
+    }
+
+    @Override
+    public void set(double value) {
+      throw new UnsupportedOperationException("Vector expressions are read-only");
+    }
+  }
+
+  /**
+   * Iterates over all indices in order, computing each value with {@link #getQuick(int)}.
+   */
+  private final class AllIterator extends AbstractIterator<Element> {
+    private final ExpressionElement element = new ExpressionElement();
+    private int index;
+
+    @Override
+    protected Element computeNext() {
+      if (index >= size()) {
+        return endOfData();
+      }
+      element.set(index, getQuick(index));
+      index++;
+      return element;
+    }
+  }
+
+  @Override
+  public Iterator<Element> iterator() {
+    return new AllIterator();
+  }
+
+  private static final class Leaf extends VectorExpression {
+    private final Vector vector;
+
+    Leaf(Vector vector) {
+      super(vector.size());
+      this.vector = vector;
+    }
+
+    @Override
+    boolean reads(Vector vector) {
+      return reads(this.vector, vector);
+    }
+
+    @Override
+    public double getQuick(int index) {
+      return vector.getQuick(index);
+    }
+
+    @Override
+    public boolean isDense() {
+      return vector.isDense();
+    }
+
+    @Override
+    public boolean isSequentialAccess() {
+      return vector.isSequentialAccess();
+    }
+
+    @Override
+    public int getNumNondefaultElements() {
+      return vector.getNumNondefaultElements();
+    }
+
+    @Override
+    public double getLookupCost() {
+      return vector.getLookupCost();
+    }
+
+    @Override
+    public double getIteratorAdvanceCost() {
+      return vector.getIteratorAdvanceCost();
+    }
+
+    @Override
+    public Iterator<Element> iterateNonZero() {
+      final Iterator<Element> iterator = vector.nonZeroes().iterator();
+      return new AbstractIterator<Element>() {
+        private final ExpressionElement element = new ExpressionElement();
+
+        @Override
+        protected Element computeNext() {
+          if (!iterator.hasNext()) {
+            return endOfData();
+          }
+          Element e = iterator.next();
+          return element.set(e.index(), e.get());
+        }
+      };
+    }
+
+    @Override
+    public Iterator<Element> iterator() {
+      final Iterator<Element> iterator = vector.all().iterator();
+      return new AbstractIterator<Element>() {
+        private final ExpressionElement element = new ExpressionElement();
+
+        @Override
+        protected Element computeNext() {
+          if (!iterator.hasNext()) {
+            return endOfData();
+          }
+          Element e = iterator.next();
+          return element.set(e.index(), e.get());
+        }
+      };
+    }
+  }
+
+  private static final class Unary extends VectorExpression {
+    private final Vector argument;
+    private final DoubleFunction f;
+    private final boolean densifying;
+
+    Unary(Vector argument, DoubleFunction f) {
+      super(argument.size());
+      this.argument = argument;
+      this.f = f;
+      this.densifying = f.isDensifying();
+    }
+
+    @Override
+    boolean reads(Vector vector) {
+      return reads(argument, vector);
+    }
+
+    @Override
+    public double getQuick(int index) {
+      return f.apply(argument.getQuick(index));
+    }
+
+    @Override
+    public boolean isDense() {
+      return densifying || argument.isDense();
+    }
+
+    @Override
+    public boolean isSequentialAccess() {
+      return densifying || argument.isSequentialAccess();
+    }
+
+    @Override
+    public int getNumNondefaultElements() {
+      return densifying ? size() : argument.getNumNondefaultElements();
+    }
+
+    @Override
+    public double getLookupCost() {
+      return argument.getLookupCost();
+    }
+
+    @Override
+    public double getIteratorAdvanceCost() {
+      return densifying ? argument.getLookupCost() : argument.getIteratorAdvanceCost();
+    }
+
+    /**
+     * Visits the non-zeros of the argument, unless f(0) != 0.
+     */
+    @Override
+    public Iterator<Element> iterateNonZero() {
+      if (densifying) {
+        return iterator();
+      }
+      final Iterator<Element> iterator = argument.nonZeroes().iterator();
+      return new AbstractIterator<Element>() {
+        private final ExpressionElement element = new ExpressionElement();
+
+        @Override
+        protected Element computeNext() {
+          if (!iterator.hasNext()) {
+            return endOfData();
+          }
+          Element e = iterator.next();
+          return element.set(e.index(), f.apply(e.get()));
+        }
+      };
+    }
+  }
+
+  /**
+   * How the non-zeros of a binary expression are enumerated, depending on which zeros the function preserves.
+   */
+  private enum Walk {
+    /** f(0, 0) != 0, or an operand of a plus-like f is dense: every index. */
+    ALL,
+    /** f(0, y) = 0: the non-zeros of the left operand. */
+    LEFT,
+    /** f(x, 0) = 0: the non-zeros of the right operand. */
+    RIGHT,
+    /** Both operands are sparse and sequential: the union of their non-zeros, in order. */
+    MERGE,
+    /** Both operands are sparse: the non-zeros of the left operand, then those of the right one where left is 0. */
+    UNION
+  }
+
+  private static final class Binary extends VectorExpression {
+    private final Vector left;
+    private final Vector right;
+    private final DoubleDoubleFunction f;
+    private final Walk walk;
+
+    Binary(Vector left, Vector right, DoubleDoubleFunction f) {
+      super(left.size());
+      this.left = left;
+      this.right = right;
+      this.f = f;
+      this.walk = chooseWalk(left, right, f);
+    }
+
+    @Override
+    boolean reads(Vector vector) {
+      return reads(left, vector) || reads(right, vector);
+    }
+
+    private static Walk chooseWalk(Vector left, Vector right, DoubleDoubleFunction f) {
+      if (f.isDensifying()) {
+        return Walk.ALL;
+      }
+      if (f.isLikeLeftMult() && f.isLikeRightMult()) {
+        return left.getNumNondefaultElements() <= right.getNumNondefaultElements() ? Walk.LEFT : Walk.RIGHT;
+      }
+      if (f.isLikeLeftMult()) {
+        return Walk.LEFT;
+      }
+      if (f.isLikeRightMult()) {
+        return Walk.RIGHT;
+      }
+      if (left.isDense() || right.isDense()) {
+        return Walk.ALL;
+      }
+      if (left.isSequentialAccess() && right.isSequentialAccess()) {
+        return Walk.MERGE;
+      }
+      return Walk.UNION;
+    }
+
+    @Override
+    public double getQuick(int index) {
+      return f.apply(left.getQuick(index), right.getQuick(index));
+    }
+
+    @Override
+    public boolean isDense() {
+      switch (walk) {
+        case ALL:
+          return true;
+        case LEFT:
+          return left.isDense();
+        case RIGHT:
+          return right.isDense();
+        default:
+          return false;
+      }
+    }
+
+    @Override
+    public boolean isSequentialAccess() {
+      switch (walk) {
+        case ALL:
+        case MERGE:
+          return true;
+        case LEFT:
+          return left.isSequentialAccess();
+        case RIGHT:
+          return right.isSequentialAccess();
+        default:
+          return false;
+      }
+    }
+
+    @Override
+    public int getNumNondefaultElements() {
+      switch (walk) {
+        case ALL:
+          return size();
+        case LEFT:
+          return left.getNumNondefaultElements();
+        case RIGHT:
+          return right.getNumNondefaultElements();
+        default:
+          return Math.min(size(), left.getNumNondefaultElements() + right.getNumNondefaultElements());
+      }
+    }
+
+    @Override
+    public double getLookupCost() {
+      return left.getLookupCost() + right.getLookupCost();
+    }
+
+    @Override
+    public double getIteratorAdvanceCost() {
+      switch (walk) {
+        case ALL:
+          return getLookupCost();
+        case LEFT:
+          return left.getIteratorAdvanceCost() + right.getLookupCost();
+        case RIGHT:
+          return right.getIteratorAdvanceCost() + left.getLookupCost();
+        case MERGE:
+          return left.getIteratorAdvanceCost() + right.getIteratorAdvanceCost();
+        default:
+          return left.getIteratorAdvanceCost() + right.getIteratorAdvanceCost() + left.getLookupCost();
+      }
+    }
+
+    @Override
+    public Iterator<Element> iterateNonZero() {
+      switch (walk) {
+        case ALL:
+          return iterator();
+        case LEFT:
+          return new LookupIterator(left, right, false);
+        case RIGHT:
+          return new LookupIterator(right, left, true);
+        case MERGE:
+          return new MergeIterator();
+        default:
+          return new UnionIterator();
+      }
+    }
+
+    /**
+     * Walks the non-zeros of one operand and looks the other one up.
+     */
+    private final class LookupIterator extends AbstractIterator<Element> {
+      private final ExpressionElement element = new ExpressionElement();
+      private final Iterator<Element> iterator;
+      private final Vector other;
+      private final boolean swapped;
+
+      LookupIterator(Vector walked, Vector other, boolean swapped) {
+        this.iterator = walked.nonZeroes().iterator();
+        this.other = other;
+        this.swapped = swapped;
+      }
+
+      @Override
+      protected Element computeNext() {
+        if (!iterator.hasNext()) {
+          return endOfData();
+        }
+        Element e = iterator.next();
+        int index = e.index();
+        double value = swapped ? f.apply(other.getQuick(index), e.get()) : f.apply(e.get(), other.getQuick(index));
+        return element.set(index, value);
+      }
+    }
+
+    private final class MergeIterator extends AbstractIterator<Element> {
+      private final ExpressionElement element = new ExpressionElement();
+      private final Iterator<Element> leftIterator = left.nonZeroes().iterator();
+      private final Iterator<Element> rightIterator = right.nonZeroes().iterator();
+      private Element leftElement = advance(leftIterator);
+      private Element rightElement = advance(rightIterator);
+
+      private Element advance(Iterator<Element> iterator) {
+        return iterator.hasNext() ? iterator.next() : null;
+      }
+
+      @Override
+      protected Element computeNext() {
+        if (leftElement == null && rightElement == null) {
+          return endOfData();
+        }
+        int leftIndex = leftElement == null ? Integer.MAX_VALUE : leftElement.index();
+        int rightIndex = rightElement == null ? Integer.MAX_VALUE : rightElement.index();
+        if (leftIndex < rightIndex) {
+          element.set(leftIndex, f.apply(leftElement.get(), 0.0));
+          leftElement = advance(leftIterator);
+        } else if (leftIndex > rightIndex) {
+          element.set(rightIndex, f.apply(0.0, rightElement.get()));
+          rightElement = advance(rightIterator);
+        } else {
+          element.set(leftIndex, f.apply(leftElement.get(), rightElement.get()));
+          leftElement = advance(leftIterator);
+          rightElement = advance(rightIterator);
+        }
+        return element;
+      }
+    }
+
+    /**
+     * Every index is visited exactly once: in the first pass if the left value is non-zero, in the second pass
+     * otherwise. Explicitly stored zeros of the left operand are left to the second pass.
+     */
+    private final class UnionIterator extends AbstractIterator<Element> {
+      private final ExpressionElement element = new ExpressionElement();
+      private final Iterator<Element> leftIterator = left.nonZeroes().iterator();
+      private final Iterator<Element> rightIterator = right.nonZeroes().iterator();
+
+      @Override
+      protected Element computeNext() {
+        while (leftIterator.hasNext()) {
+          Element e = leftIterator.next();
+          double x = e.get();
+          if (x != 0.0) {
+            int index = e.index();
+            return element.set(index, f.apply(x, right.getQuick(index)));
+          }
+        }
+        while (rightIterator.hasNext()) {
+          Element e = rightIterator.next();
+          int index = e.index();
+          if (left.getQuick(index) == 0.0) {
+            return element.set(index, f.apply(0.0, e.get()));
+          }
+        }
+        return endOfData();
+      }
+    }
+  }
+}
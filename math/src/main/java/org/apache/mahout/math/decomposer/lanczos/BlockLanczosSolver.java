@@ -0,0 +1,459 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math.decomposer.lanczos;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.DenseVector;
+import org.apache.mahout.math.Matrix;
+import org.apache.mahout.math.MatrixSlice;
+import org.apache.mahout.math.ParallelContext;
+import org.apache.mahout.math.Vector;
+import org.apache.mahout.math.VectorIterable;
+import org.apache.mahout.math.solver.EigenDecomposition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Block variant of the {@link LanczosSolver}: the Krylov basis is grown {@code blockSize} vectors at a time, so
+ * every pass over the corpus multiplies a whole block.  Each row of the corpus is read once per pass and dotted with
+ * all the vectors of the block together, which cuts the number of passes by the block size when reading the corpus
+ * dominates.</p>
+ *
+ * <p>The auxiliary matrix is block tridiagonal rather than tridiagonal; its eigen-decomposition and the singular
+ * values and vectors written to the {@link LanczosState} have the same meaning as for the single vector solver.
+ * The state's initial vector is the first vector of the starting block, the others are random.  The solver always
+ * starts from the initial vector, so it cannot pick up a partially solved state.</p>
+ *
+ * <p>When the installed {@link ParallelContext} allows it, the rows of a {@link Matrix} corpus are split into shards
+ * that are multiplied concurrently, and the full re-orthogonalization of every new block against the basis is done
+ * as two rounds of classical Gram-Schmidt whose projections and updates are split over the basis vectors and over
+ * the coordinates respectively.  Any other {@link VectorIterable} is read serially, one pass per block.  Time spent
+ * in each phase is reported through {@link LanczosSolver.TimingSection}: {@code ITERATE} covers the passes over the
+ * corpus and {@code ORTHOGANLIZE} the re-orthogonalization and factorization of each new block.</p>
+ */
+public class BlockLanczosSolver extends LanczosSolver {
+
+  private static final Logger log = LoggerFactory.getLogger(BlockLanczosSolver.class);
+
+  /** A residual vector that loses all but this fraction of its norm to re-orthogonalization is dependent. */
+  private static final double DEFLATION_TOLERANCE = 1.0e-10;
+
+  private final int blockSize;
+  private final Random random;
+
+  public BlockLanczosSolver(int blockSize) {
+    Preconditions.checkArgument(blockSize > 0, "blockSize must be positive");
+    this.blockSize = blockSize;
+    this.random = RandomUtils.getRandom();
+  }
+
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  @Override
+  public void solve(LanczosState state, int desiredRank, boolean isSymmetric) {
+    VectorIterable corpus = state.getCorpus();
+    log.info("Finding {} singular vectors of matrix with {} rows, via block Lanczos with blocks of {}",
+        desiredRank, corpus.numRows(), blockSize);
+    int n = corpus.numCols();
+    Matrix triDiag = state.getDiagonalMatrix();
+    List<double[]> basis = Lists.newArrayList();
+
+    double[][] block = new double[blockSize][];
+    block[0] = toArray(state.getBasisVector(0), n);
+    for (int c = 1; c < blockSize; c++) {
+      block[c] = randomVector(n);
+    }
+    double[] norms = new double[blockSize];
+    for (int c = 0; c < blockSize; c++) {
+      norms[c] = Math.sqrt(dot(block[c], block[c]));
+    }
+    orthonormalize(block, norms, basis);
+
+    int start = 0;
+    while (start < desiredRank) {
+      int width = Math.min(blockSize, desiredRank - start);
+      for (int c = 0; c < width; c++) {
+        basis.add(block[c]);
+      }
+      log.info("{} passes through the corpus so far...", start / blockSize);
+
+      startTime(TimingSection.ITERATE);
+      double[][] next = isSymmetric ? times(corpus, block) : timesSquared(corpus, block);
+      if (state.getScaleFactor() <= 0) {
+        state.setScaleFactor(calculateScaleFactor(new DenseVector(next[0], true)));
+      }
+      double scale = 1.0 / state.getScaleFactor();
+      for (int c = 0; c < blockSize; c++) {
+        norms[c] = 0;
+        for (int k = 0; k < n; k++) {
+          next[c][k] *= scale;
+          norms[c] += next[c][k] * next[c][k];
+        }
+        norms[c] = Math.sqrt(norms[c]);
+      }
+      // the diagonal block: projections of the product onto the block itself
+      boolean inRange = true;
+      for (int c = 0; c < width; c++) {
+        for (int d = 0; d <= c; d++) {
+          double alpha = 0.5 * (dot(block[c], next[d]) + dot(block[d], next[c]));
+          inRange &= !outOfRange(alpha);
+          triDiag.set(start + c, start + d, alpha);
+          triDiag.set(start + d, start + c, alpha);
+        }
+      }
+      endTime(TimingSection.ITERATE);
+
+      int nextStart = start + blockSize;
+      if (!inRange || nextStart >= desiredRank) {
+        if (!inRange) {
+          log.warn("Lanczos parameters out of range at basis vector {}.  Bailing out early!", start);
+        }
+        start += width;
+        break;
+      }
+
+      startTime(TimingSection.ORTHOGANLIZE);
+      // removes the components along the previous, current and all earlier blocks in one go
+      double[][] r = orthonormalize(next, norms, basis);
+      endTime(TimingSection.ORTHOGANLIZE);
+      for (int c = 0; c < width; c++) {
+        for (int k = 0; k < blockSize && nextStart + k < desiredRank; k++) {
+          inRange &= !outOfRange(r[k][c]);
+          triDiag.set(nextStart + k, start + c, r[k][c]);
+          triDiag.set(start + c, nextStart + k, r[k][c]);
+        }
+      }
+      start = nextStart;
+      block = next;
+      if (!inRange) {
+        log.warn("Lanczos parameters out of range at basis vector {}.  Bailing out early!", start);
+        break;
+      }
+    }
+
+    int rank = Math.min(start, basis.size());
+    for (int i = 0; i < rank; i++) {
+      state.setBasisVector(i, new DenseVector(basis.get(i), true));
+    }
+    state.setIterationNumber(rank);
+
+    startTime(TimingSection.TRIDIAG_DECOMP);
+    log.info("Lanczos iteration complete - now to diagonalize the block tri-diagonal auxiliary matrix.");
+    EigenDecomposition decomp = new EigenDecomposition(triDiag.viewPart(0, rank, 0, rank));
+    Matrix eigenVects = decomp.getV();
+    Vector eigenVals = decomp.getRealEigenvalues();
+    endTime(TimingSection.TRIDIAG_DECOMP);
+
+    startTime(TimingSection.FINAL_EIGEN_CREATE);
+    double[][] ritz = combine(basis.subList(0, rank), eigenVects);
+    for (int row = 0; row < rank; row++) {
+      Vector realEigen = new DenseVector(ritz[row], true).normalize();
+      state.setRightSingularVector(row, realEigen);
+      double e = eigenVals.get(row) * state.getScaleFactor();
+      if (!isSymmetric) {
+        e = Math.sqrt(e);
+      }
+      log.info("Eigenvector {} found with eigenvalue {}", row, e);
+      state.setSingularValue(row, e);
+    }
+    log.info("BlockLanczosSolver finished.");
+    endTime(TimingSection.FINAL_EIGEN_CREATE);
+    logTimes();
+  }
+
+  /**
+   * @return whether rows of {@code corpus} can be viewed from several threads; other corpora, such as a
+   *  {@link org.apache.mahout.math.SparseMatrix} that creates missing rows when they are viewed, are iterated over
+   *  on the calling thread
+   */
+  private static boolean hasThreadSafeRows(VectorIterable corpus) {
+    return corpus instanceof Matrix && ParallelContext.hasThreadSafeRowViews((Matrix) corpus);
+  }
+
+  /**
+   * Computes {@code corpus * block[c]} for every vector of the block in one pass over the rows.
+   */
+  private static double[][] times(VectorIterable corpus, final double[][] block) {
+    final int b = block.length;
+    final double[][] result = new double[b][corpus.numRows()];
+    if (hasThreadSafeRows(corpus)) {
+      final Matrix matrix = (Matrix) corpus;
+      ParallelContext.forEachRange((long) b * matrix.numRows() * matrix.numCols(), matrix.numRows(),
+          new ParallelContext.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+              double[] dots = new double[b];
+              for (int row = start; row < end; row++) {
+                dot(matrix.viewRow(row), block, dots);
+                for (int c = 0; c < b; c++) {
+                  result[c][row] = dots[c];
+                }
+              }
+            }
+          });
+    } else {
+      double[] dots = new double[b];
+      for (MatrixSlice slice : corpus) {
+        dot(slice.vector(), block, dots);
+        for (int c = 0; c < b; c++) {
+          result[c][slice.index()] = dots[c];
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Computes {@code corpus' * corpus * block[c]} for every vector of the block in one pass over the rows.  Shards
+   * of rows accumulate into their own arrays, which are added up at the end.
+   */
+  private static double[][] timesSquared(VectorIterable corpus, final double[][] block) {
+    final int b = block.length;
+    final int n = corpus.numCols();
+    final double[][] result = new double[b][n];
+    if (hasThreadSafeRows(corpus)) {
+      final Matrix matrix = (Matrix) corpus;
+      final int rows = matrix.numRows();
+      ParallelContext.forEachRange(2L * b * rows * n, rows, new ParallelContext.RangeTask() {
+        @Override
+        public void run(int start, int end) {
+          double[][] partial = start == 0 && end == rows ? result : new double[b][n];
+          double[] dots = new double[b];
+          for (int row = start; row < end; row++) {
+            addOuter(matrix.viewRow(row), block, dots, partial);
+          }
+          if (partial != result) {
+            synchronized (result) {
+              for (int c = 0; c < b; c++) {
+                for (int k = 0; k < n; k++) {
+                  result[c][k] += partial[c][k];
+                }
+              }
+            }
+          }
+        }
+      });
+    } else {
+      double[] dots = new double[b];
+      for (MatrixSlice slice : corpus) {
+        addOuter(slice.vector(), block, dots, result);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Sets {@code dots[c]} to the dot product of {@code row} with {@code block[c]}, reading the row once.
+   */
+  private static void dot(Vector row, double[][] block, double[] dots) {
+    int b = block.length;
+    Arrays.fill(dots, 0);
+    for (Vector.Element e : row.nonZeroes()) {
+      int index = e.index();
+      double value = e.get();
+      for (int c = 0; c < b; c++) {
+        dots[c] += value * block[c][index];
+      }
+    }
+  }
+
+  /**
+   * Adds {@code row * (row . block[c])} to {@code sums[c]} for every vector of the block.
+   */
+  private static void addOuter(Vector row, double[][] block, double[] dots, double[][] sums) {
+    dot(row, block, dots);
+    int b = block.length;
+    boolean allZero = true;
+    for (int c = 0; c < b; c++) {
+      allZero &= dots[c] == 0.0;
+    }
+    if (allZero) {
+      return;
+    }
+    for (Vector.Element e : row.nonZeroes()) {
+      int index = e.index();
+      double value = e.get();
+      for (int c = 0; c < b; c++) {
+        sums[c][index] += value * dots[c];
+      }
+    }
+  }
+
+  /**
+   * Makes the vectors of {@code block} orthonormal to each other and to the basis, replacing them in place, and
+   * returns the upper triangular R with {@code block = basis * (...) + Q R}.  A vector that is (numerically) in the
+   * span of what came before is replaced with a random one orthogonal to all of it, and gets a zero column in R.
+   *
+   * @param norms the norms of the vectors before anything was projected out of them
+   */
+  private double[][] orthonormalize(double[][] block, double[] norms, List<double[]> basis) {
+    int b = block.length;
+    double[][] r = new double[b][b];
+    // "twice is enough": a second round catches what cancellation left behind in the first
+    reorthogonalize(block, basis);
+    reorthogonalize(block, basis);
+    for (int c = 0; c < b; c++) {
+      double[] v = block[c];
+      for (int round = 0; round < 2; round++) {
+        for (int k = 0; k < c; k++) {
+          double projection = dot(block[k], v);
+          r[k][c] += projection;
+          axpy(-projection, block[k], v);
+        }
+      }
+      double norm = Math.sqrt(dot(v, v));
+      if (norm > DEFLATION_TOLERANCE * norms[c]) {
+        r[c][c] = norm;
+        scale(1.0 / norm, v);
+      } else {
+        for (int k = 0; k < c; k++) {
+          r[k][c] = 0;
+        }
+        block[c] = randomOrthogonalVector(v.length, block, c, basis);
+      }
+    }
+    return r;
+  }
+
+  private double[] randomOrthogonalVector(int n, double[][] block, int count, List<double[]> basis) {
+    double[] v = randomVector(n);
+    double[][] single = {v};
+    for (int round = 0; round < 2; round++) {
+      reorthogonalize(single, basis);
+      for (int k = 0; k < count; k++) {
+        axpy(-dot(block[k], v), block[k], v);
+      }
+    }
+    scale(1.0 / Math.sqrt(dot(v, v)), v);
+    return v;
+  }
+
+  private double[] randomVector(int n) {
+    double[] v = new double[n];
+    for (int k = 0; k < n; k++) {
+      v[k] = random.nextGaussian();
+    }
+    return v;
+  }
+
+  /**
+   * One round of classical Gram-Schmidt of every vector of {@code block} against the whole basis.  The projections
+   * are split over the basis vectors and the updates over the coordinates.
+   */
+  private static void reorthogonalize(final double[][] block, final List<double[]> basis) {
+    final int m = basis.size();
+    if (m == 0) {
+      return;
+    }
+    final int b = block.length;
+    final int n = block[0].length;
+    final double[][] projections = new double[b][m];
+    ParallelContext.forEachRange((long) m * b * n, m, new ParallelContext.RangeTask() {
+      @Override
+      public void run(int start, int end) {
+        for (int i = start; i < end; i++) {
+          double[] q = basis.get(i);
+          for (int c = 0; c < b; c++) {
+            projections[c][i] = dot(q, block[c]);
+          }
+        }
+      }
+    });
+    ParallelContext.forEachRange((long) m * b * n, n, new ParallelContext.RangeTask() {
+      @Override
+      public void run(int start, int end) {
+        for (int c = 0; c < b; c++) {
+          double[] v = block[c];
+          for (int i = 0; i < m; i++) {
+            double projection = projections[c][i];
+            if (projection != 0.0) {
+              double[] q = basis.get(i);
+              for (int k = start; k < end; k++) {
+                v[k] -= projection * q[k];
+              }
+            }
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * @return the rows {@code sum_j eigenVects[j, row] * basis[j]}, split over the coordinates
+   */
+  private static double[][] combine(final List<double[]> basis, final Matrix eigenVects) {
+    final int rank = basis.size();
+    final int n = rank == 0 ? 0 : basis.get(0).length;
+    final double[][] result = new double[rank][n];
+    ParallelContext.forEachRange((long) rank * rank * n, n, new ParallelContext.RangeTask() {
+      @Override
+      public void run(int start, int end) {
+        for (int row = 0; row < rank; row++) {
+          double[] v = result[row];
+          for (int j = 0; j < rank; j++) {
+            double d = eigenVects.getQuick(j, row);
+            if (d != 0.0) {
+              double[] q = basis.get(j);
+              for (int k = start; k < end; k++) {
+                v[k] += d * q[k];
+              }
+            }
+          }
+        }
+      }
+    });
+    return result;
+  }
+
+  private static double[] toArray(Vector v, int n) {
+    Preconditions.checkArgument(v.size() == n, "initial vector must have as many entries as the corpus has columns");
+    double[] result = new double[n];
+    for (Vector.Element e : v.nonZeroes()) {
+      result[e.index()] = e.get();
+    }
+    return result;
+  }
+
+  private static double dot(double[] x, double[] y) {
+    double sum = 0;
+    for (int k = 0; k < x.length; k++) {
+      sum += x[k] * y[k];
+    }
+    return sum;
+  }
+
+  private static void axpy(double a, double[] x, double[] y) {
+    for (int k = 0; k < x.length; k++) {
+      y[k] += a * x[k];
+    }
+  }
+
+  private static void scale(double a, double[] x) {
+    for (int k = 0; k < x.length; k++) {
+      x[k] *= a;
+    }
+  }
+}
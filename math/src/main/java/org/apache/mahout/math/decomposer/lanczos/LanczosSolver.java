@@ -180,13 +180,14 @@ public class LanczosSolver {
     }
     log.info("LanczosSolver finished.");
     endTime(TimingSection.FINAL_EIGEN_CREATE);
+    logTimes();
   }
 
   protected static double calculateScaleFactor(Vector nextVector) {
     return nextVector.norm(2);
   }
 
-  private static boolean outOfRange(double d) {
+  protected static boolean outOfRange(double d) {
     return Double.isNaN(d) || d > SAFE_MAX || -d > SAFE_MAX;
   }
 
@@ -201,15 +202,29 @@ public class LanczosSolver {
     }
   }
 
-  private void startTime(TimingSection section) {
+  /**
+   * @return the wall clock time spent in {@code section} by all the calls to {@code solve} on this solver
+   */
+  public long getTimeMillis(TimingSection section) {
+    Long nanos = times.get(section);
+    return nanos == null ? 0 : nanos / 1000000;
+  }
+
+  protected void startTime(TimingSection section) {
     startTimes.put(section, System.nanoTime());
   }
 
-  private void endTime(TimingSection section) {
+  protected void endTime(TimingSection section) {
     if (!times.containsKey(section)) {
       times.put(section, 0L);
     }
     times.put(section, times.get(section) + System.nanoTime() - startTimes.get(section));
   }
 
+  protected void logTimes() {
+    for (TimingSection section : TimingSection.values()) {
+      log.info("{} took {} ms", section, getTimeMillis(section));
+    }
+  }
+
 }
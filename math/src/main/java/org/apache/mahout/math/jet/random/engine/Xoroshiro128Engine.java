@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math.jet.random.engine;
+
+/**
+ * A small-state, splittable engine based on the xoroshiro128** generator of Blackman and Vigna, seeded through
+ * SplitMix64.
+ * <p>
+ * The whole state is two longs, so an engine is cheap to create, copy and hand to a worker thread.  Independent
+ * streams can be obtained in two ways:
+ * <ul>
+ * <li>{@link #jump()} advances the engine by 2<sup>64</sup> steps, so copies taken between jumps produce
+ * non-overlapping sequences.  This is what {@link org.apache.mahout.common.RandomUtils#getStream(long, int)} uses
+ * to give numbered, reproducible streams to parallel workers.</li>
+ * <li>{@link #split()} returns a new engine seeded from this one's output, in the same way as
+ * <tt>java.util.SplittableRandom</tt>.  This is convenient for recursive decomposition where the number of
+ * streams is not known in advance.</li>
+ * </ul>
+ * <p>
+ * Like all engines this class is <b>not synchronized</b>; give each thread its own instance.
+ *
+ * @see MersenneTwister
+ */
+public final class Xoroshiro128Engine extends RandomEngine {
+
+  private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+  private static final long[] JUMP = {0xDF900294D8F554A5L, 0x170865DF4B3201FCL};
+
+  private long s0;
+  private long s1;
+
+  /** Constructs an engine seeded from the current time. */
+  public Xoroshiro128Engine() {
+    this(System.nanoTime() ^ System.currentTimeMillis() * GOLDEN_GAMMA);
+  }
+
+  /**
+   * Constructs an engine with the given seed.  Equal seeds give equal sequences.
+   *
+   * @param seed any value, including zero
+   */
+  public Xoroshiro128Engine(long seed) {
+    setSeed(seed);
+  }
+
+  private Xoroshiro128Engine(long s0, long s1) {
+    this.s0 = s0;
+    this.s1 = s1;
+  }
+
+  /**
+   * Resets the whole state from a single 64 bit seed by running SplitMix64 over it, which guarantees a non-zero
+   * state and decorrelates nearby seeds.
+   */
+  public void setSeed(long seed) {
+    long x = seed + GOLDEN_GAMMA;
+    s0 = mix64(x);
+    s1 = mix64(x + GOLDEN_GAMMA);
+  }
+
+  @Override
+  public long nextLong() {
+    long a = s0;
+    long b = s1;
+    long result = Long.rotateLeft(a * 5, 7) * 9;
+    b ^= a;
+    s0 = Long.rotateLeft(a, 24) ^ b ^ (b << 16);
+    s1 = Long.rotateLeft(b, 37);
+    return result;
+  }
+
+  @Override
+  public int nextInt() {
+    // the upper bits are the strongest
+    return (int) (nextLong() >>> 32);
+  }
+
+  /**
+   * @return a 53 bit uniformly distributed random number in the open unit interval {@code (0.0,1.0)}.
+   */
+  @Override
+  public double nextDouble() {
+    // centre of one of 2^53 equal cells, never 0.0 or 1.0
+    return ((nextLong() >>> 11) + 0.5) * 0x1.0p-53;
+  }
+
+  /**
+   * Advances this engine by 2<sup>64</sup> steps.  Calling this <tt>n</tt> times on a copy gives the start of the
+   * <tt>n</tt>'th of 2<sup>64</sup> non-overlapping subsequences of length 2<sup>64</sup>.
+   */
+  public void jump() {
+    long t0 = 0;
+    long t1 = 0;
+    for (long word : JUMP) {
+      for (int bit = 0; bit < 64; bit++) {
+        if ((word & (1L << bit)) != 0) {
+          t0 ^= s0;
+          t1 ^= s1;
+        }
+        nextLong();
+      }
+    }
+    s0 = t0;
+    s1 = t1;
+  }
+
+  /**
+   * Returns a new engine whose state is derived from the next two outputs of this one.  Both engines advance
+   * independently afterwards.
+   */
+  public Xoroshiro128Engine split() {
+    long a = mix64(nextLong());
+    long b = mix64(nextLong());
+    if (a == 0 && b == 0) {
+      b = GOLDEN_GAMMA;
+    }
+    return new Xoroshiro128Engine(a, b);
+  }
+
+  /** @return an engine with exactly the same state as this one. */
+  public Xoroshiro128Engine copy() {
+    return new Xoroshiro128Engine(s0, s1);
+  }
+
+  private static long mix64(long x) {
+    long z = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math.random;
+
+import java.util.Random;
+
+import com.google.common.base.Preconditions;
+import org.apache.mahout.common.RandomUtils;
+
+/**
+ * Frozen multinomial sampler over the outcomes {@code 0 .. n-1} using Walker's alias method (in Vose's numerically
+ * stable formulation).  Building the table costs O(n); after that each sample costs one uniform deviate, one table
+ * lookup and no allocation, as opposed to the O(log n) tree walk and boxed values of {@link Multinomial}.  The
+ * weights cannot be changed once the table is built, so this is intended for the many-samples-per-update pattern of
+ * Gibbs samplers and simulations; build a new table when the weights move.
+ */
+public final class AliasSampler implements Sampler<Integer> {
+  // probability of keeping column i rather than jumping to alias[i]
+  private final double[] keep;
+  private final int[] alias;
+  private final double[] probability;
+  private final Random rand;
+
+  public AliasSampler(double... weights) {
+    this(RandomUtils.getRandom(), weights);
+  }
+
+  /**
+   * @param rand     the source of uniform deviates; pass a per-thread stream from
+   *                 {@link RandomUtils#getStream(long, int)} to sample from several threads
+   * @param weights  non-negative weights, not all zero. Outcome {@code i} has probability proportional to
+   *                 {@code weights[i]}.
+   */
+  public AliasSampler(Random rand, double... weights) {
+    Preconditions.checkArgument(weights.length > 0, "Need some weights to build sampler");
+    this.rand = rand;
+    int n = weights.length;
+    double total = 0;
+    for (double w : weights) {
+      Preconditions.checkArgument(w >= 0 && !Double.isInfinite(w), "Weights must be finite and non-negative: %s", w);
+      total += w;
+    }
+    Preconditions.checkArgument(total > 0, "Weights must not all be zero");
+
+    keep = new double[n];
+    alias = new int[n];
+    probability = new double[n];
+
+    // the worklists share one array: small columns grow from the front, large ones from the back
+    double[] scaled = new double[n];
+    int[] work = new int[n];
+    int small = 0;
+    int large = n;
+    for (int i = 0; i < n; i++) {
+      probability[i] = weights[i] / total;
+      scaled[i] = probability[i] * n;
+      if (scaled[i] < 1) {
+        work[small++] = i;
+      } else {
+        work[--large] = i;
+      }
+    }
+
+    while (small > 0 && large < n) {
+      int less = work[--small];
+      int more = work[large++];
+      keep[less] = scaled[less];
+      alias[less] = more;
+      scaled[more] = scaled[more] + scaled[less] - 1;
+      if (scaled[more] < 1) {
+        work[small++] = more;
+      } else {
+        work[--large] = more;
+      }
+    }
+    // whatever is left over is 1 up to round-off
+    while (large < n) {
+      int i = work[large++];
+      keep[i] = 1;
+      alias[i] = i;
+    }
+    while (small > 0) {
+      int i = work[--small];
+      keep[i] = 1;
+      alias[i] = i;
+    }
+  }
+
+  /** @return the number of outcomes, including those with zero weight */
+  public int size() {
+    return keep.length;
+  }
+
+  /** @return the normalized probability of outcome {@code i} */
+  public double getProbability(int i) {
+    return probability[i];
+  }
+
+  /** Boxing form for the {@link Sampler} interface; prefer {@link #sampleInt()}. */
+  @Override
+  public Integer sample() {
+    return sampleInt();
+  }
+
+  public int sampleInt() {
+    return sample(rand.nextDouble());
+  }
+
+  /**
+   * Deterministic form of {@link #sampleInt()}.
+   *
+   * @param u a uniform deviate in [0, 1)
+   */
+  public int sample(double u) {
+    double x = u * keep.length;
+    int i = (int) x;
+    if (i >= keep.length) {
+      // only reachable through round-off when u is within an ulp of 1
+      i = keep.length - 1;
+    }
+    return x - i < keep[i] ? i : alias[i];
+  }
+
+  /**
+   * Fills {@code out[0 .. n-1]} with independent samples.
+   */
+  public void sample(int n, int[] out) {
+    Preconditions.checkArgument(n >= 0 && n <= out.length, "Can't put %s samples in an array of length %s",
+        n, out.length);
+    for (int i = 0; i < n; i++) {
+      out[i] = sample(rand.nextDouble());
+    }
+  }
+}
@@ -162,6 +162,28 @@ public final class Multinomial<T> implements Sampler<T>, Iterable<T> {
     return values.get(n);
   }
 
+  /**
+   * Builds a constant-time {@link AliasSampler} from the current weights.  Later changes to this multinomial are not
+   * reflected in the returned sampler.
+   *
+   * @param outcomes  cleared and then filled so that outcome {@code i} of the sampler is {@code outcomes.get(i)}
+   */
+  public AliasSampler freeze(List<T> outcomes) {
+    outcomes.clear();
+    DoubleArrayList w = new DoubleArrayList(items.size());
+    for (int i = 1; i < values.size(); i++) {
+      T value = values.get(i);
+      // interior nodes repeat a leaf's value; only the leaf the map points at counts
+      Integer leaf = items.get(value);
+      if (leaf != null && leaf == i) {
+        outcomes.add(value);
+        w.add(weight.get(i));
+      }
+    }
+    w.trimToSize();
+    return new AliasSampler(rand, w.elements());
+  }
+
   /**
    * Exposed for testing only.  Returns a list of the leaf weights.  These are in an
    * order such that probing just before and after the cumulative sum of these weights
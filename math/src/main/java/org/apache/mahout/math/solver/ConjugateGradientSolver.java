@@ -17,8 +17,13 @@
 
 package org.apache.mahout.math.solver;
 
+import java.util.Arrays;
+
 import org.apache.mahout.math.CardinalityException;
+import org.apache.mahout.math.DenseMatrix;
 import org.apache.mahout.math.DenseVector;
+import org.apache.mahout.math.Matrix;
+import org.apache.mahout.math.ParallelContext;
 import org.apache.mahout.math.Vector;
 import org.apache.mahout.math.VectorIterable;
 import org.apache.mahout.math.function.Functions;
@@ -47,6 +52,11 @@ import org.slf4j.LoggerFactory;
  * 
  * <p>By default the solver will run a.numCols() iterations or until the residual falls below 1E-9.
  * 
+ * <p>If a {@link ParallelContext} is installed and A is a {@link Matrix}, the products with A are split over blocks
+ * of its rows. Several right-hand sides can be solved at once with {@link #solve(VectorIterable, Matrix,
+ * Preconditioner, int, double)}, which makes one pass over A per iteration for all of them. Progress is reported
+ * to a {@link SolverListener}, if one is set.
+ * 
  * <p>For more information on the conjugate gradient algorithm, see Golub & van Loan, "Matrix Computations", 
  * sections 10.2 and 10.3 or the <a href="http://en.wikipedia.org/wiki/Conjugate_gradient">conjugate gradient
  * wikipedia article</a>.
@@ -61,12 +71,20 @@ public class ConjugateGradientSolver {
 
   private int iterations;
   private double residualNormSquared;
+  private SolverListener listener;
   
   public ConjugateGradientSolver() {
     this.iterations = 0;
     this.residualNormSquared = Double.NaN;
   }  
 
+  /**
+   * Sets the listener that is told about each iteration and each finished solve, or none if null.
+   */
+  public void setListener(SolverListener listener) {
+    this.listener = listener;
+  }
+
   /**
    * Solves the system Ax = b with default termination criteria. A must be symmetric, square, and positive definite.
    * Only the squareness of a is checked, since testing for symmetry and positive definiteness are too expensive. If
@@ -122,26 +140,13 @@ public class ConjugateGradientSolver {
                       int maxIterations, 
                       double maxError) {
 
-    if (a.numRows() != a.numCols()) {
-      throw new IllegalArgumentException("Matrix must be square, symmetric and positive definite.");
-    }
-    
-    if (a.numCols() != b.size()) {
-      throw new CardinalityException(a.numCols(), b.size());
-    }
-
-    if (maxIterations <= 0) {
-      throw new IllegalArgumentException("Max iterations must be positive.");      
-    }
-    
-    if (maxError < 0.0) {
-      throw new IllegalArgumentException("Max error must be non-negative.");
-    }
+    checkArguments(a, b.size(), maxIterations, maxError);
+    long startTime = System.nanoTime();
     
     Vector x = new DenseVector(b.size());
 
     iterations = 0;
-    Vector residual = b.minus(a.times(x));
+    Vector residual = b.minus(RowBlockProducts.times(a, x));
     residualNormSquared = residual.dot(residual);
 
     log.info("Conjugate gradient initial residual norm = {}", Math.sqrt(residualNormSquared));
@@ -170,7 +175,7 @@ public class ConjugateGradientSolver {
         updateDirection.assign(conditionedResidual, Functions.PLUS);
       }
       
-      Vector aTimesUpdate = a.times(updateDirection);
+      Vector aTimesUpdate = RowBlockProducts.times(a, updateDirection);
       
       double alpha = conditionedNormSqr / updateDirection.dot(aTimesUpdate);
       
@@ -186,10 +191,173 @@ public class ConjugateGradientSolver {
       residualNormSquared = residual.dot(residual);
       
       log.info("Conjugate gradient iteration {} residual norm = {}", iterations, Math.sqrt(residualNormSquared));
+      if (listener != null) {
+        listener.iterationFinished(0, iterations, Math.sqrt(residualNormSquared));
+      }
+    }
+    if (listener != null) {
+      listener.solveFinished(1, iterations, System.nanoTime() - startTime);
     }
     return x;
   }
 
+  /**
+   * Solves the system AX = B for every column of B at once. Each column gets the same conjugate gradient
+   * iterations it would get from {@link #solve(VectorIterable, Vector, Preconditioner, int, double)}, but
+   * every iteration multiplies A into the search directions of all the unconverged columns in a single pass
+   * over A. When a {@link ParallelContext} is installed the preconditioner is applied to different columns
+   * from different threads at the same time, so it must be safe to use that way; the preconditioners in this
+   * package are.
+   * <p>
+   * Afterwards, {@link #getIterations()} is the largest number of iterations any column took and
+   * {@link #getResidualNorm()} the largest residual norm.
+   *
+   * @param a  The matrix A.
+   * @param b  The right-hand sides, one per column.
+   * @param preconditioner The preconditioner to apply, or null.
+   * @param maxIterations The maximum number of iterations to run for each column.
+   * @param maxError The maximum amount of residual error to tolerate in each column.
+   * @return The solutions, one per column.
+   * @throws IllegalArgumentException if the matrix is not square, if the number of rows of b is not equal to
+   * the number of columns of A, if maxError is less than zero, or if maxIterations is not positive.
+   */
+  public Matrix solve(VectorIterable a,
+                      Matrix b,
+                      final Preconditioner preconditioner,
+                      int maxIterations,
+                      double maxError) {
+
+    checkArguments(a, b.rowSize(), maxIterations, maxError);
+    long startTime = System.nanoTime();
+
+    int n = b.rowSize();
+    int columns = b.columnSize();
+    double[][] x = new double[columns][n];
+    final double[][] residual = new double[columns][];
+    double[][] direction = new double[columns][];
+    final double[][] conditioned = new double[columns][];
+    double[] conditionedNormSqr = new double[columns];
+    double[] residualNormSqr = new double[columns];
+    int[] columnIterations = new int[columns];
+
+    // the unconverged columns, in increasing order
+    int[] active = new int[columns];
+    int activeCount = 0;
+    for (int c = 0; c < columns; c++) {
+      residual[c] = RowBlockProducts.toArray(b.viewColumn(c));
+      residualNormSqr[c] = dot(residual[c], residual[c]);
+      if (Math.sqrt(residualNormSqr[c]) > maxError) {
+        active[activeCount++] = c;
+      }
+    }
+
+    int totalIterations = 0;
+    while (activeCount > 0) {
+      final int[] current = Arrays.copyOf(active, activeCount);
+      if (preconditioner == null) {
+        for (int c : current) {
+          conditioned[c] = residual[c];
+        }
+      } else {
+        ParallelContext.forEachRange((long) current.length * n, current.length, new ParallelContext.RangeTask() {
+          @Override
+          public void run(int start, int end) {
+            for (int i = start; i < end; i++) {
+              int c = current[i];
+              conditioned[c] = RowBlockProducts.toArray(
+                  preconditioner.precondition(new DenseVector(residual[c], true)));
+            }
+          }
+        });
+      }
+
+      double[][] directions = new double[current.length][];
+      for (int i = 0; i < current.length; i++) {
+        int c = current[i];
+        double previousConditionedNormSqr = conditionedNormSqr[c];
+        conditionedNormSqr[c] = dot(residual[c], conditioned[c]);
+        if (columnIterations[c] == 0) {
+          direction[c] = conditioned[c].clone();
+        } else {
+          // updateDirection = residual + beta * updateDirection
+          double beta = conditionedNormSqr[c] / previousConditionedNormSqr;
+          double[] p = direction[c];
+          double[] z = conditioned[c];
+          for (int k = 0; k < n; k++) {
+            p[k] = z[k] + beta * p[k];
+          }
+        }
+        columnIterations[c]++;
+        directions[i] = direction[c];
+      }
+
+      double[][] aTimesUpdate = RowBlockProducts.times(a, directions);
+
+      activeCount = 0;
+      for (int i = 0; i < current.length; i++) {
+        int c = current[i];
+        double[] p = direction[c];
+        double[] ap = aTimesUpdate[i];
+        double alpha = conditionedNormSqr[c] / dot(p, ap);
+        double[] xc = x[c];
+        double[] r = residual[c];
+        for (int k = 0; k < n; k++) {
+          xc[k] += alpha * p[k];
+          r[k] -= alpha * ap[k];
+        }
+        residualNormSqr[c] = dot(r, r);
+        totalIterations++;
+        if (listener != null) {
+          listener.iterationFinished(c, columnIterations[c], Math.sqrt(residualNormSqr[c]));
+        }
+        if (Math.sqrt(residualNormSqr[c]) > maxError && columnIterations[c] < maxIterations) {
+          active[activeCount++] = c;
+        }
+      }
+    }
+
+    Matrix result = new DenseMatrix(n, columns);
+    iterations = 0;
+    residualNormSquared = 0;
+    for (int c = 0; c < columns; c++) {
+      result.viewColumn(c).assign(x[c]);
+      iterations = Math.max(iterations, columnIterations[c]);
+      residualNormSquared = Math.max(residualNormSquared, residualNormSqr[c]);
+    }
+    log.info("Conjugate gradient solved {} right-hand sides in {} iterations, largest residual norm = {}",
+        columns, totalIterations, Math.sqrt(residualNormSquared));
+    if (listener != null) {
+      listener.solveFinished(columns, totalIterations, System.nanoTime() - startTime);
+    }
+    return result;
+  }
+
+  private static void checkArguments(VectorIterable a, int size, int maxIterations, double maxError) {
+    if (a.numRows() != a.numCols()) {
+      throw new IllegalArgumentException("Matrix must be square, symmetric and positive definite.");
+    }
+    
+    if (a.numCols() != size) {
+      throw new CardinalityException(a.numCols(), size);
+    }
+
+    if (maxIterations <= 0) {
+      throw new IllegalArgumentException("Max iterations must be positive.");      
+    }
+    
+    if (maxError < 0.0) {
+      throw new IllegalArgumentException("Max error must be non-negative.");
+    }
+  }
+
+  private static double dot(double[] x, double[] y) {
+    double sum = 0;
+    for (int i = 0; i < x.length; i++) {
+      sum += x[i] * y[i];
+    }
+    return sum;
+  }
+
   /**
    * Returns the number of iterations run once the solver is complete.
    * 
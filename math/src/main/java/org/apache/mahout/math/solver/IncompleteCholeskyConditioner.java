@@ -0,0 +1,214 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math.solver;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+import org.apache.mahout.math.CardinalityException;
+import org.apache.mahout.math.DenseVector;
+import org.apache.mahout.math.Matrix;
+import org.apache.mahout.math.Vector;
+import org.apache.mahout.math.list.DoubleArrayList;
+import org.apache.mahout.math.list.IntArrayList;
+
+/**
+ * Zero fill-in incomplete Cholesky preconditioner, IC(0), for symmetric positive definite matrices.
+ * <p/>
+ * A is approximated by L L', where L is lower triangular and has non-zeros only where the lower triangle of A
+ * does, so the factor is no larger than A and sparse matrices stay sparse.  Only the lower triangle and diagonal
+ * of A are read.  Preconditioning a vector is a forward and a backward triangular solve.
+ * <p/>
+ * The incomplete factorization can break down on a positive definite matrix that is not diagonally dominant.
+ * When it does, the diagonal of A is scaled by 1 + shift and the factorization is retried with a larger shift
+ * each time; {@link #getShift()} tells which shift was used.
+ */
+public final class IncompleteCholeskyConditioner implements Preconditioner {
+
+  private static final double INITIAL_SHIFT = 1.0e-3;
+  private static final int MAX_SHIFTS = 30;
+
+  private final int size;
+  // the strictly lower part of L by rows, columns ascending within each row
+  private int[] rowPointers;
+  private int[] columns;
+  private final double[] values;
+  private final double[] diagonal;
+  private final double shift;
+
+  /**
+   * Factors A, shifting the diagonal as far as it takes for the factorization to succeed.
+   *
+   * @throws IllegalArgumentException if A is not square, has a non-positive diagonal, or can't be factored
+   */
+  public IncompleteCholeskyConditioner(Matrix a) {
+    this(a, 0, true);
+  }
+
+  /**
+   * Factors A + shift * diag(A).
+   *
+   * @throws IllegalArgumentException if A is not square, has a non-positive diagonal, or the factorization breaks
+   *                                  down with this shift
+   */
+  public IncompleteCholeskyConditioner(Matrix a, double shift) {
+    this(a, shift, false);
+  }
+
+  private IncompleteCholeskyConditioner(Matrix a, double shift, boolean searchShift) {
+    if (a.numCols() != a.numRows()) {
+      throw new IllegalArgumentException("Matrix must be square.");
+    }
+    Preconditions.checkArgument(shift >= 0, "shift must not be negative");
+    size = a.numRows();
+    double[] aDiagonal = new double[size];
+    double[] lower = extractLowerTriangle(a, aDiagonal);
+    for (int i = 0; i < size; i++) {
+      if (!(aDiagonal[i] > 0)) {
+        throw new IllegalArgumentException("Matrix must have a positive diagonal.");
+      }
+    }
+
+    values = new double[lower.length];
+    diagonal = new double[size];
+    int attempts = 0;
+    while (!factor(lower, aDiagonal, shift)) {
+      if (!searchShift || ++attempts > MAX_SHIFTS) {
+        throw new IllegalArgumentException("Incomplete Cholesky factorization broke down with shift " + shift);
+      }
+      shift = shift == 0 ? INITIAL_SHIFT : 2 * shift;
+    }
+    this.shift = shift;
+  }
+
+  /**
+   * @return the amount by which the diagonal of A was scaled up for the factorization to succeed
+   */
+  public double getShift() {
+    return shift;
+  }
+
+  @Override
+  public Vector precondition(Vector v) {
+    if (v.size() != size) {
+      throw new CardinalityException(size, v.size());
+    }
+    double[] z = new double[size];
+    for (Vector.Element e : v.nonZeroes()) {
+      z[e.index()] = e.get();
+    }
+
+    // L y = v
+    for (int i = 0; i < size; i++) {
+      double sum = z[i];
+      for (int k = rowPointers[i]; k < rowPointers[i + 1]; k++) {
+        sum -= values[k] * z[columns[k]];
+      }
+      z[i] = sum / diagonal[i];
+    }
+
+    // L' z = y, a column of L' at a time since L is stored by rows
+    for (int i = size - 1; i >= 0; i--) {
+      double zi = z[i] / diagonal[i];
+      z[i] = zi;
+      for (int k = rowPointers[i]; k < rowPointers[i + 1]; k++) {
+        z[columns[k]] -= values[k] * zi;
+      }
+    }
+    return new DenseVector(z, true);
+  }
+
+  /**
+   * Lays out the pattern of the strictly lower triangle of A in {@link #rowPointers} and {@link #columns}.
+   *
+   * @param aDiagonal receives the diagonal of A
+   * @return the values of the strictly lower triangle, in the same order as {@link #columns}
+   */
+  private double[] extractLowerTriangle(Matrix a, double[] aDiagonal) {
+    IntArrayList columnList = new IntArrayList();
+    DoubleArrayList valueList = new DoubleArrayList();
+    rowPointers = new int[size + 1];
+
+    double[] work = new double[size];
+    int[] rowColumns = new int[size];
+    for (int i = 0; i < size; i++) {
+      int count = 0;
+      for (Vector.Element e : a.viewRow(i).nonZeroes()) {
+        int j = e.index();
+        if (j < i) {
+          rowColumns[count++] = j;
+          work[j] = e.get();
+        } else if (j == i) {
+          aDiagonal[i] = e.get();
+        }
+      }
+      Arrays.sort(rowColumns, 0, count);
+      for (int k = 0; k < count; k++) {
+        columnList.add(rowColumns[k]);
+        valueList.add(work[rowColumns[k]]);
+      }
+      rowPointers[i + 1] = columnList.size();
+    }
+    columnList.trimToSize();
+    valueList.trimToSize();
+    columns = columnList.elements();
+    return valueList.elements();
+  }
+
+  /**
+   * Factors the lower triangle in {@code lower} and {@code aDiagonal} with the diagonal scaled by 1 + shift, into
+   * {@link #values} and {@link #diagonal}.
+   *
+   * @return false if a pivot came out non-positive
+   */
+  private boolean factor(double[] lower, double[] aDiagonal, double shift) {
+    double[] l = values;
+    double[] d = diagonal;
+    for (int i = 0; i < size; i++) {
+      int rowStart = rowPointers[i];
+      int rowEnd = rowPointers[i + 1];
+      double pivot = aDiagonal[i] * (1 + shift);
+      for (int p = rowStart; p < rowEnd; p++) {
+        int k = columns[p];
+        // l_ik = (a_ik - sum_{j < k} l_ij l_kj) / d_k over the columns rows i and k have in common
+        double sum = lower[p];
+        int q = rowPointers[k];
+        int kEnd = rowPointers[k + 1];
+        for (int r = rowStart; r < p && q < kEnd; ) {
+          int ci = columns[r];
+          int ck = columns[q];
+          if (ci == ck) {
+            sum -= l[r++] * l[q++];
+          } else if (ci < ck) {
+            r++;
+          } else {
+            q++;
+          }
+        }
+        double lik = sum / d[k];
+        l[p] = lik;
+        pivot -= lik * lik;
+      }
+      if (!(pivot > 0)) {
+        return false;
+      }
+      d[i] = Math.sqrt(pivot);
+    }
+    return true;
+  }
+}
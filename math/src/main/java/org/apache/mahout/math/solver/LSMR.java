@@ -17,8 +17,11 @@
 
 package org.apache.mahout.math.solver;
 
+import org.apache.mahout.math.CardinalityException;
+import org.apache.mahout.math.DenseMatrix;
 import org.apache.mahout.math.DenseVector;
 import org.apache.mahout.math.Matrix;
+import org.apache.mahout.math.ParallelContext;
 import org.apache.mahout.math.Vector;
 import org.apache.mahout.math.function.Functions;
 import org.slf4j.Logger;
@@ -88,6 +91,11 @@ import org.slf4j.LoggerFactory;
  * <p/>
  * getXNorm() gives an estimate of NORM(X).
  * <p/>
+ * If a {@link ParallelContext} is installed, the products with A and A' are split over blocks of the rows of A,
+ * and A' is never formed. solve(Matrix, Matrix) solves for many right-hand sides against the same A, spreading
+ * the right-hand sides over the threads of the context. Progress is reported to a {@link SolverListener}, if one
+ * is set.
+ * <p/>
  * LSMR uses an iterative method. For further information, see D. C.-L. Fong and M. A. Saunders
  * LSMR: An iterative algorithm for least-square problems Draft of 03 Apr 2010, to be submitted to
  * SISC.
@@ -116,6 +124,7 @@ public final class LSMR {
   private int iteration;
   private double normA;
   private double condA;
+  private SolverListener listener;
 
   public int getIterationCount() {
     return iteration;
@@ -168,6 +177,73 @@ public final class LSMR {
   }
 
   public Vector solve(Matrix A, Vector b) {
+    long startTime = System.nanoTime();
+    Vector x = solve(A, RowBlockProducts.isParallel(A) ? null : A.transpose(), b, 0);
+    if (listener != null) {
+      listener.solveFinished(1, iteration, System.nanoTime() - startTime);
+    }
+    return x;
+  }
+
+  /**
+   * Solves for each column of B in turn, or for several columns at once on different threads if a
+   * {@link ParallelContext} is installed.  Each column is solved exactly as {@link #solve(Matrix, Vector)} would,
+   * with the settings of this solver.  The statistics such as {@link #getResidualNorm()} are kept per column, so
+   * they are passed to the listener rather than being left in this solver.
+   *
+   * @return the solutions, one per column
+   */
+  public Matrix solve(final Matrix A, final Matrix B) {
+    if (A.numRows() != B.numRows()) {
+      throw new CardinalityException(A.numRows(), B.numRows());
+    }
+    long startTime = System.nanoTime();
+    final Matrix transposedA = RowBlockProducts.isParallel(A) ? null : A.transpose();
+    int columns = B.numCols();
+    final Matrix result = new DenseMatrix(A.numCols(), columns);
+    final int[] columnIterations = new int[columns];
+    ParallelContext.RangeTask task = new ParallelContext.RangeTask() {
+      @Override
+      public void run(int start, int end) {
+        for (int column = start; column < end; column++) {
+          LSMR solver = copySettings();
+          result.assignColumn(column, solver.solve(A, transposedA, B.viewColumn(column), column));
+          columnIterations[column] = solver.iteration;
+        }
+      }
+    };
+    // every column reads all rows of A and of its transpose, which some matrices create as they are viewed
+    if (ParallelContext.hasThreadSafeRowViews(A)) {
+      ParallelContext.forEachRange((long) columns * A.numRows() * A.numCols(), columns, task);
+    } else {
+      task.run(0, columns);
+    }
+    if (listener != null) {
+      int total = 0;
+      for (int n : columnIterations) {
+        total += n;
+      }
+      listener.solveFinished(columns, total, System.nanoTime() - startTime);
+    }
+    return result;
+  }
+
+  private LSMR copySettings() {
+    LSMR copy = new LSMR();
+    copy.aTolerance = aTolerance;
+    copy.bTolerance = bTolerance;
+    copy.conditionLimit = conditionLimit;
+    copy.iterationLimit = iterationLimit;
+    copy.localSize = localSize;
+    copy.listener = listener;
+    return copy;
+  }
+
+  /**
+   * @param transposedA A', or null to multiply by A' a row block of A at a time
+   * @param column      which right-hand side b is, for the listener
+   */
+  private Vector solve(Matrix A, Matrix transposedA, Vector b, int column) {
     /*
         % Initialize.
 
@@ -184,7 +260,6 @@ public final class LSMR {
     log.debug("   itn         x(1)     norm r   norm A'r");
     log.debug("   compatible   LS      norm A   cond A");
 
-    Matrix transposedA = A.transpose();
     Vector u = b;
 
     double beta = u.norm(2);
@@ -192,7 +267,7 @@ public final class LSMR {
       u = u.divide(beta);
     }
 
-    Vector v = transposedA.times(u);
+    Vector v = transposeTimes(A, transposedA, u);
     int m = A.numRows();
     int n = A.numCols();
 
@@ -301,7 +376,7 @@ public final class LSMR {
       //      beta*u  =  A*v  - alpha*u,
       //      alpha*v  =  A'*u - beta*v.
 
-      u = A.times(v).minus(u.times(alpha));
+      u = RowBlockProducts.times(A, v).minus(u.times(alpha));
       beta = u.norm(2);
       if (beta > 0) {
         u.assign(Functions.div(beta));
@@ -310,7 +385,7 @@ public final class LSMR {
         if (localOrtho) {
           localVEnqueue(v);
         }
-        v = transposedA.times(u).minus(v.times(beta));
+        v = transposeTimes(A, transposedA, u).minus(v.times(beta));
         // local-reorthogonalization of V
         if (localOrtho) {
           v = localVOrtho(v);
@@ -453,6 +528,9 @@ public final class LSMR {
           statusDump(x, normA, condA, test1, test2);
         }
       }
+      if (listener != null) {
+        listener.iterationFinished(column, iteration, residualNorm);
+      }
     } // iteration loop
 
     // Print the stopping condition.
@@ -480,6 +558,10 @@ public final class LSMR {
     log.debug("{} {}", normA, condA);
   }
 
+  private static Vector transposeTimes(Matrix a, Matrix transposedA, Vector u) {
+    return transposedA == null ? RowBlockProducts.transposeTimes(a, u) : transposedA.times(u);
+  }
+
   private static Vector zeros(int n) {
     return new DenseVector(n);
   }
@@ -551,6 +633,13 @@ public final class LSMR {
     this.localSize = localSize;
   }
 
+  /**
+   * Sets the listener that is told about each iteration and each finished solve, or none if null.
+   */
+  public void setListener(SolverListener listener) {
+    this.listener = listener;
+  }
+
   public double getLambda() {
     return lambda;
   }
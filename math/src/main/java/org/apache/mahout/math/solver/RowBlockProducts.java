@@ -0,0 +1,177 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math.solver;
+
+import java.util.Arrays;
+
+import org.apache.mahout.math.CardinalityException;
+import org.apache.mahout.math.CompressedSparseRowMatrix;
+import org.apache.mahout.math.DenseVector;
+import org.apache.mahout.math.Matrix;
+import org.apache.mahout.math.ParallelContext;
+import org.apache.mahout.math.Vector;
+import org.apache.mahout.math.VectorIterable;
+
+/**
+ * Operator products for the iterative solvers.  When a {@link ParallelContext} is installed and the operator is a
+ * {@link Matrix} whose rows can be viewed from several threads, the products are split over blocks of its rows;
+ * otherwise they are left to the operator or computed on the calling thread.
+ */
+final class RowBlockProducts {
+
+  private RowBlockProducts() {
+  }
+
+  /**
+   * @return whether products with {@code a} are split over row blocks
+   */
+  static boolean isParallel(VectorIterable a) {
+    return ParallelContext.get() != null && a instanceof Matrix && ParallelContext.hasThreadSafeRowViews((Matrix) a);
+  }
+
+  private static void forEachRowBlock(Matrix m, long work, ParallelContext.RangeTask task) {
+    if (ParallelContext.hasThreadSafeRowViews(m)) {
+      ParallelContext.forEachRange(work, m.rowSize(), task);
+    } else {
+      task.run(0, m.rowSize());
+    }
+  }
+
+  /**
+   * Computes {@code A x}.
+   */
+  static Vector times(VectorIterable a, Vector x) {
+    if (!isParallel(a) || a instanceof CompressedSparseRowMatrix) {
+      // compressed rows split their own products
+      return a.times(x);
+    }
+    final Matrix m = (Matrix) a;
+    if (m.columnSize() != x.size()) {
+      throw new CardinalityException(m.columnSize(), x.size());
+    }
+    final Vector v = x.isDense() ? x : new DenseVector(x);
+    final double[] y = new double[m.rowSize()];
+    forEachRowBlock(m, (long) y.length * m.columnSize(), new ParallelContext.RangeTask() {
+      @Override
+      public void run(int start, int end) {
+        for (int row = start; row < end; row++) {
+          y[row] = m.viewRow(row).dot(v);
+        }
+      }
+    });
+    return new DenseVector(y, true);
+  }
+
+  /**
+   * Computes {@code A' x} without forming the transpose.  Each block of rows adds its part into a partial sum of
+   * its own.
+   */
+  static Vector transposeTimes(Matrix a, Vector x) {
+    if (a instanceof CompressedSparseRowMatrix) {
+      return ((CompressedSparseRowMatrix) a).transposeTimes(x);
+    }
+    final Matrix m = a;
+    final int rows = m.rowSize();
+    if (rows != x.size()) {
+      throw new CardinalityException(rows, x.size());
+    }
+    final double[] u = toArray(x);
+    final double[] y = new double[m.columnSize()];
+    forEachRowBlock(m, (long) rows * y.length, new ParallelContext.RangeTask() {
+      @Override
+      public void run(int start, int end) {
+        double[] partial = start == 0 && end == rows ? y : new double[y.length];
+        for (int row = start; row < end; row++) {
+          if (u[row] != 0.0) {
+            for (Vector.Element e : m.viewRow(row).nonZeroes()) {
+              partial[e.index()] += u[row] * e.get();
+            }
+          }
+        }
+        if (partial != y) {
+          synchronized (y) {
+            for (int i = 0; i < y.length; i++) {
+              y[i] += partial[i];
+            }
+          }
+        }
+      }
+    });
+    return new DenseVector(y, true);
+  }
+
+  /**
+   * Computes {@code A p_c} for every column {@code p_c} of a block in one pass over the rows of A.
+   *
+   * @param p the block, one array per column
+   * @return the products, one array per column
+   */
+  static double[][] times(VectorIterable a, double[][] p) {
+    final int width = p.length;
+    if (!(a instanceof Matrix)) {
+      double[][] r = new double[width][];
+      for (int c = 0; c < width; c++) {
+        r[c] = toArray(a.times(new DenseVector(p[c], true)));
+      }
+      return r;
+    }
+    final Matrix m = (Matrix) a;
+    final int n = m.columnSize();
+    final int rows = m.rowSize();
+
+    // laid out by row so that each cell of A is multiplied into one contiguous row of the block
+    final double[][] block = new double[n][width];
+    for (int c = 0; c < width; c++) {
+      if (p[c].length != n) {
+        throw new CardinalityException(n, p[c].length);
+      }
+      for (int i = 0; i < n; i++) {
+        block[i][c] = p[c][i];
+      }
+    }
+    final double[][] r = new double[width][rows];
+    forEachRowBlock(m, (long) rows * n * width, new ParallelContext.RangeTask() {
+      @Override
+      public void run(int start, int end) {
+        double[] sums = new double[width];
+        for (int row = start; row < end; row++) {
+          Arrays.fill(sums, 0);
+          for (Vector.Element e : m.viewRow(row).nonZeroes()) {
+            double value = e.get();
+            double[] bi = block[e.index()];
+            for (int c = 0; c < width; c++) {
+              sums[c] += value * bi[c];
+            }
+          }
+          for (int c = 0; c < width; c++) {
+            r[c][row] = sums[c];
+          }
+        }
+      }
+    });
+    return r;
+  }
+
+  static double[] toArray(Vector v) {
+    double[] x = new double[v.size()];
+    for (Vector.Element e : v.nonZeroes()) {
+      x[e.index()] = e.get();
+    }
+    return x;
+  }
+}
@@ -0,0 +1,43 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math.solver;
+
+/**
+ * Receives progress reports from the iterative solvers.  When several right-hand sides are solved at once, the
+ * reports for different right-hand sides may arrive from different threads at the same time.
+ */
+public interface SolverListener {
+
+  /**
+   * Called after every iteration.
+   *
+   * @param column       which right-hand side the iteration was for; always 0 when solving for a single vector
+   * @param iteration    the number of iterations done so far for that right-hand side
+   * @param residualNorm the norm of the residual, or the solver's estimate of it, after the iteration
+   */
+  void iterationFinished(int column, int iteration, double residualNorm);
+
+  /**
+   * Called once per call to solve, after all right-hand sides are done.
+   *
+   * @param columns      the number of right-hand sides solved
+   * @param iterations   the iterations done, summed over all right-hand sides
+   * @param elapsedNanos the wall clock time the solve took
+   */
+  void solveFinished(int columns, int iterations, long elapsedNanos);
+}
@@ -17,9 +17,15 @@
 
 package org.apache.mahout.math.ssvd;
 
-import org.apache.mahout.math.CholeskyDecomposition;
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.DenseMatrix;
 import org.apache.mahout.math.DenseVector;
 import org.apache.mahout.math.Matrix;
+import org.apache.mahout.math.ParallelContext;
+import org.apache.mahout.math.QRDecomposition;
 import org.apache.mahout.math.RandomTrinaryMatrix;
 import org.apache.mahout.math.SingularValueDecomposition;
 import org.apache.mahout.math.Vector;
@@ -27,43 +33,318 @@ import org.apache.mahout.math.Vector;
 /**
  * Implements an in-memory version of stochastic projection based SVD.  See SequentialOutOfCoreSvd
  * for algorithm notes.
+ * <p/>
+ * The options are those of the distributed SSVDSolver: the rank k, the oversampling p, the number
+ * of power iterations q and whether the columns of A are mean-centered first (PCA).  A is only
+ * ever read a row at a time through {@link Vector#nonZeroes()}, so sparse rows stay sparse, and the
+ * centering is folded into the products instead of being applied to A.
+ * <p/>
+ * \Omega is never stored: each of its rows is regenerated from the seed whenever it is needed.  The
+ * passes over A are split over the installed {@link ParallelContext}; Y = A \Omega by rows of A,
+ * B = Q' A by rows of B.
  */
 public class SequentialBigSvd {
-  private final Matrix y;
-  private final CholeskyDecomposition cd1;
-  private final CholeskyDecomposition cd2;
-  private final SingularValueDecomposition svd;
-  private final Matrix b;
+  private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+  private static final double DOUBLE_UNIT = 1.0 / (1L << 52);
+  // relative size below which a column left over by Gram-Schmidt is taken to be rounding error
+  private static final double RANK_TOLERANCE = 1.0e-12;
 
+  private final int k;
+  // orthonormal basis of the range of Y
+  private final Matrix qy;
+  // orthonormal factor of B'
+  private final Matrix qb;
+  private final SingularValueDecomposition svd;
+  private final double[] mean;
 
+  /**
+   * Computes a rank p decomposition without oversampling or power iterations.  \Omega is the same
+   * {@link RandomTrinaryMatrix} that SequentialOutOfCoreSvd uses, so the two give the same answer.
+   */
   public SequentialBigSvd(Matrix A, int p) {
-    // Y = A * \Omega
-    y = A.times(new RandomTrinaryMatrix(A.columnSize(), p));
+    this(A, p, 0, 0, false, new RandomTrinaryMatrix(A.columnSize(), p), 0);
+  }
+
+  /**
+   * @param A   the matrix to decompose
+   * @param k   the number of singular values and vectors to compute
+   * @param p   the oversampling, that is how many more than k random projections to use
+   * @param q   the number of power iterations
+   * @param pca whether to decompose A with the column means subtracted
+   */
+  public SequentialBigSvd(Matrix A, int k, int p, int q, boolean pca) {
+    this(A, k, p, q, pca, RandomUtils.getRandom().nextLong());
+  }
+
+  /**
+   * @param seed determines \Omega
+   */
+  public SequentialBigSvd(Matrix A, int k, int p, int q, boolean pca, long seed) {
+    this(A, k, p, q, pca, null, seed);
+  }
+
+  /**
+   * @param omega a read-only \Omega to use instead of one generated from the seed, or null
+   */
+  private SequentialBigSvd(Matrix A, int k, int p, int q, boolean pca, Matrix omega, long seed) {
+    Preconditions.checkArgument(k > 0, "k must be positive");
+    Preconditions.checkArgument(p >= 0, "p must not be negative");
+    Preconditions.checkArgument(q >= 0, "q must not be negative");
+    int width = k + p;
+    Preconditions.checkArgument(width <= Math.min(A.rowSize(), A.columnSize()),
+        "k + p must not exceed either dimension of A");
+    this.k = k;
 
-    // R'R = Y' Y
-    cd1 = new CholeskyDecomposition(y.transpose().times(y));
+    mean = pca ? columnMeans(A) : null;
 
-    // B = Q" A = (Y R^{-1} )' A
-    b = cd1.solveRight(y).transpose().times(A);
+    // Y = A \Omega
+    double[][] y = timesOmega(A, omega, seed, width,
+        mean == null ? null : meanTimesOmega(mean, omega, seed, width));
+    Matrix q0 = orthonormalize(y);
 
-    // L L' = B B'
-    cd2 = new CholeskyDecomposition(b.times(b.transpose()));
+    // B' = A' Q
+    double[][] bt = transposeTimes(A, q0, mean);
+    for (int i = 0; i < q; i++) {
+      // Y = A B' = (A A') Q
+      y = times(A, bt, mean == null ? null : meanTimes(mean, bt));
+      q0 = orthonormalize(y);
+      bt = transposeTimes(A, q0, mean);
+    }
+    qy = q0;
 
-    // U_0 D V_0' = L
-    svd = new SingularValueDecomposition(cd2.getL());
+    // R_b = Q_b' B' and U_0 D V_0' = R_b, so that B = V_0 D (Q_b U_0)'
+    Matrix bTranspose = new DenseMatrix(bt, true);
+    qb = orthonormalize(bTranspose);
+    svd = new SingularValueDecomposition(qb.transpose().times(bTranspose));
   }
 
   public Vector getSingularValues() {
-    return new DenseVector(svd.getSingularValues());
+    return new DenseVector(Arrays.copyOf(svd.getSingularValues(), k));
   }
 
   public Matrix getU() {
-    // U = (Y inv(R)) U_0
-    return cd1.solveRight(y).times(svd.getU());
+    // U = Q V_0
+    Matrix v0 = svd.getV();
+    return qy.times(v0.viewPart(0, v0.rowSize(), 0, k));
   }
 
   public Matrix getV() {
-    // V = (B' inv(L')) V_0
-    return cd2.solveRight(b.transpose()).times(svd.getV());
+    // V = Q_b U_0
+    Matrix u0 = svd.getU();
+    return qb.times(u0.viewPart(0, u0.rowSize(), 0, k));
+  }
+
+  /**
+   * @return the column means that were subtracted from A, or null if A was not centered
+   */
+  public Vector getMean() {
+    return mean == null ? null : new DenseVector(mean);
+  }
+
+  private static Matrix orthonormalize(double[][] y) {
+    return orthonormalize(new DenseMatrix(y, true));
+  }
+
+  /**
+   * Orthonormalizes the columns of a tall matrix.  A single pass of Gram-Schmidt loses orthogonality in
+   * proportion to the condition number, which power iterations make large, so it is done twice.  Columns
+   * that are no more than rounding error after the first pass, as they are when A has lower rank than the
+   * number of projections, are zeroed rather than normalized so that they can't pollute the basis.  The R
+   * factor is only accurate for an orthonormal Q, so callers that need it compute Q' A themselves.
+   */
+  private static Matrix orthonormalize(Matrix a) {
+    QRDecomposition qr = new QRDecomposition(a);
+    Matrix q = qr.getQ();
+    Vector diagonal = qr.getR().viewDiagonal();
+    double tolerance = RANK_TOLERANCE * diagonal.norm(Double.POSITIVE_INFINITY);
+    for (int c = 0; c < diagonal.size(); c++) {
+      if (Math.abs(diagonal.getQuick(c)) <= tolerance) {
+        q.viewColumn(c).assign(0);
+      }
+    }
+    return new QRDecomposition(q).getQ();
+  }
+
+  /**
+   * Runs {@code task} through {@link ParallelContext#forEachRange} if the blocks may view rows of {@code a} from
+   * different threads, and on the calling thread otherwise: a {@link org.apache.mahout.math.SparseMatrix}, for
+   * one, creates missing rows when they are viewed.
+   */
+  private static void forEachRange(Matrix a, long work, int size, ParallelContext.RangeTask task) {
+    if (ParallelContext.hasThreadSafeRowViews(a)) {
+      ParallelContext.forEachRange(work, size, task);
+    } else {
+      task.run(0, size);
+    }
+  }
+
+  private static double[] columnMeans(final Matrix a) {
+    final int m = a.rowSize();
+    final double[] sum = new double[a.columnSize()];
+    forEachRange(a, (long) m * sum.length, m, new ParallelContext.RangeTask() {
+      @Override
+      public void run(int start, int end) {
+        double[] partial = new double[sum.length];
+        for (int i = start; i < end; i++) {
+          for (Vector.Element e : a.viewRow(i).nonZeroes()) {
+            partial[e.index()] += e.get();
+          }
+        }
+        synchronized (sum) {
+          axpy(1, partial, sum);
+        }
+      }
+    });
+    for (int j = 0; j < sum.length; j++) {
+      sum[j] /= m;
+    }
+    return sum;
+  }
+
+  /**
+   * Computes Y = A \Omega, less {@code shift} in every row if that is not null.
+   */
+  private static double[][] timesOmega(final Matrix a, final Matrix omegaMatrix, final long seed, final int width,
+                                       final double[] shift) {
+    final int m = a.rowSize();
+    final double[][] y = new double[m][];
+    forEachRange(a, (long) m * width, m, new ParallelContext.RangeTask() {
+      @Override
+      public void run(int start, int end) {
+        double[] omega = new double[width];
+        for (int i = start; i < end; i++) {
+          double[] yi = new double[width];
+          for (Vector.Element e : a.viewRow(i).nonZeroes()) {
+            omegaRow(omegaMatrix, seed, e.index(), omega);
+            axpy(e.get(), omega, yi);
+          }
+          if (shift != null) {
+            axpy(-1, shift, yi);
+          }
+          y[i] = yi;
+        }
+      }
+    });
+    return y;
+  }
+
+  /**
+   * Computes Y = A B', less {@code shift} in every row if that is not null.
+   */
+  private static double[][] times(final Matrix a, final double[][] bt, final double[] shift) {
+    final int m = a.rowSize();
+    final int width = bt[0].length;
+    final double[][] y = new double[m][];
+    forEachRange(a, (long) m * width, m, new ParallelContext.RangeTask() {
+      @Override
+      public void run(int start, int end) {
+        for (int i = start; i < end; i++) {
+          double[] yi = new double[width];
+          for (Vector.Element e : a.viewRow(i).nonZeroes()) {
+            axpy(e.get(), bt[e.index()], yi);
+          }
+          if (shift != null) {
+            axpy(-1, shift, yi);
+          }
+          y[i] = yi;
+        }
+      }
+    });
+    return y;
+  }
+
+  /**
+   * Computes B' = A' Q, or (A - 1 mean')' Q if the mean is not null.  Each block of the split makes one pass over
+   * its own range of rows of A into a partial B', and the partials are added up at the end, so A is read only once.
+   */
+  private static double[][] transposeTimes(final Matrix a, final Matrix q, final double[] mean) {
+    final int m = a.rowSize();
+    final int n = a.columnSize();
+    final int width = q.columnSize();
+    final double[][] bt = new double[n][width];
+    final double[] qSum = new double[width];
+    forEachRange(a, (long) m * width, m, new ParallelContext.RangeTask() {
+      @Override
+      public void run(int start, int end) {
+        boolean whole = start == 0 && end == m;
+        double[][] partial = whole ? bt : new double[n][width];
+        double[] partialSum = whole ? qSum : new double[width];
+        double[] qi = new double[width];
+        for (int i = start; i < end; i++) {
+          for (int c = 0; c < width; c++) {
+            qi[c] = q.getQuick(i, c);
+          }
+          axpy(1, qi, partialSum);
+          for (Vector.Element e : a.viewRow(i).nonZeroes()) {
+            axpy(e.get(), qi, partial[e.index()]);
+          }
+        }
+        if (!whole) {
+          synchronized (bt) {
+            for (int j = 0; j < n; j++) {
+              axpy(1, partial[j], bt[j]);
+            }
+            axpy(1, partialSum, qSum);
+          }
+        }
+      }
+    });
+    if (mean != null) {
+      // (1 mean')' Q = mean (1' Q)'
+      for (int j = 0; j < n; j++) {
+        axpy(-mean[j], qSum, bt[j]);
+      }
+    }
+    return bt;
+  }
+
+  private static double[] meanTimesOmega(double[] mean, Matrix omegaMatrix, long seed, int width) {
+    double[] r = new double[width];
+    double[] omega = new double[width];
+    for (int j = 0; j < mean.length; j++) {
+      if (mean[j] != 0) {
+        omegaRow(omegaMatrix, seed, j, omega);
+        axpy(mean[j], omega, r);
+      }
+    }
+    return r;
+  }
+
+  private static double[] meanTimes(double[] mean, double[][] bt) {
+    double[] r = new double[bt[0].length];
+    for (int j = 0; j < mean.length; j++) {
+      axpy(mean[j], bt[j], r);
+    }
+    return r;
+  }
+
+  /**
+   * Fills {@code row} with row j of \Omega.  Unless \Omega was supplied, the entries are uniform on [-1, 1)
+   * and depend only on the seed and the coordinates, so every thread regenerates the same \Omega.
+   */
+  private static void omegaRow(Matrix omega, long seed, int j, double[] row) {
+    if (omega != null) {
+      for (int c = 0; c < row.length; c++) {
+        row[c] = omega.getQuick(j, c);
+      }
+      return;
+    }
+    long state = mix(seed + j * GOLDEN_GAMMA);
+    for (int c = 0; c < row.length; c++) {
+      state += GOLDEN_GAMMA;
+      row[c] = (mix(state) >> 11) * DOUBLE_UNIT;
+    }
+  }
+
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  private static void axpy(double alpha, double[] x, double[] y) {
+    for (int i = 0; i < y.length; i++) {
+      y[i] += alpha * x[i];
+    }
   }
 }
@@ -17,6 +17,11 @@
 
 package org.apache.mahout.math.stats;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
 import com.tdunning.math.stats.TDigest;
 import com.tdunning.math.stats.TreeDigest;
 
@@ -38,10 +43,18 @@ import com.tdunning.math.stats.TreeDigest;
  * See
  * <p/>
  * http://citeseerx.ist.psu.edu/viewdoc/summary?doi=10.1.1.105.1580
+ * <p/>
+ * Summaries of separate parts of the data, for example from different threads or tasks, can be
+ * combined with {@link #merge(OnlineSummarizer)}, and a summary can be written to and read back
+ * from a compact binary form with {@link #write(DataOutput)} and {@link #readFields(DataInput)}.
+ * An OnlineSummarizer is not thread safe; see {@link StripedOnlineSummarizer} for one that is.
  */
 public class OnlineSummarizer {
 
-  private TDigest quantiles = new TreeDigest(100);
+  private static final double COMPRESSION = 100;
+  private static final byte FORMAT_VERSION = 1;
+
+  private TDigest quantiles = new TreeDigest(COMPRESSION);
 
   // mean and variance estimates
   private double mean;
@@ -91,4 +104,55 @@ public class OnlineSummarizer {
   public double getMedian() {
     return getQuartile(2);
   }
+
+  /**
+   * Adds the samples summarized by {@code other} to this summary, as if they had been added here.
+   * The mean and variance are combined exactly, by the pairwise method of Chan, Golub and LeVeque;
+   * the quantile digests are merged.  {@code other} is not changed.
+   */
+  public void merge(OnlineSummarizer other) {
+    if (other.n == 0) {
+      return;
+    }
+    long total = (long) n + other.n;
+    double delta = other.mean - mean;
+    // the sums of squared differences from the mean, which are what add up
+    double sumSquares = n * variance + other.n * other.variance + delta * delta * n / total * other.n;
+    mean += delta * other.n / total;
+    variance = sumSquares / total;
+    n = (int) total;
+
+    quantiles.add(other.quantiles);
+  }
+
+  /**
+   * Writes this summary as a version byte, the count, mean and variance, and the quantile digest in
+   * its small encoding.
+   */
+  public void write(DataOutput out) throws IOException {
+    out.writeByte(FORMAT_VERSION);
+    out.writeInt(n);
+    out.writeDouble(mean);
+    out.writeDouble(variance);
+    ByteBuffer buf = ByteBuffer.allocate(quantiles.smallByteSize());
+    quantiles.asSmallBytes(buf);
+    out.writeInt(buf.position());
+    out.write(buf.array(), 0, buf.position());
+  }
+
+  /**
+   * Replaces this summary with one written by {@link #write(DataOutput)}.
+   */
+  public void readFields(DataInput in) throws IOException {
+    byte version = in.readByte();
+    if (version != FORMAT_VERSION) {
+      throw new IOException("Unknown OnlineSummarizer format version " + version);
+    }
+    n = in.readInt();
+    mean = in.readDouble();
+    variance = in.readDouble();
+    byte[] digest = new byte[in.readInt()];
+    in.readFully(digest);
+    quantiles = TreeDigest.fromBytes(ByteBuffer.wrap(digest));
+  }
 }
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math.stats;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A thread safe {@link OnlineSummarizer} for samples that arrive from many threads at once, such as
+ * request latencies.
+ * <p/>
+ * Samples go to one of several stripes, each an OnlineSummarizer with its own lock, picked by the
+ * adding thread so that threads rarely wait for each other.  The statistics are read from a
+ * {@link #snapshot()}, which merges the stripes; taking one is much more expensive than adding a
+ * sample, so readers that want several statistics should take one snapshot and query that.
+ */
+public class StripedOnlineSummarizer {
+
+  private final OnlineSummarizer[] stripes;
+
+  /**
+   * Creates a summarizer with two stripes per available processor.
+   */
+  public StripedOnlineSummarizer() {
+    this(2 * Runtime.getRuntime().availableProcessors());
+  }
+
+  public StripedOnlineSummarizer(int numStripes) {
+    Preconditions.checkArgument(numStripes > 0, "numStripes must be positive");
+    stripes = new OnlineSummarizer[numStripes];
+    for (int i = 0; i < numStripes; i++) {
+      stripes[i] = new OnlineSummarizer();
+    }
+  }
+
+  public void add(double sample) {
+    OnlineSummarizer stripe = stripes[(int) (Thread.currentThread().getId() % stripes.length)];
+    synchronized (stripe) {
+      stripe.add(sample);
+    }
+  }
+
+  /**
+   * Adds everything summarized by {@code other}, which must not be changed by another thread meanwhile.
+   */
+  public void merge(OnlineSummarizer other) {
+    OnlineSummarizer stripe = stripes[(int) (Thread.currentThread().getId() % stripes.length)];
+    synchronized (stripe) {
+      stripe.merge(other);
+    }
+  }
+
+  /**
+   * @return a new summary of all the samples added so far.  Samples added while the snapshot is being
+   * taken may or may not be included.
+   */
+  public OnlineSummarizer snapshot() {
+    OnlineSummarizer r = new OnlineSummarizer();
+    for (OnlineSummarizer stripe : stripes) {
+      synchronized (stripe) {
+        r.merge(stripe);
+      }
+    }
+    return r;
+  }
+
+  public int getCount() {
+    int n = 0;
+    for (OnlineSummarizer stripe : stripes) {
+      synchronized (stripe) {
+        n += stripe.getCount();
+      }
+    }
+    return n;
+  }
+
+  public double getMean() {
+    return snapshot().getMean();
+  }
+
+  public double getSD() {
+    return snapshot().getSD();
+  }
+
+  public double quantile(double q) {
+    return snapshot().quantile(q);
+  }
+
+  public double getMedian() {
+    return snapshot().getMedian();
+  }
+}
@@ -0,0 +1,203 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+#if (${keyTypeFloating} == 'true')
+#set ($keyEpsilon = ", (${keyType})0.000001")
+#else
+#set ($keyEpsilon = "")
+#end
+#if (${valueTypeFloating} == 'true')
+#set ($valueEpsilon = ", (${valueType})0.000001")
+#else
+#set ($valueEpsilon = "")
+#end
+
+package org.apache.mahout.math.map;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.function.${keyTypeCap}${valueTypeCap}Procedure;
+import org.apache.mahout.math.list.${keyTypeCap}ArrayList;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RobinHood${keyTypeCap}${valueTypeCap}HashMapTest extends Assert {
+
+  @Test
+  public void testConstructors() {
+    int[] capacity = new int[1];
+    double[] minLoadFactor = new double[1];
+    double[] maxLoadFactor = new double[1];
+
+    RobinHood${keyTypeCap}${valueTypeCap}HashMap map = new RobinHood${keyTypeCap}${valueTypeCap}HashMap(100);
+    map.getInternalFactors(capacity, minLoadFactor, maxLoadFactor);
+    assertEquals(256, capacity[0]);
+    assertEquals(RobinHood${keyTypeCap}${valueTypeCap}HashMap.DEFAULT_MAX_LOAD_FACTOR, maxLoadFactor[0], 0.001);
+    assertEquals(RobinHood${keyTypeCap}${valueTypeCap}HashMap.DEFAULT_MIN_LOAD_FACTOR, minLoadFactor[0], 0.001);
+
+    map = new RobinHood${keyTypeCap}${valueTypeCap}HashMap(100, 0.4, 0.9);
+    map.getInternalFactors(capacity, minLoadFactor, maxLoadFactor);
+    assertEquals(128, capacity[0]);
+    assertEquals(0.4, minLoadFactor[0], 0.001);
+    assertEquals(0.9, maxLoadFactor[0], 0.001);
+  }
+
+  @Test
+  public void testClearAndClone() {
+    RobinHood${keyTypeCap}${valueTypeCap}HashMap map = new RobinHood${keyTypeCap}${valueTypeCap}HashMap();
+    map.put((${keyType}) 11, (${valueType}) 22);
+    map.put((${keyType}) 0, (${valueType}) 23);
+    RobinHood${keyTypeCap}${valueTypeCap}HashMap map2 = (RobinHood${keyTypeCap}${valueTypeCap}HashMap) map.clone();
+    map.clear();
+    assertEquals(0, map.size());
+    assertFalse(map.containsKey((${keyType}) 0));
+    assertEquals(0, map.get((${keyType}) 11) ${valueEpsilon});
+    assertEquals(2, map2.size());
+    assertEquals(22, map2.get((${keyType}) 11) ${valueEpsilon});
+    assertEquals(23, map2.get((${keyType}) 0) ${valueEpsilon});
+  }
+
+  @Test
+  public void testFreeKey() {
+    RobinHood${keyTypeCap}${valueTypeCap}HashMap map = new RobinHood${keyTypeCap}${valueTypeCap}HashMap();
+    assertFalse(map.containsKey((${keyType}) 0));
+    assertTrue(map.put((${keyType}) 0, (${valueType}) 5));
+    assertFalse(map.put((${keyType}) 0, (${valueType}) 6));
+    map.put((${keyType}) 7, (${valueType}) 8);
+    assertEquals(2, map.size());
+    assertTrue(map.containsKey((${keyType}) 0));
+    assertTrue(map.containsValue((${valueType}) 6));
+    assertEquals(6, map.get((${keyType}) 0) ${valueEpsilon});
+    assertEquals(9, map.adjustOrPutValue((${keyType}) 0, (${valueType}) 1, (${valueType}) 3) ${valueEpsilon});
+
+    ${keyTypeCap}ArrayList keys = map.keys();
+    keys.sort();
+    assertEquals(0, keys.get(0) ${keyEpsilon});
+    assertEquals(7, keys.get(1) ${keyEpsilon});
+
+    assertTrue(map.removeKey((${keyType}) 0));
+    assertFalse(map.removeKey((${keyType}) 0));
+    assertEquals(1, map.size());
+    assertEquals(0, map.get((${keyType}) 0) ${valueEpsilon});
+  }
+
+  @Test
+  public void testAdjustOrPutValue() {
+    RobinHood${keyTypeCap}${valueTypeCap}HashMap map = new RobinHood${keyTypeCap}${valueTypeCap}HashMap();
+    map.put((${keyType}) 11, (${valueType}) 22);
+    map.adjustOrPutValue((${keyType}) 11, (${valueType}) 1, (${valueType}) 3);
+    assertEquals(25, map.get((${keyType}) 11) ${valueEpsilon});
+    map.adjustOrPutValue((${keyType}) 15, (${valueType}) 1, (${valueType}) 3);
+    assertEquals(1, map.get((${keyType}) 15) ${valueEpsilon});
+  }
+
+  @Test
+  public void testForEachPairAndIterator() {
+    RobinHood${keyTypeCap}${valueTypeCap}HashMap map = new RobinHood${keyTypeCap}${valueTypeCap}HashMap();
+    map.put((${keyType}) 0, (${valueType}) 21);
+    map.put((${keyType}) 11, (${valueType}) 22);
+    map.put((${keyType}) 12, (${valueType}) 23);
+    map.put((${keyType}) 13, (${valueType}) 24);
+    map.removeKey((${keyType}) 12);
+
+    final ${keyTypeCap}ArrayList keys = new ${keyTypeCap}ArrayList();
+    map.forEachPair(new ${keyTypeCap}${valueTypeCap}Procedure() {
+      @Override
+      public boolean apply(${keyType} key, ${valueType} value) {
+        assertEquals((${valueType}) (key + 21 - (key == 0 ? 0 : 10)), value ${valueEpsilon});
+        keys.add(key);
+        return true;
+      }
+    });
+    keys.sort();
+    assertEquals(3, keys.size());
+    assertEquals(0, keys.get(0) ${keyEpsilon});
+    assertEquals(11, keys.get(1) ${keyEpsilon});
+    assertEquals(13, keys.get(2) ${keyEpsilon});
+
+    int seen = 0;
+    Iterator<RobinHood${keyTypeCap}${valueTypeCap}HashMap.MapElement> iterator = map.iterator();
+    while (iterator.hasNext()) {
+      RobinHood${keyTypeCap}${valueTypeCap}HashMap.MapElement element = iterator.next();
+      assertEquals(map.get(element.index()), element.get() ${valueEpsilon});
+      element.set((${valueType}) 1);
+      seen++;
+    }
+    assertEquals(3, seen);
+    assertEquals(1, map.get((${keyType}) 0) ${valueEpsilon});
+    assertEquals(1, map.get((${keyType}) 13) ${valueEpsilon});
+  }
+
+  @Test
+  public void testEquals() {
+    RobinHood${keyTypeCap}${valueTypeCap}HashMap map = new RobinHood${keyTypeCap}${valueTypeCap}HashMap();
+    Open${keyTypeCap}${valueTypeCap}HashMap open = new Open${keyTypeCap}${valueTypeCap}HashMap();
+    for (int i = 1; i < 50; i++) {
+      map.put((${keyType}) i, (${valueType}) (i % 7));
+      open.put((${keyType}) i, (${valueType}) (i % 7));
+    }
+    assertEquals(open, map);
+    assertEquals(map, open);
+    map.removeKey((${keyType}) 11);
+    assertFalse(map.equals(open));
+  }
+
+  @Test
+  public void testRandomOperations() {
+    Random random = RandomUtils.getRandom();
+    RobinHood${keyTypeCap}${valueTypeCap}HashMap map = new RobinHood${keyTypeCap}${valueTypeCap}HashMap(2);
+    Map<${keyObjectType}, ${valueObjectType}> expected = new HashMap<${keyObjectType}, ${valueObjectType}>();
+    for (int i = 0; i < 20000; i++) {
+      // fill most of the key range, then mostly remove so that the table shrinks again
+      ${keyType} key = (${keyType}) random.nextInt(120);
+      ${valueType} value = (${valueType}) (1 + random.nextInt(100));
+      switch (random.nextInt(i < 10000 ? 3 : 6)) {
+        case 0:
+          assertEquals(!expected.containsKey(key), map.put(key, value));
+          expected.put(key, value);
+          break;
+        case 1:
+          assertEquals(expected.containsKey(key), map.containsKey(key));
+          ${valueType} actual = map.get(key);
+          assertEquals(expected.containsKey(key) ? expected.get(key) : 0, actual ${valueEpsilon});
+          break;
+        default:
+          assertEquals(expected.remove(key) != null, map.removeKey(key));
+          break;
+      }
+      assertEquals(expected.size(), map.size());
+    }
+    ${keyTypeCap}ArrayList keys = map.keys();
+    ${keyType}[] actualKeys = keys.toArray(new ${keyType}[keys.size()]);
+    ${keyType}[] expectedKeys = new ${keyType}[expected.size()];
+    int n = 0;
+    for (${keyObjectType} key : expected.keySet()) {
+      expectedKeys[n++] = key;
+    }
+    Arrays.sort(actualKeys);
+    Arrays.sort(expectedKeys);
+    assertArrayEquals(expectedKeys, actualKeys ${keyEpsilon});
+  }
+}
@@ -78,4 +78,33 @@ public final class RandomUtilsTest extends MahoutTestCase {
     assertTrue("getRandom(0) must differ from getRandom(1)", l0 != l1);
   }
 
+  @Test
+  public void testStreams() {
+    RandomWrapper[] streams = RandomUtils.getStreams(42L, 4);
+    assertEquals(4, streams.length);
+    long[] first = new long[streams.length];
+    for (int i = 0; i < streams.length; i++) {
+      first[i] = streams[i].nextLong();
+      assertEquals("stream " + i, first[i], RandomUtils.getStream(42L, i).nextLong());
+      for (int j = 0; j < i; j++) {
+        assertTrue(first[i] != first[j]);
+      }
+    }
+    assertTrue(first[0] != RandomUtils.getStream(43L, 0).nextLong());
+
+    // getStreams(int) is repeatable under the test seed, and reseeding keeps each stream distinct
+    RandomWrapper[] a = RandomUtils.getStreams(3);
+    RandomWrapper[] b = RandomUtils.getStreams(3);
+    for (int i = 0; i < 3; i++) {
+      double x = a[i].nextDouble();
+      assertTrue(x >= 0 && x < 1);
+      assertEquals(x, b[i].nextDouble(), 0);
+    }
+    a[1].nextLong();
+    RandomUtils.useTestSeed();
+    long reset = a[1].nextLong();
+    assertEquals(reset, b[1].nextLong());
+    assertTrue(a[0].nextLong() != reset);
+  }
+
 }
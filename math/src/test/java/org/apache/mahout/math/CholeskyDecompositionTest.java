@@ -127,6 +127,47 @@ public class CholeskyDecompositionTest extends MahoutTestCase {
     Assert.assertEquals(0, error, 1.0e-10);
   }
 
+  @Test
+  public void testBlockedAndParallel() {
+    Random rand = RandomUtils.getRandom();
+    Matrix z = new DenseMatrix(100, 120);
+    for (int i = 0; i < 100; i++) {
+      for (int j = 0; j < 120; j++) {
+        z.set(i, j, rand.nextGaussian());
+      }
+    }
+    Matrix a = z.times(z.transpose());
+
+    ParallelContext context = new ParallelContext(3, 0);
+    ParallelContext.set(context);
+    try {
+      for (boolean pivot : new boolean[] {false, true}) {
+        CholeskyDecomposition cd = new CholeskyDecomposition(a, pivot);
+        assertTrue(cd.isPositiveDefinite());
+        Matrix l = cd.getL();
+        assertEquals(0, l.times(l.transpose()).minus(a).aggregate(Functions.MAX, Functions.ABS), 1.0e-9);
+
+        PivotedMatrix permuted = cd.getPermutedL();
+        for (int i = 0; i < 100; i++) {
+          for (int j = i + 1; j < 100; j++) {
+            assertEquals(0, permuted.get(i, j), 0);
+          }
+          if (pivot && i > 0) {
+            assertTrue(permuted.get(i, i) <= permuted.get(i - 1, i - 1) * (1 + 1.0e-12));
+          }
+        }
+
+        if (!pivot) {
+          Matrix q = cd.solveLeft(z);
+          assertEquals(0, q.times(q.transpose()).minus(new DiagonalMatrix(1, 100))
+              .aggregate(Functions.MAX, Functions.ABS), 1.0e-9);
+        }
+      }
+    } finally {
+      context.close();
+    }
+  }
+
   private static Matrix rank4Matrix() {
     final Random rand = RandomUtils.getRandom();
 
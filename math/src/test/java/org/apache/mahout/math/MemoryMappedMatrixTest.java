@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.math;
+
+import com.google.common.io.Files;
+import org.apache.mahout.math.function.Functions;
+import org.apache.mahout.math.random.MultiNormal;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+public final class MemoryMappedMatrixTest extends MahoutTestCase {
+
+  @Test
+  public void testCreateWriteAndReopen() throws IOException {
+    Matrix source = new DenseMatrix(37, 11);
+    MultiNormal gen = new MultiNormal(11);
+    for (MatrixSlice row : source) {
+      row.vector().assign(gen.sample());
+    }
+
+    for (MemoryMappedMatrix.CellType cellType : MemoryMappedMatrix.CellType.values()) {
+      for (MemoryMappedMatrix.Layout layout : MemoryMappedMatrix.Layout.values()) {
+        double epsilon = cellType == MemoryMappedMatrix.CellType.FLOAT ? 1.0e-6 : 0;
+        File f = new File(getTestTempDir(), "m-" + cellType + '-' + layout);
+        // 64 byte chunks so that many cells sit at chunk boundaries
+        MemoryMappedMatrix m = MemoryMappedMatrix.create(f, 37, 11, cellType, layout, 6);
+        assertEquals(0, m.zSum(), 0);
+        m.assign(source);
+        assertEquals(0, m.minus(source).aggregate(Functions.MAX, Functions.ABS), epsilon);
+        m.close();
+
+        MemoryMappedMatrix reopened = MemoryMappedMatrix.open(f, false);
+        assertEquals(37, reopened.rowSize());
+        assertEquals(11, reopened.columnSize());
+        assertEquals(cellType, reopened.getCellType());
+        assertEquals(layout, reopened.getLayout());
+        assertEquals(0, reopened.minus(source).aggregate(Functions.MAX, Functions.ABS), epsilon);
+        assertEquals(source.viewRow(5).get(3), reopened.viewPart(5, 2, 3, 2).get(0, 0), epsilon);
+        try {
+          reopened.setQuick(0, 0, 1);
+          fail();
+        } catch (UnsupportedOperationException e) {
+          // good
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSharedBetweenMappings() throws IOException {
+    File f = new File(getTestTempDir(), "shared");
+    MemoryMappedMatrix writer = MemoryMappedMatrix.create(f, 10, 10, MemoryMappedMatrix.CellType.DOUBLE,
+        MemoryMappedMatrix.Layout.COLUMN_MAJOR);
+    MemoryMappedMatrix reader = MemoryMappedMatrix.open(f, false);
+    writer.setQuick(3, 7, 2.5);
+    assertEquals(2.5, reader.getQuick(3, 7), 0);
+
+    Matrix copy = MemoryMappedMatrix.create(new File(getTestTempDir(), "copy"), writer,
+        MemoryMappedMatrix.CellType.FLOAT, MemoryMappedMatrix.Layout.ROW_MAJOR);
+    assertEquals(2.5, copy.get(3, 7), 0);
+    assertEquals(2.5, copy.zSum(), 0);
+  }
+
+  @Test(expected = IOException.class)
+  public void testNotAMatrix() throws IOException {
+    File f = new File(getTestTempDir(), "junk");
+    Files.write(new byte[100], f);
+    MemoryMappedMatrix.open(f, false);
+  }
+
+  @Test
+  public void testCorruptHeader() throws IOException {
+    File f = new File(getTestTempDir(), "corrupt");
+    MemoryMappedMatrix.create(f, 3, 3, MemoryMappedMatrix.CellType.DOUBLE, MemoryMappedMatrix.Layout.ROW_MAJOR)
+        .close();
+    // the cell type is the fifth little-endian int of the header
+    RandomAccessFile raf = new RandomAccessFile(f, "rw");
+    try {
+      raf.seek(16);
+      raf.write(7);
+    } finally {
+      raf.close();
+    }
+    try {
+      MemoryMappedMatrix.open(f, false);
+      fail();
+    } catch (IOException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("cell type 7"));
+      assertTrue(e.getMessage(), e.getMessage().contains(f.toString()));
+    }
+  }
+
+  @Test
+  public void testBeyondTwoGigabytes() throws IOException {
+    // 50000 x 6000 doubles is 2.4GB; the file is sparse, so only the pages we touch take space.
+    // The cells written straddle the first and second chunk boundaries.
+    File dir = getTestTempDir();
+    Assume.assumeTrue(dir.getUsableSpace() > 3L << 30);
+    File f = new File(dir, "big");
+    MemoryMappedMatrix m = MemoryMappedMatrix.create(f, 50000, 6000, MemoryMappedMatrix.CellType.DOUBLE,
+        MemoryMappedMatrix.Layout.ROW_MAJOR);
+    try {
+      int[][] cells = {{0, 0}, {22369, 3719}, {22369, 3720}, {44739, 1447}, {44739, 1448}, {49999, 5999}};
+      for (int i = 0; i < cells.length; i++) {
+        m.setQuick(cells[i][0], cells[i][1], i + 1);
+      }
+      for (int i = 0; i < cells.length; i++) {
+        assertEquals(i + 1, m.getQuick(cells[i][0], cells[i][1]), 0);
+      }
+      assertEquals(0, m.getQuick(49999, 5998), 0);
+    } finally {
+      m.close();
+      f.delete();
+    }
+  }
+}
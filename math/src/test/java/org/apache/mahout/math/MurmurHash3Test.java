@@ -11,8 +11,15 @@
 
 package org.apache.mahout.math;
 
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import org.apache.mahout.common.RandomUtils;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
 public final class MurmurHash3Test extends MahoutTestCase {
 
   private static final int[] ANSWERS =
@@ -45,4 +52,47 @@ public final class MurmurHash3Test extends MahoutTestCase {
     }
   }
 
-}
\ No newline at end of file
+  @Test
+  public void testX64128MatchesReference() {
+    Random random = RandomUtils.getRandom();
+    long[] out = new long[2];
+    for (int len = 0; len < 70; len++) {
+      byte[] bytes = new byte[len + 3];
+      random.nextBytes(bytes);
+      int seed = random.nextInt(1 << 20);
+      MurmurHash3.murmurhash3x64128(bytes, 3, len, seed, out);
+
+      // guava's murmur3_128 is the same algorithm and returns h1 then h2, little endian
+      ByteBuffer expected = ByteBuffer.wrap(Hashing.murmur3_128(seed).hashBytes(bytes, 3, len).asBytes())
+          .order(ByteOrder.LITTLE_ENDIAN);
+      assertEquals("length " + len, expected.getLong(), out[0]);
+      assertEquals("length " + len, expected.getLong(), out[1]);
+    }
+  }
+
+  @Test
+  public void testX64128CharsMatchUtf8Bytes() {
+    Random random = RandomUtils.getRandom();
+    long[] expected = new long[2];
+    long[] actual = new long[2];
+    char[] alphabet = {'a', 'Z', '0', ' ', '\u00e9', '\u07ff', '\u0800', '\u4e2d', '\uffff', '\ud83d', '\ude00'};
+    for (int trial = 0; trial < 500; trial++) {
+      char[] chars = new char[random.nextInt(40)];
+      for (int i = 0; i < chars.length; i++) {
+        chars[i] = alphabet[random.nextInt(alphabet.length)];
+      }
+      String s = new String(chars);
+      byte[] utf8 = s.getBytes(Charsets.UTF_8);
+      MurmurHash3.murmurhash3x64128(utf8, 0, utf8.length, trial, expected);
+
+      MurmurHash3.murmurhash3x64128(s, 0, s.length(), trial, actual);
+      assertArrayEquals(s, expected, actual);
+
+      char[] padded = new char[chars.length + 2];
+      System.arraycopy(chars, 0, padded, 1, chars.length);
+      MurmurHash3.murmurhash3x64128(padded, 1, chars.length, trial, actual);
+      assertArrayEquals(s, expected, actual);
+    }
+  }
+
+}
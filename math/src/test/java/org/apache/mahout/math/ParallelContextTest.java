@@ -0,0 +1,190 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.function.Functions;
+import org.apache.mahout.math.function.VectorFunction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public final class ParallelContextTest extends MahoutTestCase {
+
+  private ParallelContext context;
+
+  @Override
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    context = new ParallelContext(4, 0);
+  }
+
+  @Override
+  @After
+  public void tearDown() throws Exception {
+    ParallelContext.set(null);
+    context.close();
+    super.tearDown();
+  }
+
+  @Test
+  public void testMatrixOperationsMatchSerial() {
+    Random random = RandomUtils.getRandom();
+    Matrix a = TestDenseRowMajorMatrix.randomMatrix(random, 53, 41);
+    Matrix b = TestDenseRowMajorMatrix.randomMatrix(random, 41, 67);
+    Matrix sparse = new SparseRowMatrix(53, 41).assign(a);
+    VectorFunction norm = new VectorFunction() {
+      @Override
+      public double apply(Vector v) {
+        return v.norm(2);
+      }
+    };
+
+    Matrix times = a.times(b);
+    Matrix sparseTimes = sparse.times(b);
+    Matrix rowMajorTimes = new DenseRowMajorMatrix(a).times(b);
+    Matrix transpose = a.transpose();
+    Matrix rowMajorTranspose = new DenseRowMajorMatrix(a).transpose();
+    Matrix assigned = a.clone().assign(sparse, Functions.PLUS);
+    Vector rowNorms = a.aggregateRows(norm);
+    Vector columnNorms = a.aggregateColumns(norm);
+
+    ParallelContext.set(context);
+    TestDenseRowMajorMatrix.assertMatrixEquals(times, a.times(b));
+    TestDenseRowMajorMatrix.assertMatrixEquals(sparseTimes, sparse.times(b));
+    TestDenseRowMajorMatrix.assertMatrixEquals(rowMajorTimes, new DenseRowMajorMatrix(a).times(b));
+    TestDenseRowMajorMatrix.assertMatrixEquals(transpose, a.transpose());
+    TestDenseRowMajorMatrix.assertMatrixEquals(rowMajorTranspose, new DenseRowMajorMatrix(a).transpose());
+    TestDenseRowMajorMatrix.assertMatrixEquals(assigned, a.clone().assign(sparse, Functions.PLUS));
+    assertEquals(0, rowNorms.minus(a.aggregateRows(norm)).norm(1), 1.0e-12);
+    assertEquals(0, columnNorms.minus(a.aggregateColumns(norm)).norm(1), 1.0e-12);
+  }
+
+  @Test
+  public void testCoversRangeExactlyOnce() {
+    ParallelContext.set(context);
+    final AtomicInteger[] counts = new AtomicInteger[1001];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = new AtomicInteger();
+    }
+    ParallelContext.forEachRange(Long.MAX_VALUE, counts.length, new ParallelContext.RangeTask() {
+      @Override
+      public void run(int start, int end) {
+        for (int i = start; i < end; i++) {
+          counts[i].incrementAndGet();
+        }
+      }
+    });
+    for (AtomicInteger count : counts) {
+      assertEquals(1, count.get());
+    }
+  }
+
+  @Test
+  public void testNestedOperationsRunSerially() {
+    ParallelContext.set(new ParallelContext(1, 0));
+    try {
+      final Matrix m = TestDenseRowMajorMatrix.randomMatrix(RandomUtils.getRandom(), 20, 20);
+      // with a single worker thread, nested parallel blocks would deadlock waiting for it
+      Vector sums = m.aggregateRows(new VectorFunction() {
+        @Override
+        public double apply(Vector v) {
+          return m.times(m).viewRow(0).zSum();
+        }
+      });
+      assertEquals(20, sums.size());
+    } finally {
+      ParallelContext.get().close();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testExceptionsPropagate() {
+    ParallelContext.set(context);
+    ParallelContext.forEachRange(Long.MAX_VALUE, 100, new ParallelContext.RangeTask() {
+      @Override
+      public void run(int start, int end) {
+        if (start > 0) {
+          throw new IllegalArgumentException();
+        }
+      }
+    });
+  }
+
+  @Test
+  public void testCallerExceptionWinsAndBlocksAreAwaited() {
+    ParallelContext.set(context);
+    final AtomicInteger finished = new AtomicInteger();
+    try {
+      ParallelContext.forEachRange(Long.MAX_VALUE, 100, new ParallelContext.RangeTask() {
+        @Override
+        public void run(int start, int end) {
+          if (start == 0) {
+            throw new IllegalArgumentException();
+          }
+          try {
+            Thread.sleep(50L);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          finished.incrementAndGet();
+          throw new UnsupportedOperationException();
+        }
+      });
+      fail();
+    } catch (IllegalArgumentException e) {
+      // the calling thread's own failure is the one reported
+    }
+    assertEquals(2 * context.getParallelism() - 1, finished.get());
+  }
+
+  @Test
+  public void testAggregateSparseMatrixWithEmptyRows() {
+    Random random = RandomUtils.getRandom();
+    Matrix m = new SparseMatrix(2000, 50);
+    for (int row = 0; row < m.numRows(); row += 3) {
+      m.set(row, random.nextInt(50), random.nextDouble());
+    }
+    Matrix dense = new DenseMatrix(m.numRows(), m.numCols()).assign(m);
+    ParallelContext.set(context);
+    Vector sums = m.aggregateRows(new VectorFunction() {
+      @Override
+      public double apply(Vector v) {
+        return v.zSum();
+      }
+    });
+    for (int row = 0; row < m.numRows(); row++) {
+      assertEquals(dense.viewRow(row).zSum(), sums.get(row), 0.0);
+    }
+    assertEquals(sums.zSum(), m.aggregate(Functions.PLUS, Functions.IDENTITY), 1.0e-9);
+    Vector columnSums = m.aggregateColumns(new VectorFunction() {
+      @Override
+      public double apply(Vector v) {
+        return v.zSum();
+      }
+    });
+    for (int column = 0; column < m.numCols(); column++) {
+      assertEquals(dense.viewColumn(column).zSum(), columnSums.get(column), 1.0e-9);
+    }
+    TestDenseRowMajorMatrix.assertMatrixEquals(dense, m);
+  }
+}
@@ -42,6 +42,30 @@ public final class QRDecompositionTest extends MahoutTestCase {
     assertEquals(0, maxError, 1.0e-13);
   }
 
+  @Test
+  public void blockedAndParallel() {
+    ParallelContext context = new ParallelContext(3, 0);
+    ParallelContext.set(context);
+    try {
+      for (int[] shape : new int[][] {{150, 70}, {70, 150}}) {
+        Matrix a = new DenseMatrix(shape[0], shape[1]).assign(Functions.random());
+        QRDecomposition qr = new QRDecomposition(a);
+        assertTrue(qr.hasFullRank());
+
+        Matrix q = qr.getQ();
+        assertEquals(new DiagonalMatrix(1, q.numCols()), q.transpose().times(q), 1.0e-12);
+        assertEquals(a, q.times(qr.getR()), 1.0e-12);
+        for (int i = 0; i < qr.getR().numRows(); i++) {
+          for (int j = 0; j < i; j++) {
+            assertEquals(0, qr.getR().get(i, j), 0);
+          }
+        }
+      }
+    } finally {
+      context.close();
+    }
+  }
+
   @Test
   public void rank1() {
     Matrix x = new DenseMatrix(3, 3);
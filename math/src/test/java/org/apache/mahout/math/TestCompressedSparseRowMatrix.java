@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.function.Functions;
+import org.apache.mahout.math.solver.LSMR;
+import org.junit.Before;
+import org.junit.Test;
+
+public final class TestCompressedSparseRowMatrix extends MahoutTestCase {
+
+  private SparseRowMatrix sparse;
+  private CompressedSparseRowMatrix csr;
+
+  @Override
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    Random random = RandomUtils.getRandom();
+    sparse = new SparseRowMatrix(50, 70, true);
+    for (int row = 0; row < 50; row++) {
+      // leave some rows empty
+      if (row % 7 != 3) {
+        for (int i = 0; i < 6; i++) {
+          sparse.setQuick(row, random.nextInt(70), random.nextGaussian());
+        }
+      }
+    }
+    csr = CompressedSparseRowMatrix.copyOf(sparse);
+  }
+
+  @Test
+  public void testCopyOf() {
+    assertEquals(50, csr.rowSize());
+    assertEquals(70, csr.columnSize());
+    TestDenseRowMajorMatrix.assertMatrixEquals(sparse, csr);
+    assertEquals(sparse.getNumNondefaultElements()[AbstractMatrix.COL],
+        csr.getNumNondefaultElements()[AbstractMatrix.COL]);
+  }
+
+  @Test
+  public void testFromRows() {
+    CompressedSparseRowMatrix m = CompressedSparseRowMatrix.fromRows(70, sparse);
+    TestDenseRowMajorMatrix.assertMatrixEquals(sparse, m);
+  }
+
+  @Test
+  public void testViewRow() {
+    for (int row = 0; row < 50; row++) {
+      Vector expected = sparse.viewRow(row);
+      Vector actual = csr.viewRow(row);
+      assertTrue(actual.isSequentialAccess());
+      assertEquals(expected.getNumNonZeroElements(), actual.getNumNondefaultElements());
+      assertEquals(0.0, expected.getDistanceSquared(actual), EPSILON);
+      assertEquals(expected.dot(expected), actual.dot(expected), EPSILON);
+
+      int previous = -1;
+      for (Vector.Element e : actual.nonZeroes()) {
+        assertTrue(e.index() > previous);
+        assertEquals(expected.get(e.index()), e.get(), 0.0);
+        previous = e.index();
+      }
+      Iterator<Vector.Element> all = actual.all().iterator();
+      for (int i = 0; i < 70; i++) {
+        Vector.Element e = all.next();
+        assertEquals(i, e.index());
+        assertEquals(expected.get(i), e.get(), 0.0);
+      }
+      assertFalse(all.hasNext());
+    }
+  }
+
+  @Test
+  public void testTimesVector() {
+    Vector x = new DenseVector(70).assign(Functions.random());
+    assertEquals(0.0, sparse.times(x).getDistanceSquared(csr.times(x)), EPSILON);
+  }
+
+  @Test
+  public void testTransposeTimes() {
+    Vector x = new DenseVector(50).assign(Functions.random());
+    assertEquals(0.0, sparse.transpose().times(x).getDistanceSquared(csr.transposeTimes(x)), EPSILON);
+  }
+
+  @Test
+  public void testTimesSquared() {
+    Vector x = new DenseVector(70).assign(Functions.random());
+    assertEquals(0.0, sparse.timesSquared(x).getDistanceSquared(csr.timesSquared(x)), EPSILON);
+  }
+
+  @Test
+  public void testTimesMatrix() {
+    Matrix b = TestDenseRowMajorMatrix.randomMatrix(RandomUtils.getRandom(), 70, 13);
+    TestDenseRowMajorMatrix.assertMatrixEquals(TestDenseRowMajorMatrix.naiveTimes(sparse, b), csr.times(b));
+  }
+
+  @Test
+  public void testTranspose() {
+    Matrix transpose = csr.transpose();
+    assertTrue(transpose instanceof CompressedSparseRowMatrix);
+    TestDenseRowMajorMatrix.assertMatrixEquals(sparse.transpose(), transpose);
+    TestDenseRowMajorMatrix.assertMatrixEquals(sparse, transpose.transpose());
+  }
+
+  @Test
+  public void testLsmr() {
+    Vector b = new DenseVector(50).assign(Functions.random());
+    Vector expected = new LSMR().solve(sparse, b);
+    assertEquals(0.0, expected.getDistanceSquared(new LSMR().solve(csr, b)), 1.0e-8);
+  }
+
+  @Test
+  public void testParallelKernels() {
+    ParallelContext context = new ParallelContext(3, 0);
+    ParallelContext.set(context);
+    try {
+      Vector x = new DenseVector(70).assign(Functions.random());
+      Vector y = new DenseVector(50).assign(Functions.random());
+      assertEquals(0.0, sparse.times(x).getDistanceSquared(csr.times(x)), EPSILON);
+      assertEquals(0.0, sparse.transpose().times(y).getDistanceSquared(csr.transposeTimes(y)), EPSILON);
+      assertEquals(0.0, sparse.timesSquared(x).getDistanceSquared(csr.timesSquared(x)), EPSILON);
+    } finally {
+      context.close();
+    }
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testImmutable() {
+    csr.setQuick(0, 0, 1.0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnorderedColumns() {
+    new CompressedSparseRowMatrix(1, 3, new int[] {0, 2}, new int[] {2, 1}, new double[] {1, 2});
+  }
+}
@@ -0,0 +1,56 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math;
+
+import java.util.Random;
+
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.function.Functions;
+import org.junit.Test;
+
+public final class TestDenseFloatMatrix extends MatrixTest {
+
+  @Override
+  public Matrix matrixFactory(double[][] values) {
+    return new DenseFloatMatrix(new DenseMatrix(values));
+  }
+
+  @Override
+  double relativeRoundingError() {
+    return 1.0e-6;
+  }
+
+  @Test
+  public void testTimesMatchesDoublePrecision() {
+    Random random = RandomUtils.getRandom();
+    Matrix a = new DenseFloatMatrix(TestDenseRowMajorMatrix.randomMatrix(random, 37, 61));
+    Matrix b = new DenseFloatMatrix(TestDenseRowMajorMatrix.randomMatrix(random, 61, 20));
+    Matrix expected = TestDenseRowMajorMatrix.naiveTimes(a, b);
+    Matrix actual = a.times(b);
+    assertTrue(actual instanceof DenseFloatMatrix);
+    assertEquals(0.0, expected.minus(actual).aggregate(Functions.MAX_ABS, Functions.ABS), 1.0e-4);
+  }
+
+  @Test
+  public void testViewRowIsLive() {
+    Matrix m = new DenseFloatMatrix(3, 4);
+    m.viewRow(1).assign(2.0);
+    assertEquals(8.0, m.zSum(), EPSILON);
+    assertTrue(m.viewRow(0) instanceof DenseFloatVector);
+  }
+}
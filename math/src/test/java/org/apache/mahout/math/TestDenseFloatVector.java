@@ -0,0 +1,62 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math;
+
+import org.apache.mahout.math.function.Functions;
+import org.junit.Test;
+
+public final class TestDenseFloatVector extends AbstractVectorTest<DenseFloatVector> {
+
+  @Override
+  Vector generateTestVector(int cardinality) {
+    return new DenseFloatVector(cardinality);
+  }
+
+  @Override
+  double relativeRoundingError() {
+    return 1.0e-6;
+  }
+
+  @Override
+  public void testSize() {
+    assertEquals("size", 3, getTestVector().getNumNonZeroElements());
+  }
+
+  @Override
+  public DenseFloatVector vectorToTest(int size) {
+    DenseFloatVector r = new DenseFloatVector(size);
+    r.assign(Functions.random());
+    return r;
+  }
+
+  @Test
+  public void testRoundsToFloat() {
+    Vector v = new DenseFloatVector(2);
+    v.set(0, 0.1);
+    assertEquals(0.1f, v.get(0), 0.0);
+    assertEquals(0.1f * (double) 0.1f, v.dot(v), 0.0);
+  }
+
+  @Test
+  public void testDotMatchesDenseVector() {
+    Vector a = new DenseVector(100).assign(Functions.random());
+    Vector b = new DenseVector(100).assign(Functions.random());
+    assertEquals(a.dot(b), new DenseFloatVector(a).dot(new DenseFloatVector(b)), 1.0e-4);
+    assertEquals(a.dot(b), new DenseFloatVector(a).dot(b), 1.0e-4);
+  }
+}
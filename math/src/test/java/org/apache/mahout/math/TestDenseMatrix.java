@@ -17,6 +17,11 @@
 
 package org.apache.mahout.math;
 
+import java.util.Random;
+
+import org.apache.mahout.common.RandomUtils;
+import org.junit.Test;
+
 public final class TestDenseMatrix extends MatrixTest {
 
   @Override
@@ -24,4 +29,17 @@ public final class TestDenseMatrix extends MatrixTest {
     return new DenseMatrix(values);
   }
 
+  @Test
+  public void testBlockedTimesMatchesNaiveProduct() {
+    Random random = RandomUtils.getRandom();
+    Matrix a = TestDenseRowMajorMatrix.randomMatrix(random, 37, 261);
+    Matrix b = TestDenseRowMajorMatrix.randomMatrix(random, 261, 300);
+    Matrix expected = TestDenseRowMajorMatrix.naiveTimes(a, b);
+
+    TestDenseRowMajorMatrix.assertMatrixEquals(expected, a.times(b));
+    TestDenseRowMajorMatrix.assertMatrixEquals(expected, a.times(new DenseRowMajorMatrix(b)));
+    TestDenseRowMajorMatrix.assertMatrixEquals(expected, ((DenseMatrix) b).timesLeft(a));
+    TestDenseRowMajorMatrix.assertMatrixEquals(expected, a.times(new SparseRowMatrix(261, 300).assign(b)));
+  }
+
 }
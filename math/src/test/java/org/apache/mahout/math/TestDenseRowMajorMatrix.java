@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math;
+
+import java.util.Random;
+
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.function.Functions;
+import org.junit.Test;
+
+public final class TestDenseRowMajorMatrix extends MatrixTest {
+
+  @Override
+  public Matrix matrixFactory(double[][] values) {
+    return new DenseRowMajorMatrix(values);
+  }
+
+  @Test
+  public void testBlockedTimesMatchesNaiveProduct() {
+    Random random = RandomUtils.getRandom();
+    // sizes straddle the kernel's block and register tile boundaries
+    Matrix a = randomMatrix(random, 37, 261);
+    Matrix b = randomMatrix(random, 261, 300);
+    Matrix expected = naiveTimes(a, b);
+
+    assertMatrixEquals(expected, new DenseRowMajorMatrix(a).times(new DenseRowMajorMatrix(b)));
+    assertMatrixEquals(expected, new DenseRowMajorMatrix(a).times(b));
+    assertMatrixEquals(expected, new DenseRowMajorMatrix(b).timesLeft(new DenseRowMajorMatrix(a)));
+    assertMatrixEquals(expected, new DenseRowMajorMatrix(b).timesLeft(a));
+    assertMatrixEquals(expected, new DenseRowMajorMatrix(a).times(new SparseRowMatrix(261, 300).assign(b)));
+  }
+
+  @Test
+  public void testViewRowIsLive() {
+    Matrix m = new DenseRowMajorMatrix(3, 4);
+    m.viewRow(1).assign(2.0);
+    assertEquals(8.0, m.zSum(), EPSILON);
+    assertEquals(0.0, m.viewRow(0).zSum(), EPSILON);
+    assertEquals(0.0, m.viewRow(2).zSum(), EPSILON);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTooManyCells() {
+    new DenseRowMajorMatrix(65536, 65536);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTooManyCellsForValues() {
+    new DenseRowMajorMatrix(65536, 65537, new double[65536], true);
+  }
+
+  static void assertMatrixEquals(Matrix expected, Matrix actual) {
+    assertEquals(expected.rowSize(), actual.rowSize());
+    assertEquals(expected.columnSize(), actual.columnSize());
+    assertEquals(0.0, expected.minus(actual).aggregate(Functions.MAX_ABS, Functions.ABS), 1.0e-10);
+  }
+
+  static Matrix randomMatrix(Random random, int rows, int columns) {
+    Matrix m = new DenseMatrix(rows, columns);
+    for (int row = 0; row < rows; row++) {
+      for (int column = 0; column < columns; column++) {
+        m.setQuick(row, column, random.nextGaussian());
+      }
+    }
+    return m;
+  }
+
+  static Matrix naiveTimes(Matrix a, Matrix b) {
+    Matrix c = new DenseMatrix(a.rowSize(), b.columnSize());
+    for (int i = 0; i < a.rowSize(); i++) {
+      for (int j = 0; j < b.columnSize(); j++) {
+        double sum = 0;
+        for (int k = 0; k < a.columnSize(); k++) {
+          sum += a.getQuick(i, k) * b.getQuick(k, j);
+        }
+        c.setQuick(i, j, sum);
+      }
+    }
+    return c;
+  }
+}
@@ -0,0 +1,77 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math;
+
+import java.util.Random;
+
+import org.apache.mahout.common.RandomUtils;
+import org.junit.Test;
+
+public final class TestSequentialAccessSparseFloatVector
+    extends AbstractVectorTest<SequentialAccessSparseFloatVector> {
+
+  @Override
+  Vector generateTestVector(int cardinality) {
+    return new SequentialAccessSparseFloatVector(cardinality);
+  }
+
+  @Override
+  double relativeRoundingError() {
+    return 1.0e-6;
+  }
+
+  @Override
+  public SequentialAccessSparseFloatVector vectorToTest(int size) {
+    SequentialAccessSparseFloatVector r = new SequentialAccessSparseFloatVector(size);
+    Random gen = RandomUtils.getRandom();
+    for (int i = 0; i < 3; i++) {
+      r.set(gen.nextInt(r.size()), gen.nextGaussian());
+    }
+    return r;
+  }
+
+  @Test
+  public void testCopiesRandomAccessVectorInOrder() {
+    Vector source = new RandomAccessSparseVector(1000);
+    Random gen = RandomUtils.getRandom();
+    for (int i = 0; i < 50; i++) {
+      source.set(gen.nextInt(1000), gen.nextGaussian());
+    }
+    Vector copy = new SequentialAccessSparseFloatVector(source);
+    assertEquals(source.getNumNondefaultElements(), copy.getNumNondefaultElements());
+    assertEquals(0.0, source.getDistanceSquared(copy), 1.0e-10);
+    int previous = -1;
+    for (Vector.Element e : copy.nonZeroes()) {
+      assertTrue(e.index() > previous);
+      previous = e.index();
+    }
+  }
+
+  @Test
+  public void testSettingZeroRemoves() {
+    Vector v = new SequentialAccessSparseFloatVector(10);
+    v.set(3, 1.0);
+    v.set(7, 2.0);
+    v.set(5, 3.0);
+    v.set(5, 0.0);
+    assertEquals(2, v.getNumNondefaultElements());
+    v.incrementQuick(3, -1.0);
+    assertEquals(1, v.getNumNondefaultElements());
+    assertEquals(2.0, v.get(7), 0.0);
+  }
+}
@@ -18,6 +18,7 @@
 package org.apache.mahout.math;
 
 import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.function.Functions;
 import org.junit.Test;
 
 import java.util.Random;
@@ -43,6 +44,58 @@ public final class TestSequentialAccessSparseVector extends AbstractVectorTest<S
   }
 
 
+  @Test
+  public void testBuilderCombinesDuplicates() {
+    Random gen = RandomUtils.getRandom();
+    SequentialAccessSparseVector.Builder sum = new SequentialAccessSparseVector.Builder(1000);
+    SequentialAccessSparseVector.Builder last =
+        new SequentialAccessSparseVector.Builder(1000, Functions.SECOND, 4);
+    Vector expectedSum = new RandomAccessSparseVector(1000);
+    Vector expectedLast = new RandomAccessSparseVector(1000);
+    for (int i = 0; i < 5000; i++) {
+      int index = gen.nextInt(1000);
+      double value = gen.nextInt(5) - 2;
+      sum.add(index, value);
+      last.add(index, value);
+      expectedSum.setQuick(index, expectedSum.getQuick(index) + value);
+      expectedLast.setQuick(index, value);
+    }
+    checkBuilt(expectedSum, sum.build());
+    checkBuilt(expectedLast, last.build());
+
+    // pairs added after a build are combined with the earlier ones
+    sum.add(3, 1.0).add(3, 2.0);
+    expectedSum.setQuick(3, expectedSum.getQuick(3) + 3.0);
+    checkBuilt(expectedSum, sum.build());
+  }
+
+  private static void checkBuilt(Vector expected, SequentialAccessSparseVector actual) {
+    assertEquals(0.0, expected.getDistanceSquared(actual), 0.0);
+    assertEquals(expected.getNumNonZeroElements(), actual.getNumNondefaultElements());
+    int previous = -1;
+    for (Vector.Element e : actual.nonZeroes()) {
+      assertTrue(e.index() > previous);
+      assertTrue(e.get() != 0.0);
+      previous = e.index();
+    }
+  }
+
+  @Test
+  public void testBuilderFromVector() {
+    Vector source = new RandomAccessSparseVector(100);
+    source.setQuick(70, 1.0);
+    source.setQuick(5, 2.0);
+    source.setQuick(33, 3.0);
+    SequentialAccessSparseVector copy = new SequentialAccessSparseVector(source);
+    checkBuilt(source, copy);
+    checkBuilt(source, new SequentialAccessSparseVector.Builder(100).addAll(source).build());
+  }
+
+  @Test(expected = IndexException.class)
+  public void testBuilderIndexOutOfRange() {
+    new SequentialAccessSparseVector.Builder(10).add(10, 1.0);
+  }
+
   @Override
   public SequentialAccessSparseVector vectorToTest(int size) {
     SequentialAccessSparseVector r = new SequentialAccessSparseVector(size);
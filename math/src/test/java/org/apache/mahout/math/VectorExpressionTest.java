@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math;
+
+import java.util.Random;
+
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.function.Functions;
+import org.junit.Test;
+
+public final class VectorExpressionTest extends MahoutTestCase {
+
+  private static final int SIZE = 200;
+
+  private static Vector[] operands() {
+    Random random = RandomUtils.getRandom();
+    Vector dense = new DenseVector(SIZE);
+    Vector sequential = new SequentialAccessSparseVector(SIZE);
+    Vector randomAccess = new RandomAccessSparseVector(SIZE);
+    Vector other = new RandomAccessSparseVector(SIZE);
+    for (int i = 0; i < SIZE; i++) {
+      dense.setQuick(i, random.nextGaussian());
+    }
+    for (int i = 0; i < 30; i++) {
+      sequential.setQuick(random.nextInt(SIZE), random.nextGaussian());
+      randomAccess.setQuick(random.nextInt(SIZE), random.nextGaussian());
+      other.setQuick(random.nextInt(SIZE), random.nextGaussian());
+    }
+    return new Vector[] {dense, sequential, randomAccess, other};
+  }
+
+  private static void assertVectorEquals(Vector expected, Vector actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.getQuick(i), actual.getQuick(i), EPSILON);
+    }
+  }
+
+  @Test
+  public void testChainsMatchEagerEvaluation() {
+    Vector[] operands = operands();
+    for (Vector a : operands) {
+      for (Vector b : operands) {
+        for (Vector c : operands) {
+          Vector expected = a.minus(b).times(c).plus(a);
+          VectorExpression lazy = VectorExpression.of(a).minus(b).times(c).plus(a);
+          assertVectorEquals(expected, lazy);
+          assertVectorEquals(expected, lazy.evaluate());
+          assertVectorEquals(expected, lazy.assignTo(new DenseVector(SIZE).assign(3)));
+          assertVectorEquals(expected, lazy.assignTo(new RandomAccessSparseVector(SIZE)));
+          assertEquals(expected.zSum(), lazy.zSum(), EPSILON);
+          assertEquals(expected.dot(b), lazy.dot(b), EPSILON);
+          assertEquals(expected.getLengthSquared(), lazy.getLengthSquared(), EPSILON);
+          assertEquals(expected.maxValue(), lazy.maxValue(), EPSILON);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testNonZeroesVisitedOnce() {
+    Vector[] operands = operands();
+    for (Vector a : operands) {
+      for (Vector b : operands) {
+        Vector expected = a.plus(b);
+        boolean[] seen = new boolean[SIZE];
+        for (Vector.Element e : VectorExpression.of(a).plus(b).nonZeroes()) {
+          assertFalse(seen[e.index()]);
+          seen[e.index()] = true;
+          assertEquals(expected.getQuick(e.index()), e.get(), EPSILON);
+        }
+        for (Vector.Element e : expected.nonZeroes()) {
+          assertTrue(e.get() == 0.0 || seen[e.index()]);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSparsity() {
+    Vector[] operands = operands();
+    VectorExpression product = VectorExpression.of(operands[0]).times(operands[1]);
+    assertFalse(product.isDense());
+    assertTrue(product.isSequentialAccess());
+    assertEquals(operands[1].getNumNondefaultElements(), product.getNumNondefaultElements());
+    assertTrue(product.evaluate() instanceof SequentialAccessSparseVector);
+
+    VectorExpression shifted = VectorExpression.of(operands[2]).plus(1);
+    assertTrue(shifted.isDense());
+    assertTrue(shifted.evaluate() instanceof DenseVector);
+    assertEquals(operands[2].zSum() + SIZE, shifted.zSum(), EPSILON);
+  }
+
+  @Test
+  public void testAssignToOperand() {
+    Vector[] operands = operands();
+    for (Vector a : operands) {
+      Vector b = operands[3];
+      Vector expected = a.times(2).plus(b);
+      VectorExpression.of(a).times(2).plus(b).assignTo(a);
+      assertVectorEquals(expected, a);
+    }
+  }
+
+  @Test
+  public void testAccumulate() {
+    Vector[] operands = operands();
+    Vector y = operands[0].clone();
+    Vector expected = y.plus(operands[1].times(-0.5));
+    VectorExpression.of(operands[1]).map(Functions.mult(-0.5)).assignTo(y, Functions.PLUS);
+    assertVectorEquals(expected, y);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testReadOnly() {
+    VectorExpression.of(new DenseVector(3)).plus(1).set(0, 1);
+  }
+
+  @Test(expected = CardinalityException.class)
+  public void testCardinality() {
+    VectorExpression.of(new DenseVector(3)).plus(new DenseVector(4));
+  }
+}
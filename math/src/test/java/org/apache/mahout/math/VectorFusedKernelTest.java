@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math;
+
+import java.util.Random;
+
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.function.DoubleDoubleFunction;
+import org.apache.mahout.math.function.Functions;
+import org.junit.Test;
+
+public final class VectorFusedKernelTest extends MahoutTestCase {
+
+  private static final int CARDINALITY = 1000;
+
+  private static Vector[] vectors() {
+    Random random = RandomUtils.getRandom();
+    Vector dense = new DenseVector(CARDINALITY);
+    Vector sequential = new SequentialAccessSparseVector(CARDINALITY);
+    Vector randomAccess = new RandomAccessSparseVector(CARDINALITY);
+    for (int i = 0; i < CARDINALITY; i++) {
+      dense.setQuick(i, random.nextGaussian());
+    }
+    for (int i = 0; i < 100; i++) {
+      sequential.setQuick(random.nextInt(CARDINALITY), random.nextGaussian());
+      randomAccess.setQuick(random.nextInt(CARDINALITY), random.nextGaussian());
+    }
+    // the last index is set so the distance kernel has no dense tail
+    sequential.setQuick(CARDINALITY - 1, 1.5);
+    return new Vector[] {dense, new DenseVector(dense).assign(Functions.mult(0.5)), sequential, randomAccess};
+  }
+
+  @Test
+  public void testFusedAggregateIsChosenAndMatchesGeneric() {
+    VectorBinaryAggregate generic = new VectorBinaryAggregate.AggregateAllLoop();
+    for (Vector x : vectors()) {
+      for (Vector y : vectors()) {
+        for (DoubleDoubleFunction fc : new DoubleDoubleFunction[] {Functions.MULT, Functions.MINUS_SQUARED}) {
+          VectorBinaryAggregate best = VectorBinaryAggregate.getBestOperation(x, y, Functions.PLUS, fc);
+          boolean fused = x instanceof DenseVector && y instanceof DenseVector
+              || (x instanceof DenseVector || y instanceof DenseVector)
+                  && (fc == Functions.MULT || x.isSequentialAccess() && y.isSequentialAccess());
+          assertEquals(x.getClass().getSimpleName() + ' ' + y.getClass().getSimpleName(), fused,
+              best instanceof VectorBinaryAggregate.AggregateDenseFused
+                  || best instanceof VectorBinaryAggregate.AggregateSparseDenseFused);
+          assertEquals(generic.aggregate(x, y, Functions.PLUS, fc),
+              VectorBinaryAggregate.aggregateBest(x, y, Functions.PLUS, fc), 1.0e-10);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testFusedAssignIsChosenAndMatchesGeneric() {
+    VectorBinaryAssign generic = new VectorBinaryAssign.AssignAllLoopInplaceUpdates();
+    for (Vector y : vectors()) {
+      for (DoubleDoubleFunction f : new DoubleDoubleFunction[] {Functions.PLUS, Functions.MINUS,
+          Functions.plusMult(-2.5)}) {
+        Vector x = vectors()[0];
+        assertTrue(VectorBinaryAssign.getBestOperation(x, y, f) instanceof VectorBinaryAssign.AssignPlusMultDenseFused);
+        Vector expected = generic.assign(x.clone(), y, f);
+        Vector actual = x.clone().assign(y, f);
+        assertEquals(0.0, expected.getDistanceSquared(actual), 1.0e-20);
+      }
+    }
+  }
+
+  @Test
+  public void testFallbackOnUnsupportedArguments() {
+    Vector x = new SequentialAccessSparseVector(vectors()[2]);
+    Vector y = vectors()[0];
+    assertEquals(new VectorBinaryAggregate.AggregateAllLoop().aggregate(x, y, Functions.MAX, Functions.MULT),
+        new VectorBinaryAggregate.AggregateDenseFused().aggregate(x, y, Functions.MAX, Functions.MULT), 0.0);
+    Vector expected = new VectorBinaryAssign.AssignAllLoopInplaceUpdates().assign(x.clone(), y, Functions.MULT);
+    Vector actual = new VectorBinaryAssign.AssignPlusMultDenseFused().assign(x.clone(), y, Functions.MULT);
+    assertEquals(0.0, expected.getDistanceSquared(actual), 0.0);
+  }
+}
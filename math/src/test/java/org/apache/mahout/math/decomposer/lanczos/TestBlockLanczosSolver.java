@@ -0,0 +1,146 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.math.decomposer.lanczos;
+
+import org.apache.mahout.math.CompressedSparseRowMatrix;
+import org.apache.mahout.math.DenseVector;
+import org.apache.mahout.math.Matrix;
+import org.apache.mahout.math.ParallelContext;
+import org.apache.mahout.math.SparseMatrix;
+import org.apache.mahout.math.Vector;
+import org.apache.mahout.math.decomposer.SolverTest;
+import org.apache.mahout.math.solver.EigenDecomposition;
+import org.junit.Test;
+
+public final class TestBlockLanczosSolver extends SolverTest {
+
+  private static final double ERROR_TOLERANCE = 0.05;
+
+  @Test
+  public void testEigenvalueCheck() {
+    int size = 100;
+    Matrix m = randomHierarchicalSymmetricMatrix(size);
+
+    Vector initialVector = new DenseVector(size);
+    initialVector.assign(1.0 / Math.sqrt(size));
+    int desiredRank = 80;
+    LanczosState state = new LanczosState(m, desiredRank, initialVector);
+    new BlockLanczosSolver(4).solve(state, desiredRank, true);
+    assertEquals(desiredRank, state.getIterationNumber());
+
+    EigenDecomposition decomposition = new EigenDecomposition(m);
+    Vector eigenvalues = decomposition.getRealEigenvalues();
+    for (int i = 0; i < 0.6 * desiredRank; i++) {
+      double s = state.getSingularValue(i);
+      double e = eigenvalues.get(i);
+      assertTrue("Singular value differs from eigenvalue", Math.abs((s - e) / e) < ERROR_TOLERANCE);
+      Vector v = state.getRightSingularVector(i);
+      Vector v2 = decomposition.getV().viewColumn(i);
+      double error = 1 - Math.abs(v.dot(v2) / (v.norm(2) * v2.norm(2)));
+      assertTrue(i + ": 1 - cosAngle = " + error, error < ERROR_TOLERANCE);
+    }
+  }
+
+  @Test
+  public void testBlockLanczosSolver() {
+    int numRows = 800;
+    int numColumns = 500;
+    Matrix corpus = randomHierarchicalMatrix(numRows, numColumns, false);
+    Vector initialVector = new DenseVector(numColumns);
+    initialVector.assign(1.0 / Math.sqrt(numColumns));
+    // not a multiple of the block size
+    int rank = 50;
+    LanczosState state = new LanczosState(corpus, rank, initialVector);
+    BlockLanczosSolver solver = new BlockLanczosSolver(3);
+    solver.solve(state, rank, false);
+    assertOrthonormal(state);
+    for (int i = 0; i < rank / 2; i++) {
+      assertEigen(i, state.getRightSingularVector(i), corpus, ERROR_TOLERANCE, false);
+    }
+    for (LanczosSolver.TimingSection section : LanczosSolver.TimingSection.values()) {
+      assertTrue(solver.getTimeMillis(section) >= 0);
+    }
+  }
+
+  @Test
+  public void testParallelMatchesSerial() {
+    Matrix corpus = CompressedSparseRowMatrix.copyOf(randomSequentialAccessSparseMatrix(300, 300, 200, 20, 1.0));
+    Vector initialVector = new DenseVector(200);
+    initialVector.assign(1.0 / Math.sqrt(200));
+    int rank = 24;
+
+    LanczosState serial = new LanczosState(corpus, rank, initialVector);
+    new BlockLanczosSolver(4).solve(serial, rank, false);
+
+    ParallelContext context = new ParallelContext(3, 0);
+    ParallelContext.set(context);
+    LanczosState parallel = new LanczosState(corpus, rank, initialVector);
+    try {
+      new BlockLanczosSolver(4).solve(parallel, rank, false);
+    } finally {
+      context.close();
+    }
+
+    assertOrthonormal(parallel);
+    for (int i = 0; i < rank / 2; i++) {
+      assertEquals(serial.getSingularValue(i), parallel.getSingularValue(i), 1.0e-6 * serial.getSingularValue(0));
+      assertEigen(i, parallel.getRightSingularVector(i), corpus, ERROR_TOLERANCE, false);
+    }
+  }
+
+  @Test
+  public void testParallelSparseMatrixWithEmptyRows() {
+    Matrix source = randomSequentialAccessSparseMatrix(300, 300, 200, 20, 1.0);
+    Vector initialVector = new DenseVector(200);
+    initialVector.assign(1.0 / Math.sqrt(200));
+    int rank = 12;
+
+    LanczosState serial = new LanczosState(sparseRows(source, 3), rank, initialVector);
+    new BlockLanczosSolver(4).solve(serial, rank, false);
+
+    Matrix corpus = sparseRows(source, 3);
+    ParallelContext context = new ParallelContext(3, 0);
+    ParallelContext.set(context);
+    LanczosState parallel = new LanczosState(corpus, rank, initialVector);
+    try {
+      new BlockLanczosSolver(4).solve(parallel, rank, false);
+    } finally {
+      context.close();
+    }
+
+    for (int i = 0; i < rank / 2; i++) {
+      assertEquals(serial.getSingularValue(i), parallel.getSingularValue(i), 1.0e-6 * serial.getSingularValue(0));
+    }
+  }
+
+  /**
+   * @return a {@link SparseMatrix} holding every {@code step}'th row of {@code m}; the others are only created
+   *  when viewed
+   */
+  private static Matrix sparseRows(Matrix m, int step) {
+    Matrix r = new SparseMatrix(m.numRows(), m.numCols());
+    for (int row = 0; row < m.numRows(); row += step) {
+      r.viewRow(row).assign(m.viewRow(row));
+    }
+    return r;
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBlockSize() {
+    new BlockLanczosSolver(0);
+  }
+}
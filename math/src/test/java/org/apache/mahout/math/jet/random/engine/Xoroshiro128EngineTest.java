@@ -0,0 +1,109 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math.jet.random.engine;
+
+import org.apache.mahout.math.MahoutTestCase;
+import org.junit.Test;
+
+public final class Xoroshiro128EngineTest extends MahoutTestCase {
+
+  /**
+   * xoroshiro128** seeded by SplitMix64 from 42, computed independently of this implementation. The jumped values
+   * come from raising the 128x128 GF(2) transition matrix to the power 2<sup>64</sup>.
+   */
+  private static final long[] SEED_42 =
+      {7631449856891427754L, 4306334408478191133L, 4482733528210176216L, 1183949725203728575L, 273771184284289554L};
+  private static final long[] SEED_42_JUMPED = {4874754837400655869L, 3162076693257920331L};
+
+  @Test
+  public void testReferenceSequence() {
+    Xoroshiro128Engine engine = new Xoroshiro128Engine(42);
+    for (long expected : SEED_42) {
+      assertEquals(expected, engine.nextLong());
+    }
+  }
+
+  @Test
+  public void testJump() {
+    Xoroshiro128Engine engine = new Xoroshiro128Engine(42);
+    engine.jump();
+    for (long expected : SEED_42_JUMPED) {
+      assertEquals(expected, engine.nextLong());
+    }
+  }
+
+  @Test
+  public void testSetSeedAndCopy() {
+    Xoroshiro128Engine engine = new Xoroshiro128Engine(7);
+    engine.nextLong();
+    Xoroshiro128Engine copy = engine.copy();
+    for (int i = 0; i < 100; i++) {
+      assertEquals(engine.nextLong(), copy.nextLong());
+    }
+    engine.setSeed(42);
+    assertEquals(SEED_42[0], engine.nextLong());
+
+    // a zero seed must not give the all-zero state
+    Xoroshiro128Engine zero = new Xoroshiro128Engine(0);
+    assertTrue(zero.nextLong() != 0 || zero.nextLong() != 0);
+  }
+
+  @Test
+  public void testSplit() {
+    Xoroshiro128Engine parent = new Xoroshiro128Engine(42);
+    Xoroshiro128Engine child = parent.split();
+    Xoroshiro128Engine again = new Xoroshiro128Engine(42).split();
+    int same = 0;
+    for (int i = 0; i < 1000; i++) {
+      long c = child.nextLong();
+      assertEquals(c, again.nextLong());
+      if (c == parent.nextLong()) {
+        same++;
+      }
+    }
+    assertEquals(0, same);
+  }
+
+  @Test
+  public void testUniformity() {
+    Xoroshiro128Engine engine = new Xoroshiro128Engine(1);
+    int n = 100000;
+    int[] counts = new int[10];
+    double sum = 0;
+    for (int i = 0; i < n; i++) {
+      double x = engine.nextDouble();
+      assertTrue(x > 0 && x < 1);
+      sum += x;
+      counts[(int) (x * 10)]++;
+    }
+    assertEquals(0.5, sum / n, 0.01);
+    double chi2 = 0;
+    for (int count : counts) {
+      double d = count - n / 10.0;
+      chi2 += d * d / (n / 10.0);
+    }
+    // 99.9th percentile of chi-squared with 9 degrees of freedom
+    assertTrue("chi2 = " + chi2, chi2 < 27.9);
+
+    int bits = 0;
+    for (int i = 0; i < 64; i++) {
+      bits += Integer.bitCount(engine.nextInt());
+    }
+    assertEquals(64 * 16, bits, 100);
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math.random;
+
+import java.util.List;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multiset;
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.MahoutTestCase;
+import org.junit.Before;
+import org.junit.Test;
+
+public final class AliasSamplerTest extends MahoutTestCase {
+
+  @Override
+  @Before
+  public void setUp() {
+    RandomUtils.useTestSeed();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testAllZero() {
+    new AliasSampler(0, 0, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegative() {
+    new AliasSampler(1, -1, 3);
+  }
+
+  @Test
+  public void testExactProbabilities() {
+    double[] weights = {1, 0, 3, 0.5, 2.5, 0, 1};
+    AliasSampler sampler = new AliasSampler(weights);
+    assertEquals(weights.length, sampler.size());
+
+    // sweep u over a fine grid; the fraction of the grid landing on each outcome is its probability
+    int steps = 7 * 8 * 1000;
+    int[] counts = new int[weights.length];
+    for (int i = 0; i < steps; i++) {
+      counts[sampler.sample((i + 0.5) / steps)]++;
+    }
+    for (int i = 0; i < weights.length; i++) {
+      assertEquals(weights[i] / 8, sampler.getProbability(i), 1.0e-15);
+      assertEquals("outcome " + i, weights[i] / 8, (double) counts[i] / steps, 1.0e-3);
+    }
+    assertEquals(0, counts[1]);
+    assertEquals(0, counts[5]);
+    assertTrue(sampler.sample(Math.nextAfter(1.0, 0)) < weights.length);
+  }
+
+  @Test
+  public void testBulkSample() {
+    int n = 100000;
+    double[] weights = new double[50];
+    for (int i = 0; i < weights.length; i++) {
+      weights[i] = i * i;
+    }
+    AliasSampler sampler = new AliasSampler(weights);
+    int[] out = new int[n + 1];
+    out[n] = -1;
+    sampler.sample(n, out);
+    assertEquals(-1, out[n]);
+
+    int[] counts = new int[weights.length];
+    for (int i = 0; i < n; i++) {
+      counts[out[i]]++;
+    }
+    assertEquals(0, counts[0]);
+    double chi2 = 0;
+    for (int i = 1; i < weights.length; i++) {
+      double expected = n * sampler.getProbability(i);
+      chi2 += (counts[i] - expected) * (counts[i] - expected) / expected;
+    }
+    // well above the 99.9th percentile of chi-squared with 48 degrees of freedom
+    assertTrue("chi2 = " + chi2, chi2 < 85);
+  }
+
+  @Test
+  public void testFreezeMultinomial() {
+    Multiset<String> counts = HashMultiset.create();
+    counts.add("a", 1);
+    counts.add("b", 2);
+    counts.add("c", 3);
+    counts.add("d", 4);
+    Multinomial<String> multinomial = new Multinomial<String>(counts);
+    multinomial.delete("c");
+
+    List<String> outcomes = Lists.newArrayList("junk");
+    AliasSampler sampler = multinomial.freeze(outcomes);
+    assertEquals(3, outcomes.size());
+    assertEquals(3, sampler.size());
+    assertFalse(outcomes.contains("c"));
+    for (int i = 0; i < outcomes.size(); i++) {
+      assertEquals(multinomial.getProbability(outcomes.get(i)), sampler.getProbability(i), 1.0e-12);
+    }
+  }
+}
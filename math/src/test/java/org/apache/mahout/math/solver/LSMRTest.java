@@ -21,7 +21,9 @@ import org.apache.mahout.math.DenseMatrix;
 import org.apache.mahout.math.DenseVector;
 import org.apache.mahout.math.MahoutTestCase;
 import org.apache.mahout.math.Matrix;
+import org.apache.mahout.math.ParallelContext;
 import org.apache.mahout.math.SingularValueDecomposition;
+import org.apache.mahout.math.SparseMatrix;
 import org.apache.mahout.math.Vector;
 import org.apache.mahout.math.function.Functions;
 import org.junit.Test;
@@ -80,6 +82,99 @@ public final class LSMRTest extends MahoutTestCase {
     assertEquals(actual, r.getNormalEquationResidual(), 1.0e-9);
   }
 
+  @Test
+  public void parallelAndBatched() {
+    Matrix m = new DenseMatrix(200, 30).assign(Functions.random());
+    Matrix b = new DenseMatrix(200, 3).assign(Functions.random());
+
+    LSMR r = new LSMR();
+    Matrix expected = new DenseMatrix(30, 3);
+    for (int c = 0; c < 3; c++) {
+      expected.assignColumn(c, r.solve(m, b.viewColumn(c)));
+    }
+    assertEquals(0, r.solve(m, b).minus(expected).aggregate(Functions.MAX, Functions.ABS), 1.0e-12);
+
+    final int[] iterations = new int[3];
+    final int[] solved = new int[1];
+    r.setListener(new SolverListener() {
+      @Override
+      public void iterationFinished(int column, int iteration, double residualNorm) {
+        synchronized (iterations) {
+          iterations[column] = iteration;
+        }
+      }
+
+      @Override
+      public void solveFinished(int columns, int iterationCount, long elapsedNanos) {
+        solved[0] = columns;
+      }
+    });
+    ParallelContext context = new ParallelContext(3, 0);
+    ParallelContext.set(context);
+    try {
+      Vector x = r.solve(m, b.viewColumn(0));
+      assertEquals(0, x.minus(expected.viewColumn(0)).norm(Double.POSITIVE_INFINITY), 1.0e-10);
+      assertEquals(r.getIterationCount(), iterations[0]);
+
+      Matrix x2 = r.solve(m, b);
+      assertEquals(0, x2.minus(expected).aggregate(Functions.MAX, Functions.ABS), 1.0e-10);
+      assertEquals(3, solved[0]);
+      for (int c = 0; c < 3; c++) {
+        assertTrue(iterations[c] > 0);
+      }
+    } finally {
+      context.close();
+    }
+  }
+
+  @Test
+  public void parallelSparseMatrixWithEmptyRows() {
+    Matrix dense = new DenseMatrix(300, 40).assign(Functions.random());
+    Vector b = new DenseVector(300).assign(Functions.random());
+
+    LSMR r = new LSMR();
+    Vector expected = r.solve(sparseRows(dense, 4), b);
+    Matrix sparse = sparseRows(dense, 4);
+    ParallelContext context = new ParallelContext(4, 0);
+    ParallelContext.set(context);
+    try {
+      Vector x = r.solve(sparse, b);
+      assertEquals(0, x.minus(expected).norm(Double.POSITIVE_INFINITY), 1.0e-10);
+    } finally {
+      context.close();
+    }
+  }
+
+  @Test
+  public void parallelBatchedSparseMatrixWithEmptyRows() {
+    Matrix dense = new DenseMatrix(300, 40).assign(Functions.random());
+    Matrix b = new DenseMatrix(300, 6).assign(Functions.random());
+
+    LSMR r = new LSMR();
+    Matrix expected = r.solve(sparseRows(dense, 4), b);
+    Matrix sparse = sparseRows(dense, 4);
+    ParallelContext context = new ParallelContext(4, 0);
+    ParallelContext.set(context);
+    try {
+      Matrix x = r.solve(sparse, b);
+      assertEquals(0, x.minus(expected).aggregate(Functions.MAX, Functions.ABS), 1.0e-10);
+    } finally {
+      context.close();
+    }
+  }
+
+  /**
+   * @return a {@link SparseMatrix} holding every {@code step}'th row of {@code m}; the others are only created
+   *  when viewed
+   */
+  private static Matrix sparseRows(Matrix m, int step) {
+    Matrix r = new SparseMatrix(m.numRows(), m.numCols());
+    for (int row = 0; row < m.numRows(); row += step) {
+      r.viewRow(row).assign(m.viewRow(row));
+    }
+    return r;
+  }
+
   private static Matrix hilbert(int n) {
     Matrix r = new DenseMatrix(n, n);
     for (int i = 0; i < n; i++) {
@@ -21,7 +21,10 @@ import org.apache.mahout.math.DenseMatrix;
 import org.apache.mahout.math.DenseVector;
 import org.apache.mahout.math.MahoutTestCase;
 import org.apache.mahout.math.Matrix;
+import org.apache.mahout.math.ParallelContext;
+import org.apache.mahout.math.SparseRowMatrix;
 import org.apache.mahout.math.Vector;
+import org.apache.mahout.math.function.Functions;
 import org.junit.Test;
 
 public class TestConjugateGradientSolver extends MahoutTestCase {
@@ -83,6 +86,139 @@ public class TestConjugateGradientSolver extends MahoutTestCase {
     assertEquals(7, solver.getIterations()); 
   }  
   
+  @Test
+  public void testParallelMatchesSerial() {
+    Matrix a = laplacian(20);
+    Vector b = new DenseVector(a.numRows()).assign(1);
+    ConjugateGradientSolver solver = new ConjugateGradientSolver();
+    Vector serial = solver.solve(a, b, null, 1000, ConjugateGradientSolver.DEFAULT_MAX_ERROR);
+    int serialIterations = solver.getIterations();
+
+    ParallelContext context = new ParallelContext(3, 0);
+    ParallelContext.set(context);
+    try {
+      Vector parallel = solver.solve(a, b, null, 1000, ConjugateGradientSolver.DEFAULT_MAX_ERROR);
+      assertEquals(serialIterations, solver.getIterations());
+      assertEquals(0.0, serial.minus(parallel).norm(Double.POSITIVE_INFINITY), 1.0e-12);
+    } finally {
+      context.close();
+    }
+  }
+
+  @Test
+  public void testMultipleRightHandSides() {
+    Matrix a = laplacian(15);
+    int n = a.numRows();
+    Matrix b = new DenseMatrix(n, 4);
+    for (int i = 0; i < n; i++) {
+      b.set(i, 0, 1);
+      b.set(i, 1, i % 7);
+      b.set(i, 2, Math.sin(i));
+    }
+    // the last column is already solved by x = 0
+
+    Preconditioner conditioner = new IncompleteCholeskyConditioner(a);
+    ConjugateGradientSolver solver = new ConjugateGradientSolver();
+    int[] expectedIterations = new int[4];
+    Matrix expected = new DenseMatrix(n, 4);
+    for (int c = 0; c < 4; c++) {
+      expected.assignColumn(c, solver.solve(a, b.viewColumn(c), conditioner, 1000, 1.0e-10));
+      expectedIterations[c] = solver.getIterations();
+    }
+    assertEquals(0, expectedIterations[3]);
+
+    CountingListener listener = new CountingListener();
+    solver.setListener(listener);
+    Matrix x = solver.solve(a, b, conditioner, 1000, 1.0e-10);
+    assertEquals(0.0, x.minus(expected).aggregate(Functions.MAX, Functions.ABS), 1.0e-12);
+    assertEquals(0.0, a.times(x).minus(b).aggregate(Functions.MAX, Functions.ABS), 1.0e-9);
+    for (int c = 0; c < 4; c++) {
+      assertEquals(expectedIterations[c], listener.iterations[c]);
+    }
+    assertEquals(Math.max(expectedIterations[0], Math.max(expectedIterations[1], expectedIterations[2])),
+        solver.getIterations());
+    assertEquals(1, listener.solves);
+    assertEquals(4, listener.columns);
+    assertEquals(expectedIterations[0] + expectedIterations[1] + expectedIterations[2], listener.totalIterations);
+
+    solver.setListener(null);
+    ParallelContext context = new ParallelContext(3, 0);
+    ParallelContext.set(context);
+    try {
+      Matrix parallel = solver.solve(a, b, conditioner, 1000, 1.0e-10);
+      assertEquals(0.0, parallel.minus(x).aggregate(Functions.MAX, Functions.ABS), 1.0e-12);
+    } finally {
+      context.close();
+    }
+  }
+
+  @Test
+  public void testIncompleteCholeskyConditioner() {
+    Matrix a = laplacian(20);
+    Vector b = new DenseVector(a.numRows()).assign(1);
+    ConjugateGradientSolver solver = new ConjugateGradientSolver();
+    CountingListener listener = new CountingListener();
+    solver.setListener(listener);
+
+    solver.solve(a, b, null, 1000, 1.0e-9);
+    int plain = solver.getIterations();
+    assertEquals(plain, listener.iterations[0]);
+    assertEquals(plain, listener.totalIterations);
+
+    solver.setListener(null);
+    Vector x = solver.solve(a, b, new IncompleteCholeskyConditioner(a), 1000, 1.0e-9);
+    assertEquals(0.0, a.times(x).minus(b).norm(2), 1.0e-9);
+    assertTrue(solver.getIterations() < plain * 2 / 3);
+  }
+
+  /**
+   * The five point finite difference Laplacian on a {@code size} by {@code size} grid.
+   */
+  private static Matrix laplacian(int size) {
+    int n = size * size;
+    Matrix a = new SparseRowMatrix(n, n);
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        int k = i * size + j;
+        a.set(k, k, 4);
+        if (i > 0) {
+          a.set(k, k - size, -1);
+        }
+        if (i < size - 1) {
+          a.set(k, k + size, -1);
+        }
+        if (j > 0) {
+          a.set(k, k - 1, -1);
+        }
+        if (j < size - 1) {
+          a.set(k, k + 1, -1);
+        }
+      }
+    }
+    return a;
+  }
+
+  private static final class CountingListener implements SolverListener {
+    private final int[] iterations = new int[4];
+    private int solves;
+    private int columns;
+    private int totalIterations;
+
+    @Override
+    public void iterationFinished(int column, int iteration, double residualNorm) {
+      assertEquals(iterations[column] + 1, iteration);
+      iterations[column] = iteration;
+    }
+
+    @Override
+    public void solveFinished(int columns, int iterations, long elapsedNanos) {
+      solves++;
+      this.columns = columns;
+      totalIterations = iterations;
+      assertTrue(elapsedNanos >= 0);
+    }
+  }
+
   private static Matrix getA() {
     return reshape(new double[] {
         11.7155649822793997, -0.7125253363083646, 4.6473613961860183,  1.6020939468348456, -4.6789817799137134,
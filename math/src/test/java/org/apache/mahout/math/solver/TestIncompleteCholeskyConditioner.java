@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math.solver;
+
+import org.apache.mahout.math.DenseMatrix;
+import org.apache.mahout.math.DenseVector;
+import org.apache.mahout.math.DiagonalMatrix;
+import org.apache.mahout.math.MahoutTestCase;
+import org.apache.mahout.math.Matrix;
+import org.apache.mahout.math.SparseRowMatrix;
+import org.apache.mahout.math.Vector;
+import org.apache.mahout.math.function.Functions;
+import org.junit.Test;
+
+public final class TestIncompleteCholeskyConditioner extends MahoutTestCase {
+
+  @Test
+  public void testDenseIsExact() {
+    // with no zeros in A there is nothing to drop, so the factorization is the complete one
+    Matrix u = new DenseMatrix(8, 8).assign(Functions.random());
+    Matrix a = u.transpose().times(u).plus(DiagonalMatrix.identity(8));
+    IncompleteCholeskyConditioner conditioner = new IncompleteCholeskyConditioner(a);
+    assertEquals(0.0, conditioner.getShift(), 0.0);
+
+    Vector x = new DenseVector(8).assign(Functions.random());
+    Vector y = conditioner.precondition(a.times(x));
+    assertEquals(0.0, x.minus(y).norm(Double.POSITIVE_INFINITY), 1.0e-10);
+  }
+
+  @Test
+  public void testTridiagonalIsExact() {
+    // a tridiagonal matrix has no fill-in either
+    Matrix a = new SparseRowMatrix(50, 50);
+    for (int i = 0; i < 50; i++) {
+      a.set(i, i, 2.5);
+      if (i > 0) {
+        a.set(i, i - 1, -1);
+        a.set(i - 1, i, -1);
+      }
+    }
+    IncompleteCholeskyConditioner conditioner = new IncompleteCholeskyConditioner(a);
+    Vector b = new DenseVector(50).assign(1);
+    assertEquals(0.0, a.times(conditioner.precondition(b)).minus(b).norm(Double.POSITIVE_INFINITY), 1.0e-12);
+  }
+
+  @Test
+  public void testShift() {
+    // Kershaw's matrix is positive definite, but its incomplete factorization breaks down
+    Matrix a = new DenseMatrix(new double[][] {
+        {3, -2, 0, 2},
+        {-2, 3, -2, 0},
+        {0, -2, 3, -2},
+        {2, 0, -2, 3}
+    });
+    IncompleteCholeskyConditioner conditioner = new IncompleteCholeskyConditioner(a);
+    assertTrue(conditioner.getShift() > 0);
+
+    try {
+      new IncompleteCholeskyConditioner(a, 0);
+      fail("expected the factorization to break down");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    assertEquals(0.5, new IncompleteCholeskyConditioner(a, 0.5).getShift(), 0.0);
+
+    // even with the shift, the preconditioned solve converges
+    Vector b = new DenseVector(new double[] {1, 2, 3, 4});
+    Vector x = new ConjugateGradientSolver().solve(a, b, conditioner);
+    assertEquals(0.0, a.times(x).minus(b).norm(2), 1.0e-9);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNotSquare() {
+    new IncompleteCholeskyConditioner(new DenseMatrix(3, 4));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNonPositiveDiagonal() {
+    new IncompleteCholeskyConditioner(new DenseMatrix(new double[][] {{1, 0}, {0, -1}}));
+  }
+}
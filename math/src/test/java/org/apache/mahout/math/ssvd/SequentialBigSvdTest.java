@@ -17,16 +17,25 @@
 
 package org.apache.mahout.math.ssvd;
 
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.DenseMatrix;
 import org.apache.mahout.math.DenseVector;
 import org.apache.mahout.math.DiagonalMatrix;
 import org.apache.mahout.math.MahoutTestCase;
 import org.apache.mahout.math.Matrix;
+import org.apache.mahout.math.ParallelContext;
+import org.apache.mahout.math.QRDecomposition;
 import org.apache.mahout.math.RandomTrinaryMatrix;
 import org.apache.mahout.math.SingularValueDecomposition;
+import org.apache.mahout.math.SparseMatrix;
+import org.apache.mahout.math.SparseRowMatrix;
 import org.apache.mahout.math.Vector;
+import org.apache.mahout.math.function.DoubleFunction;
 import org.apache.mahout.math.function.Functions;
 import org.junit.Test;
 
+import java.util.Random;
+
 public final class SequentialBigSvdTest extends MahoutTestCase {
 
   @Test
@@ -76,6 +85,143 @@ public final class SequentialBigSvdTest extends MahoutTestCase {
     assertEquals(v1, v2);
   }
 
+  @Test
+  public void testPowerIterations() {
+    Matrix A = decayingMatrix(200, 60);
+    Vector reference = new DenseVector(new SingularValueDecomposition(A).getSingularValues()).viewPart(0, 5);
+
+    SequentialBigSvd plain = new SequentialBigSvd(A, 5, 5, 0, false, 1);
+    SequentialBigSvd powered = new SequentialBigSvd(A, 5, 5, 2, false, 1);
+
+    double plainError = reference.minus(plain.getSingularValues()).norm(Double.POSITIVE_INFINITY);
+    double poweredError = reference.minus(powered.getSingularValues()).norm(Double.POSITIVE_INFINITY);
+    assertTrue(poweredError < plainError);
+    assertEquals(0, poweredError, 1.0e-4);
+
+    assertEquals(5, powered.getU().columnSize());
+    assertEquals(200, powered.getU().rowSize());
+    assertEquals(60, powered.getV().rowSize());
+    Matrix u1 = new SingularValueDecomposition(A).getU().viewPart(0, 200, 0, 3).assign(Functions.ABS);
+    Matrix u2 = powered.getU().viewPart(0, 200, 0, 3).assign(Functions.ABS);
+    assertEquals(0, u1.minus(u2).aggregate(Functions.MAX, Functions.ABS), 1.0e-3);
+  }
+
+  @Test
+  public void testPca() {
+    Matrix A = lowRankMatrix();
+    Vector offset = new DenseVector(A.columnSize());
+    for (int j = 0; j < offset.size(); j++) {
+      offset.setQuick(j, j + 10);
+    }
+    Matrix shifted = A.like();
+    Matrix centered = A.like();
+    Vector mean = new DenseVector(A.columnSize());
+    for (int i = 0; i < A.rowSize(); i++) {
+      shifted.viewRow(i).assign(A.viewRow(i).plus(offset));
+      mean.assign(shifted.viewRow(i), Functions.PLUS);
+    }
+    mean.assign(Functions.div(A.rowSize()));
+    for (int i = 0; i < A.rowSize(); i++) {
+      centered.viewRow(i).assign(shifted.viewRow(i).minus(mean));
+    }
+
+    SequentialBigSvd s = new SequentialBigSvd(shifted, 4, 4, 1, true);
+    assertEquals(mean, s.getMean());
+
+    SingularValueDecomposition svd = new SingularValueDecomposition(centered);
+    assertEquals(new DenseVector(svd.getSingularValues()).viewPart(0, 4), s.getSingularValues());
+    assertEquals(centered, s.getU().times(new DiagonalMatrix(s.getSingularValues())).times(s.getV().transpose()));
+    assertNull(new SequentialBigSvd(shifted, 4).getMean());
+  }
+
+  @Test
+  public void testParallelMatchesSerial() {
+    Random gen = RandomUtils.getRandom();
+    Matrix A = new SparseRowMatrix(300, 120);
+    for (int i = 0; i < 300; i++) {
+      for (int n = 0; n < 10; n++) {
+        A.setQuick(i, gen.nextInt(120), gen.nextGaussian());
+      }
+    }
+
+    SequentialBigSvd serial = new SequentialBigSvd(A, 10, 10, 1, true, 42);
+    SequentialBigSvd parallel;
+    ParallelContext context = new ParallelContext(3, 0);
+    ParallelContext.set(context);
+    try {
+      parallel = new SequentialBigSvd(A, 10, 10, 1, true, 42);
+    } finally {
+      context.close();
+    }
+    assertEquals(serial.getSingularValues(), parallel.getSingularValues());
+    assertEquals(serial.getU(), parallel.getU());
+    assertEquals(serial.getV(), parallel.getV());
+  }
+
+  @Test
+  public void testParallelSparseMatrixWithEmptyRows() {
+    Random gen = RandomUtils.getRandom();
+    double[][] cells = new double[300][];
+    for (int i = 0; i < 300; i += 3) {
+      cells[i] = new double[120];
+      for (int n = 0; n < 10; n++) {
+        cells[i][gen.nextInt(120)] = gen.nextGaussian();
+      }
+    }
+
+    SequentialBigSvd serial = new SequentialBigSvd(sparseMatrix(cells, 120), 10, 10, 1, true, 42);
+    SequentialBigSvd parallel;
+    Matrix A = sparseMatrix(cells, 120);
+    ParallelContext context = new ParallelContext(3, 0);
+    ParallelContext.set(context);
+    try {
+      parallel = new SequentialBigSvd(A, 10, 10, 1, true, 42);
+    } finally {
+      context.close();
+    }
+    assertEquals(serial.getSingularValues(), parallel.getSingularValues());
+    assertEquals(serial.getU(), parallel.getU());
+    assertEquals(serial.getV(), parallel.getV());
+  }
+
+  /**
+   * @return a {@link SparseMatrix} with the given rows; null rows are left out and only created when viewed
+   */
+  private static Matrix sparseMatrix(double[][] rows, int columns) {
+    Matrix r = new SparseMatrix(rows.length, columns);
+    for (int i = 0; i < rows.length; i++) {
+      if (rows[i] != null) {
+        r.viewRow(i).assign(rows[i]);
+      }
+    }
+    return r;
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTooManyProjections() {
+    new SequentialBigSvd(lowRankMatrix(), 15, 6, 0, false);
+  }
+
+  private static Matrix decayingMatrix(int rows, int columns) {
+    Random gen = RandomUtils.getRandom();
+    Matrix u = new QRDecomposition(new DenseMatrix(rows, columns).assign(gaussian(gen))).getQ();
+    Matrix v = new QRDecomposition(new DenseMatrix(columns, columns).assign(gaussian(gen))).getQ();
+    double[] d = new double[columns];
+    for (int i = 0; i < columns; i++) {
+      d[i] = Math.pow(0.8, i);
+    }
+    return u.times(new DiagonalMatrix(d)).times(v.transpose());
+  }
+
+  private static DoubleFunction gaussian(final Random gen) {
+    return new DoubleFunction() {
+      @Override
+      public double apply(double x) {
+        return gen.nextGaussian();
+      }
+    };
+  }
+
   private static Matrix lowRankMatrix() {
     Matrix u = new RandomTrinaryMatrix(1, 20, 4, false);
     Matrix d = new DiagonalMatrix(new double[]{5, 3, 1, 0.5});
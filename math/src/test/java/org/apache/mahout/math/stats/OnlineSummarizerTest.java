@@ -23,6 +23,11 @@ import org.apache.mahout.math.jet.random.AbstractContinousDistribution;
 import org.apache.mahout.math.jet.random.Gamma;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Random;
 
@@ -76,6 +81,63 @@ public final class OnlineSummarizerTest extends MahoutTestCase {
     assertEquals("sd", s.getSD(), sd, 1e-8);
   }
 
+  @Test
+  public void testMerge() {
+    double[] samples = gamma(10000, 0.5);
+    OnlineSummarizer all = new OnlineSummarizer();
+    OnlineSummarizer[] parts = new OnlineSummarizer[4];
+    for (int i = 0; i < parts.length; i++) {
+      parts[i] = new OnlineSummarizer();
+    }
+    // uneven parts, including an empty one
+    for (int i = 0; i < samples.length; i++) {
+      all.add(samples[i]);
+      parts[i < 1000 ? 0 : i < 8000 ? 1 : 2].add(samples[i]);
+    }
+
+    OnlineSummarizer merged = new OnlineSummarizer();
+    for (OnlineSummarizer part : parts) {
+      merged.merge(part);
+    }
+    assertEquals(all.getCount(), merged.getCount());
+    assertEquals(all.getMean(), merged.getMean(), 1.0e-10);
+    assertEquals(all.getSD(), merged.getSD(), 1.0e-10);
+
+    Arrays.sort(samples);
+    for (int i = 0; i < 5; i++) {
+      int index = Math.abs(Arrays.binarySearch(samples, merged.getQuartile(i)));
+      assertEquals("quartile " + i, i * (samples.length - 1) / 4.0, index, 20);
+    }
+  }
+
+  @Test
+  public void testWriteAndRead() throws IOException {
+    OnlineSummarizer s = new OnlineSummarizer();
+    for (double x : exp(10000)) {
+      s.add(x);
+    }
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    s.write(out);
+    out.close();
+    // the small encoding of the digest keeps this to a few kilobytes however many samples there were
+    assertTrue(bytes.size() < 4096);
+
+    OnlineSummarizer copy = new OnlineSummarizer();
+    copy.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    assertEquals(s.getCount(), copy.getCount());
+    assertEquals(s.getMean(), copy.getMean(), 0);
+    assertEquals(s.getSD(), copy.getSD(), 0);
+    for (double q = 0; q <= 1; q += 0.125) {
+      assertEquals(s.quantile(q), copy.quantile(q), 1.0e-3);
+    }
+
+    // and a copy can still take samples
+    copy.add(1);
+    assertEquals(s.getCount() + 1, copy.getCount());
+  }
+
   private static double[] normal(int n) {
     double[] r = new double[n];
     Random gen = RandomUtils.getRandom(1L);
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math.stats;
+
+import org.apache.mahout.math.MahoutTestCase;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+public final class StripedOnlineSummarizerTest extends MahoutTestCase {
+
+  @Test
+  public void testConcurrentAdds() throws InterruptedException {
+    final StripedOnlineSummarizer s = new StripedOnlineSummarizer(3);
+    final int threads = 8;
+    final int perThread = 5000;
+    final CountDownLatch start = new CountDownLatch(1);
+    Thread[] workers = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      final int offset = t * perThread;
+      workers[t] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            return;
+          }
+          for (int i = 0; i < perThread; i++) {
+            s.add(offset + i);
+          }
+        }
+      };
+      workers[t].start();
+    }
+    start.countDown();
+    for (Thread worker : workers) {
+      worker.join();
+    }
+
+    // the samples are 0 .. n - 1 exactly once each
+    int n = threads * perThread;
+    OnlineSummarizer snapshot = s.snapshot();
+    assertEquals(n, s.getCount());
+    assertEquals(n, snapshot.getCount());
+    assertEquals((n - 1) / 2.0, snapshot.getMean(), 1.0e-6);
+    assertEquals(Math.sqrt(((double) n * n - 1) / 12), snapshot.getSD(), 1.0e-6);
+    assertEquals(n / 2.0, s.getMedian(), n * 0.01);
+    assertEquals(0.9 * n, s.quantile(0.9), n * 0.01);
+  }
+
+  @Test
+  public void testMerge() {
+    OnlineSummarizer other = new OnlineSummarizer();
+    other.add(1);
+    other.add(3);
+    StripedOnlineSummarizer s = new StripedOnlineSummarizer();
+    s.add(5);
+    s.merge(other);
+    assertEquals(3, s.getCount());
+    assertEquals(3, s.getMean(), 1.0e-12);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoStripes() {
+    new StripedOnlineSummarizer(0);
+  }
+}
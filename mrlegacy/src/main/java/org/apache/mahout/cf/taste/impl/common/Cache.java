@@ -1,178 +1,495 @@
-/**
- * Licensed to the Apache Software Foundation (ASF) under one or more
- * contributor license agreements.  See the NOTICE file distributed with
- * this work for additional information regarding copyright ownership.
- * The ASF licenses this file to You under the Apache License, Version 2.0
- * (the "License"); you may not use this file except in compliance with
- * the License.  You may obtain a copy of the License at
- *
- *     http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-
-package org.apache.mahout.cf.taste.impl.common;
-
-import com.google.common.base.Preconditions;
-import org.apache.mahout.cf.taste.common.TasteException;
-
-import java.util.Iterator;
-
-/**
- * <p>
- * An efficient Map-like class which caches values for keys. Values are not "put" into a {@link Cache};
- * instead the caller supplies the instance with an implementation of {@link Retriever} which can load the
- * value for a given key.
- * </p>
- *
- * <p>
- * The cache does not support {@code null} keys.
- * </p>
- *
- * <p>
- * Thanks to Amila Jayasooriya for helping evaluate performance of the rewrite of this class, as part of a
- * Google Summer of Code 2007 project.
- * </p>
- */
-public final class Cache<K,V> implements Retriever<K,V> {
-
-  private static final Object NULL = new Object();
-  
-  private final FastMap<K,V> cache;
-  private final Retriever<? super K,? extends V> retriever;
-  
-  /**
-   * <p>
-   * Creates a new cache based on the given {@link Retriever}.
-   * </p>
-   * 
-   * @param retriever
-   *          object which can retrieve values for keys
-   */
-  public Cache(Retriever<? super K,? extends V> retriever) {
-    this(retriever, FastMap.NO_MAX_SIZE);
-  }
-  
-  /**
-   * <p>
-   * Creates a new cache based on the given {@link Retriever} and with given maximum size.
-   * </p>
-   * 
-   * @param retriever
-   *          object which can retrieve values for keys
-   * @param maxEntries
-   *          maximum number of entries the cache will store before evicting some
-   */
-  public Cache(Retriever<? super K,? extends V> retriever, int maxEntries) {
-    Preconditions.checkArgument(retriever != null, "retriever is null");
-    Preconditions.checkArgument(maxEntries >= 1, "maxEntries must be at least 1");
-    cache = new FastMap<K, V>(11, maxEntries);
-    this.retriever = retriever;
-  }
-  
-  /**
-   * <p>
-   * Returns cached value for a key. If it does not exist, it is loaded using a {@link Retriever}.
-   * </p>
-   * 
-   * @param key
-   *          cache key
-   * @return value for that key
-   * @throws TasteException
-   *           if an exception occurs while retrieving a new cached value
-   */
-  @Override
-  public V get(K key) throws TasteException {
-    V value;
-    synchronized (cache) {
-      value = cache.get(key);
-    }
-    if (value == null) {
-      return getAndCacheValue(key);
-    }
-    return value == NULL ? null : value;
-  }
-  
-  /**
-   * <p>
-   * Uncaches any existing value for a given key.
-   * </p>
-   * 
-   * @param key
-   *          cache key
-   */
-  public void remove(K key) {
-    synchronized (cache) {
-      cache.remove(key);
-    }
-  }
-
-  /**
-   * Clears all cache entries whose key matches the given predicate.
-   */
-  public void removeKeysMatching(MatchPredicate<K> predicate) {
-    synchronized (cache) {
-      Iterator<K> it = cache.keySet().iterator();
-      while (it.hasNext()) {
-        K key = it.next();
-        if (predicate.matches(key)) {
-          it.remove();
-        }
-      }
-    }
-  }
-
-  /**
-   * Clears all cache entries whose value matches the given predicate.
-   */
-  public void removeValueMatching(MatchPredicate<V> predicate) {
-    synchronized (cache) {
-      Iterator<V> it = cache.values().iterator();
-      while (it.hasNext()) {
-        V value = it.next();
-        if (predicate.matches(value)) {
-          it.remove();
-        }
-      }
-    }
-  }
-  
-  /**
-   * <p>
-   * Clears the cache.
-   * </p>
-   */
-  public void clear() {
-    synchronized (cache) {
-      cache.clear();
-    }
-  }
-  
-  private V getAndCacheValue(K key) throws TasteException {
-    V value = retriever.get(key);
-    if (value == null) {
-      value = (V) NULL;
-    }
-    synchronized (cache) {
-      cache.put(key, value);
-    }
-    return value;
-  }
-  
-  @Override
-  public String toString() {
-    return "Cache[retriever:" + retriever + ']';
-  }
-
-  /**
-   * Used by {#link #removeKeysMatching(Object)} to decide things that are matching.
-   */
-  public interface MatchPredicate<T> {
-    boolean matches(T thing);
-  }
-  
-}
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.impl.common;
+
+import com.google.common.base.Preconditions;
+import org.apache.mahout.cf.taste.common.TasteException;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * <p>
+ * An efficient Map-like class which caches values for keys. Values are not "put" into a {@link Cache};
+ * instead the caller supplies the instance with an implementation of {@link Retriever} which can load the
+ * value for a given key.
+ * </p>
+ *
+ * <p>
+ * The cache does not support {@code null} keys.
+ * </p>
+ *
+ * <p>
+ * Entries are spread over a number of independently locked segments, so concurrent readers of different keys
+ * rarely contend. Concurrent requests for the same missing key are coalesced: one thread calls the
+ * {@link Retriever} while the others wait for its result, or its failure. When a bounded cache is full, a
+ * new value only displaces an old one if a small frequency sketch says the new key has been asked for more
+ * often than the least recently used candidates, so a one-off scan over many keys does not flush out the
+ * frequently used ones. The bound is applied per segment, so the number of entries held can fall slightly short
+ * of {@code maxEntries} when keys are unevenly spread.
+ * </p>
+ *
+ * <p>
+ * Thanks to Amila Jayasooriya for helping evaluate performance of the rewrite of this class, as part of a
+ * Google Summer of Code 2007 project.
+ * </p>
+ */
+public final class Cache<K,V> implements Retriever<K,V> {
+
+  private static final Object NULL = new Object();
+
+  private static final int MAX_SEGMENTS = 32;
+  /** Minimum number of entries worth giving a segment of its own. */
+  private static final int MIN_SEGMENT_SIZE = 32;
+  /** Number of least recently used entries considered as eviction victims. */
+  private static final int VICTIM_SAMPLE = 4;
+
+  private final Segment<K,V>[] segments;
+  private final int segmentShift;
+  private final Retriever<? super K,? extends V> retriever;
+  
+  /**
+   * <p>
+   * Creates a new cache based on the given {@link Retriever}.
+   * </p>
+   * 
+   * @param retriever
+   *          object which can retrieve values for keys
+   */
+  public Cache(Retriever<? super K,? extends V> retriever) {
+    this(retriever, FastMap.NO_MAX_SIZE);
+  }
+  
+  /**
+   * <p>
+   * Creates a new cache based on the given {@link Retriever} and with given maximum size.
+   * </p>
+   * 
+   * @param retriever
+   *          object which can retrieve values for keys
+   * @param maxEntries
+   *          maximum number of entries the cache will store before evicting some
+   */
+  public Cache(Retriever<? super K,? extends V> retriever, int maxEntries) {
+    Preconditions.checkArgument(retriever != null, "retriever is null");
+    Preconditions.checkArgument(maxEntries >= 1, "maxEntries must be at least 1");
+    this.retriever = retriever;
+    boolean bounded = maxEntries != FastMap.NO_MAX_SIZE;
+    int numSegments = bounded
+        ? Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, maxEntries / MIN_SEGMENT_SIZE)))
+        : MAX_SEGMENTS / 2;
+    segmentShift = 32 - Integer.numberOfTrailingZeros(numSegments);
+    int capacity = bounded ? (maxEntries + numSegments - 1) / numSegments : Integer.MAX_VALUE;
+    @SuppressWarnings("unchecked")
+    Segment<K,V>[] newSegments = (Segment<K,V>[]) new Segment<?,?>[numSegments];
+    for (int i = 0; i < numSegments; i++) {
+      newSegments[i] = new Segment<K,V>(capacity, bounded);
+    }
+    segments = newSegments;
+  }
+  
+  /**
+   * <p>
+   * Returns cached value for a key. If it does not exist, it is loaded using a {@link Retriever}. If another
+   * thread is already loading the same key, this waits for and returns that result instead of loading again.
+   * </p>
+   * 
+   * @param key
+   *          cache key
+   * @return value for that key
+   * @throws TasteException
+   *           if an exception occurs while retrieving a new cached value
+   */
+  @Override
+  public V get(K key) throws TasteException {
+    int hash = hash(key);
+    Segment<K,V> segment = segmentFor(hash);
+    Load load;
+    boolean owner = false;
+    synchronized (segment) {
+      segment.recordAccess(hash);
+      Object value = segment.map.get(key);
+      if (value != null) {
+        segment.hits++;
+        return unwrap(value);
+      }
+      segment.misses++;
+      load = segment.loading.get(key);
+      if (load == null) {
+        load = new Load();
+        segment.loading.put(key, load);
+        owner = true;
+      }
+    }
+    return owner ? getAndCacheValue(key, hash, segment, load) : Cache.<V>unwrap(load.await());
+  }
+
+  private V getAndCacheValue(K key, int hash, Segment<K,V> segment, Load load) throws TasteException {
+    Object value;
+    try {
+      value = retriever.get(key);
+    } catch (TasteException te) {
+      abandon(key, segment, load, te);
+      throw te;
+    } catch (RuntimeException re) {
+      abandon(key, segment, load, re);
+      throw re;
+    } catch (Error e) {
+      abandon(key, segment, load, e);
+      throw e;
+    }
+    if (value == null) {
+      value = NULL;
+    }
+    synchronized (segment) {
+      // a remove() or clear() while loading means the value may already be stale; hand it out but don't keep it
+      if (segment.loading.get(key) == load) {
+        segment.loading.remove(key);
+        segment.admit(key, hash, value);
+      }
+    }
+    load.complete(value, null);
+    return unwrap(value);
+  }
+
+  private static <K,V> void abandon(K key, Segment<K,V> segment, Load load, Throwable cause) {
+    synchronized (segment) {
+      if (segment.loading.get(key) == load) {
+        segment.loading.remove(key);
+      }
+    }
+    load.complete(null, cause);
+  }
+  
+  /**
+   * <p>
+   * Uncaches any existing value for a given key.
+   * </p>
+   * 
+   * @param key
+   *          cache key
+   */
+  public void remove(K key) {
+    Segment<K,V> segment = segmentFor(hash(key));
+    synchronized (segment) {
+      segment.map.remove(key);
+      segment.loading.remove(key);
+    }
+  }
+
+  /**
+   * Clears all cache entries whose key matches the given predicate.
+   */
+  public void removeKeysMatching(MatchPredicate<K> predicate) {
+    for (Segment<K,V> segment : segments) {
+      synchronized (segment) {
+        removeMatching(segment.map.keySet().iterator(), predicate);
+        removeMatching(segment.loading.keySet().iterator(), predicate);
+      }
+    }
+  }
+
+  private static <K> void removeMatching(Iterator<K> it, MatchPredicate<K> predicate) {
+    while (it.hasNext()) {
+      if (predicate.matches(it.next())) {
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Clears all cache entries whose value matches the given predicate. Cached {@code null} values are never
+   * passed to the predicate.
+   */
+  @SuppressWarnings("unchecked")
+  public void removeValueMatching(MatchPredicate<V> predicate) {
+    for (Segment<K,V> segment : segments) {
+      synchronized (segment) {
+        Iterator<Object> it = segment.map.values().iterator();
+        while (it.hasNext()) {
+          Object value = it.next();
+          if (value != NULL && predicate.matches((V) value)) {
+            it.remove();
+          }
+        }
+      }
+    }
+  }
+  
+  /**
+   * <p>
+   * Clears the cache.
+   * </p>
+   */
+  public void clear() {
+    for (Segment<K,V> segment : segments) {
+      synchronized (segment) {
+        segment.map.clear();
+        segment.loading.clear();
+      }
+    }
+  }
+
+  /**
+   * @return number of values currently cached
+   */
+  public int size() {
+    int size = 0;
+    for (Segment<K,V> segment : segments) {
+      synchronized (segment) {
+        size += segment.map.size();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * @return number of calls to {@link #get(Object)} answered from the cache
+   */
+  public long getHitCount() {
+    long count = 0;
+    for (Segment<K,V> segment : segments) {
+      synchronized (segment) {
+        count += segment.hits;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * @return number of calls to {@link #get(Object)} that found no cached value, including those that waited
+   *  for another thread's load
+   */
+  public long getMissCount() {
+    long count = 0;
+    for (Segment<K,V> segment : segments) {
+      synchronized (segment) {
+        count += segment.misses;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * @return number of cached values displaced to make room for new ones
+   */
+  public long getEvictionCount() {
+    long count = 0;
+    for (Segment<K,V> segment : segments) {
+      synchronized (segment) {
+        count += segment.evictions;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * @return number of loaded values not cached because the cache was full of more frequently used ones
+   */
+  public long getRejectionCount() {
+    long count = 0;
+    for (Segment<K,V> segment : segments) {
+      synchronized (segment) {
+        count += segment.rejections;
+      }
+    }
+    return count;
+  }
+
+  private Segment<K,V> segmentFor(int hash) {
+    return segmentShift == 32 ? segments[0] : segments[hash >>> segmentShift];
+  }
+
+  private static int hash(Object key) {
+    int h = key.hashCode() * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <V> V unwrap(Object value) {
+    return value == NULL ? null : (V) value;
+  }
+  
+  @Override
+  public String toString() {
+    return "Cache[retriever:" + retriever + ']';
+  }
+
+  /**
+   * Used by {#link #removeKeysMatching(Object)} to decide things that are matching.
+   */
+  public interface MatchPredicate<T> {
+    boolean matches(T thing);
+  }
+
+  /**
+   * One lock's worth of the cache. All fields are guarded by the segment's monitor.
+   */
+  private static final class Segment<K,V> {
+
+    private final int capacity;
+    private final LinkedHashMap<K,Object> map;
+    private final Map<K,Load> loading;
+    private final FrequencySketch sketch;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long rejections;
+
+    Segment(int capacity, boolean bounded) {
+      this.capacity = capacity;
+      // access order, so iteration starts at the least recently used entry
+      map = new LinkedHashMap<K,Object>(bounded ? Math.min(capacity, 1024) : 16, 0.75f, true);
+      loading = new HashMap<K,Load>();
+      sketch = bounded ? new FrequencySketch(capacity) : null;
+    }
+
+    void recordAccess(int hash) {
+      if (sketch != null) {
+        sketch.increment(hash);
+      }
+    }
+
+    void admit(K key, int hash, Object value) {
+      if (map.size() < capacity) {
+        map.put(key, value);
+        return;
+      }
+      K victim = null;
+      int victimFrequency = Integer.MAX_VALUE;
+      Iterator<K> it = map.keySet().iterator();
+      for (int i = 0; i < VICTIM_SAMPLE && it.hasNext(); i++) {
+        K candidate = it.next();
+        int frequency = sketch.frequency(hash(candidate));
+        if (frequency < victimFrequency) {
+          victim = candidate;
+          victimFrequency = frequency;
+        }
+      }
+      if (sketch.frequency(hash) > victimFrequency) {
+        map.remove(victim);
+        evictions++;
+        map.put(key, value);
+      } else {
+        rejections++;
+      }
+    }
+  }
+
+  /**
+   * A count-min sketch of recent key frequencies using four rows of 4-bit saturating counters, sixteen to a
+   * {@code long}. All counters are halved periodically so old popularity fades.
+   */
+  private static final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+        0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L};
+    private static final long HALF_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int capacity) {
+      int length = Integer.highestOneBit(Math.max(8, Math.min(capacity, 1 << 24)) - 1) << 1;
+      table = new long[length];
+      mask = length - 1;
+      sampleSize = (int) Math.min(10L * capacity, Integer.MAX_VALUE);
+    }
+
+    int frequency(int hash) {
+      int frequency = Integer.MAX_VALUE;
+      for (int i = 0; i < SEEDS.length; i++) {
+        long h = spread(hash, i);
+        int shift = ((int) (h >>> 60)) << 2;
+        frequency = Math.min(frequency, (int) ((table[(int) h & mask] >>> shift) & 0xF));
+      }
+      return frequency;
+    }
+
+    void increment(int hash) {
+      boolean added = false;
+      for (int i = 0; i < SEEDS.length; i++) {
+        long h = spread(hash, i);
+        int index = (int) h & mask;
+        int shift = ((int) (h >>> 60)) << 2;
+        if (((table[index] >>> shift) & 0xF) != 0xF) {
+          table[index] += 1L << shift;
+          added = true;
+        }
+      }
+      if (added && ++additions >= sampleSize) {
+        for (int i = 0; i < table.length; i++) {
+          table[i] = (table[i] >>> 1) & HALF_MASK;
+        }
+        additions >>>= 1;
+      }
+    }
+
+    private static long spread(int hash, int row) {
+      long h = (hash + SEEDS[row]) * SEEDS[row];
+      return h ^ (h >>> 29);
+    }
+  }
+
+  /**
+   * An in-flight retrieval that other threads asking for the same key can wait on.
+   */
+  private static final class Load {
+
+    private final CountDownLatch done = new CountDownLatch(1);
+    private Object value;
+    private Throwable failure;
+
+    void complete(Object value, Throwable failure) {
+      this.value = value;
+      this.failure = failure;
+      done.countDown();
+    }
+
+    Object await() throws TasteException {
+      boolean interrupted = false;
+      while (true) {
+        try {
+          done.await();
+          break;
+        } catch (InterruptedException ie) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      if (failure instanceof TasteException) {
+        throw new TasteException(failure);
+      }
+      if (failure instanceof RuntimeException) {
+        throw (RuntimeException) failure;
+      }
+      if (failure instanceof Error) {
+        throw (Error) failure;
+      }
+      return value;
+    }
+  }
+  
+}
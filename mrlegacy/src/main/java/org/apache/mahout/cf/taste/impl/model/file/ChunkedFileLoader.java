@@ -0,0 +1,569 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.impl.model.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.mahout.cf.taste.impl.common.FastByIDMap;
+import org.apache.mahout.cf.taste.impl.common.FastIDSet;
+import org.apache.mahout.cf.taste.impl.model.GenericPreference;
+import org.apache.mahout.cf.taste.model.Preference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+
+/**
+ * <p>
+ * Reads an uncompressed {@link FileDataModel} data file on several threads. The file is cut into byte ranges
+ * whose boundaries are moved forward to the next line start, and each range is scanned with a tokenizer that
+ * works directly on the bytes read from disk, so no {@link String}s are created for well-formed lines.
+ * </p>
+ *
+ * <p>
+ * Parsed lines are bucketed by user ID into one partition per thread. Each partition then replays its lines in
+ * file order into its own {@link FastByIDMap} shard, which keeps the semantics of
+ * {@link FileDataModel#processLine(String, FastByIDMap, FastByIDMap, boolean)}: a later line for the same user and
+ * item overrides an earlier one, and a line with an empty preference value deletes it. Since the shards hold
+ * disjoint sets of users, merging them is a matter of copying map entries.
+ * </p>
+ */
+final class ChunkedFileLoader {
+
+  private static final Logger log = LoggerFactory.getLogger(ChunkedFileLoader.class);
+
+  static final int DEFAULT_MIN_CHUNK_BYTES = 4 << 20;
+
+  private static final int CHUNKS_PER_THREAD = 4;
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final byte COMMENT_CHAR = '#';
+
+  private static final byte ADD = 0;
+  private static final byte ADD_WITH_TIMESTAMP = 1;
+  private static final byte REMOVE = 2;
+
+  /** Largest mantissa that converts to a {@code double} exactly. */
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+  private static final int MAX_FAST_DIGITS = 18;
+  private static final double[] POWERS_OF_TEN = new double[MAX_FAST_DIGITS + 1];
+  static {
+    POWERS_OF_TEN[0] = 1.0;
+    for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10.0;
+    }
+  }
+
+  private final File file;
+  private final byte delimiter;
+  private final boolean hasPrefValues;
+  private final boolean transpose;
+  private final int numThreads;
+  private final int minChunkBytes;
+
+  ChunkedFileLoader(File file,
+                    char delimiter,
+                    boolean hasPrefValues,
+                    boolean transpose,
+                    int numThreads,
+                    int minChunkBytes) {
+    Preconditions.checkArgument(delimiter < 0x80, "delimiter must be an ASCII character");
+    Preconditions.checkArgument(numThreads > 0, "numThreads must be at least 1");
+    Preconditions.checkArgument(minChunkBytes > 0, "minChunkBytes must be at least 1");
+    this.file = file;
+    this.delimiter = (byte) delimiter;
+    this.hasPrefValues = hasPrefValues;
+    this.transpose = transpose;
+    this.numThreads = numThreads;
+    this.minChunkBytes = minChunkBytes;
+  }
+
+  /**
+   * @return true if the file can be read by byte range, which is not the case for the compressed files that
+   *  {@link org.apache.mahout.common.iterator.FileLineIterator} understands
+   */
+  static boolean canLoad(File file) {
+    String extension = Files.getFileExtension(file.getName());
+    return !"gz".equalsIgnoreCase(extension) && !"zip".equalsIgnoreCase(extension);
+  }
+
+  /**
+   * Reads the whole file into {@code data}, which maps user IDs to {@link Collection}s of {@link Preference}s if
+   * the file has preference values and to {@link FastIDSet}s otherwise, just like the fresh-data case of
+   * {@link FileDataModel#processFile} and {@link FileDataModel#processFileWithoutID}.
+   */
+  void load(FastByIDMap<?> data, FastByIDMap<FastByIDMap<Long>> timestamps) throws IOException {
+    long length = file.length();
+    int numChunks = (int) Math.max(1L, Math.min((long) numThreads * CHUNKS_PER_THREAD, length / minChunkBytes));
+    long chunkLength = (length + numChunks - 1) / numChunks;
+    log.info("Reading file info in {} chunks on {} threads...", numChunks, numThreads);
+
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    try {
+      List<Future<RecordBuffer[]>> parseFutures = Lists.newArrayListWithCapacity(numChunks);
+      for (int chunk = 0; chunk < numChunks; chunk++) {
+        long start = Math.min(length, chunk * chunkLength);
+        long end = Math.min(length, start + chunkLength);
+        parseFutures.add(executor.submit(new ChunkParser(start, end)));
+      }
+      RecordBuffer[][] parsed = new RecordBuffer[numChunks][];
+      int count = 0;
+      for (int chunk = 0; chunk < numChunks; chunk++) {
+        parsed[chunk] = getResult(parseFutures.get(chunk));
+        for (RecordBuffer buffer : parsed[chunk]) {
+          count += buffer.size;
+        }
+      }
+
+      List<Future<Shard>> shardFutures = Lists.newArrayListWithCapacity(numThreads);
+      for (int partition = 0; partition < numThreads; partition++) {
+        shardFutures.add(executor.submit(new ShardBuilder(parsed, partition)));
+      }
+      for (Future<Shard> shardFuture : shardFutures) {
+        getResult(shardFuture).mergeInto(data, timestamps);
+      }
+      log.info("Read lines: {}", count);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private int partitionOf(long userID) {
+    return (int) ((userID * 0x9E3779B97F4A7C15L) >>> 33) % numThreads;
+  }
+
+  private static <T> T getResult(Future<T> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while reading data file");
+    } catch (ExecutionException ee) {
+      Throwable cause = ee.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  static long parseLong(byte[] bytes, int start, int end) {
+    int i = start;
+    boolean negative = i < end && bytes[i] == '-';
+    if (negative) {
+      i++;
+    }
+    int digits = end - i;
+    if (digits > 0 && digits <= MAX_FAST_DIGITS) {
+      long result = 0L;
+      for (; i < end; i++) {
+        int digit = bytes[i] - '0';
+        if (digit < 0 || digit > 9) {
+          break;
+        }
+        result = result * 10L + digit;
+      }
+      if (i == end) {
+        return negative ? -result : result;
+      }
+    }
+    // Overflow, signs and malformed input are left to Long.parseLong, which also produces the error message
+    return Long.parseLong(new String(bytes, start, end - start, Charsets.UTF_8));
+  }
+
+  /**
+   * Parses plain decimals like {@code -12.375} without allocating, and defers everything else to
+   * {@link Float#parseFloat(String)}. The quotient {@code mantissa / 10^fractionDigits} is computed exactly
+   * rounded in {@code double}; rounding that to {@code float} gives the same result as rounding the exact
+   * decimal value unless the {@code double} lands exactly halfway between two {@code float}s, which is also
+   * handed to {@link Float#parseFloat(String)}.
+   */
+  static float parseFloat(byte[] bytes, int start, int end) {
+    int i = start;
+    boolean negative = i < end && bytes[i] == '-';
+    if (negative) {
+      i++;
+    }
+    long mantissa = 0L;
+    int digits = 0;
+    int fractionDigits = -1;
+    for (; i < end; i++) {
+      byte b = bytes[i];
+      if (b == '.' && fractionDigits < 0) {
+        fractionDigits = 0;
+      } else if (b >= '0' && b <= '9' && digits < MAX_FAST_DIGITS) {
+        mantissa = mantissa * 10L + (b - '0');
+        digits++;
+        if (fractionDigits >= 0) {
+          fractionDigits++;
+        }
+      } else {
+        break;
+      }
+    }
+    if (i == end && digits > 0 && mantissa < MAX_EXACT_MANTISSA) {
+      if (mantissa == 0L) {
+        return negative ? -0.0f : 0.0f;
+      }
+      double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+      if (value >= Float.MIN_NORMAL
+          && (Double.doubleToRawLongBits(value) & 0x1FFFFFFFL) != 0x10000000L) {
+        float result = (float) value;
+        return negative ? -result : result;
+      }
+    }
+    return Float.parseFloat(new String(bytes, start, end - start, Charsets.UTF_8));
+  }
+
+  private static int indexOf(byte[] bytes, byte b, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (bytes[i] == b) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** Parsed lines of one chunk and one partition, in file order. */
+  private static final class RecordBuffer {
+
+    private long[] userIDs = new long[16];
+    private long[] itemIDs = new long[16];
+    private float[] values = new float[16];
+    private long[] times = new long[16];
+    private byte[] kinds = new byte[16];
+    private int size;
+
+    void add(byte kind, long userID, long itemID, float value, long time) {
+      if (size == kinds.length) {
+        int newCapacity = size << 1;
+        userIDs = copyOf(userIDs, newCapacity);
+        itemIDs = copyOf(itemIDs, newCapacity);
+        times = copyOf(times, newCapacity);
+        float[] newValues = new float[newCapacity];
+        System.arraycopy(values, 0, newValues, 0, size);
+        values = newValues;
+        byte[] newKinds = new byte[newCapacity];
+        System.arraycopy(kinds, 0, newKinds, 0, size);
+        kinds = newKinds;
+      }
+      kinds[size] = kind;
+      userIDs[size] = userID;
+      itemIDs[size] = itemID;
+      values[size] = value;
+      times[size] = time;
+      size++;
+    }
+
+    private long[] copyOf(long[] array, int newCapacity) {
+      long[] copy = new long[newCapacity];
+      System.arraycopy(array, 0, copy, 0, size);
+      return copy;
+    }
+  }
+
+  /** Parses the lines that start within {@code [start,end)}. */
+  private final class ChunkParser implements Callable<RecordBuffer[]> {
+
+    private final long start;
+    private final long end;
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private long bufferOffset;
+    private boolean endOfFile;
+    private int lineStart;
+    private int lineEnd;
+
+    ChunkParser(long start, long end) {
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public RecordBuffer[] call() throws IOException {
+      RecordBuffer[] partitions = new RecordBuffer[numThreads];
+      for (int i = 0; i < partitions.length; i++) {
+        partitions[i] = new RecordBuffer();
+      }
+      if (start >= end) {
+        return partitions;
+      }
+      RandomAccessFile input = new RandomAccessFile(file, "r");
+      try {
+        buffer = new byte[BUFFER_SIZE];
+        if (start > 0L) {
+          // The line under the boundary belongs to the previous chunk; skip up to and including its newline
+          bufferOffset = start - 1;
+          input.seek(bufferOffset);
+          nextLine(input);
+        } else {
+          bufferOffset = 0L;
+        }
+        while (bufferOffset + position < end && nextLine(input)) {
+          int lineLimit = lineEnd;
+          if (lineLimit > lineStart && buffer[lineLimit - 1] == '\r') {
+            lineLimit--;
+          }
+          if (lineLimit > lineStart && buffer[lineStart] != COMMENT_CHAR) {
+            parseLine(lineStart, lineLimit, partitions);
+          }
+        }
+      } finally {
+        Closeables.close(input, true);
+      }
+      return partitions;
+    }
+
+    /** Advances past the next line, leaving its bounds, without the newline, in lineStart and lineEnd. */
+    private boolean nextLine(RandomAccessFile input) throws IOException {
+      int scanFrom = position;
+      while (true) {
+        int newline = indexOf(buffer, (byte) '\n', scanFrom, limit);
+        if (newline >= 0) {
+          lineStart = position;
+          lineEnd = newline;
+          position = newline + 1;
+          return true;
+        }
+        if (endOfFile) {
+          if (position == limit) {
+            return false;
+          }
+          lineStart = position;
+          lineEnd = limit;
+          position = limit;
+          return true;
+        }
+        int remaining = limit - position;
+        if (remaining == buffer.length) {
+          byte[] newBuffer = new byte[buffer.length << 1];
+          System.arraycopy(buffer, position, newBuffer, 0, remaining);
+          buffer = newBuffer;
+        } else {
+          System.arraycopy(buffer, position, buffer, 0, remaining);
+        }
+        bufferOffset += position;
+        position = 0;
+        limit = remaining;
+        scanFrom = remaining;
+        int read = input.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+          endOfFile = true;
+        } else {
+          limit += read;
+        }
+      }
+    }
+
+    private void parseLine(int from, int to, RecordBuffer[] partitions) {
+      int userIDEnd = indexOf(buffer, delimiter, from, to);
+      if (userIDEnd < 0) {
+        throw badLine(from, to);
+      }
+      int itemIDStart = userIDEnd + 1;
+      int itemIDEnd = indexOf(buffer, delimiter, itemIDStart, to);
+      int numFields;
+      int valueStart = to;
+      int valueEnd = to;
+      int timestampStart = to;
+      int timestampEnd = to;
+      if (itemIDEnd < 0) {
+        itemIDEnd = to;
+        numFields = 2;
+      } else {
+        valueStart = itemIDEnd + 1;
+        valueEnd = indexOf(buffer, delimiter, valueStart, to);
+        if (valueEnd < 0) {
+          valueEnd = to;
+          numFields = 3;
+        } else {
+          timestampStart = valueEnd + 1;
+          timestampEnd = indexOf(buffer, delimiter, timestampStart, to);
+          if (timestampEnd < 0) {
+            timestampEnd = to;
+          }
+          numFields = 4;
+        }
+      }
+      if (hasPrefValues && numFields < 3) {
+        throw badLine(from, to);
+      }
+
+      long userID = parseLong(buffer, from, userIDEnd);
+      long itemID = parseLong(buffer, itemIDStart, itemIDEnd);
+      if (transpose) {
+        long tmp = userID;
+        userID = itemID;
+        itemID = tmp;
+      }
+      RecordBuffer records = partitions[partitionOf(userID)];
+
+      if (numFields == 3 && valueStart == valueEnd) {
+        // Then line is of form "userID,itemID,", meaning remove
+        records.add(REMOVE, userID, itemID, 0.0f, 0L);
+      } else {
+        float value = hasPrefValues ? parseFloat(buffer, valueStart, valueEnd) : 0.0f;
+        if (numFields == 4) {
+          records.add(ADD_WITH_TIMESTAMP, userID, itemID, value, parseLong(buffer, timestampStart, timestampEnd));
+        } else {
+          records.add(ADD, userID, itemID, value, 0L);
+        }
+      }
+    }
+
+    private IllegalArgumentException badLine(int from, int to) {
+      return new IllegalArgumentException(
+          "Bad line in " + file + ": " + new String(buffer, from, to - from, Charsets.UTF_8));
+    }
+  }
+
+  /** Replays one partition of every chunk, in chunk order. */
+  private final class ShardBuilder implements Callable<Shard> {
+
+    private final RecordBuffer[][] parsed;
+    private final int partition;
+
+    ShardBuilder(RecordBuffer[][] parsed, int partition) {
+      this.parsed = parsed;
+      this.partition = partition;
+    }
+
+    @Override
+    public Shard call() {
+      Shard shard = new Shard();
+      for (int chunk = 0; chunk < parsed.length; chunk++) {
+        RecordBuffer records = parsed[chunk][partition];
+        parsed[chunk][partition] = null;
+        for (int i = 0; i < records.size; i++) {
+          if (hasPrefValues) {
+            shard.applyPreference(records.kinds[i], records.userIDs[i], records.itemIDs[i], records.values[i]);
+          } else {
+            shard.applyItem(records.kinds[i], records.userIDs[i], records.itemIDs[i]);
+          }
+          if (records.kinds[i] == REMOVE) {
+            shard.removeTimestamp(records.userIDs[i], records.itemIDs[i]);
+          } else if (records.kinds[i] == ADD_WITH_TIMESTAMP) {
+            shard.addTimestamp(records.userIDs[i], records.itemIDs[i], records.times[i]);
+          }
+        }
+      }
+      return shard;
+    }
+  }
+
+  private static final class Shard {
+
+    private final FastByIDMap<Collection<Preference>> preferences = new FastByIDMap<Collection<Preference>>();
+    private final FastByIDMap<FastIDSet> itemIDs = new FastByIDMap<FastIDSet>();
+    private final FastByIDMap<FastByIDMap<Long>> timestamps = new FastByIDMap<FastByIDMap<Long>>();
+
+    void applyPreference(byte kind, long userID, long itemID, float value) {
+      Collection<Preference> prefs = preferences.get(userID);
+      if (kind == REMOVE) {
+        if (prefs != null) {
+          Iterator<Preference> prefsIterator = prefs.iterator();
+          while (prefsIterator.hasNext()) {
+            if (prefsIterator.next().getItemID() == itemID) {
+              prefsIterator.remove();
+              break;
+            }
+          }
+        }
+        return;
+      }
+      if (prefs == null) {
+        prefs = Lists.newArrayListWithCapacity(2);
+        preferences.put(userID, prefs);
+      } else {
+        for (Preference pref : prefs) {
+          if (pref.getItemID() == itemID) {
+            pref.setValue(value);
+            return;
+          }
+        }
+      }
+      prefs.add(new GenericPreference(userID, itemID, value));
+    }
+
+    void applyItem(byte kind, long userID, long itemID) {
+      FastIDSet userItemIDs = itemIDs.get(userID);
+      if (kind == REMOVE) {
+        if (userItemIDs != null) {
+          userItemIDs.remove(itemID);
+        }
+        return;
+      }
+      if (userItemIDs == null) {
+        userItemIDs = new FastIDSet(2);
+        itemIDs.put(userID, userItemIDs);
+      }
+      userItemIDs.add(itemID);
+    }
+
+    void addTimestamp(long userID, long itemID, long timestamp) {
+      FastByIDMap<Long> itemTimestamps = timestamps.get(userID);
+      if (itemTimestamps == null) {
+        itemTimestamps = new FastByIDMap<Long>();
+        timestamps.put(userID, itemTimestamps);
+      }
+      itemTimestamps.put(itemID, timestamp);
+    }
+
+    void removeTimestamp(long userID, long itemID) {
+      FastByIDMap<Long> itemTimestamps = timestamps.get(userID);
+      if (itemTimestamps != null) {
+        itemTimestamps.remove(itemID);
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    void mergeInto(FastByIDMap<?> data, FastByIDMap<FastByIDMap<Long>> allTimestamps) {
+      FastByIDMap<Object> target = (FastByIDMap<Object>) data;
+      FastByIDMap<?> source = preferences.isEmpty() ? itemIDs : preferences;
+      for (Map.Entry<Long,?> entry : source.entrySet()) {
+        target.put(entry.getKey(), entry.getValue());
+      }
+      for (Map.Entry<Long,FastByIDMap<Long>> entry : timestamps.entrySet()) {
+        allTimestamps.put(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+}
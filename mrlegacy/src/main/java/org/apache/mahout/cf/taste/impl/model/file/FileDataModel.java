@@ -21,10 +21,12 @@ import java.io.File;
 import java.io.FileFilter;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.lang.reflect.Method;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -48,6 +50,7 @@ import org.slf4j.LoggerFactory;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Splitter;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.google.common.io.Closeables;
 
 /**
@@ -108,6 +111,13 @@ import com.google.common.io.Closeables;
  * </p>
  *
  * <p>
+ * When the data file is not compressed and a single-character delimiter is used, the data file is read on
+ * several threads: it is cut into byte ranges at line boundaries which are tokenized in parallel. Update files
+ * are still read in order on one thread. Subclasses that override any of the line processing or ID parsing
+ * hooks are always read on one thread, through those hooks.
+ * </p>
+ *
+ * <p>
  * This class is not intended for use with very large amounts of data (over, say, tens of millions of rows).
  * For that, a JDBC-backed {@link DataModel} and a database are more appropriate.
  * </p>
@@ -124,6 +134,9 @@ public class FileDataModel extends AbstractDataModel {
   public static final long DEFAULT_MIN_RELOAD_INTERVAL_MS = 60 * 1000L; // 1 minute?
   private static final char COMMENT_CHAR = '#';
   private static final char[] DELIMIETERS = {',', '\t'};
+  private static final Set<String> PARSING_HOOKS = Sets.newHashSet(
+      "processFile", "processLine", "processFileWithoutID", "processLineWithoutID",
+      "readUserIDFromString", "readItemIDFromString", "readTimestampFromString");
 
   private final File dataFile;
   private long lastModified;
@@ -135,6 +148,8 @@ public class FileDataModel extends AbstractDataModel {
   private final ReentrantLock reloadLock;
   private final boolean transpose;
   private final long minReloadIntervalMS;
+  private final int loaderThreads;
+  private final int minChunkBytes;
 
   /**
    * @param dataFile
@@ -176,6 +191,22 @@ public class FileDataModel extends AbstractDataModel {
    */
   public FileDataModel(File dataFile, boolean transpose, long minReloadIntervalMS, String delimiterRegex)
     throws IOException {
+    this(dataFile, transpose, minReloadIntervalMS, delimiterRegex, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param loaderThreads number of threads used to read the data file; 1 reads it on the calling thread,
+   *  as do compressed files and a custom delimiter regex. Files smaller than a few megabytes are not split.
+   * @see #FileDataModel(File, boolean, long, String)
+   */
+  public FileDataModel(File dataFile, boolean transpose, long minReloadIntervalMS, String delimiterRegex,
+      int loaderThreads) throws IOException {
+    this(dataFile, transpose, minReloadIntervalMS, delimiterRegex, loaderThreads,
+        ChunkedFileLoader.DEFAULT_MIN_CHUNK_BYTES);
+  }
+
+  FileDataModel(File dataFile, boolean transpose, long minReloadIntervalMS, String delimiterRegex,
+      int loaderThreads, int minChunkBytes) throws IOException {
 
     this.dataFile = Preconditions.checkNotNull(dataFile.getAbsoluteFile());
     if (!dataFile.exists() || dataFile.isDirectory()) {
@@ -183,6 +214,8 @@ public class FileDataModel extends AbstractDataModel {
     }
     Preconditions.checkArgument(dataFile.length() > 0L, "dataFile is empty");
     Preconditions.checkArgument(minReloadIntervalMS >= 0L, "minReloadIntervalMs must be non-negative");
+    Preconditions.checkArgument(loaderThreads > 0, "loaderThreads must be at least 1");
+    Preconditions.checkArgument(minChunkBytes > 0, "minChunkBytes must be at least 1");
 
     log.info("Creating FileDataModel for file {}", dataFile);
 
@@ -217,6 +250,8 @@ public class FileDataModel extends AbstractDataModel {
     this.reloadLock = new ReentrantLock();
     this.transpose = transpose;
     this.minReloadIntervalMS = minReloadIntervalMS;
+    this.loaderThreads = loaderThreads;
+    this.minChunkBytes = minChunkBytes;
 
     reload();
   }
@@ -255,8 +290,12 @@ public class FileDataModel extends AbstractDataModel {
       if (loadFreshData) {
 
         FastByIDMap<Collection<Preference>> data = new FastByIDMap<Collection<Preference>>();
-        FileLineIterator iterator = new FileLineIterator(dataFile, false);
-        processFile(iterator, data, timestamps, false);
+        if (canLoadInParallel()) {
+          newChunkedLoader().load(data, timestamps);
+        } else {
+          FileLineIterator iterator = new FileLineIterator(dataFile, false);
+          processFile(iterator, data, timestamps, false);
+        }
 
         for (File updateFile : findUpdateFilesAfter(newLastModified)) {
           processFile(new FileLineIterator(updateFile, false), data, timestamps, false);
@@ -281,8 +320,12 @@ public class FileDataModel extends AbstractDataModel {
       if (loadFreshData) {
 
         FastByIDMap<FastIDSet> data = new FastByIDMap<FastIDSet>();
-        FileLineIterator iterator = new FileLineIterator(dataFile, false);
-        processFileWithoutID(iterator, data, timestamps);
+        if (canLoadInParallel()) {
+          newChunkedLoader().load(data, timestamps);
+        } else {
+          FileLineIterator iterator = new FileLineIterator(dataFile, false);
+          processFileWithoutID(iterator, data, timestamps);
+        }
 
         for (File updateFile : findUpdateFilesAfter(newLastModified)) {
           processFileWithoutID(new FileLineIterator(updateFile, false), data, timestamps);
@@ -305,6 +348,29 @@ public class FileDataModel extends AbstractDataModel {
     }
   }
 
+  private boolean canLoadInParallel() {
+    return loaderThreads > 1 && delimiter != '\0' && ChunkedFileLoader.canLoad(dataFile) && !overridesParsing();
+  }
+
+  private ChunkedFileLoader newChunkedLoader() {
+    return new ChunkedFileLoader(dataFile, delimiter, hasPrefValues, transpose, loaderThreads, minChunkBytes);
+  }
+
+  /**
+   * @return true if a subclass overrides one of the hooks through which lines are parsed, in which case
+   *  the data file has to be read line by line through them
+   */
+  private boolean overridesParsing() {
+    for (Class<?> clazz = getClass(); clazz != FileDataModel.class; clazz = clazz.getSuperclass()) {
+      for (Method method : clazz.getDeclaredMethods()) {
+        if (PARSING_HOOKS.contains(method.getName())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
   /**
    * Finds update delta files in the same directory as the data file. This finds any file whose name starts
    * the same way as the data file (up to first period) but isn't the data file itself. For example, if the
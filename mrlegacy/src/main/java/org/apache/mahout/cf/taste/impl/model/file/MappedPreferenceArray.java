@@ -0,0 +1,280 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.impl.model.file;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.mahout.cf.taste.impl.model.GenericItemPreferenceArray;
+import org.apache.mahout.cf.taste.impl.model.GenericPreference;
+import org.apache.mahout.cf.taste.impl.model.GenericUserPreferenceArray;
+import org.apache.mahout.cf.taste.model.Preference;
+import org.apache.mahout.cf.taste.model.PreferenceArray;
+
+/**
+ * <p>
+ * A read-only {@link PreferenceArray} over one row of a {@link MemoryMappedDataModel}: the preferences of one
+ * user, sorted by item ID, or for one item, sorted by user ID. Nothing is copied when the view is created; values
+ * are read from the mapped file on access. Only {@link #getIDs()} builds an array, once per view, because its
+ * contract requires one.
+ * </p>
+ *
+ * <p>
+ * {@link #clone()} returns an ordinary, modifiable {@link GenericUserPreferenceArray} or
+ * {@link GenericItemPreferenceArray}. Callers such as the evaluators re-sort the arrays they get from a
+ * {@link org.apache.mahout.cf.taste.model.DataModel} by value; the first such sort copies the row into a private
+ * array of that kind, which this view reads from afterwards. The values themselves stay read-only.
+ * </p>
+ */
+final class MappedPreferenceArray implements PreferenceArray {
+
+  private final transient MemoryMappedDataModel model;
+  private final boolean byUser;
+  private final long id;
+  private final long start;
+  private final int length;
+  private volatile long[] ids;
+  private PreferenceArray sorted;
+
+  MappedPreferenceArray(MemoryMappedDataModel model, boolean byUser, long id, long start, int length) {
+    this.model = model;
+    this.byUser = byUser;
+    this.id = id;
+    this.start = start;
+    this.length = length;
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public Preference get(int i) {
+    if (sorted != null) {
+      return sorted.get(i);
+    }
+    return new GenericPreference(getUserID(i), getItemID(i), getValue(i));
+  }
+
+  @Override
+  public void set(int i, Preference pref) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public long getUserID(int i) {
+    if (sorted != null) {
+      return sorted.getUserID(i);
+    }
+    return byUser ? id : model.itemUserID(index(i));
+  }
+
+  @Override
+  public void setUserID(int i, long userID) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public long getItemID(int i) {
+    if (sorted != null) {
+      return sorted.getItemID(i);
+    }
+    return byUser ? model.userItemID(index(i)) : id;
+  }
+
+  @Override
+  public void setItemID(int i, long itemID) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * @return item IDs for a user's preferences, or user IDs for an item's; the array must not be modified
+   */
+  @Override
+  public long[] getIDs() {
+    if (sorted != null) {
+      return sorted.getIDs();
+    }
+    long[] result = ids;
+    if (result == null) {
+      result = new long[length];
+      for (int i = 0; i < length; i++) {
+        result[i] = otherID(i);
+      }
+      ids = result;
+    }
+    return result;
+  }
+
+  @Override
+  public float getValue(int i) {
+    if (sorted != null) {
+      return sorted.getValue(i);
+    }
+    return byUser ? model.userValue(index(i)) : model.itemValue(index(i));
+  }
+
+  @Override
+  public void setValue(int i, float value) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public PreferenceArray clone() {
+    if (sorted != null) {
+      return sorted.clone();
+    }
+    PreferenceArray copy = byUser ? new GenericUserPreferenceArray(length) : new GenericItemPreferenceArray(length);
+    for (int i = 0; i < length; i++) {
+      copy.setUserID(i, getUserID(i));
+      copy.setItemID(i, getItemID(i));
+      copy.setValue(i, getValue(i));
+    }
+    return copy;
+  }
+
+  @Override
+  public void sortByUser() {
+    if (sorted != null) {
+      sorted.sortByUser();
+    }
+    // otherwise already sorted
+  }
+
+  @Override
+  public void sortByItem() {
+    if (sorted != null) {
+      sorted.sortByItem();
+    }
+    // otherwise already sorted
+  }
+
+  @Override
+  public void sortByValue() {
+    sortedCopy().sortByValue();
+  }
+
+  @Override
+  public void sortByValueReversed() {
+    sortedCopy().sortByValueReversed();
+  }
+
+  @Override
+  public boolean hasPrefWithUserID(long userID) {
+    if (sorted != null) {
+      return sorted.hasPrefWithUserID(userID);
+    }
+    return byUser ? id == userID : indexOf(userID) >= 0;
+  }
+
+  @Override
+  public boolean hasPrefWithItemID(long itemID) {
+    if (sorted != null) {
+      return sorted.hasPrefWithItemID(itemID);
+    }
+    return byUser ? indexOf(itemID) >= 0 : id == itemID;
+  }
+
+  /**
+   * @return the private copy that holds this row once it is no longer in the file's order
+   */
+  private PreferenceArray sortedCopy() {
+    if (sorted == null) {
+      sorted = clone();
+      ids = null;
+    }
+    return sorted;
+  }
+
+  private long index(int i) {
+    if (i < 0 || i >= length) {
+      throw new ArrayIndexOutOfBoundsException(i);
+    }
+    return start + i;
+  }
+
+  private long otherID(int i) {
+    return byUser ? model.userItemID(start + i) : model.itemUserID(start + i);
+  }
+
+  private long indexOf(long otherID) {
+    // the other IDs are sorted within the row
+    int low = 0;
+    int high = length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long midID = otherID(mid);
+      if (midID < otherID) {
+        low = mid + 1;
+      } else if (midID > otherID) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public Iterator<Preference> iterator() {
+    return new Iterator<Preference>() {
+      private int i;
+
+      @Override
+      public boolean hasNext() {
+        return i < length;
+      }
+
+      @Override
+      public Preference next() {
+        if (i >= length) {
+          throw new NoSuchElementException();
+        }
+        return get(i++);
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  /**
+   * Serializes as a modifiable copy, since the mapping can't be serialized.
+   */
+  private Object writeReplace() {
+    return clone();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder(20 * Math.min(length, 10) + 40);
+    result.append("MappedPreferenceArray[").append(byUser ? "userID:" : "itemID:").append(id).append(",{");
+    for (int i = 0; i < length; i++) {
+      if (i > 0) {
+        result.append(',');
+      }
+      result.append(byUser ? getItemID(i) : getUserID(i)).append('=').append(getValue(i));
+    }
+    result.append("}]");
+    return result.toString();
+  }
+
+}
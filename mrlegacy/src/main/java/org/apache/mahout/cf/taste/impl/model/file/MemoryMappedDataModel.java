@@ -0,0 +1,448 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.impl.model.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+import org.apache.mahout.cf.taste.common.NoSuchItemException;
+import org.apache.mahout.cf.taste.common.NoSuchUserException;
+import org.apache.mahout.cf.taste.common.Refreshable;
+import org.apache.mahout.cf.taste.common.TasteException;
+import org.apache.mahout.cf.taste.impl.common.AbstractLongPrimitiveIterator;
+import org.apache.mahout.cf.taste.impl.common.FastIDSet;
+import org.apache.mahout.cf.taste.impl.common.LongPrimitiveIterator;
+import org.apache.mahout.cf.taste.impl.model.AbstractDataModel;
+import org.apache.mahout.cf.taste.model.PreferenceArray;
+
+/**
+ * <p>
+ * An immutable {@link org.apache.mahout.cf.taste.model.DataModel} backed by a binary file written by
+ * {@link MemoryMappedDataModelWriter}. The file is memory-mapped rather than parsed, so opening even a very large
+ * model takes milliseconds and its data lives in the page cache instead of the Java heap, shared by every process
+ * that opens the same file.
+ * </p>
+ *
+ * <p>
+ * The file is columnar. After a 64-byte header it holds a user-oriented and an item-oriented section, each in
+ * compressed sparse row form: the sorted IDs, an offset per ID into the preference columns, then the other IDs
+ * sorted within each row, the preference values and, in the user section, optional timestamps. All numbers are
+ * little-endian. {@link #getPreferencesFromUser(long)} and {@link #getPreferencesForItem(long)} return views over
+ * the mapped columns rather than copies; they are read-only and throw {@link UnsupportedOperationException} on any
+ * attempt to change them. IDs are found by binary search.
+ * </p>
+ *
+ * <p>
+ * Like {@link org.apache.mahout.cf.taste.impl.model.GenericDataModel}, this model does not support
+ * {@link #setPreference(long, long, float)} or {@link #removePreference(long, long)}. It is safe for concurrent
+ * use.
+ * </p>
+ */
+public final class MemoryMappedDataModel extends AbstractDataModel {
+
+  static final int MAGIC = 0x4D54444D; // "MDTM"
+  static final int VERSION = 1;
+  static final int HEADER_BYTES = 64;
+  static final int FLAG_TIMESTAMPS = 0x01;
+  static final int FLAG_NO_VALUES = 0x02;
+  /** Marks a preference without a timestamp. */
+  static final long NO_TIMESTAMP = Long.MIN_VALUE;
+  static final int DEFAULT_CHUNK_BITS = 30;
+
+  private final File dataFile;
+  private final int chunkBits;
+  private final long chunkMask;
+  private transient ByteBuffer[] chunks;
+  private transient Layout layout;
+
+  /**
+   * @param dataFile file written by {@link MemoryMappedDataModelWriter}
+   * @throws IOException if the file can't be read or is not in the expected format
+   */
+  public MemoryMappedDataModel(File dataFile) throws IOException {
+    this(dataFile, DEFAULT_CHUNK_BITS);
+  }
+
+  MemoryMappedDataModel(File dataFile, int chunkBits) throws IOException {
+    Preconditions.checkArgument(dataFile != null, "dataFile is null");
+    Preconditions.checkArgument(chunkBits >= 6 && chunkBits <= 30, "Chunks must be from 64 bytes to 1GB");
+    this.dataFile = dataFile;
+    this.chunkBits = chunkBits;
+    this.chunkMask = (1L << chunkBits) - 1;
+    open();
+  }
+
+  private void open() throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(dataFile, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      while (header.hasRemaining()) {
+        if (channel.read(header, header.position()) < 0) {
+          throw new IOException(dataFile + " is too short to be a data model");
+        }
+      }
+      header.flip();
+      if (header.getInt() != MAGIC) {
+        throw new IOException(dataFile + " is not a memory-mapped data model");
+      }
+      int version = header.getInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported data model version " + version + " in " + dataFile);
+      }
+      int flags = header.getInt();
+      int numUsers = header.getInt();
+      int numItems = header.getInt();
+      float minPreference = header.getFloat();
+      float maxPreference = header.getFloat();
+      header.getInt();
+      long numPreferences = header.getLong();
+      Layout fileLayout = new Layout(numUsers, numItems, numPreferences, flags);
+      long length = channel.size();
+      if (length < fileLayout.length) {
+        throw new IOException(dataFile + " is truncated: expected " + fileLayout.length + " bytes but found " + length);
+      }
+
+      int numChunks = (int) ((fileLayout.length + chunkMask) >>> chunkBits);
+      ByteBuffer[] mapped = new ByteBuffer[Math.max(1, numChunks)];
+      for (int i = 0; i < numChunks; i++) {
+        long start = (long) i << chunkBits;
+        mapped[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(1L << chunkBits, fileLayout.length - start))
+            .order(ByteOrder.LITTLE_ENDIAN);
+      }
+      chunks = mapped;
+      layout = fileLayout;
+      setMinPreference(minPreference);
+      setMaxPreference(maxPreference);
+    } finally {
+      Closeables.close(raf, true);
+    }
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    open();
+  }
+
+  // Sections start 8-byte aligned and chunks are a multiple of 8 bytes long, so no value straddles two chunks.
+
+  private long getLong(long offset) {
+    return chunks[(int) (offset >>> chunkBits)].getLong((int) (offset & chunkMask));
+  }
+
+  private float getFloat(long offset) {
+    return chunks[(int) (offset >>> chunkBits)].getFloat((int) (offset & chunkMask));
+  }
+
+  long userItemID(long index) {
+    return getLong(layout.userItemIDs + (index << 3));
+  }
+
+  long itemUserID(long index) {
+    return getLong(layout.itemUserIDs + (index << 3));
+  }
+
+  float userValue(long index) {
+    return layout.hasValues ? getFloat(layout.userValues + (index << 2)) : 1.0f;
+  }
+
+  float itemValue(long index) {
+    return layout.hasValues ? getFloat(layout.itemValues + (index << 2)) : 1.0f;
+  }
+
+  /**
+   * @return index of {@code id} among the sorted longs with indices {@code from} (inclusive) to {@code to}
+   *  (exclusive) of the column at {@code offset}, or {@code -(insertion point) - 1} if absent
+   */
+  long search(long offset, long from, long to, long id) {
+    long low = from;
+    long high = to - 1;
+    while (low <= high) {
+      long mid = (low + high) >>> 1;
+      long midID = getLong(offset + (mid << 3));
+      if (midID < id) {
+        low = mid + 1;
+      } else if (midID > id) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+
+  private int userIndex(long userID) throws NoSuchUserException {
+    long index = search(layout.userIDs, 0, layout.numUsers, userID);
+    if (index < 0) {
+      throw new NoSuchUserException(userID);
+    }
+    return (int) index;
+  }
+
+  private int itemIndex(long itemID) {
+    return (int) search(layout.itemIDs, 0, layout.numItems, itemID);
+  }
+
+  private long userStart(int userIndex) {
+    return getLong(layout.userOffsets + ((long) userIndex << 3));
+  }
+
+  private long itemStart(int itemIndex) {
+    return getLong(layout.itemOffsets + ((long) itemIndex << 3));
+  }
+
+  @Override
+  public LongPrimitiveIterator getUserIDs() {
+    return new MappedIDIterator(layout.userIDs, layout.numUsers);
+  }
+
+  /**
+   * @return a read-only view of the user's preferences, sorted by item ID
+   * @throws NoSuchUserException if there is no such user
+   */
+  @Override
+  public PreferenceArray getPreferencesFromUser(long userID) throws NoSuchUserException {
+    int index = userIndex(userID);
+    long start = userStart(index);
+    return new MappedPreferenceArray(this, true, userID, start, (int) (userStart(index + 1) - start));
+  }
+
+  @Override
+  public FastIDSet getItemIDsFromUser(long userID) throws TasteException {
+    int index = userIndex(userID);
+    long start = userStart(index);
+    long end = userStart(index + 1);
+    FastIDSet result = new FastIDSet((int) (end - start));
+    for (long i = start; i < end; i++) {
+      result.add(userItemID(i));
+    }
+    return result;
+  }
+
+  @Override
+  public LongPrimitiveIterator getItemIDs() {
+    return new MappedIDIterator(layout.itemIDs, layout.numItems);
+  }
+
+  /**
+   * @return a read-only view of the preferences for the item, sorted by user ID
+   * @throws NoSuchItemException if there is no such item
+   */
+  @Override
+  public PreferenceArray getPreferencesForItem(long itemID) throws NoSuchItemException {
+    int index = itemIndex(itemID);
+    if (index < 0) {
+      throw new NoSuchItemException(itemID);
+    }
+    long start = itemStart(index);
+    return new MappedPreferenceArray(this, false, itemID, start, (int) (itemStart(index + 1) - start));
+  }
+
+  @Override
+  public Float getPreferenceValue(long userID, long itemID) throws TasteException {
+    long position = findPreference(userID, itemID);
+    return position < 0 ? null : userValue(position);
+  }
+
+  @Override
+  public Long getPreferenceTime(long userID, long itemID) throws TasteException {
+    if (!layout.hasTimestamps) {
+      return null;
+    }
+    long position = findPreference(userID, itemID);
+    if (position < 0) {
+      return null;
+    }
+    long timestamp = getLong(layout.userTimestamps + (position << 3));
+    return timestamp == NO_TIMESTAMP ? null : timestamp;
+  }
+
+  /**
+   * @return index of the preference in the user-oriented columns, or a negative value if there is none
+   */
+  private long findPreference(long userID, long itemID) throws NoSuchUserException {
+    int index = userIndex(userID);
+    return search(layout.userItemIDs, userStart(index), userStart(index + 1), itemID);
+  }
+
+  @Override
+  public int getNumItems() {
+    return layout.numItems;
+  }
+
+  @Override
+  public int getNumUsers() {
+    return layout.numUsers;
+  }
+
+  @Override
+  public int getNumUsersWithPreferenceFor(long itemID) {
+    int index = itemIndex(itemID);
+    return index < 0 ? 0 : (int) (itemStart(index + 1) - itemStart(index));
+  }
+
+  @Override
+  public int getNumUsersWithPreferenceFor(long itemID1, long itemID2) {
+    int index1 = itemIndex(itemID1);
+    int index2 = itemIndex(itemID2);
+    if (index1 < 0 || index2 < 0) {
+      return 0;
+    }
+    long i = itemStart(index1);
+    long end1 = itemStart(index1 + 1);
+    long j = itemStart(index2);
+    long end2 = itemStart(index2 + 1);
+    int count = 0;
+    while (i < end1 && j < end2) {
+      long userID1 = itemUserID(i);
+      long userID2 = itemUserID(j);
+      if (userID1 < userID2) {
+        i++;
+      } else if (userID1 > userID2) {
+        j++;
+      } else {
+        count++;
+        i++;
+        j++;
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public void setPreference(long userID, long itemID, float value) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removePreference(long userID, long itemID) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean hasPreferenceValues() {
+    return layout.hasValues;
+  }
+
+  @Override
+  public void refresh(Collection<Refreshable> alreadyRefreshed) {
+    // Does nothing
+  }
+
+  @Override
+  public String toString() {
+    return "MemoryMappedDataModel[file:" + dataFile + ']';
+  }
+
+  /**
+   * Where each column starts, derived from the counts and flags in the header.
+   */
+  static final class Layout {
+
+    final int numUsers;
+    final int numItems;
+    final long numPreferences;
+    final boolean hasTimestamps;
+    final boolean hasValues;
+    final long userIDs;
+    final long userOffsets;
+    final long userItemIDs;
+    final long userValues;
+    final long userTimestamps;
+    final long itemIDs;
+    final long itemOffsets;
+    final long itemUserIDs;
+    final long itemValues;
+    final long length;
+
+    Layout(int numUsers, int numItems, long numPreferences, int flags) throws IOException {
+      if (numUsers < 0 || numItems < 0 || numPreferences < 0) {
+        throw new IOException("Corrupt data model header");
+      }
+      this.numUsers = numUsers;
+      this.numItems = numItems;
+      this.numPreferences = numPreferences;
+      hasTimestamps = (flags & FLAG_TIMESTAMPS) != 0;
+      hasValues = (flags & FLAG_NO_VALUES) == 0;
+      long valueBytes = hasValues ? (numPreferences * 4 + 7) & ~7L : 0;
+      userIDs = HEADER_BYTES;
+      userOffsets = userIDs + 8L * numUsers;
+      userItemIDs = userOffsets + 8L * (numUsers + 1L);
+      userValues = userItemIDs + 8 * numPreferences;
+      userTimestamps = userValues + valueBytes;
+      itemIDs = userTimestamps + (hasTimestamps ? 8 * numPreferences : 0);
+      itemOffsets = itemIDs + 8L * numItems;
+      itemUserIDs = itemOffsets + 8L * (numItems + 1L);
+      itemValues = itemUserIDs + 8 * numPreferences;
+      length = itemValues + valueBytes;
+    }
+  }
+
+  private final class MappedIDIterator extends AbstractLongPrimitiveIterator {
+
+    private final long offset;
+    private final int count;
+    private int position;
+
+    private MappedIDIterator(long offset, int count) {
+      this.offset = offset;
+      this.count = count;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return position < count;
+    }
+
+    @Override
+    public long nextLong() {
+      if (position >= count) {
+        throw new NoSuchElementException();
+      }
+      return getLong(offset + ((long) position++ << 3));
+    }
+
+    @Override
+    public long peek() {
+      if (position >= count) {
+        throw new NoSuchElementException();
+      }
+      return getLong(offset + ((long) position << 3));
+    }
+
+    @Override
+    public void skip(int n) {
+      position = (int) Math.min(count, (long) position + n);
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+}
@@ -0,0 +1,259 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.impl.model.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+import org.apache.mahout.cf.taste.common.TasteException;
+import org.apache.mahout.cf.taste.impl.common.LongPrimitiveIterator;
+import org.apache.mahout.cf.taste.model.DataModel;
+import org.apache.mahout.cf.taste.model.PreferenceArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Converts any {@link DataModel}, typically a {@link FileDataModel} or a
+ * {@link org.apache.mahout.cf.taste.impl.model.GenericDataModel}, into the binary format read by
+ * {@link MemoryMappedDataModel}. Conversion reads the input model twice per orientation but holds only one user's
+ * or item's preferences at a time besides the model itself.
+ * </p>
+ *
+ * <p>
+ * It can also be run from the command line, to convert a {@link FileDataModel} input file:
+ * </p>
+ *
+ * <p>
+ * {@code MemoryMappedDataModelWriter input.csv model.bin [--timestamps]}
+ * </p>
+ */
+public final class MemoryMappedDataModelWriter {
+
+  private static final Logger log = LoggerFactory.getLogger(MemoryMappedDataModelWriter.class);
+
+  private static final int BUFFER_BYTES = 1 << 16;
+
+  private MemoryMappedDataModelWriter() { }
+
+  public static void main(String[] args) throws IOException, TasteException {
+    if (args.length < 2 || args.length > 3 || (args.length == 3 && !"--timestamps".equals(args[2]))) {
+      log.error("Usage: MemoryMappedDataModelWriter <input file> <output file> [--timestamps]");
+      return;
+    }
+    write(new FileDataModel(new File(args[0])), new File(args[1]), args.length == 3);
+  }
+
+  /**
+   * Writes the model without timestamps.
+   *
+   * @see #write(DataModel, File, boolean)
+   */
+  public static void write(DataModel dataModel, File outputFile) throws IOException, TasteException {
+    write(dataModel, outputFile, false);
+  }
+
+  /**
+   * @param dataModel model to convert
+   * @param outputFile file to write; replaced if it exists
+   * @param includeTimestamps whether to store {@link DataModel#getPreferenceTime(long, long)} for each preference
+   */
+  public static void write(DataModel dataModel, File outputFile, boolean includeTimestamps)
+    throws IOException, TasteException {
+    Preconditions.checkArgument(dataModel != null, "dataModel is null");
+    Preconditions.checkArgument(outputFile != null, "outputFile is null");
+
+    long[] userIDs = sortedIDs(dataModel.getUserIDs(), dataModel.getNumUsers());
+    long[] itemIDs = sortedIDs(dataModel.getItemIDs(), dataModel.getNumItems());
+    long numPreferences = 0;
+    for (long userID : userIDs) {
+      numPreferences += dataModel.getPreferencesFromUser(userID).length();
+    }
+    boolean hasValues = dataModel.hasPreferenceValues();
+    int flags = (includeTimestamps ? MemoryMappedDataModel.FLAG_TIMESTAMPS : 0)
+        | (hasValues ? 0 : MemoryMappedDataModel.FLAG_NO_VALUES);
+    MemoryMappedDataModel.Layout layout =
+        new MemoryMappedDataModel.Layout(userIDs.length, itemIDs.length, numPreferences, flags);
+
+    RandomAccessFile raf = new RandomAccessFile(outputFile, "rw");
+    try {
+      raf.setLength(0);
+      raf.setLength(layout.length);
+      FileChannel channel = raf.getChannel();
+
+      ByteBuffer header = ByteBuffer.allocate(MemoryMappedDataModel.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      header.putInt(MemoryMappedDataModel.MAGIC).putInt(MemoryMappedDataModel.VERSION).putInt(flags)
+          .putInt(userIDs.length).putInt(itemIDs.length)
+          .putFloat(dataModel.getMinPreference()).putFloat(dataModel.getMaxPreference()).putInt(0)
+          .putLong(numPreferences);
+      header.clear();
+      writeFully(channel, header, 0);
+
+      ColumnWriter ids = new ColumnWriter(channel, layout.userIDs);
+      ColumnWriter offsets = new ColumnWriter(channel, layout.userOffsets);
+      ColumnWriter otherIDs = new ColumnWriter(channel, layout.userItemIDs);
+      ColumnWriter values = hasValues ? new ColumnWriter(channel, layout.userValues) : null;
+      ColumnWriter timestamps = includeTimestamps ? new ColumnWriter(channel, layout.userTimestamps) : null;
+      long written = 0;
+      for (long userID : userIDs) {
+        PreferenceArray prefs = dataModel.getPreferencesFromUser(userID);
+        if (!isSorted(prefs, true)) {
+          prefs = prefs.clone();
+          prefs.sortByItem();
+        }
+        ids.putLong(userID);
+        offsets.putLong(written);
+        int length = prefs.length();
+        for (int i = 0; i < length; i++) {
+          long itemID = prefs.getItemID(i);
+          otherIDs.putLong(itemID);
+          if (values != null) {
+            values.putFloat(prefs.getValue(i));
+          }
+          if (timestamps != null) {
+            Long time = dataModel.getPreferenceTime(userID, itemID);
+            timestamps.putLong(time == null ? MemoryMappedDataModel.NO_TIMESTAMP : time);
+          }
+        }
+        written += length;
+      }
+      offsets.putLong(written);
+      flushAll(ids, offsets, otherIDs, values, timestamps);
+      log.info("Wrote {} preferences of {} users", written, userIDs.length);
+
+      ids = new ColumnWriter(channel, layout.itemIDs);
+      offsets = new ColumnWriter(channel, layout.itemOffsets);
+      otherIDs = new ColumnWriter(channel, layout.itemUserIDs);
+      values = hasValues ? new ColumnWriter(channel, layout.itemValues) : null;
+      written = 0;
+      for (long itemID : itemIDs) {
+        PreferenceArray prefs = dataModel.getPreferencesForItem(itemID);
+        if (!isSorted(prefs, false)) {
+          prefs = prefs.clone();
+          prefs.sortByUser();
+        }
+        ids.putLong(itemID);
+        offsets.putLong(written);
+        int length = prefs.length();
+        for (int i = 0; i < length; i++) {
+          otherIDs.putLong(prefs.getUserID(i));
+          if (values != null) {
+            values.putFloat(prefs.getValue(i));
+          }
+        }
+        written += length;
+      }
+      offsets.putLong(written);
+      flushAll(ids, offsets, otherIDs, values);
+      if (written != numPreferences) {
+        throw new IllegalStateException(
+            "Model has " + numPreferences + " preferences by user but " + written + " by item");
+      }
+      log.info("Wrote {} preferences for {} items to {}", written, itemIDs.length, outputFile);
+      channel.force(false);
+    } finally {
+      Closeables.close(raf, false);
+    }
+  }
+
+  private static long[] sortedIDs(LongPrimitiveIterator it, int count) {
+    long[] ids = new long[count];
+    int i = 0;
+    while (it.hasNext()) {
+      if (i == ids.length) {
+        ids = Arrays.copyOf(ids, Math.max(16, 2 * ids.length));
+      }
+      ids[i++] = it.nextLong();
+    }
+    ids = i == ids.length ? ids : Arrays.copyOf(ids, i);
+    Arrays.sort(ids);
+    return ids;
+  }
+
+  private static boolean isSorted(PreferenceArray prefs, boolean byItem) {
+    int length = prefs.length();
+    for (int i = 1; i < length; i++) {
+      long previous = byItem ? prefs.getItemID(i - 1) : prefs.getUserID(i - 1);
+      long current = byItem ? prefs.getItemID(i) : prefs.getUserID(i);
+      if (previous > current) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void flushAll(ColumnWriter... writers) throws IOException {
+    for (ColumnWriter writer : writers) {
+      if (writer != null) {
+        writer.flush();
+      }
+    }
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    long at = position;
+    while (buffer.hasRemaining()) {
+      at += channel.write(buffer, at);
+    }
+  }
+
+  /**
+   * Buffers sequential writes to one column of the file.
+   */
+  private static final class ColumnWriter {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private long position;
+
+    private ColumnWriter(FileChannel channel, long position) {
+      this.channel = channel;
+      this.position = position;
+    }
+
+    void putLong(long value) throws IOException {
+      if (buffer.remaining() < 8) {
+        flush();
+      }
+      buffer.putLong(value);
+    }
+
+    void putFloat(float value) throws IOException {
+      if (buffer.remaining() < 4) {
+        flush();
+      }
+      buffer.putFloat(value);
+    }
+
+    void flush() throws IOException {
+      buffer.flip();
+      int bytes = buffer.remaining();
+      writeFully(channel, buffer, position);
+      position += bytes;
+      buffer.clear();
+    }
+  }
+
+}
@@ -20,12 +20,19 @@ package org.apache.mahout.cf.taste.impl.recommender;
 import org.apache.mahout.cf.taste.model.PreferenceArray;
 import org.apache.mahout.cf.taste.recommender.CandidateItemsStrategy;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.mahout.cf.taste.common.TasteException;
 import org.apache.mahout.cf.taste.impl.common.FastIDSet;
 import org.apache.mahout.cf.taste.model.DataModel;
 import org.apache.mahout.cf.taste.recommender.IDRescorer;
+import org.apache.mahout.cf.taste.recommender.RecommendationSink;
 import org.apache.mahout.cf.taste.recommender.RecommendedItem;
 import org.apache.mahout.cf.taste.recommender.Recommender;
 import org.slf4j.Logger;
@@ -36,6 +43,9 @@ import com.google.common.base.Preconditions;
 public abstract class AbstractRecommender implements Recommender {
   
   private static final Logger log = LoggerFactory.getLogger(AbstractRecommender.class);
+
+  /** Upper bound on batches submitted but not yet finished, so huge user lists don't flood the executor. */
+  private static final int MAX_PENDING_BATCHES = 256;
   
   private final DataModel dataModel;
   private final CandidateItemsStrategy candidateItemsStrategy;
@@ -136,5 +146,99 @@ public abstract class AbstractRecommender implements Recommender {
       throws TasteException {
     return candidateItemsStrategy.getCandidateItems(userID, preferencesFromUser, dataModel, includeKnownItems);
   }
+
+  protected CandidateItemsStrategy getCandidateItemsStrategy() {
+    return candidateItemsStrategy;
+  }
+
+  /**
+   * Splits the given users into consecutive batches and runs each on the executor, waiting for all of them.
+   * Calls to the sink are serialized. The first failure stops further batches from being submitted and is
+   * rethrown once the running ones have finished.
+   *
+   * @param userIDs
+   *          users to process, in the order they should be batched
+   * @param batchSize
+   *          maximum number of users per batch
+   */
+  protected static void recommendInBatches(long[] userIDs, int batchSize, ExecutorService executor,
+                                           final RecommendationSink sink, final UserBatch batch)
+    throws TasteException {
+    Preconditions.checkArgument(userIDs != null, "userIDs is null");
+    Preconditions.checkArgument(batchSize >= 1, "batchSize must be at least 1");
+    Preconditions.checkArgument(executor != null, "executor is null");
+    Preconditions.checkArgument(sink != null, "sink is null");
+
+    final RecommendationSink serializedSink = new RecommendationSink() {
+      @Override
+      public void add(long userID, List<RecommendedItem> recommendations) throws TasteException {
+        synchronized (sink) {
+          sink.add(userID, recommendations);
+        }
+      }
+    };
+    CompletionService<Void> completionService = new ExecutorCompletionService<Void>(executor);
+    int pending = 0;
+    Throwable failure = null;
+    try {
+      for (int from = 0; from < userIDs.length && failure == null; from += batchSize) {
+        if (pending == MAX_PENDING_BATCHES) {
+          failure = awaitBatch(completionService);
+          pending--;
+          if (failure != null) {
+            break;
+          }
+        }
+        final long[] batchUserIDs = Arrays.copyOfRange(userIDs, from, Math.min(userIDs.length, from + batchSize));
+        completionService.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws TasteException {
+            batch.recommend(batchUserIDs, serializedSink);
+            return null;
+          }
+        });
+        pending++;
+      }
+      while (pending > 0) {
+        Throwable batchFailure = awaitBatch(completionService);
+        pending--;
+        if (failure == null) {
+          failure = batchFailure;
+        }
+      }
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new TasteException(ie);
+    }
+
+    if (failure instanceof TasteException) {
+      throw (TasteException) failure;
+    }
+    if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    }
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+    if (failure != null) {
+      throw new TasteException(failure);
+    }
+  }
+
+  private static Throwable awaitBatch(CompletionService<Void> completionService) throws InterruptedException {
+    try {
+      completionService.take().get();
+      return null;
+    } catch (ExecutionException ee) {
+      return ee.getCause();
+    }
+  }
+
+  /**
+   * Computes recommendations for one batch of users, for {@link #recommendInBatches}.
+   */
+  protected interface UserBatch {
+    void recommend(long[] userIDs, RecommendationSink sink) throws TasteException;
+  }
   
 }
@@ -17,10 +17,19 @@
 
 package org.apache.mahout.cf.taste.impl.recommender;
 
+import java.io.Closeable;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.mahout.cf.taste.common.Refreshable;
 import org.apache.mahout.cf.taste.common.TasteException;
@@ -41,41 +50,115 @@ import com.google.common.base.Preconditions;
 /**
  * <p>
  * A {@link Recommender} which caches the results from another {@link Recommender} in memory.
+ * </p>
  *
- * TODO: Should be checked for thread safety
+ * <p>
+ * By default {@link #refresh(Collection)} throws away all cached recommendations, so the requests that follow a
+ * reload all recompute synchronously. A recommender built with
+ * {@link #CachingRecommender(Recommender, int, int, long)} instead serves stale-while-revalidate: after a
+ * refresh, or once an entry is older than its time-to-live, the old recommendations keep being returned while a
+ * pool of background threads recomputes them for the users that are actually asking. Refreshes wait in a bounded
+ * queue; when it is full the requesting thread recomputes synchronously instead, so staleness stays bounded under
+ * load. Estimated preferences are cheap to recompute one at a time and are still cleared on refresh. Such an
+ * instance should be {@link #close() closed} when no longer needed.
  * </p>
  */
-public final class CachingRecommender implements Recommender {
+public final class CachingRecommender implements Recommender, Closeable {
   
   private static final Logger log = LoggerFactory.getLogger(CachingRecommender.class);
   
   private final Recommender recommender;
   private final int[] maxHowMany;
   private final Retriever<Long,Recommendations> recommendationsRetriever;
-  private final Cache<Long,Recommendations> recommendationCache;
+  private final Cache<Long,CachedRecommendations> recommendationCache;
   private final Cache<LongPair,Float> estimatedPrefCache;
   private final RefreshHelper refreshHelper;
-  private IDRescorer currentRescorer;
-  private boolean currentlyIncludeKnownItems;
+  private final ThreadPoolExecutor refreshExecutor;
+  private final long timeToLiveMillis;
+  private final AtomicLong generation = new AtomicLong();
+  private final AtomicLong staleHits = new AtomicLong();
+  private final AtomicLong totalStalenessMillis = new AtomicLong();
+  private final AtomicLong maxStalenessMillis = new AtomicLong();
+  private final AtomicLong backgroundRefreshes = new AtomicLong();
+  private final AtomicLong failedRefreshes = new AtomicLong();
+  private final AtomicLong rejectedRefreshes = new AtomicLong();
+  private volatile IDRescorer currentRescorer;
+  private volatile boolean currentlyIncludeKnownItems;
   
   public CachingRecommender(Recommender recommender) throws TasteException {
+    this(recommender, null, Long.MAX_VALUE);
+  }
+
+  /**
+   * Creates a recommender which keeps serving cached recommendations while they are recomputed in the
+   * background, as described above.
+   *
+   * @param recommender
+   *          recommender whose results are cached
+   * @param refreshThreads
+   *          number of background threads recomputing stale recommendations
+   * @param maxQueuedRefreshes
+   *          maximum number of users waiting for a background recomputation
+   * @param timeToLiveMillis
+   *          age after which cached recommendations are recomputed even without a {@link #refresh(Collection)}
+   */
+  public CachingRecommender(Recommender recommender, int refreshThreads, int maxQueuedRefreshes,
+                            long timeToLiveMillis) throws TasteException {
+    this(recommender, newRefreshExecutor(refreshThreads, maxQueuedRefreshes), timeToLiveMillis);
+  }
+
+  private CachingRecommender(Recommender recommender, ThreadPoolExecutor refreshExecutor, long timeToLiveMillis)
+    throws TasteException {
     Preconditions.checkArgument(recommender != null, "recommender is null");
+    Preconditions.checkArgument(timeToLiveMillis > 0, "timeToLiveMillis must be positive");
     this.recommender = recommender;
+    this.refreshExecutor = refreshExecutor;
+    this.timeToLiveMillis = timeToLiveMillis;
     maxHowMany = new int[]{1};
     // Use "num users" as an upper limit on cache size. Rough guess.
     int numUsers = recommender.getDataModel().getNumUsers();
     recommendationsRetriever = new RecommendationRetriever();
-    recommendationCache = new Cache<Long, Recommendations>(recommendationsRetriever, numUsers);
+    recommendationCache = new Cache<Long, CachedRecommendations>(new Retriever<Long,CachedRecommendations>() {
+      @Override
+      public CachedRecommendations get(Long key) throws TasteException {
+        return new CachedRecommendations(recommendationsRetriever.get(key));
+      }
+    }, numUsers);
     estimatedPrefCache = new Cache<LongPair, Float>(new EstimatedPrefRetriever(), numUsers);
     refreshHelper = new RefreshHelper(new Callable<Object>() {
       @Override
       public Object call() {
-        clear();
+        if (isRevalidating()) {
+          log.debug("Marking all recommendations stale...");
+          generation.incrementAndGet();
+          estimatedPrefCache.clear();
+        } else {
+          clear();
+        }
         return null;
       }
     });
     refreshHelper.addDependency(recommender);
   }
+
+  private static ThreadPoolExecutor newRefreshExecutor(int refreshThreads, int maxQueuedRefreshes) {
+    Preconditions.checkArgument(refreshThreads >= 1, "refreshThreads must be at least 1");
+    Preconditions.checkArgument(maxQueuedRefreshes >= 1, "maxQueuedRefreshes must be at least 1");
+    final AtomicInteger threadCount = new AtomicInteger();
+    return new ThreadPoolExecutor(refreshThreads, refreshThreads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<Runnable>(maxQueuedRefreshes), new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "CachingRecommender-refresh-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+  }
+
+  private boolean isRevalidating() {
+    return refreshExecutor != null;
+  }
   
   private void setCurrentRescorer(IDRescorer rescorer) {
     if (rescorer == null) {
@@ -128,10 +211,14 @@ public final class CachingRecommender implements Recommender {
     setCurrentRescorer(rescorer);
     setCurrentlyIncludeKnownItems(includeKnownItems);
 
-    Recommendations recommendations = recommendationCache.get(userID);
+    CachedRecommendations cached = recommendationCache.get(userID);
+    Recommendations recommendations = cached.current;
+    if (isRevalidating() && isStale(recommendations)) {
+      recommendations = revalidate(userID, cached, recommendations);
+    }
     if (recommendations.getItems().size() < howMany && !recommendations.isNoMoreRecommendableItems()) {
       clear(userID);
-      recommendations = recommendationCache.get(userID);
+      recommendations = recommendationCache.get(userID).current;
       if (recommendations.getItems().size() < howMany) {
         recommendations.setNoMoreRecommendableItems(true);
       }
@@ -141,6 +228,41 @@ public final class CachingRecommender implements Recommender {
     return recommendedItems.size() > howMany ? recommendedItems.subList(0, howMany) : recommendedItems;
   }
   
+  private boolean isStale(Recommendations recommendations) {
+    return recommendations.getGeneration() != generation.get()
+        || System.currentTimeMillis() - recommendations.getComputedAt() > timeToLiveMillis;
+  }
+
+  /**
+   * Queues a background recomputation of a stale entry and returns what should be served meanwhile: the stale
+   * recommendations, or fresh ones if the queue was full and they had to be computed here.
+   */
+  private Recommendations revalidate(long userID, CachedRecommendations cached, Recommendations stale)
+    throws TasteException {
+    if (cached.refreshing.compareAndSet(false, true)) {
+      try {
+        refreshExecutor.execute(new RefreshTask(userID, cached));
+      } catch (RejectedExecutionException ree) {
+        rejectedRefreshes.incrementAndGet();
+        try {
+          Recommendations fresh = recommendationsRetriever.get(userID);
+          cached.current = fresh;
+          return fresh;
+        } finally {
+          cached.refreshing.set(false);
+        }
+      }
+    }
+    long staleness = Math.max(0L, System.currentTimeMillis() - stale.getComputedAt());
+    staleHits.incrementAndGet();
+    totalStalenessMillis.addAndGet(staleness);
+    long max;
+    do {
+      max = maxStalenessMillis.get();
+    } while (staleness > max && !maxStalenessMillis.compareAndSet(max, staleness));
+    return stale;
+  }
+
   @Override
   public float estimatePreference(long userID, long itemID) throws TasteException {
     return estimatedPrefCache.get(new LongPair(userID, itemID));
@@ -198,6 +320,66 @@ public final class CachingRecommender implements Recommender {
     estimatedPrefCache.clear();
   }
   
+  /**
+   * @return number of times stale recommendations were served while being recomputed in the background
+   */
+  public long getStaleHitCount() {
+    return staleHits.get();
+  }
+
+  /**
+   * @return mean age, in milliseconds, of the stale recommendations that were served, or 0 if none were
+   */
+  public double getAverageStalenessMillis() {
+    long hits = staleHits.get();
+    return hits == 0 ? 0.0 : (double) totalStalenessMillis.get() / hits;
+  }
+
+  /**
+   * @return age, in milliseconds, of the oldest stale recommendations that were served
+   */
+  public long getMaxStalenessMillis() {
+    return maxStalenessMillis.get();
+  }
+
+  /**
+   * @return number of background recomputations that completed successfully
+   */
+  public long getBackgroundRefreshCount() {
+    return backgroundRefreshes.get();
+  }
+
+  /**
+   * @return number of background recomputations that failed; the stale entry is kept and retried on next request
+   */
+  public long getFailedRefreshCount() {
+    return failedRefreshes.get();
+  }
+
+  /**
+   * @return number of times the refresh queue was full and the requesting thread recomputed instead
+   */
+  public long getRejectedRefreshCount() {
+    return rejectedRefreshes.get();
+  }
+
+  /**
+   * @return number of users currently waiting for a background recomputation
+   */
+  public int getQueuedRefreshCount() {
+    return isRevalidating() ? refreshExecutor.getQueue().size() : 0;
+  }
+
+  /**
+   * Stops the background refresh threads, if any. Queued recomputations are discarded.
+   */
+  @Override
+  public void close() {
+    if (isRevalidating()) {
+      refreshExecutor.shutdownNow();
+    }
+  }
+
   @Override
   public String toString() {
     return "CachingRecommender[recommender:" + recommender + ']';
@@ -207,12 +389,18 @@ public final class CachingRecommender implements Recommender {
     @Override
     public Recommendations get(Long key) throws TasteException {
       log.debug("Retrieving new recommendations for user ID '{}'", key);
-      int howMany = maxHowMany[0];
+      int howMany;
+      synchronized (maxHowMany) {
+        howMany = maxHowMany[0];
+      }
       IDRescorer rescorer = currentRescorer;
+      // read before computing, so a refresh() during the computation leaves the result stale
+      long computedGeneration = generation.get();
+      long computedAt = System.currentTimeMillis();
       List<RecommendedItem> recommendations =
           rescorer == null ? recommender.recommend(key, howMany, null, currentlyIncludeKnownItems) :
               recommender.recommend(key, howMany, rescorer, currentlyIncludeKnownItems);
-      return new Recommendations(Collections.unmodifiableList(recommendations));
+      return new Recommendations(Collections.unmodifiableList(recommendations), computedGeneration, computedAt);
     }
   }
   
@@ -226,18 +414,71 @@ public final class CachingRecommender implements Recommender {
     }
   }
   
+  private final class RefreshTask implements Runnable {
+
+    private final long userID;
+    private final CachedRecommendations cached;
+
+    private RefreshTask(long userID, CachedRecommendations cached) {
+      this.userID = userID;
+      this.cached = cached;
+    }
+
+    @Override
+    public void run() {
+      try {
+        cached.current = recommendationsRetriever.get(userID);
+        backgroundRefreshes.incrementAndGet();
+      } catch (TasteException te) {
+        failedRefreshes.incrementAndGet();
+        log.warn("Background refresh failed for user ID " + userID, te);
+      } catch (RuntimeException re) {
+        failedRefreshes.incrementAndGet();
+        log.warn("Background refresh failed for user ID " + userID, re);
+      } finally {
+        cached.refreshing.set(false);
+      }
+    }
+  }
+
+  /**
+   * What the cache holds for a user: the latest recommendations, replaced in place by background refreshes so
+   * that readers never find the entry missing while it is recomputed.
+   */
+  private static final class CachedRecommendations {
+
+    private volatile Recommendations current;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private CachedRecommendations(Recommendations current) {
+      this.current = current;
+    }
+  }
+
   private static final class Recommendations {
     
     private final List<RecommendedItem> items;
-    private boolean noMoreRecommendableItems;
+    private final long generation;
+    private final long computedAt;
+    private volatile boolean noMoreRecommendableItems;
     
-    private Recommendations(List<RecommendedItem> items) {
+    private Recommendations(List<RecommendedItem> items, long generation, long computedAt) {
       this.items = items;
+      this.generation = generation;
+      this.computedAt = computedAt;
     }
     
     List<RecommendedItem> getItems() {
       return items;
     }
+
+    long getGeneration() {
+      return generation;
+    }
+
+    long getComputedAt() {
+      return computedAt;
+    }
     
     boolean isNoMoreRecommendableItems() {
       return noMoreRecommendableItems;
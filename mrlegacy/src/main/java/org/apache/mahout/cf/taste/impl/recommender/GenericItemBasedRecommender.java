@@ -18,22 +18,31 @@
 package org.apache.mahout.cf.taste.impl.recommender;
 
 import org.apache.mahout.cf.taste.recommender.CandidateItemsStrategy;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
+import org.apache.mahout.cf.taste.common.NoSuchItemException;
+import org.apache.mahout.cf.taste.common.NoSuchUserException;
 import org.apache.mahout.cf.taste.common.Refreshable;
 import org.apache.mahout.cf.taste.common.TasteException;
+import org.apache.mahout.cf.taste.impl.common.FastByIDMap;
 import org.apache.mahout.cf.taste.impl.common.FastIDSet;
 import org.apache.mahout.cf.taste.impl.common.FullRunningAverage;
+import org.apache.mahout.cf.taste.impl.common.LongPrimitiveIterator;
 import org.apache.mahout.cf.taste.impl.common.RefreshHelper;
 import org.apache.mahout.cf.taste.impl.common.RunningAverage;
 import org.apache.mahout.cf.taste.model.DataModel;
 import org.apache.mahout.cf.taste.model.PreferenceArray;
+import org.apache.mahout.cf.taste.recommender.BatchRecommender;
 import org.apache.mahout.cf.taste.recommender.IDRescorer;
 import org.apache.mahout.cf.taste.recommender.ItemBasedRecommender;
 import org.apache.mahout.cf.taste.recommender.MostSimilarItemsCandidateItemsStrategy;
+import org.apache.mahout.cf.taste.recommender.RecommendationSink;
 import org.apache.mahout.cf.taste.recommender.RecommendedItem;
 import org.apache.mahout.cf.taste.recommender.Rescorer;
 import org.apache.mahout.cf.taste.similarity.ItemSimilarity;
@@ -65,10 +74,24 @@ import com.google.common.base.Preconditions;
  * {@link org.apache.mahout.cf.taste.impl.similarity.PearsonCorrelationSimilarity} too, which computes
  * similarities in real-time, but will probably find this painfully slow for large amounts of data.
  * </p>
+ *
+ * <p>
+ * When recommending for many users at once through
+ * {@link #recommend(long[], int, IDRescorer, boolean, ExecutorService, RecommendationSink)}, users whose
+ * preferred items overlap are grouped into the same batch, and a similarity row between a candidate item and the
+ * preferred items of the whole batch is computed once and shared by all users in the batch who can be
+ * recommended that item.
+ * </p>
  */
-public class GenericItemBasedRecommender extends AbstractRecommender implements ItemBasedRecommender {
+public class GenericItemBasedRecommender extends AbstractRecommender
+    implements ItemBasedRecommender, BatchRecommender {
   
   private static final Logger log = LoggerFactory.getLogger(GenericItemBasedRecommender.class);
+
+  /** Number of users whose similarity computations are shared. */
+  private static final int BATCH_SIZE = 64;
+  /** Number of consecutive users reordered so that those with similar preferences share a batch. */
+  private static final int GROUPING_WINDOW = 64 * BATCH_SIZE;
   
   private final ItemSimilarity similarity;
   private final MostSimilarItemsCandidateItemsStrategy mostSimilarItemsCandidateItemsStrategy;
@@ -138,6 +161,159 @@ public class GenericItemBasedRecommender extends AbstractRecommender implements
     return topItems;
   }
   
+  @Override
+  public void recommend(long[] userIDs, final int howMany, final IDRescorer rescorer, final boolean includeKnownItems,
+                        ExecutorService executor, RecommendationSink sink) throws TasteException {
+    Preconditions.checkArgument(userIDs != null, "userIDs is null");
+    Preconditions.checkArgument(howMany >= 1, "howMany must be at least 1");
+    log.debug("Recommending items for {} users", userIDs.length);
+    recommendInBatches(groupBySimilarPreferences(userIDs), BATCH_SIZE, executor, sink, new UserBatch() {
+      @Override
+      public void recommend(long[] batchUserIDs, RecommendationSink batchSink) throws TasteException {
+        recommendBatch(batchUserIDs, howMany, rescorer, includeKnownItems, batchSink);
+      }
+    });
+  }
+
+  /**
+   * Reorders the users within each window by the min-hash of their preferred items. Two users get the same
+   * min-hash with probability equal to the Jaccard similarity of their item sets, so users with overlapping
+   * preferences tend to end up next to each other, and therefore in the same batch.
+   */
+  private long[] groupBySimilarPreferences(long[] userIDs) throws TasteException {
+    DataModel dataModel = getDataModel();
+    long[] grouped = userIDs.clone();
+    for (int from = 0; from < grouped.length; from += GROUPING_WINDOW) {
+      int to = Math.min(grouped.length, from + GROUPING_WINDOW);
+      long[] window = Arrays.copyOfRange(grouped, from, to);
+      final long[] minHashes = new long[window.length];
+      Integer[] order = new Integer[window.length];
+      for (int i = 0; i < window.length; i++) {
+        order[i] = i;
+        minHashes[i] = minHash(dataModel, window[i]);
+      }
+      Arrays.sort(order, new Comparator<Integer>() {
+        @Override
+        public int compare(Integer a, Integer b) {
+          long x = minHashes[a];
+          long y = minHashes[b];
+          return x < y ? -1 : x > y ? 1 : 0;
+        }
+      });
+      for (int i = 0; i < window.length; i++) {
+        grouped[from + i] = window[order[i]];
+      }
+    }
+    return grouped;
+  }
+
+  private static long minHash(DataModel dataModel, long userID) throws TasteException {
+    PreferenceArray preferencesFromUser;
+    try {
+      preferencesFromUser = dataModel.getPreferencesFromUser(userID);
+    } catch (NoSuchUserException nsue) {
+      // reported when the user's batch runs
+      return Long.MAX_VALUE;
+    }
+    long min = Long.MAX_VALUE;
+    int size = preferencesFromUser.length();
+    for (int i = 0; i < size; i++) {
+      long hash = preferencesFromUser.getItemID(i) * 0x9E3779B97F4A7C15L;
+      min = Math.min(min, hash ^ (hash >>> 29));
+    }
+    return min;
+  }
+
+  /**
+   * Computes estimates item by item across the batch rather than user by user, so that for a candidate item
+   * shared by several users one similarity row against all preferred items of the batch can replace several
+   * overlapping per-user rows.
+   */
+  private void recommendBatch(long[] userIDs, int howMany, IDRescorer rescorer, boolean includeKnownItems,
+                              RecommendationSink sink) throws TasteException {
+    DataModel dataModel = getDataModel();
+    int numUsers = userIDs.length;
+    PreferenceArray[] preferences = new PreferenceArray[numUsers];
+    FastIDSet[] candidates = new FastIDSet[numUsers];
+    FastIDSet allCandidates = new FastIDSet();
+    FastByIDMap<Integer> columns = new FastByIDMap<Integer>();
+    FastIDSet preferredItemIDSet = new FastIDSet();
+    for (int u = 0; u < numUsers; u++) {
+      preferences[u] = dataModel.getPreferencesFromUser(userIDs[u]);
+      if (preferences[u].length() > 0) {
+        candidates[u] = getAllOtherItems(userIDs[u], preferences[u], includeKnownItems);
+        allCandidates.addAll(candidates[u]);
+        preferredItemIDSet.addAll(preferences[u].getIDs());
+      }
+    }
+    long[] preferredItemIDs = preferredItemIDSet.toArray();
+    for (int i = 0; i < preferredItemIDs.length; i++) {
+      columns.put(preferredItemIDs[i], i);
+    }
+    int[][] userColumns = new int[numUsers][];
+    @SuppressWarnings("unchecked")
+    FastByIDMap<Float>[] estimates = (FastByIDMap<Float>[]) new FastByIDMap<?>[numUsers];
+    for (int u = 0; u < numUsers; u++) {
+      if (candidates[u] != null) {
+        int size = preferences[u].length();
+        userColumns[u] = new int[size];
+        for (int i = 0; i < size; i++) {
+          userColumns[u][i] = columns.get(preferences[u].getItemID(i));
+        }
+        estimates[u] = new FastByIDMap<Float>(candidates[u].size());
+      }
+    }
+
+    int[] sharers = new int[numUsers];
+    LongPrimitiveIterator candidateIDs = allCandidates.iterator();
+    while (candidateIDs.hasNext()) {
+      long itemID = candidateIDs.nextLong();
+      if (rescorer != null && rescorer.isFiltered(itemID)) {
+        continue;
+      }
+      int numSharers = 0;
+      int perUserCost = 0;
+      for (int u = 0; u < numUsers; u++) {
+        if (candidates[u] != null && candidates[u].contains(itemID)) {
+          sharers[numSharers++] = u;
+          perUserCost += preferences[u].length();
+        }
+      }
+      double[] row = null;
+      if (numSharers > 1 && perUserCost > preferredItemIDs.length) {
+        try {
+          row = similarity.itemSimilarities(itemID, preferredItemIDs);
+        } catch (NoSuchItemException nsie) {
+          // fall through to per user rows, which fail or not exactly as recommend() would
+        }
+      }
+      for (int s = 0; s < numSharers; s++) {
+        int u = sharers[s];
+        double[] similarities;
+        if (row == null) {
+          try {
+            similarities = similarity.itemSimilarities(itemID, preferences[u].getIDs());
+          } catch (NoSuchItemException nsie) {
+            continue;
+          }
+        } else {
+          similarities = new double[userColumns[u].length];
+          for (int i = 0; i < similarities.length; i++) {
+            similarities[i] = row[userColumns[u][i]];
+          }
+        }
+        estimates[u].put(itemID, doEstimatePreference(preferences[u], similarities));
+      }
+    }
+
+    for (int u = 0; u < numUsers; u++) {
+      List<RecommendedItem> topItems = candidates[u] == null
+          ? Collections.<RecommendedItem>emptyList()
+          : TopItems.getTopItems(howMany, candidates[u].iterator(), rescorer, new PrecomputedEstimator(estimates[u]));
+      sink.add(userIDs[u], topItems);
+    }
+  }
+
   @Override
   public float estimatePreference(long userID, long itemID) throws TasteException {
     PreferenceArray preferencesFromUser = getDataModel().getPreferencesFromUser(userID);
@@ -230,10 +406,23 @@ public class GenericItemBasedRecommender extends AbstractRecommender implements
   
   protected float doEstimatePreference(long userID, PreferenceArray preferencesFromUser, long itemID)
     throws TasteException {
+    return doEstimatePreference(preferencesFromUser, similarity.itemSimilarities(itemID, preferencesFromUser.getIDs()));
+  }
+
+  /**
+   * Estimates a preference from the similarities between the item and each of the user's preferred items. Batch
+   * recommendation calls this directly with similarities it computed for several users at once, so subclasses
+   * changing how an estimate is formed should override this rather than
+   * {@link #doEstimatePreference(long, PreferenceArray, long)}.
+   *
+   * @param similarities
+   *          similarity of the item to each item in {@code preferencesFromUser}, in the same order; may contain
+   *          {@link Double#NaN}
+   */
+  protected float doEstimatePreference(PreferenceArray preferencesFromUser, double[] similarities) {
     double preference = 0.0;
     double totalSimilarity = 0.0;
     int count = 0;
-    double[] similarities = similarity.itemSimilarities(itemID, preferencesFromUser.getIDs());
     for (int i = 0; i < similarities.length; i++) {
       double theSimilarity = similarities[i];
       if (!Double.isNaN(theSimilarity)) {
@@ -252,6 +441,7 @@ public class GenericItemBasedRecommender extends AbstractRecommender implements
       return Float.NaN;
     }
     float estimate = (float) (preference / totalSimilarity);
+    EstimatedPreferenceCapper capper = this.capper;
     if (capper != null) {
       estimate = capper.capEstimate(estimate);
     }
@@ -316,6 +506,25 @@ public class GenericItemBasedRecommender extends AbstractRecommender implements
     }
   }
   
+  private static final class PrecomputedEstimator implements TopItems.Estimator<Long> {
+
+    private final FastByIDMap<Float> estimates;
+
+    private PrecomputedEstimator(FastByIDMap<Float> estimates) {
+      this.estimates = estimates;
+    }
+
+    @Override
+    public double estimate(Long itemID) throws TasteException {
+      Float estimate = estimates.get(itemID);
+      if (estimate == null) {
+        // the similarity could not be computed
+        throw new NoSuchItemException(itemID);
+      }
+      return estimate;
+    }
+  }
+
   private static final class MultiMostSimilarEstimator implements TopItems.Estimator<Long> {
     
     private final long[] toItemIDs;
@@ -21,19 +21,23 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 import com.google.common.base.Preconditions;
 import org.apache.mahout.cf.taste.common.Refreshable;
 import org.apache.mahout.cf.taste.common.TasteException;
 import org.apache.mahout.cf.taste.impl.common.FastIDSet;
+import org.apache.mahout.cf.taste.impl.common.LongPrimitiveIterator;
 import org.apache.mahout.cf.taste.impl.common.RefreshHelper;
 import org.apache.mahout.cf.taste.impl.recommender.AbstractRecommender;
 import org.apache.mahout.cf.taste.impl.recommender.AllUnknownItemsCandidateItemsStrategy;
 import org.apache.mahout.cf.taste.impl.recommender.TopItems;
 import org.apache.mahout.cf.taste.model.DataModel;
 import org.apache.mahout.cf.taste.model.PreferenceArray;
+import org.apache.mahout.cf.taste.recommender.BatchRecommender;
 import org.apache.mahout.cf.taste.recommender.CandidateItemsStrategy;
 import org.apache.mahout.cf.taste.recommender.IDRescorer;
+import org.apache.mahout.cf.taste.recommender.RecommendationSink;
 import org.apache.mahout.cf.taste.recommender.RecommendedItem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,7 +46,10 @@ import org.slf4j.LoggerFactory;
  * A {@link org.apache.mahout.cf.taste.recommender.Recommender} that uses matrix factorization (a projection of users
  * and items onto a feature space)
  */
-public final class SVDRecommender extends AbstractRecommender {
+public final class SVDRecommender extends AbstractRecommender implements BatchRecommender {
+
+  /** Number of users handed to a worker at a time. */
+  private static final int BATCH_SIZE = 256;
 
   private Factorization factorization;
   private final Factorizer factorizer;
@@ -146,6 +153,53 @@ public final class SVDRecommender extends AbstractRecommender {
     return topItems;
   }
 
+  /**
+   * Recommends for many users against one factorization, even if a refresh replaces it meanwhile. Each user's
+   * feature vector is looked up once rather than once per candidate item, and with the default
+   * {@link AllUnknownItemsCandidateItemsStrategy} the set of all items is built once and copied per user instead
+   * of being rebuilt from the {@link DataModel} every time.
+   */
+  @Override
+  public void recommend(long[] userIDs, final int howMany, final IDRescorer rescorer, final boolean includeKnownItems,
+                        ExecutorService executor, RecommendationSink sink) throws TasteException {
+    Preconditions.checkArgument(userIDs != null, "userIDs is null");
+    Preconditions.checkArgument(howMany >= 1, "howMany must be at least 1");
+    log.debug("Recommending items for {} users", userIDs.length);
+
+    final Factorization currentFactorization = factorization;
+    final FastIDSet allItemIDs =
+        getCandidateItemsStrategy() instanceof AllUnknownItemsCandidateItemsStrategy ? getAllItemIDs() : null;
+    recommendInBatches(userIDs, BATCH_SIZE, executor, sink, new UserBatch() {
+      @Override
+      public void recommend(long[] batchUserIDs, RecommendationSink batchSink) throws TasteException {
+        for (long userID : batchUserIDs) {
+          PreferenceArray preferencesFromUser = getDataModel().getPreferencesFromUser(userID);
+          FastIDSet possibleItemIDs;
+          if (allItemIDs == null) {
+            possibleItemIDs = getAllOtherItems(userID, preferencesFromUser, includeKnownItems);
+          } else {
+            possibleItemIDs = allItemIDs.clone();
+            if (!includeKnownItems) {
+              possibleItemIDs.removeAll(preferencesFromUser.getIDs());
+            }
+          }
+          batchSink.add(userID, TopItems.getTopItems(howMany, possibleItemIDs.iterator(), rescorer,
+              new FeatureEstimator(currentFactorization, userID)));
+        }
+      }
+    });
+  }
+
+  private FastIDSet getAllItemIDs() throws TasteException {
+    DataModel dataModel = getDataModel();
+    FastIDSet allItemIDs = new FastIDSet(dataModel.getNumItems());
+    LongPrimitiveIterator itemIDs = dataModel.getItemIDs();
+    while (itemIDs.hasNext()) {
+      allItemIDs.add(itemIDs.nextLong());
+    }
+    return allItemIDs;
+  }
+
   /**
    * a preference is estimated by computing the dot-product of the user and item feature vectors
    */
@@ -174,6 +228,32 @@ public final class SVDRecommender extends AbstractRecommender {
     }
   }
 
+  private static final class FeatureEstimator implements TopItems.Estimator<Long> {
+
+    private final Factorization factorization;
+    private final long userID;
+    private double[] userFeatures;
+
+    private FeatureEstimator(Factorization factorization, long userID) {
+      this.factorization = factorization;
+      this.userID = userID;
+    }
+
+    @Override
+    public double estimate(Long itemID) throws TasteException {
+      if (userFeatures == null) {
+        // looked up on first use, so a user without candidates fails no more than with recommend()
+        userFeatures = factorization.getUserFeatures(userID);
+      }
+      double[] itemFeatures = factorization.getItemFeatures(itemID);
+      double estimate = 0;
+      for (int feature = 0; feature < userFeatures.length; feature++) {
+        estimate += userFeatures[feature] * itemFeatures[feature];
+      }
+      return (float) estimate;
+    }
+  }
+
   /**
    * Refresh the data model and factorization.
    */
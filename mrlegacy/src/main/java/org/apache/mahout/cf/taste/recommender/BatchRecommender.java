@@ -0,0 +1,57 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.recommender;
+
+import java.util.concurrent.ExecutorService;
+
+import org.apache.mahout.cf.taste.common.TasteException;
+
+/**
+ * <p>
+ * Implemented by recommenders that can compute recommendations for many users at once more cheaply than one at
+ * a time, by sharing intermediate results between users processed together.
+ * </p>
+ */
+public interface BatchRecommender extends Recommender {
+
+  /**
+   * Computes recommendations for all given users, as
+   * {@link Recommender#recommend(long, int, IDRescorer, boolean)} would, and passes them to a sink. Users are
+   * processed in batches on the given executor; this method returns once all of them have been passed to the
+   * sink. The executor is not shut down.
+   *
+   * @param userIDs
+   *          users for which recommendations are to be computed
+   * @param howMany
+   *          desired number of recommendations per user
+   * @param rescorer
+   *          rescoring function to apply before final list of recommendations is determined
+   * @param includeKnownItems
+   *          whether to include items already known by the user in recommendations
+   * @param executor
+   *          runs the batches
+   * @param sink
+   *          receives the recommendations of each user
+   * @throws TasteException
+   *           the first error raised while computing recommendations or by the sink; no further batches are
+   *           started after it
+   */
+  void recommend(long[] userIDs, int howMany, IDRescorer rescorer, boolean includeKnownItems,
+                 ExecutorService executor, RecommendationSink sink) throws TasteException;
+
+}
@@ -0,0 +1,45 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.recommender;
+
+import java.util.List;
+
+import org.apache.mahout.cf.taste.common.TasteException;
+
+/**
+ * <p>
+ * Receives the results of a {@link BatchRecommender} one user at a time, so that recommendations for many users
+ * can be written out as they are computed rather than collected in memory.
+ * </p>
+ */
+public interface RecommendationSink {
+
+  /**
+   * Called once for every requested user, in no particular order and from the threads computing the
+   * recommendations. Calls on one sink never overlap, so implementations need not be thread-safe themselves.
+   *
+   * @param userID
+   *          user the recommendations are for
+   * @param recommendations
+   *          recommended items, ordered from most strongly recommended to least; empty if there are none
+   * @throws TasteException
+   *           to abort the batch
+   */
+  void add(long userID, List<RecommendedItem> recommendations) throws TasteException;
+
+}
@@ -49,6 +49,8 @@ public final class SequenceFileDirValueIterator<V extends Writable> extends
   private static final FileStatus[] NO_STATUSES = new FileStatus[0];
 
   private Iterator<V> delegate;
+  private Iterator<SequenceFileValueIterator<V>> fileIterators;
+  private SequenceFileValueIterator<V> cursor;
   private final List<SequenceFileValueIterator<V>> iterators;
 
   /**
@@ -115,11 +117,11 @@ public final class SequenceFileDirValueIterator<V extends Writable> extends
 
     try {
 
-      Iterator<Iterator<V>> fsIterators =
+      fileIterators =
         Iterators.transform(fileStatusIterator,
-          new Function<FileStatus, Iterator<V>>() {
+          new Function<FileStatus, SequenceFileValueIterator<V>>() {
             @Override
-            public Iterator<V> apply(FileStatus from) {
+            public SequenceFileValueIterator<V> apply(FileStatus from) {
               try {
                 SequenceFileValueIterator<V> iterator = new SequenceFileValueIterator<V>(from.getPath(),
                     reuseKeyValueInstances, conf);
@@ -133,7 +135,7 @@ public final class SequenceFileDirValueIterator<V extends Writable> extends
 
       Collections.reverse(iterators); // close later in reverse order
 
-      delegate = Iterators.concat(fsIterators);
+      delegate = Iterators.concat(fileIterators);
 
     } finally {
       /*
@@ -151,6 +153,30 @@ public final class SequenceFileDirValueIterator<V extends Writable> extends
     return delegate;
   }
 
+  /**
+   * Cursor-style alternative to {@link #next()} that reads the next value, from whichever file it is in, into an
+   * instance the caller owns.  Together with {@link org.apache.mahout.math.VectorWritable#setReusesVector(boolean)}
+   * this scans a directory of vectors with next to no garbage.  Don't mix this with the {@link Iterator} methods on
+   * one instance.
+   *
+   * @return false when all files have been read
+   * @see SequenceFileValueIterator#next(Writable)
+   */
+  public boolean next(V value) throws IOException {
+    while (true) {
+      if (cursor == null) {
+        if (!fileIterators.hasNext()) {
+          return false;
+        }
+        cursor = fileIterators.next();
+      }
+      if (cursor.next(value)) {
+        return true;
+      }
+      cursor = null;
+    }
+  }
+
   @Override
   public void close() throws IOException {
     IOUtils.close(iterators);
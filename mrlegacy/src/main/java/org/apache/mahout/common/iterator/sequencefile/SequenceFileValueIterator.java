@@ -42,6 +42,7 @@ public final class SequenceFileValueIterator<V extends Writable> extends Abstrac
   private final Writable key;
   private V value;
   private final boolean reuseKeyValueInstances;
+  private boolean closed;
 
   private static final Logger log = LoggerFactory.getLogger(SequenceFileValueIterator.class);
 
@@ -68,10 +69,29 @@ public final class SequenceFileValueIterator<V extends Writable> extends Abstrac
   @Override
   public void close() throws IOException {
     value = null;
+    closed = true;
     Closeables.close(reader, true);
     endOfData();
   }
 
+  /**
+   * Cursor-style alternative to {@link #next()}: reads the next value into an instance the caller owns and can
+   * pass in again for every record, so a scan allocates nothing per record beyond what the value's own
+   * {@code readFields} does.  Don't mix this with the {@link java.util.Iterator} methods on one instance.
+   *
+   * @return false, and closes this iterator, when there are no more values
+   */
+  public boolean next(V value) throws IOException {
+    if (closed) {
+      return false;
+    }
+    boolean available = reader.next(key, value);
+    if (!available) {
+      close();
+    }
+    return available;
+  }
+
   @Override
   protected V computeNext() {
     if (!reuseKeyValueInstances || value == null) {
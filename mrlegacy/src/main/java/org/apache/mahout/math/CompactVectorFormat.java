@@ -0,0 +1,355 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.mahout.math;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The compact encoding behind {@link VectorWritable#FLAG_COMPACT}.  After the usual flags byte and varint size:
+ * <ul>
+ *   <li>dense vectors store their values;</li>
+ *   <li>sparse vectors store a varint count, then their indices in increasing order as gaps, and then their
+ *   values.  Gaps are group-varint coded: one tag byte holds the byte lengths of the next four gaps, which follow
+ *   little endian.  If every value is exactly 1 the indices are instead stored as runs of consecutive indices, a
+ *   varint gap and a varint length each, and no values are stored at all.</li>
+ * </ul>
+ * Values are doubles, floats, or 16 bit linear quantizations between a float minimum and step, as recorded in
+ * bits 5 and 6 of the flags.  A name, if any, comes last as in the plain format.
+ * <p>
+ * Writing is stateless.  A reader instance keeps scratch arrays between calls and so is not thread safe.
+ */
+final class CompactVectorFormat {
+
+  static final int VALUES_SHIFT = 5;
+  static final int VALUES_MASK = 0x03 << VALUES_SHIFT;
+  static final int VALUES_DOUBLE = 0;
+  static final int VALUES_FLOAT = 1;
+  static final int VALUES_QUANTIZED = 2;
+  static final int VALUES_ONES = 3;
+  /** Number of low bits of the flags byte in use by this format, including the value encoding. */
+  static final int NUM_FLAGS = 7;
+
+  private static final int QUANTIZATION_LEVELS = 0xFFFF;
+
+  // reused between reads so that decoding into an existing vector doesn't allocate
+  private int[] indexScratch;
+  private double[] valueScratch;
+
+  static void write(DataOutput out, Vector vector, boolean laxPrecision, boolean quantized) throws IOException {
+    boolean dense = vector.isDense();
+    boolean sequential = vector.isSequentialAccess();
+    boolean named = vector instanceof NamedVector;
+
+    int n;
+    int[] indices = null;
+    double[] values;
+    if (dense) {
+      n = vector.size();
+      values = new double[n];
+      for (int i = 0; i < n; i++) {
+        values[i] = vector.getQuick(i);
+      }
+    } else {
+      indices = new int[vector.getNumNondefaultElements()];
+      n = 0;
+      for (Vector.Element element : vector.nonZeroes()) {
+        if (element.get() != 0) {
+          indices[n++] = element.index();
+        }
+      }
+      if (!sequential) {
+        Arrays.sort(indices, 0, n);
+      }
+      values = new double[n];
+      for (int i = 0; i < n; i++) {
+        values[i] = vector.getQuick(indices[i]);
+      }
+    }
+
+    int encoding = laxPrecision ? VALUES_FLOAT : VALUES_DOUBLE;
+    if (quantized && isQuantizable(values, n)) {
+      encoding = VALUES_QUANTIZED;
+    }
+    if (!dense && allOnes(values, n)) {
+      encoding = VALUES_ONES;
+    }
+
+    out.writeByte(VectorWritable.FLAG_COMPACT
+        | (dense ? VectorWritable.FLAG_DENSE : 0)
+        | (sequential ? VectorWritable.FLAG_SEQUENTIAL : 0)
+        | (named ? VectorWritable.FLAG_NAMED : 0)
+        | encoding << VALUES_SHIFT);
+    Varint.writeUnsignedVarInt(vector.size(), out);
+
+    if (!dense) {
+      Varint.writeUnsignedVarInt(n, out);
+      if (encoding == VALUES_ONES) {
+        writeRuns(out, indices, n);
+      } else {
+        writeGaps(out, indices, n);
+      }
+    }
+    writeValues(out, values, n, encoding);
+
+    if (named) {
+      String name = ((NamedVector) vector).getName();
+      out.writeUTF(name == null ? "" : name);
+    }
+  }
+
+  /**
+   * Reads the rest of a vector whose flags byte has already been consumed.
+   *
+   * @param previous a vector to overwrite if it has the right type and size, or null to always allocate
+   */
+  Vector read(DataInput in, int flags, Vector previous) throws IOException {
+    Preconditions.checkArgument(flags >> NUM_FLAGS == 0 && (flags & VectorWritable.FLAG_LAX_PRECISION) == 0,
+        "Unknown flags set: %s", Integer.toString(flags, 2));
+    boolean dense = (flags & VectorWritable.FLAG_DENSE) != 0;
+    boolean sequential = (flags & VectorWritable.FLAG_SEQUENTIAL) != 0;
+    boolean named = (flags & VectorWritable.FLAG_NAMED) != 0;
+    int encoding = (flags & VALUES_MASK) >>> VALUES_SHIFT;
+
+    int size = Varint.readUnsignedVarInt(in);
+    Vector v = VectorWritable.reusable(previous, dense, sequential, size);
+    if (dense) {
+      Preconditions.checkArgument(encoding != VALUES_ONES, "Dense vectors can't be run-length coded");
+      if (v == null) {
+        double[] values = new double[size];
+        readValues(in, values, size, encoding);
+        v = new DenseVector(values, true);
+      } else {
+        double[] values = scratchValues(size);
+        readValues(in, values, size, encoding);
+        for (int i = 0; i < size; i++) {
+          v.setQuick(i, values[i]);
+        }
+      }
+    } else {
+      int n = Varint.readUnsignedVarInt(in);
+      int[] indices = scratchIndices(n);
+      double[] values = scratchValues(n);
+      if (encoding == VALUES_ONES) {
+        readRuns(in, indices, n);
+        Arrays.fill(values, 0, n, 1);
+      } else {
+        readGaps(in, indices, n);
+        readValues(in, values, n, encoding);
+      }
+      if (v == null) {
+        v = sequential ? new SequentialAccessSparseVector(size, n) : new RandomAccessSparseVector(size, n);
+      }
+      for (int i = 0; i < n; i++) {
+        v.setQuick(indices[i], values[i]);
+      }
+    }
+    if (named) {
+      v = new NamedVector(v, in.readUTF());
+    }
+    return v;
+  }
+
+  private int[] scratchIndices(int n) {
+    if (indexScratch == null || indexScratch.length < n) {
+      indexScratch = new int[n];
+    }
+    return indexScratch;
+  }
+
+  private double[] scratchValues(int n) {
+    if (valueScratch == null || valueScratch.length < n) {
+      valueScratch = new double[n];
+    }
+    return valueScratch;
+  }
+
+  /**
+   * @return whether the minimum, the maximum and the step between them are finite floats, so that quantization
+   *  can represent the values; otherwise they are written at full (or lax) precision
+   */
+  private static boolean isQuantizable(double[] values, int n) {
+    double min = 0;
+    double max = 0;
+    for (int i = 0; i < n; i++) {
+      if (Double.isNaN(values[i]) || Double.isInfinite(values[i])) {
+        return false;
+      }
+      if (i == 0 || values[i] < min) {
+        min = values[i];
+      }
+      if (i == 0 || values[i] > max) {
+        max = values[i];
+      }
+    }
+    return !Float.isInfinite((float) min) && !Float.isInfinite((float) max)
+        && !Float.isInfinite((float) ((max - min) / QUANTIZATION_LEVELS));
+  }
+
+  private static boolean allOnes(double[] values, int n) {
+    for (int i = 0; i < n; i++) {
+      if (values[i] != 1) {
+        return false;
+      }
+    }
+    return n > 0;
+  }
+
+  private static void writeRuns(DataOutput out, int[] indices, int n) throws IOException {
+    int end = 0;
+    int i = 0;
+    while (i < n) {
+      int start = indices[i];
+      int length = 1;
+      while (i + length < n && indices[i + length] == start + length) {
+        length++;
+      }
+      Varint.writeUnsignedVarInt(start - end, out);
+      Varint.writeUnsignedVarInt(length, out);
+      end = start + length;
+      i += length;
+    }
+  }
+
+  private static void readRuns(DataInput in, int[] indices, int n) throws IOException {
+    int end = 0;
+    int i = 0;
+    while (i < n) {
+      int start = end + Varint.readUnsignedVarInt(in);
+      int length = Varint.readUnsignedVarInt(in);
+      Preconditions.checkArgument(length > 0 && i + length <= n, "Bad run length %s", length);
+      for (int j = 0; j < length; j++) {
+        indices[i++] = start + j;
+      }
+      end = start + length;
+    }
+  }
+
+  private static void writeGaps(DataOutput out, int[] indices, int n) throws IOException {
+    int last = 0;
+    for (int group = 0; group < n; group += 4) {
+      int count = Math.min(4, n - group);
+      int tag = 0;
+      for (int j = 0; j < count; j++) {
+        int gap = indices[group + j] - (group + j == 0 ? 0 : indices[group + j - 1]);
+        tag |= (byteLength(gap) - 1) << (2 * j);
+      }
+      out.writeByte(tag);
+      for (int j = 0; j < count; j++) {
+        int index = indices[group + j];
+        int gap = index - last;
+        last = index;
+        for (int b = (tag >>> (2 * j) & 0x03) + 1; b > 0; b--) {
+          out.writeByte(gap);
+          gap >>>= 8;
+        }
+      }
+    }
+  }
+
+  private static void readGaps(DataInput in, int[] indices, int n) throws IOException {
+    int last = 0;
+    for (int group = 0; group < n; group += 4) {
+      int count = Math.min(4, n - group);
+      int tag = in.readUnsignedByte();
+      for (int j = 0; j < count; j++) {
+        int bytes = (tag >>> (2 * j) & 0x03) + 1;
+        int gap = 0;
+        for (int b = 0; b < bytes; b++) {
+          gap |= in.readUnsignedByte() << (8 * b);
+        }
+        last += gap;
+        indices[group + j] = last;
+      }
+    }
+  }
+
+  private static int byteLength(int value) {
+    if ((value & 0xFFFFFF00) == 0) {
+      return 1;
+    }
+    if ((value & 0xFFFF0000) == 0) {
+      return 2;
+    }
+    if ((value & 0xFF000000) == 0) {
+      return 3;
+    }
+    return 4;
+  }
+
+  private static void writeValues(DataOutput out, double[] values, int n, int encoding) throws IOException {
+    switch (encoding) {
+      case VALUES_DOUBLE:
+        for (int i = 0; i < n; i++) {
+          out.writeDouble(values[i]);
+        }
+        break;
+      case VALUES_FLOAT:
+        for (int i = 0; i < n; i++) {
+          out.writeFloat((float) values[i]);
+        }
+        break;
+      case VALUES_QUANTIZED:
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+          min = Math.min(min, values[i]);
+          max = Math.max(max, values[i]);
+        }
+        if (n == 0) {
+          min = max = 0;
+        }
+        float step = (float) ((max - min) / QUANTIZATION_LEVELS);
+        out.writeFloat((float) min);
+        out.writeFloat(step);
+        for (int i = 0; i < n; i++) {
+          long q = step == 0 ? 0 : Math.round((values[i] - (float) min) / step);
+          out.writeShort((int) Math.max(0, Math.min(QUANTIZATION_LEVELS, q)));
+        }
+        break;
+      default:
+        // VALUES_ONES: nothing to store
+    }
+  }
+
+  private static void readValues(DataInput in, double[] values, int n, int encoding) throws IOException {
+    switch (encoding) {
+      case VALUES_DOUBLE:
+        for (int i = 0; i < n; i++) {
+          values[i] = in.readDouble();
+        }
+        break;
+      case VALUES_FLOAT:
+        for (int i = 0; i < n; i++) {
+          values[i] = in.readFloat();
+        }
+        break;
+      case VALUES_QUANTIZED:
+        double min = in.readFloat();
+        double step = in.readFloat();
+        for (int i = 0; i < n; i++) {
+          values[i] = min + in.readUnsignedShort() * step;
+        }
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown value encoding: " + encoding);
+    }
+  }
+}
@@ -87,6 +87,19 @@ public final class MatrixUtils {
     return matrix;
   }
 
+  /**
+   * Packs a stream of rows, such as the values of a
+   * {@link org.apache.mahout.common.iterator.sequencefile.SequenceFileValueIterable} over a row matrix, into a
+   * {@link CompressedSparseRowMatrix}. Each row is copied as it is read, so the iterable may reuse its writables.
+   */
+  public static CompressedSparseRowMatrix readCompressedSparseRows(int numCols, Iterable<VectorWritable> rows) {
+    CompressedSparseRowMatrix.Builder builder = new CompressedSparseRowMatrix.Builder(numCols);
+    for (VectorWritable row : rows) {
+      builder.addRow(row.get());
+    }
+    return builder.build();
+  }
+
   public static OpenObjectIntHashMap<String> readDictionary(Configuration conf, Path... dictPath) {
     OpenObjectIntHashMap<String> dictionary = new OpenObjectIntHashMap<String>();
     for (Path dictionaryFile : dictPath) {
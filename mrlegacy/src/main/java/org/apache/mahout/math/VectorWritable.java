@@ -32,10 +32,19 @@ public final class VectorWritable extends Configured implements Writable {
   public static final int FLAG_SEQUENTIAL = 0x02;
   public static final int FLAG_NAMED = 0x04;
   public static final int FLAG_LAX_PRECISION = 0x08;
+  /**
+   * Marks the compact encoding written when {@link #setWritesCompact(boolean)} is on.  Readers from before this
+   * flag existed reject such records as having unknown flags, so only turn it on for data read by this version.
+   */
+  public static final int FLAG_COMPACT = 0x10;
   public static final int NUM_FLAGS = 4;
 
   private Vector vector;
   private boolean writesLaxPrecision;
+  private boolean writesCompact;
+  private boolean writesQuantized;
+  private boolean reusesVector;
+  private CompactVectorFormat compactReader;
 
   public VectorWritable() {}
 
@@ -77,14 +86,64 @@ public final class VectorWritable extends Configured implements Writable {
     this.writesLaxPrecision = writesLaxPrecision;
   }
 
+  /**
+   * @return true if this writes the compact encoding: sorted, group-varint coded index gaps for sparse vectors,
+   *  run-length coded indices and no values for 0/1 vectors, and float or quantized values when lax precision
+   *  or quantization are on.  Off by default, because older readers can't read it.
+   */
+  public boolean isWritesCompact() {
+    return writesCompact;
+  }
+
+  public void setWritesCompact(boolean writesCompact) {
+    this.writesCompact = writesCompact;
+  }
+
+  /**
+   * @return true if this writes values quantized to 16 bits between their minimum and maximum.  Implies the
+   *  compact encoding, and loses precision whenever a vector has more than 65536 distinct values or a wide range.
+   */
+  public boolean isWritesQuantized() {
+    return writesQuantized;
+  }
+
+  public void setWritesQuantized(boolean writesQuantized) {
+    this.writesQuantized = writesQuantized;
+  }
+
+  /**
+   * @return true if {@link #readFields(DataInput)} overwrites the vector it holds, rather than allocating a new
+   *  one, whenever the incoming vector has the same type and size.  Callers must then copy anything they want to
+   *  keep from {@link #get()} before the next read.
+   */
+  public boolean isReusesVector() {
+    return reusesVector;
+  }
+
+  public void setReusesVector(boolean reusesVector) {
+    this.reusesVector = reusesVector;
+  }
+
   @Override
   public void write(DataOutput out) throws IOException {
-    writeVector(out, this.vector, this.writesLaxPrecision);
+    if (writesCompact || writesQuantized) {
+      writeCompactVector(out, this.vector, this.writesLaxPrecision, this.writesQuantized);
+    } else {
+      writeVector(out, this.vector, this.writesLaxPrecision);
+    }
   }
 
   @Override
   public void readFields(DataInput in) throws IOException {
     int flags = in.readByte();
+    if ((flags & FLAG_COMPACT) != 0) {
+      // checks the bits of the compact format itself
+      if (compactReader == null) {
+        compactReader = new CompactVectorFormat();
+      }
+      vector = compactReader.read(in, flags, reusesVector ? vector : null);
+      return;
+    }
     Preconditions.checkArgument(flags >> NUM_FLAGS == 0, "Unknown flags set: %d", Integer.toString(flags, 2));
     boolean dense = (flags & FLAG_DENSE) != 0;
     boolean sequential = (flags & FLAG_SEQUENTIAL) != 0;
@@ -92,18 +151,26 @@ public final class VectorWritable extends Configured implements Writable {
     boolean laxPrecision = (flags & FLAG_LAX_PRECISION) != 0;
 
     int size = Varint.readUnsignedVarInt(in);
-    Vector v;
+    Vector v = reusesVector ? reusable(vector, dense, sequential, size) : null;
     if (dense) {
-      double[] values = new double[size];
-      for (int i = 0; i < size; i++) {
-        values[i] = laxPrecision ? in.readFloat() : in.readDouble();
+      if (v == null) {
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+          values[i] = laxPrecision ? in.readFloat() : in.readDouble();
+        }
+        v = new DenseVector(values);
+      } else {
+        for (int i = 0; i < size; i++) {
+          v.setQuick(i, laxPrecision ? in.readFloat() : in.readDouble());
+        }
       }
-      v = new DenseVector(values);
     } else {
       int numNonDefaultElements = Varint.readUnsignedVarInt(in);
-      v = sequential
-          ? new SequentialAccessSparseVector(size, numNonDefaultElements)
-          : new RandomAccessSparseVector(size, numNonDefaultElements);
+      if (v == null) {
+        v = sequential
+            ? new SequentialAccessSparseVector(size, numNonDefaultElements)
+            : new RandomAccessSparseVector(size, numNonDefaultElements);
+      }
       if (sequential) {
         int lastIndex = 0;
         for (int i = 0; i < numNonDefaultElements; i++) {
@@ -128,6 +195,28 @@ public final class VectorWritable extends Configured implements Writable {
     vector = v;
   }
 
+  /**
+   * Returns the vector behind {@code previous}, zeroed, if it is exactly the type that reading a vector with the
+   * given flags would create and has the given size; otherwise null.
+   */
+  static Vector reusable(Vector previous, boolean dense, boolean sequential, int size) {
+    Vector v = previous instanceof NamedVector ? ((NamedVector) previous).getDelegate() : previous;
+    if (v == null || v.size() != size) {
+      return null;
+    }
+    Class<? extends Vector> expected = dense
+        ? DenseVector.class
+        : sequential ? SequentialAccessSparseVector.class : RandomAccessSparseVector.class;
+    if (v.getClass() != expected) {
+      return null;
+    }
+    // a dense vector is overwritten completely, a sparse one has to be emptied first
+    if (!dense) {
+      v.assign(0);
+    }
+    return v;
+  }
+
   /** Write the vector to the output */
   public static void writeVector(DataOutput out, Vector vector) throws IOException {
     writeVector(out, vector, false);
@@ -194,6 +283,17 @@ public final class VectorWritable extends Configured implements Writable {
     }
   }
 
+  /**
+   * Writes the vector in the compact encoding marked by {@link #FLAG_COMPACT}.
+   *
+   * @param laxPrecision write values as floats
+   * @param quantized write values as 16 bit steps between their minimum and maximum; overrides laxPrecision
+   */
+  public static void writeCompactVector(DataOutput out, Vector vector, boolean laxPrecision, boolean quantized)
+    throws IOException {
+    CompactVectorFormat.write(out, vector, laxPrecision, quantized);
+  }
+
   public static Vector readVector(DataInput in) throws IOException {
     VectorWritable v = new VectorWritable();
     v.readFields(in);
@@ -157,6 +157,24 @@ public abstract class FeatureVectorEncoder {
     return (int) r;
   }
 
+  /**
+   * Maps one 128 bit hash to the location of a probe in the range [0..numFeatures-1] by double hashing, so that
+   * any number of probes can share a single hash computation.
+   *
+   * @param hash        The two halves of a 128 bit hash, as produced by
+   *                    {@link org.apache.mahout.math.MurmurHash3#murmurhash3x64128}.
+   * @param probe       The probe number.
+   * @param numFeatures The range into which the location must fit.
+   */
+  protected static int probeLocation(long[] hash, int probe, int numFeatures) {
+    // an odd step can't be zero, so the probes of one value don't all collapse onto the first
+    long r = (hash[0] + probe * (hash[1] | 1)) % numFeatures;
+    if (r < 0) {
+      r += numFeatures;
+    }
+    return (int) r;
+  }
+
   /**
    * Hash two strings and an integer into the range [0..numFeatures-1].
    *
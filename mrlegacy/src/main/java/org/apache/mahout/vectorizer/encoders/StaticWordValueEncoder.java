@@ -34,16 +34,9 @@ import java.util.Map;
 public class StaticWordValueEncoder extends WordValueEncoder {
   private Map<String, Double> dictionary;
   private double missingValueWeight = 1;
-  private final byte[] nameBytes;
 
   public StaticWordValueEncoder(String name) {
     super(name);
-    nameBytes = bytesForString(name);
-  }
-
-  @Override
-  protected int hashForProbe(byte[] originalForm, int dataSize, String name, int probe) {
-    return hash(nameBytes, originalForm, WORD_LIKE_VALUE_HASH_SEED + probe, dataSize);
   }
 
   /**
@@ -68,11 +61,19 @@ public class StaticWordValueEncoder extends WordValueEncoder {
 
   @Override
   protected double weight(byte[] originalForm) {
+    if (dictionary == null) {
+      return missingValueWeight;
+    }
+    return weight(new String(originalForm, Charsets.UTF_8));
+  }
+
+  @Override
+  protected double weight(String originalForm) {
     double weight = missingValueWeight;
     if (dictionary != null) {
-      String s = new String(originalForm, Charsets.UTF_8);
-      if (dictionary.containsKey(s)) {
-        weight = dictionary.get(s);
+      Double w = dictionary.get(originalForm == null ? "" : originalForm);
+      if (w != null) {
+        weight = w;
       }
     }
     return weight;
@@ -139,4 +139,16 @@ public class TextValueEncoder extends FeatureVectorEncoder {
   public final void setWordEncoder(FeatureVectorEncoder wordEncoder) {
     this.wordEncoder = wordEncoder;
   }
+
+  /**
+   * Switches the current word encoder to double hashing.  This only has an effect if the word encoder is a
+   * {@link WordValueEncoder}, as the default one is.
+   *
+   * @see WordValueEncoder#setDoubleHashing(boolean)
+   */
+  public void setDoubleHashing(boolean doubleHashing) {
+    if (wordEncoder instanceof WordValueEncoder) {
+      ((WordValueEncoder) wordEncoder).setDoubleHashing(doubleHashing);
+    }
+  }
 }
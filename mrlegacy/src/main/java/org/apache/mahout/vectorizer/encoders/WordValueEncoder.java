@@ -17,6 +17,7 @@
 
 package org.apache.mahout.vectorizer.encoders;
 
+import org.apache.mahout.math.MurmurHash3;
 import org.apache.mahout.math.Vector;
 
 import java.util.Locale;
@@ -27,10 +28,56 @@ import java.util.Locale;
  */
 public abstract class WordValueEncoder extends FeatureVectorEncoder {
   private final byte[] nameBytes;
+  private final long nameSeed;
+  private boolean doubleHashing;
 
   protected WordValueEncoder(String name) {
     super(name, 2);
     nameBytes = bytesForString(name);
+    long[] hash = new long[2];
+    MurmurHash3.murmurhash3x64128(nameBytes, 0, nameBytes.length, WORD_LIKE_VALUE_HASH_SEED, hash);
+    nameSeed = hash[0];
+  }
+
+  /**
+   * Selects how probe locations are computed.  By default each probe hashes the name and the value again.  With
+   * double hashing, one 128 bit MurmurHash3 of the value (seeded by the name) gives all of the probes, and values
+   * passed as strings are hashed straight from their characters without being encoded to a byte array first.
+   * <p/>
+   * The two schemes put features in different locations, so a model must be used with the scheme it was
+   * trained with.  That is why double hashing is not the default.
+   */
+  public void setDoubleHashing(boolean doubleHashing) {
+    this.doubleHashing = doubleHashing;
+  }
+
+  public boolean isDoubleHashing() {
+    return doubleHashing;
+  }
+
+  /**
+   * Adds a weighted value expressed in string form to a vector.  With double hashing enabled this doesn't
+   * allocate unless tracing is on or a subclass needs the bytes to compute the weight.
+   */
+  @Override
+  public void addToVector(String originalForm, double w, Vector data) {
+    if (!doubleHashing) {
+      super.addToVector(originalForm, w, data);
+      return;
+    }
+    CharSequence term = originalForm == null ? "" : originalForm;
+    // a local array keeps encoders safe to share between threads, and doesn't escape
+    long[] hash = new long[2];
+    MurmurHash3.murmurhash3x64128(term, 0, term.length(), nameSeed, hash);
+    double weight = w * weight(originalForm);
+    int probes = getProbes();
+    for (int i = 0; i < probes; i++) {
+      int n = probeLocation(hash, i, data.size());
+      if (isTraceEnabled()) {
+        trace(originalForm, n);
+      }
+      data.set(n, data.get(n) + weight);
+    }
   }
 
   /**
@@ -44,8 +91,14 @@ public abstract class WordValueEncoder extends FeatureVectorEncoder {
     int probes = getProbes();
     String name = getName();
     double weight = getWeight(originalForm, w);
+    long[] hash = null;
+    if (doubleHashing) {
+      // one hash for all of the probes
+      hash = new long[2];
+      MurmurHash3.murmurhash3x64128(originalForm, 0, originalForm.length, nameSeed, hash);
+    }
     for (int i = 0; i < probes; i++) {
-      int n = hashForProbe(originalForm, data.size(), name, i);
+      int n = hash == null ? hashForProbe(originalForm, data.size(), name, i) : probeLocation(hash, i, data.size());
       if (isTraceEnabled()) {
         trace(originalForm, n);        
       }
@@ -61,6 +114,11 @@ public abstract class WordValueEncoder extends FeatureVectorEncoder {
 
   @Override
   protected int hashForProbe(byte[] originalForm, int dataSize, String name, int probe) {
+    if (doubleHashing) {
+      long[] hash = new long[2];
+      MurmurHash3.murmurhash3x64128(originalForm, 0, originalForm.length, nameSeed, hash);
+      return probeLocation(hash, probe, dataSize);
+    }
     return hash(nameBytes, originalForm, WORD_LIKE_VALUE_HASH_SEED + probe, dataSize);
   }
 
@@ -78,4 +136,12 @@ public abstract class WordValueEncoder extends FeatureVectorEncoder {
   }
 
   protected abstract double weight(byte[] originalForm);
+
+  /**
+   * Returns the weight of a value given as a string.  Subclasses that look weights up by string should override
+   * this to skip the round trip through UTF-8.
+   */
+  protected double weight(String originalForm) {
+    return weight(bytesForString(originalForm));
+  }
 }
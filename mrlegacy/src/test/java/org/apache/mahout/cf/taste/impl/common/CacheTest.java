@@ -23,6 +23,14 @@ import org.apache.mahout.common.RandomUtils;
 import org.junit.Test;
 
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public final class CacheTest extends TasteTestCase {
 
@@ -52,6 +60,213 @@ public final class CacheTest extends TasteTestCase {
     }
   }
   
+  @Test
+  public void testCounters() throws TasteException {
+    Cache<Object,Object> cache = new Cache<Object,Object>(new IdentityRetriever(), 1000);
+    for (int i = 0; i < 10; i++) {
+      cache.get(i);
+    }
+    for (int i = 0; i < 10; i++) {
+      cache.get(i);
+    }
+    assertEquals(10, cache.getMissCount());
+    assertEquals(10, cache.getHitCount());
+    assertEquals(10, cache.size());
+    cache.remove(3);
+    assertEquals(9, cache.size());
+    cache.clear();
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testNullValue() throws TasteException {
+    final AtomicInteger calls = new AtomicInteger();
+    Cache<Object,Object> cache = new Cache<Object,Object>(new Retriever<Object,Object>() {
+      @Override
+      public Object get(Object key) {
+        calls.incrementAndGet();
+        return null;
+      }
+    });
+    assertNull(cache.get("a"));
+    assertNull(cache.get("a"));
+    assertEquals(1, calls.get());
+    cache.removeValueMatching(new Cache.MatchPredicate<Object>() {
+      @Override
+      public boolean matches(Object thing) {
+        throw new IllegalStateException("null values should not be matched");
+      }
+    });
+  }
+
+  @Test
+  public void testFrequentKeysSurviveScan() throws TasteException {
+    CountingRetriever retriever = new CountingRetriever();
+    Cache<Object,Object> cache = new Cache<Object,Object>(retriever, 100);
+    for (int round = 0; round < 8; round++) {
+      for (int i = 0; i < 50; i++) {
+        cache.get(i);
+      }
+    }
+    for (int i = 1000; i < 2000; i++) {
+      cache.get(i);
+    }
+    int before = retriever.calls.get();
+    for (int i = 0; i < 50; i++) {
+      cache.get(i);
+    }
+    // the hot keys were not flushed out by the one-off scan
+    assertEquals(before, retriever.calls.get());
+    assertTrue(cache.getRejectionCount() > 0);
+    assertTrue(cache.size() <= 100);
+  }
+
+  @Test
+  public void testEvictsWhenFull() throws TasteException {
+    Cache<Object,Object> cache = new Cache<Object,Object>(new IdentityRetriever(), 64);
+    for (int round = 0; round < 3; round++) {
+      for (int i = 0; i < 1000; i++) {
+        cache.get(i);
+      }
+    }
+    assertTrue(cache.size() <= 64);
+    assertTrue(cache.getEvictionCount() + cache.getRejectionCount() > 0);
+  }
+
+  @Test
+  public void testSingleFlight() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger calls = new AtomicInteger();
+    final Cache<Object,Object> cache = new Cache<Object,Object>(new Retriever<Object,Object>() {
+      @Override
+      public Object get(Object key) throws TasteException {
+        calls.incrementAndGet();
+        try {
+          release.await();
+        } catch (InterruptedException ie) {
+          throw new TasteException(ie);
+        }
+        return "value-" + key;
+      }
+    }, 1000);
+    int numThreads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    try {
+      Future<?>[] results = new Future<?>[numThreads];
+      for (int i = 0; i < numThreads; i++) {
+        results[i] = executor.submit(new Callable<Object>() {
+          @Override
+          public Object call() throws TasteException {
+            return cache.get("key");
+          }
+        });
+      }
+      while (cache.getMissCount() < numThreads) {
+        Thread.sleep(5);
+      }
+      release.countDown();
+      for (Future<?> result : results) {
+        assertEquals("value-key", result.get(10, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(1, calls.get());
+    assertEquals("value-key", cache.get("key"));
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  public void testFailureReachesWaiters() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final Cache<Object,Object> cache = new Cache<Object,Object>(new Retriever<Object,Object>() {
+      @Override
+      public Object get(Object key) throws TasteException {
+        try {
+          release.await();
+        } catch (InterruptedException ie) {
+          throw new TasteException(ie);
+        }
+        throw new TasteException("boom");
+      }
+    });
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<?>[] results = new Future<?>[2];
+      for (int i = 0; i < results.length; i++) {
+        results[i] = executor.submit(new Callable<Object>() {
+          @Override
+          public Object call() throws TasteException {
+            return cache.get("key");
+          }
+        });
+      }
+      while (cache.getMissCount() < results.length) {
+        Thread.sleep(5);
+      }
+      release.countDown();
+      for (Future<?> result : results) {
+        try {
+          result.get(10, TimeUnit.SECONDS);
+          fail();
+        } catch (ExecutionException ee) {
+          assertTrue(ee.getCause() instanceof TasteException);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testRemoveDuringLoad() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger calls = new AtomicInteger();
+    final Cache<Object,Object> cache = new Cache<Object,Object>(new Retriever<Object,Object>() {
+      @Override
+      public Object get(Object key) throws TasteException {
+        if (calls.incrementAndGet() == 1) {
+          started.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException ie) {
+            throw new TasteException(ie);
+          }
+          return "stale";
+        }
+        return "fresh";
+      }
+    });
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Object> stale = executor.submit(new Callable<Object>() {
+        @Override
+        public Object call() throws TasteException {
+          return cache.get("key");
+        }
+      });
+      started.await();
+      cache.remove("key");
+      release.countDown();
+      assertEquals("stale", stale.get(10, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+    // the value loaded before the remove() was not kept
+    assertEquals("fresh", cache.get("key"));
+  }
+
+  private static final class CountingRetriever implements Retriever<Object,Object> {
+    private final AtomicInteger calls = new AtomicInteger();
+    @Override
+    public Object get(Object key) {
+      calls.incrementAndGet();
+      return key;
+    }
+  }
+
   private static class IdentityRetriever implements Retriever<Object,Object> {
     @Override
     public Object get(Object key) throws TasteException {
@@ -18,9 +18,12 @@
 package org.apache.mahout.cf.taste.impl.model.file;
 
 import java.io.File;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Random;
 
 import org.apache.commons.lang3.mutable.MutableBoolean;
+import org.apache.mahout.cf.taste.common.NoSuchUserException;
 import org.apache.mahout.cf.taste.common.TasteException;
 import org.apache.mahout.cf.taste.impl.TasteTestCase;
 import org.apache.mahout.cf.taste.impl.common.LongPrimitiveIterator;
@@ -33,9 +36,13 @@ import org.apache.mahout.cf.taste.model.PreferenceArray;
 import org.apache.mahout.cf.taste.neighborhood.UserNeighborhood;
 import org.apache.mahout.cf.taste.recommender.Recommender;
 import org.apache.mahout.cf.taste.similarity.UserSimilarity;
+import org.apache.mahout.common.RandomUtils;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+
 /** <p>Tests {@link FileDataModel}.</p> */
 public final class FileDataModelTest extends TasteTestCase {
 
@@ -207,6 +214,163 @@ public final class FileDataModelTest extends TasteTestCase {
     assertFalse(model.toString().isEmpty());
   }
 
+  @Test
+  public void testParallelLoadMatchesSequential() throws Exception {
+    File file = getTestTempFile("parallel.txt");
+    writeLines(file, randomLines(20000, true, true));
+    FileDataModel sequential = new FileDataModel(file, false, 0L, null, 1);
+    FileDataModel parallel = new FileDataModel(file, false, 0L, null, 4, 1000);
+    assertTrue(sequential.hasPreferenceValues());
+    assertSameModel(sequential, parallel);
+
+    FileDataModel sequentialTransposed = new FileDataModel(file, true, 0L, null, 1);
+    FileDataModel parallelTransposed = new FileDataModel(file, true, 0L, null, 3, 777);
+    assertSameModel(sequentialTransposed, parallelTransposed);
+  }
+
+  @Test
+  public void testParallelLoadWithoutPreferenceValues() throws Exception {
+    File file = getTestTempFile("parallelBoolean.txt");
+    writeLines(file, randomLines(20000, false, true));
+    FileDataModel sequential = new FileDataModel(file, false, 0L, null, 1);
+    FileDataModel parallel = new FileDataModel(file, false, 0L, null, 4, 1000);
+    assertFalse(sequential.hasPreferenceValues());
+    assertSameModel(sequential, parallel);
+  }
+
+  @Test
+  public void testParallelLoadWithUpdateFile() throws Exception {
+    File file = getTestTempFile("parallelupdate.txt");
+    writeLines(file, randomLines(5000, true, false));
+    File updateFile = getTestTempFile("parallelupdate.1.txt");
+    writeLines(updateFile, randomLines(500, true, false));
+    FileDataModel sequential = new FileDataModel(file, false, 0L, null, 1);
+    FileDataModel parallel = new FileDataModel(file, false, 0L, null, 4, 100);
+    assertSameModel(sequential, parallel);
+  }
+
+  @Test
+  public void testParallelLoadUsesOverriddenHooks() throws Exception {
+    File file = getTestTempFile("parallelhooks.txt");
+    writeLines(file, DATA);
+    FileDataModel shifted = new FileDataModel(file, false, 0L, null, 4, 1) {
+      @Override
+      protected long readUserIDFromString(String value) {
+        return Long.parseLong(value) + 1000L;
+      }
+    };
+    assertEquals(3, shifted.getItemIDsFromUser(1123L).size());
+    assertEquals(4, shifted.getNumUsers());
+  }
+
+  @Test
+  public void testParseNumbers() {
+    Random random = RandomUtils.getRandom();
+    for (int i = 0; i < 100000; i++) {
+      String value;
+      switch (i % 4) {
+        case 0:
+          value = Float.toString(random.nextFloat() * 10.0f);
+          break;
+        case 1:
+          value = Integer.toString(random.nextInt(2000) - 1000) + '.' + random.nextInt(1000000000);
+          break;
+        case 2:
+          value = Double.toString(random.nextGaussian() * 1.0e-30);
+          break;
+        default:
+          value = Long.toString(random.nextLong() % 100000000000000000L) + '.' + random.nextInt(10);
+          break;
+      }
+      byte[] bytes = (' ' + value + ',').getBytes(Charsets.UTF_8);
+      assertEquals(value, Float.parseFloat(value), ChunkedFileLoader.parseFloat(bytes, 1, bytes.length - 1), 0.0f);
+      long id = random.nextLong() >> random.nextInt(64);
+      bytes = Long.toString(id).getBytes(Charsets.UTF_8);
+      assertEquals(id, ChunkedFileLoader.parseLong(bytes, 0, bytes.length));
+    }
+    byte[] special = "-0,1.,.5,007,1e3,NaN".getBytes(Charsets.UTF_8);
+    assertEquals(Float.floatToIntBits(-0.0f), Float.floatToIntBits(ChunkedFileLoader.parseFloat(special, 0, 2)));
+    assertEquals(1.0f, ChunkedFileLoader.parseFloat(special, 3, 5), 0.0f);
+    assertEquals(0.5f, ChunkedFileLoader.parseFloat(special, 6, 8), 0.0f);
+    assertEquals(7.0f, ChunkedFileLoader.parseFloat(special, 9, 12), 0.0f);
+    assertEquals(1000.0f, ChunkedFileLoader.parseFloat(special, 13, 16), 0.0f);
+    assertTrue(Float.isNaN(ChunkedFileLoader.parseFloat(special, 17, 20)));
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void testParallelLoadBadNumber() throws Exception {
+    List<String> lines = Lists.newArrayList(randomLines(2000, true, false));
+    lines.add("123,x456,1.0");
+    File file = getTestTempFile("parallelbad.txt");
+    writeLines(file, lines.toArray(new String[lines.size()]));
+    new FileDataModel(file, false, 0L, null, 4, 1000);
+  }
+
+  /**
+   * Random preference lines with duplicates, deletes, comments, blank lines and carriage returns, whose
+   * first line is always a plain preference so that it determines the format.
+   */
+  private static String[] randomLines(int numLines, boolean withValues, boolean withTimestamps) {
+    Random random = RandomUtils.getRandom();
+    String[] lines = new String[numLines];
+    lines[0] = withValues ? "1,1,1.0" : "1,1";
+    for (int i = 1; i < numLines; i++) {
+      int kind = random.nextInt(20);
+      long userID = random.nextInt(300) - 20;
+      long itemID = random.nextInt(200) + 100000000000L;
+      if (kind == 0) {
+        lines[i] = "";
+      } else if (kind == 1) {
+        lines[i] = "# comment " + i;
+      } else if (kind < 4) {
+        lines[i] = userID + "," + itemID + ',';
+      } else {
+        StringBuilder line = new StringBuilder();
+        line.append(userID).append(',').append(itemID);
+        if (withValues) {
+          line.append(',').append(kind == 4 ? Integer.toString(random.nextInt(5)) : random.nextFloat() * 5.0f);
+        } else if (withTimestamps && kind % 2 == 0) {
+          line.append(',');
+        }
+        if (withTimestamps && kind % 2 == 0) {
+          line.append(',').append(random.nextInt(Integer.MAX_VALUE) * 1000L);
+        }
+        if (kind == 5) {
+          line.append('\r');
+        }
+        lines[i] = line.toString();
+      }
+    }
+    return lines;
+  }
+
+  private static void assertSameModel(DataModel expected, DataModel actual) throws TasteException {
+    assertEquals(expected.getNumUsers(), actual.getNumUsers());
+    assertEquals(expected.getNumItems(), actual.getNumItems());
+    LongPrimitiveIterator userIDs = expected.getUserIDs();
+    while (userIDs.hasNext()) {
+      long userID = userIDs.nextLong();
+      PreferenceArray expectedPrefs = expected.getPreferencesFromUser(userID);
+      PreferenceArray actualPrefs = actual.getPreferencesFromUser(userID);
+      assertEquals(expectedPrefs.length(), actualPrefs.length());
+      for (int i = 0; i < expectedPrefs.length(); i++) {
+        long itemID = expectedPrefs.getItemID(i);
+        assertEquals(itemID, actualPrefs.getItemID(i));
+        assertEquals(expectedPrefs.getValue(i), actualPrefs.getValue(i), 0.0f);
+        assertEquals(preferenceTime(expected, userID, itemID), preferenceTime(actual, userID, itemID));
+      }
+    }
+  }
+
+  private static Long preferenceTime(DataModel model, long userID, long itemID) throws TasteException {
+    try {
+      return model.getPreferenceTime(userID, itemID);
+    } catch (NoSuchUserException nsue) {
+      // users without any timestamp are not in the timestamp map at all
+      return null;
+    }
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testEmptyFile() throws Exception {
     File file = getTestTempFile("empty");
@@ -0,0 +1,307 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.impl.model.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
+import org.apache.mahout.cf.taste.common.NoSuchItemException;
+import org.apache.mahout.cf.taste.common.NoSuchUserException;
+import org.apache.mahout.cf.taste.common.TasteException;
+import org.apache.mahout.cf.taste.eval.IRStatistics;
+import org.apache.mahout.cf.taste.eval.RecommenderBuilder;
+import org.apache.mahout.cf.taste.impl.TasteTestCase;
+import org.apache.mahout.cf.taste.impl.common.FastByIDMap;
+import org.apache.mahout.cf.taste.impl.common.FastIDSet;
+import org.apache.mahout.cf.taste.impl.common.FullRunningAverage;
+import org.apache.mahout.cf.taste.impl.common.LongPrimitiveIterator;
+import org.apache.mahout.cf.taste.impl.common.RunningAverage;
+import org.apache.mahout.cf.taste.impl.eval.GenericRecommenderIRStatsEvaluator;
+import org.apache.mahout.cf.taste.impl.eval.OrderBasedRecommenderEvaluator;
+import org.apache.mahout.cf.taste.impl.model.GenericDataModel;
+import org.apache.mahout.cf.taste.impl.model.GenericUserPreferenceArray;
+import org.apache.mahout.cf.taste.impl.recommender.GenericItemBasedRecommender;
+import org.apache.mahout.cf.taste.impl.similarity.PearsonCorrelationSimilarity;
+import org.apache.mahout.cf.taste.model.DataModel;
+import org.apache.mahout.cf.taste.model.PreferenceArray;
+import org.apache.mahout.cf.taste.recommender.Recommender;
+import org.apache.mahout.common.RandomUtils;
+import org.junit.Test;
+
+/** <p>Tests {@link MemoryMappedDataModel} and {@link MemoryMappedDataModelWriter}.</p> */
+public final class MemoryMappedDataModelTest extends TasteTestCase {
+
+  private static final String[] DATA = {
+      "123,456,0.1,1000",
+      "123,789,0.6,1001",
+      "123,654,0.7",
+      "234,123,0.5,1003",
+      "234,234,1.0,1004",
+      "234,999,0.9,1005",
+      "345,789,0.6,1006",
+      "345,654,0.7,1007",
+      "345,123,1.0,1008",
+      "345,234,0.5,1009",
+      "345,999,0.5,1010",
+      "456,456,0.1,1011",
+      "456,789,0.5,1012",
+      "456,654,0.0,1013",
+      "456,999,0.2,1014",};
+
+  @Test
+  public void testFromFileDataModel() throws Exception {
+    File input = getTestTempFile("prefs.csv");
+    writeLines(input, DATA);
+    DataModel fileModel = new FileDataModel(input);
+    File output = getTestTempFile("prefs.bin");
+    MemoryMappedDataModelWriter.write(fileModel, output, true);
+
+    DataModel model = new MemoryMappedDataModel(output);
+    assertSameModel(fileModel, model);
+    assertEquals(1001L, model.getPreferenceTime(123, 789).longValue());
+    assertNull(model.getPreferenceTime(123, 654));
+    assertNull(model.getPreferenceTime(123, 999));
+    assertEquals(0.0f, model.getMinPreference(), EPSILON);
+    assertEquals(1.0f, model.getMaxPreference(), EPSILON);
+
+    DataModel withoutTimestamps = new MemoryMappedDataModel(writeModel(fileModel));
+    assertNull(withoutTimestamps.getPreferenceTime(123, 789));
+  }
+
+  @Test
+  public void testRandomModelAcrossChunks() throws Exception {
+    DataModel expected = randomModel(150, 80, 20);
+    // 64 byte chunks put plenty of column boundaries on chunk boundaries
+    assertSameModel(expected, new MemoryMappedDataModel(writeModel(expected), 6));
+    assertSameModel(expected, new MemoryMappedDataModel(writeModel(expected)));
+  }
+
+  @Test
+  public void testBooleanModel() throws Exception {
+    DataModel expected = getBooleanDataModel();
+    DataModel model = new MemoryMappedDataModel(writeModel(expected));
+    assertFalse(model.hasPreferenceValues());
+    assertSameModel(expected, model);
+  }
+
+  @Test
+  public void testViewsAreReadOnly() throws Exception {
+    DataModel model = new MemoryMappedDataModel(writeModel(getDataModel()));
+    PreferenceArray prefs = model.getPreferencesFromUser(1);
+    try {
+      prefs.setValue(0, 2.0f);
+      fail();
+    } catch (UnsupportedOperationException uoe) {
+      // good
+    }
+    PreferenceArray copy = prefs.clone();
+    assertTrue(copy instanceof GenericUserPreferenceArray);
+    copy.setValue(0, 2.0f);
+    assertEquals(2.0f, copy.getValue(0), EPSILON);
+    assertEquals(prefs.getItemID(0), copy.getItemID(0));
+    assertFalse(prefs.getValue(0) == 2.0f);
+    // sorting by the row's own order is allowed
+    prefs.sortByItem();
+    model.getPreferencesForItem(prefs.getItemID(0)).sortByUser();
+  }
+
+  @Test
+  public void testSortByValue() throws Exception {
+    DataModel model = new MemoryMappedDataModel(writeModel(randomModel(20, 50, 20)));
+    long userID = model.getUserIDs().nextLong();
+    PreferenceArray prefs = model.getPreferencesFromUser(userID);
+    long[] itemIDs = prefs.getIDs().clone();
+
+    prefs.sortByValueReversed();
+    for (int i = 1; i < prefs.length(); i++) {
+      assertTrue(prefs.getValue(i - 1) >= prefs.getValue(i));
+    }
+    for (long itemID : itemIDs) {
+      assertTrue(prefs.hasPrefWithItemID(itemID));
+      assertEquals(model.getPreferenceValue(userID, itemID), prefs.getValue(indexOf(prefs.getIDs(), itemID)),
+          0.0f);
+    }
+    prefs.sortByValue();
+    for (int i = 1; i < prefs.length(); i++) {
+      assertTrue(prefs.getValue(i - 1) <= prefs.getValue(i));
+    }
+    prefs.sortByItem();
+    assertArrayEquals(itemIDs, prefs.getIDs());
+    // other views of the same row are unaffected
+    prefs.sortByValueReversed();
+    assertArrayEquals(itemIDs, model.getPreferencesFromUser(userID).getIDs());
+  }
+
+  @Test
+  public void testEvaluators() throws Exception {
+    DataModel expected = randomModel(150, 80, 20);
+    DataModel model = new MemoryMappedDataModel(writeModel(expected));
+    RecommenderBuilder builder = new RecommenderBuilder() {
+      @Override
+      public Recommender buildRecommender(DataModel dataModel) throws TasteException {
+        return new GenericItemBasedRecommender(dataModel, new PearsonCorrelationSimilarity(dataModel));
+      }
+    };
+    IRStatistics expectedStats = new GenericRecommenderIRStatsEvaluator().evaluate(
+        builder, null, expected, null, 2, GenericRecommenderIRStatsEvaluator.CHOOSE_THRESHOLD, 1.0);
+    IRStatistics stats = new GenericRecommenderIRStatsEvaluator().evaluate(
+        builder, null, model, null, 2, GenericRecommenderIRStatsEvaluator.CHOOSE_THRESHOLD, 1.0);
+    assertEquals(expectedStats.getPrecision(), stats.getPrecision(), EPSILON);
+    assertEquals(expectedStats.getRecall(), stats.getRecall(), EPSILON);
+    assertEquals(expectedStats.getNormalizedDiscountedCumulativeGain(),
+        stats.getNormalizedDiscountedCumulativeGain(), EPSILON);
+
+    RunningAverage tracker = new FullRunningAverage();
+    OrderBasedRecommenderEvaluator.evaluate(model, model, 5, tracker, "mapped");
+    assertTrue(tracker.getCount() > 0);
+    assertEquals(0.0, tracker.getAverage(), EPSILON);
+  }
+
+  @Test
+  public void testSerialization() throws Exception {
+    DataModel model = new MemoryMappedDataModel(writeModel(getDataModel()));
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(model);
+    out.writeObject(model.getPreferencesFromUser(1));
+    out.close();
+    ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    assertSameModel(model, (DataModel) in.readObject());
+    assertEquals(model.getPreferencesFromUser(1).length(), ((PreferenceArray) in.readObject()).length());
+  }
+
+  @Test(expected = IOException.class)
+  public void testRejectsOtherFiles() throws Exception {
+    File input = getTestTempFile("prefs.csv");
+    writeLines(input, DATA);
+    new MemoryMappedDataModel(input);
+  }
+
+  private File writeModel(DataModel dataModel) throws Exception {
+    File output = File.createTempFile("model", ".bin", getTestTempDir());
+    MemoryMappedDataModelWriter.write(dataModel, output);
+    return output;
+  }
+
+  private static int indexOf(long[] ids, long id) {
+    for (int i = 0; i < ids.length; i++) {
+      if (ids[i] == id) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static DataModel randomModel(int numUsers, int numItems, int maxPrefsPerUser) {
+    Random random = RandomUtils.getRandom();
+    FastByIDMap<PreferenceArray> userData = new FastByIDMap<PreferenceArray>();
+    for (int u = 0; u < numUsers; u++) {
+      long userID = random.nextInt(1000000) - 500000;
+      FastIDSet itemIDs = new FastIDSet();
+      int numPrefs = 1 + random.nextInt(maxPrefsPerUser);
+      while (itemIDs.size() < numPrefs) {
+        itemIDs.add(random.nextInt(numItems) * 7919L);
+      }
+      PreferenceArray prefs = new GenericUserPreferenceArray(numPrefs);
+      prefs.setUserID(0, userID);
+      int i = 0;
+      for (long itemID : itemIDs) {
+        prefs.setItemID(i, itemID);
+        prefs.setValue(i, (float) random.nextGaussian());
+        i++;
+      }
+      userData.put(userID, prefs);
+    }
+    return new GenericDataModel(userData);
+  }
+
+  private static void assertSameModel(DataModel expected, DataModel actual) throws Exception {
+    assertEquals(expected.getNumUsers(), actual.getNumUsers());
+    assertEquals(expected.getNumItems(), actual.getNumItems());
+    assertEquals(expected.hasPreferenceValues(), actual.hasPreferenceValues());
+    LongPrimitiveIterator expectedUserIDs = expected.getUserIDs();
+    LongPrimitiveIterator actualUserIDs = actual.getUserIDs();
+    while (expectedUserIDs.hasNext()) {
+      long userID = expectedUserIDs.nextLong();
+      assertEquals(userID, actualUserIDs.peek());
+      assertEquals(userID, actualUserIDs.nextLong());
+      PreferenceArray expectedPrefs = expected.getPreferencesFromUser(userID);
+      PreferenceArray actualPrefs = actual.getPreferencesFromUser(userID);
+      assertEquals(expectedPrefs.length(), actualPrefs.length());
+      assertEquals(expected.getItemIDsFromUser(userID), actual.getItemIDsFromUser(userID));
+      for (int i = 0; i < expectedPrefs.length(); i++) {
+        long itemID = expectedPrefs.getItemID(i);
+        assertEquals(userID, actualPrefs.getUserID(i));
+        assertTrue(actualPrefs.hasPrefWithItemID(itemID));
+        assertEquals(expected.getPreferenceValue(userID, itemID), actual.getPreferenceValue(userID, itemID));
+        assertEquals(expected.getPreferenceTime(userID, itemID), actual.getPreferenceTime(userID, itemID));
+        if (i > 0) {
+          assertTrue(actualPrefs.getItemID(i - 1) < actualPrefs.getItemID(i));
+        }
+      }
+      assertFalse(actualPrefs.hasPrefWithItemID(-1));
+      assertNull(actual.getPreferenceValue(userID, -1));
+    }
+    assertFalse(actualUserIDs.hasNext());
+
+    LongPrimitiveIterator expectedItemIDs = expected.getItemIDs();
+    LongPrimitiveIterator actualItemIDs = actual.getItemIDs();
+    long previousItemID = Long.MIN_VALUE;
+    while (expectedItemIDs.hasNext()) {
+      long itemID = expectedItemIDs.nextLong();
+      assertEquals(itemID, actualItemIDs.nextLong());
+      PreferenceArray expectedPrefs = expected.getPreferencesForItem(itemID);
+      PreferenceArray actualPrefs = actual.getPreferencesForItem(itemID);
+      assertEquals(expectedPrefs.length(), actualPrefs.length());
+      assertEquals(expected.getNumUsersWithPreferenceFor(itemID), actual.getNumUsersWithPreferenceFor(itemID));
+      for (int i = 0; i < expectedPrefs.length(); i++) {
+        assertEquals(expectedPrefs.getUserID(i), actualPrefs.getUserID(i));
+        assertEquals(itemID, actualPrefs.getItemID(i));
+        assertEquals(expectedPrefs.getValue(i), actualPrefs.getValue(i), 0.0f);
+        assertTrue(actualPrefs.hasPrefWithUserID(expectedPrefs.getUserID(i)));
+        assertEquals(expectedPrefs.getUserID(i), actualPrefs.getIDs()[i]);
+      }
+      if (previousItemID != Long.MIN_VALUE) {
+        assertEquals(expected.getNumUsersWithPreferenceFor(previousItemID, itemID),
+                     actual.getNumUsersWithPreferenceFor(previousItemID, itemID));
+      }
+      previousItemID = itemID;
+    }
+    assertFalse(actualItemIDs.hasNext());
+
+    assertEquals(0, actual.getNumUsersWithPreferenceFor(Long.MAX_VALUE));
+    try {
+      actual.getPreferencesFromUser(Long.MAX_VALUE);
+      fail();
+    } catch (NoSuchUserException nsue) {
+      // good
+    }
+    try {
+      actual.getPreferencesForItem(Long.MAX_VALUE);
+      fail();
+    } catch (NoSuchItemException nsie) {
+      // good
+    }
+  }
+
+}
@@ -75,4 +75,58 @@ public final class CachingRecommenderTest extends TasteTestCase {
     assertEquals(11, recommendCount.intValue());
   }
 
+  @Test
+  public void testServesStaleWhileRefreshing() throws Exception {
+    MutableInt recommendCount = new MutableInt();
+    CachingRecommender cachingRecommender =
+        new CachingRecommender(new MockRecommender(recommendCount), 1, 10, Long.MAX_VALUE);
+    try {
+      cachingRecommender.recommend(1, 1);
+      assertEquals(1, recommendCount.intValue());
+      cachingRecommender.recommend(1, 1);
+      assertEquals(0, cachingRecommender.getStaleHitCount());
+
+      cachingRecommender.refresh(null);
+      assertEquals(1, cachingRecommender.recommend(1, 1).size());
+      awaitBackgroundRefreshes(cachingRecommender, 1);
+      assertEquals(1, cachingRecommender.getStaleHitCount());
+      assertEquals(2, recommendCount.intValue());
+
+      // the recomputed entry is fresh again
+      cachingRecommender.recommend(1, 1);
+      assertEquals(1, cachingRecommender.getStaleHitCount());
+      assertEquals(2, recommendCount.intValue());
+      assertEquals(0, cachingRecommender.getFailedRefreshCount());
+    } finally {
+      cachingRecommender.close();
+    }
+  }
+
+  @Test
+  public void testTimeToLive() throws Exception {
+    MutableInt recommendCount = new MutableInt();
+    CachingRecommender cachingRecommender = new CachingRecommender(new MockRecommender(recommendCount), 1, 10, 20);
+    try {
+      cachingRecommender.recommend(2, 1);
+      Thread.sleep(50);
+      cachingRecommender.recommend(2, 1);
+      awaitBackgroundRefreshes(cachingRecommender, 1);
+      assertEquals(1, cachingRecommender.getStaleHitCount());
+      assertTrue(cachingRecommender.getMaxStalenessMillis() >= 20);
+      assertTrue(cachingRecommender.getAverageStalenessMillis() >= 20.0);
+      assertEquals(2, recommendCount.intValue());
+    } finally {
+      cachingRecommender.close();
+    }
+  }
+
+  private static void awaitBackgroundRefreshes(CachingRecommender cachingRecommender, long count)
+    throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (cachingRecommender.getBackgroundRefreshCount() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals(count, cachingRecommender.getBackgroundRefreshCount());
+  }
+
 }
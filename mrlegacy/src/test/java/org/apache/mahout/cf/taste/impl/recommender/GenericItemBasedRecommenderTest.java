@@ -18,25 +18,38 @@
 package org.apache.mahout.cf.taste.impl.recommender;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.apache.mahout.cf.taste.impl.TasteTestCase;
+import org.apache.mahout.cf.taste.impl.common.FastByIDMap;
 import org.apache.mahout.cf.taste.impl.common.FastIDSet;
+import org.apache.mahout.cf.taste.impl.model.GenericDataModel;
 import org.apache.mahout.cf.taste.impl.model.GenericPreference;
 import org.apache.mahout.cf.taste.impl.model.GenericUserPreferenceArray;
 import org.apache.mahout.cf.taste.impl.similarity.GenericItemSimilarity;
+import org.apache.mahout.cf.taste.impl.similarity.PearsonCorrelationSimilarity;
+import org.apache.mahout.cf.taste.impl.similarity.TanimotoCoefficientSimilarity;
 import org.apache.mahout.cf.taste.model.DataModel;
 import org.apache.mahout.cf.taste.model.PreferenceArray;
+import org.apache.mahout.cf.taste.recommender.BatchRecommender;
 import org.apache.mahout.cf.taste.recommender.CandidateItemsStrategy;
+import org.apache.mahout.cf.taste.recommender.IDRescorer;
 import org.apache.mahout.cf.taste.recommender.ItemBasedRecommender;
 import org.apache.mahout.cf.taste.recommender.MostSimilarItemsCandidateItemsStrategy;
+import org.apache.mahout.cf.taste.recommender.RecommendationSink;
 import org.apache.mahout.cf.taste.recommender.RecommendedItem;
 import org.apache.mahout.cf.taste.recommender.Recommender;
 import org.apache.mahout.cf.taste.similarity.ItemSimilarity;
+import org.apache.mahout.common.RandomUtils;
 import org.easymock.EasyMock;
 import org.junit.Test;
 
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /** <p>Tests {@link GenericItemBasedRecommender}.</p> */
 public final class GenericItemBasedRecommenderTest extends TasteTestCase {
@@ -321,4 +334,85 @@ public final class GenericItemBasedRecommenderTest extends TasteTestCase {
 
     EasyMock.verify(dataModel, itemSimilarity, candidateItemsStrategy, mostSimilarItemsCandidateItemsStrategy);
   }
+
+  @Test
+  public void testBatchRecommend() throws Exception {
+    DataModel dataModel = randomDataModel(300, 60, 12);
+    GenericItemBasedRecommender recommender =
+        new GenericItemBasedRecommender(dataModel, new PearsonCorrelationSimilarity(dataModel));
+    assertBatchMatchesSingle(recommender, dataModel, null, false);
+    assertBatchMatchesSingle(recommender, dataModel, null, true);
+    IDRescorer rescorer = new IDRescorer() {
+      @Override
+      public double rescore(long id, double originalScore) {
+        return originalScore * (1 + id % 3);
+      }
+      @Override
+      public boolean isFiltered(long id) {
+        return id % 5 == 0;
+      }
+    };
+    assertBatchMatchesSingle(recommender, dataModel, rescorer, false);
+  }
+
+  @Test
+  public void testBatchRecommendBooleanPref() throws Exception {
+    DataModel dataModel = randomDataModel(200, 40, 8);
+    GenericItemBasedRecommender recommender =
+        new GenericBooleanPrefItemBasedRecommender(dataModel, new TanimotoCoefficientSimilarity(dataModel));
+    assertBatchMatchesSingle(recommender, dataModel, null, false);
+  }
+
+  public static DataModel randomDataModel(int numUsers, int numItems, int maxPrefsPerUser) {
+    Random random = RandomUtils.getRandom();
+    FastByIDMap<PreferenceArray> userData = new FastByIDMap<PreferenceArray>();
+    for (long userID = 1; userID <= numUsers; userID++) {
+      FastIDSet itemIDs = new FastIDSet();
+      int numPrefs = 1 + random.nextInt(maxPrefsPerUser);
+      while (itemIDs.size() < numPrefs) {
+        itemIDs.add(random.nextInt(numItems));
+      }
+      PreferenceArray prefs = new GenericUserPreferenceArray(numPrefs);
+      prefs.setUserID(0, userID);
+      int i = 0;
+      for (long itemID : itemIDs) {
+        prefs.setItemID(i, itemID);
+        prefs.setValue(i, 1 + random.nextInt(5));
+        i++;
+      }
+      userData.put(userID, prefs);
+    }
+    return new GenericDataModel(userData);
+  }
+
+  public static void assertBatchMatchesSingle(BatchRecommender recommender, DataModel dataModel, IDRescorer rescorer,
+                                              boolean includeKnownItems) throws Exception {
+    long[] userIDs = new long[dataModel.getNumUsers()];
+    for (int i = 0; i < userIDs.length; i++) {
+      userIDs[i] = i + 1;
+    }
+    final Map<Long,List<RecommendedItem>> results = Maps.newHashMap();
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      recommender.recommend(userIDs, 5, rescorer, includeKnownItems, executor, new RecommendationSink() {
+        @Override
+        public void add(long userID, List<RecommendedItem> recommendations) {
+          assertNull(results.put(userID, recommendations));
+        }
+      });
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(userIDs.length, results.size());
+    for (long userID : userIDs) {
+      List<RecommendedItem> expected = recommender.recommend(userID, 5, rescorer, includeKnownItems);
+      List<RecommendedItem> actual = results.get(userID);
+      assertEquals(expected.size(), actual.size());
+      for (int i = 0; i < expected.size(); i++) {
+        assertEquals(expected.get(i).getItemID(), actual.get(i).getItemID());
+        assertEquals(expected.get(i).getValue(), actual.get(i).getValue(), EPSILON);
+      }
+    }
+  }
+
 }
@@ -17,16 +17,23 @@
 
 package org.apache.mahout.cf.taste.impl.recommender.svd;
 
+import org.apache.mahout.cf.taste.common.Refreshable;
 import org.apache.mahout.cf.taste.impl.TasteTestCase;
+import org.apache.mahout.cf.taste.impl.common.FastByIDMap;
 import org.apache.mahout.cf.taste.impl.common.FastIDSet;
+import org.apache.mahout.cf.taste.impl.common.LongPrimitiveIterator;
+import org.apache.mahout.cf.taste.impl.recommender.GenericItemBasedRecommenderTest;
 import org.apache.mahout.cf.taste.model.DataModel;
 import org.apache.mahout.cf.taste.model.PreferenceArray;
 import org.apache.mahout.cf.taste.recommender.CandidateItemsStrategy;
 import org.apache.mahout.cf.taste.recommender.RecommendedItem;
+import org.apache.mahout.common.RandomUtils;
 import org.easymock.EasyMock;
 import org.junit.Test;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Random;
 
 public class SVDRecommenderTest extends TasteTestCase {
 
@@ -83,4 +90,46 @@ public class SVDRecommenderTest extends TasteTestCase {
 
     EasyMock.verify(dataModel, candidateItemsStrategy, factorizer, factorization);
   }
+
+  @Test
+  public void batchRecommend() throws Exception {
+    DataModel dataModel = GenericItemBasedRecommenderTest.randomDataModel(300, 50, 10);
+    final Factorization factorization = randomFactorization(dataModel, 4);
+    Factorizer factorizer = new Factorizer() {
+      @Override
+      public Factorization factorize() {
+        return factorization;
+      }
+      @Override
+      public void refresh(Collection<Refreshable> alreadyRefreshed) {}
+    };
+    SVDRecommender svdRecommender = new SVDRecommender(dataModel, factorizer);
+    GenericItemBasedRecommenderTest.assertBatchMatchesSingle(svdRecommender, dataModel, null, false);
+    GenericItemBasedRecommenderTest.assertBatchMatchesSingle(svdRecommender, dataModel, null, true);
+  }
+
+  private static Factorization randomFactorization(DataModel dataModel, int numFeatures) throws Exception {
+    Random random = RandomUtils.getRandom();
+    FastByIDMap<Integer> userIDMapping = new FastByIDMap<Integer>();
+    LongPrimitiveIterator userIDs = dataModel.getUserIDs();
+    while (userIDs.hasNext()) {
+      userIDMapping.put(userIDs.nextLong(), userIDMapping.size());
+    }
+    FastByIDMap<Integer> itemIDMapping = new FastByIDMap<Integer>();
+    LongPrimitiveIterator itemIDs = dataModel.getItemIDs();
+    while (itemIDs.hasNext()) {
+      itemIDMapping.put(itemIDs.nextLong(), itemIDMapping.size());
+    }
+    double[][] userFeatures = new double[userIDMapping.size()][numFeatures];
+    double[][] itemFeatures = new double[itemIDMapping.size()][numFeatures];
+    for (double[][] features : new double[][][] {userFeatures, itemFeatures}) {
+      for (double[] row : features) {
+        for (int i = 0; i < numFeatures; i++) {
+          row[i] = random.nextGaussian();
+        }
+      }
+    }
+    return new Factorization(userIDMapping, itemIDMapping, userFeatures, itemFeatures);
+  }
+
 }
@@ -0,0 +1,102 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.common.iterator.sequencefile;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.mahout.common.MahoutTestCase;
+import org.apache.mahout.math.DenseVector;
+import org.apache.mahout.math.Vector;
+import org.apache.mahout.math.VectorWritable;
+import org.junit.Test;
+
+import com.google.common.io.Closeables;
+
+public final class SequenceFileValueIteratorTest extends MahoutTestCase {
+
+  private static void writeVectors(FileSystem fs, Configuration conf, Path path, int start, int count)
+    throws Exception {
+    SequenceFile.Writer writer = new SequenceFile.Writer(fs, conf, path, IntWritable.class, VectorWritable.class);
+    try {
+      for (int i = start; i < start + count; i++) {
+        writer.append(new IntWritable(i), new VectorWritable(new DenseVector(new double[] {i, 2 * i})));
+      }
+    } finally {
+      Closeables.close(writer, false);
+    }
+  }
+
+  @Test
+  public void testCursor() throws Exception {
+    Configuration conf = getConfiguration();
+    Path path = getTestTempFilePath("vectors");
+    FileSystem fs = FileSystem.get(path.toUri(), conf);
+    writeVectors(fs, conf, path, 0, 5);
+
+    SequenceFileValueIterator<VectorWritable> iterator =
+        new SequenceFileValueIterator<VectorWritable>(path, true, conf);
+    VectorWritable value = new VectorWritable();
+    value.setReusesVector(true);
+    Vector first = null;
+    int count = 0;
+    try {
+      while (iterator.next(value)) {
+        assertEquals(count, value.get().get(0), 0);
+        assertEquals(2 * count, value.get().get(1), 0);
+        if (first == null) {
+          first = value.get();
+        }
+        assertSame(first, value.get());
+        count++;
+      }
+      assertFalse(iterator.next(value));
+    } finally {
+      Closeables.close(iterator, true);
+    }
+    assertEquals(5, count);
+  }
+
+  @Test
+  public void testDirCursor() throws Exception {
+    Configuration conf = getConfiguration();
+    Path dir = getTestTempDirPath("vectors");
+    FileSystem fs = FileSystem.get(dir.toUri(), conf);
+    writeVectors(fs, conf, new Path(dir, "part-00000"), 0, 3);
+    writeVectors(fs, conf, new Path(dir, "part-00001"), 3, 0);
+    writeVectors(fs, conf, new Path(dir, "part-00002"), 3, 4);
+
+    SequenceFileDirValueIterator<VectorWritable> iterator = new SequenceFileDirValueIterator<VectorWritable>(
+        dir, PathType.LIST, PathFilters.partFilter(), null, true, conf);
+    VectorWritable value = new VectorWritable();
+    double sum = 0;
+    int count = 0;
+    try {
+      while (iterator.next(value)) {
+        sum += value.get().get(0);
+        count++;
+      }
+    } finally {
+      Closeables.close(iterator, true);
+    }
+    assertEquals(7, count);
+    assertEquals(21, sum, 0);
+  }
+}
@@ -88,6 +88,163 @@ public final class VectorWritableTest extends RandomizedTest {
     doTestVectorWritableEquals(v);
   }
 
+  @Test
+  @Repeat(iterations = 20)
+  public void testCompactVectorWritable() throws Exception {
+    Vector[] vectors = {
+        new SequentialAccessSparseVector(MAX_VECTOR_SIZE),
+        new RandomAccessSparseVector(MAX_VECTOR_SIZE),
+        new DenseVector(MAX_VECTOR_SIZE),
+        new NamedVector(new RandomAccessSparseVector(MAX_VECTOR_SIZE), "Victor")
+    };
+    for (Vector v : vectors) {
+      createRandom(v);
+      VectorWritable compact = new VectorWritable(v);
+      compact.setWritesCompact(true);
+      VectorWritable read = new VectorWritable();
+      writeAndRead(compact, read);
+      assertEquals(v, read.get());
+      assertEquals(v.getClass(), read.get().getClass());
+    }
+  }
+
+  @Test
+  public void testCompactBinaryAndWideVectors() throws Exception {
+    // runs of ones, a singleton, and gaps needing every group-varint length
+    Vector v = new RandomAccessSparseVector(Integer.MAX_VALUE);
+    int[] indices = {0, 1, 2, 3, 200, 201, 70000, 20000000, 20000001, Integer.MAX_VALUE - 1};
+    for (int index : indices) {
+      v.setQuick(index, 1);
+    }
+    VectorWritable compact = new VectorWritable(v);
+    compact.setWritesCompact(true);
+    VectorWritable read = new VectorWritable();
+    int compactBytes = writeAndRead(compact, read);
+    assertEquals(v, read.get());
+    assertTrue(compactBytes < writeAndRead(new VectorWritable(v), new VectorWritable()));
+
+    // the same indices with other values go through the group-varint path
+    v.setQuick(201, 2.5);
+    writeAndRead(compact, read);
+    assertEquals(v, read.get());
+
+    Vector empty = new SequentialAccessSparseVector(10);
+    writeAndRead(new VectorWritable(empty), read);
+    compact.set(empty);
+    writeAndRead(compact, read);
+    assertEquals(empty, read.get());
+  }
+
+  @Test
+  @Repeat(iterations = 20)
+  public void testCompactLossyValues() throws Exception {
+    Vector v = new SequentialAccessSparseVector(MAX_VECTOR_SIZE);
+    createRandom(v);
+    VectorWritable plain = new VectorWritable(v);
+    int plainBytes = writeAndRead(plain, new VectorWritable());
+
+    VectorWritable lax = new VectorWritable(v, true);
+    lax.setWritesCompact(true);
+    VectorWritable read = new VectorWritable();
+    int laxBytes = writeAndRead(lax, read);
+    assertTrue(laxBytes <= plainBytes);
+    assertEquals(0, v.minus(read.get()).norm(Double.POSITIVE_INFINITY), 1.0e-7);
+
+    VectorWritable quantized = new VectorWritable(v);
+    quantized.setWritesQuantized(true);
+    int quantizedBytes = writeAndRead(quantized, read);
+    // the float minimum and step cost 8 bytes, which very short vectors don't win back
+    assertTrue(quantizedBytes <= plainBytes + 8);
+    // randomDouble() is in [0, 1), so steps are under 1/65535
+    assertEquals(0, v.minus(read.get()).norm(Double.POSITIVE_INFINITY), 1.0e-5);
+  }
+
+  @Test
+  public void testQuantizedNonFiniteValues() throws Exception {
+    double[][] cases = {
+        {1.5, Double.NaN, -2},
+        {Double.POSITIVE_INFINITY, 0.25, 3},
+        {-Double.MAX_VALUE, 1, Double.MAX_VALUE},
+    };
+    for (double[] values : cases) {
+      Vector v = new RandomAccessSparseVector(MAX_VECTOR_SIZE);
+      for (int i = 0; i < values.length; i++) {
+        v.setQuick(10 * i + 1, values[i]);
+      }
+      VectorWritable quantized = new VectorWritable(v);
+      quantized.setWritesQuantized(true);
+      VectorWritable read = new VectorWritable();
+      writeAndRead(quantized, read);
+      // written at full precision instead
+      for (int i = 0; i < values.length; i++) {
+        assertEquals(Double.doubleToLongBits(values[i]), Double.doubleToLongBits(read.get().get(10 * i + 1)));
+      }
+    }
+  }
+
+  @Test
+  public void testRejectsUnknownFlags() throws Exception {
+    // the value encoding bits of the compact format mean nothing without FLAG_COMPACT
+    for (int flags : new int[] {0x20, 0x40, VectorWritable.FLAG_COMPACT | VectorWritable.FLAG_LAX_PRECISION,
+                                VectorWritable.FLAG_COMPACT | 0x80}) {
+      byte[] bytes = {(byte) flags, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0};
+      try {
+        new VectorWritable().readFields(new DataInputStream(new ByteArrayInputStream(bytes)));
+        fail(Integer.toString(flags, 2));
+      } catch (IllegalArgumentException iae) {
+        // good
+      }
+    }
+  }
+
+  @Test
+  public void testPlainFormatUnchanged() throws Exception {
+    Vector v = new SequentialAccessSparseVector(MAX_VECTOR_SIZE);
+    v.setQuick(3, 1.5);
+    v.setQuick(70, -2);
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    new VectorWritable(v).write(new DataOutputStream(baos));
+    byte[] expected = {VectorWritable.FLAG_SEQUENTIAL, 100, 2, 3, 0x3f, (byte) 0xf8, 0, 0, 0, 0, 0, 0,
+        67, (byte) 0xc0, 0, 0, 0, 0, 0, 0, 0};
+    assertArrayEquals(expected, baos.toByteArray());
+  }
+
+  @Test
+  @Repeat(iterations = 20)
+  public void testReusesVector() throws Exception {
+    Vector[] vectors = {
+        new SequentialAccessSparseVector(MAX_VECTOR_SIZE),
+        new RandomAccessSparseVector(MAX_VECTOR_SIZE),
+        new DenseVector(MAX_VECTOR_SIZE)
+    };
+    for (boolean compact : new boolean[] {false, true}) {
+      for (Vector v : vectors) {
+        VectorWritable reader = new VectorWritable();
+        reader.setReusesVector(true);
+        Vector first = null;
+        for (int round = 0; round < 3; round++) {
+          Vector next = v.like();
+          createRandom(next);
+          VectorWritable writer = new VectorWritable(new NamedVector(next, "row" + round));
+          writer.setWritesCompact(compact);
+          writeAndRead(writer, reader);
+          assertEquals("row" + round, ((NamedVector) reader.get()).getName());
+          Vector read = ((NamedVector) reader.get()).getDelegate();
+          assertEquals(next, read);
+          if (first == null) {
+            first = read;
+          } else {
+            assertSame(first, read);
+          }
+        }
+
+        // a different size can't be read in place
+        writeAndRead(new VectorWritable(new DenseVector(3)), reader);
+        assertEquals(3, reader.get().size());
+      }
+    }
+  }
+
   private static void doTestVectorWritableEquals(Vector v) throws IOException {
     Writable vectorWritable = new VectorWritable(v);
     VectorWritable vectorWritable2 = new VectorWritable();
@@ -103,7 +260,7 @@ public final class VectorWritableTest extends RandomizedTest {
     assertEquals(v, v2);
   }
 
-  private static void writeAndRead(Writable toWrite, Writable toRead) throws IOException {
+  private static int writeAndRead(Writable toWrite, Writable toRead) throws IOException {
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
     DataOutputStream dos = new DataOutputStream(baos);
     try {
@@ -119,5 +276,6 @@ public final class VectorWritableTest extends RandomizedTest {
     } finally {
       Closeables.close(dos, true);
     }
+    return baos.size();
   }
 }
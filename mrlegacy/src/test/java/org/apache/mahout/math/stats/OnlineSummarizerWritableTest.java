@@ -0,0 +1,62 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math.stats;
+
+import org.apache.mahout.common.MahoutTestCase;
+import org.apache.mahout.common.RandomUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Random;
+
+public final class OnlineSummarizerWritableTest extends MahoutTestCase {
+
+  @Test
+  public void testWriteAndMerge() throws Exception {
+    Random gen = RandomUtils.getRandom();
+    OnlineSummarizer all = new OnlineSummarizer();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    // as if from three map tasks
+    for (int task = 0; task < 3; task++) {
+      OnlineSummarizer part = new OnlineSummarizer();
+      for (int i = 0; i < 1000; i++) {
+        double x = gen.nextGaussian() + task;
+        part.add(x);
+        all.add(x);
+      }
+      new OnlineSummarizerWritable(part).write(out);
+    }
+    out.close();
+
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    OnlineSummarizerWritable writable = new OnlineSummarizerWritable();
+    OnlineSummarizer merged = new OnlineSummarizer();
+    for (int task = 0; task < 3; task++) {
+      writable.readFields(in);
+      merged.merge(writable.get());
+    }
+    assertEquals(all.getCount(), merged.getCount());
+    assertEquals(all.getMean(), merged.getMean(), 1.0e-10);
+    assertEquals(all.getSD(), merged.getSD(), 1.0e-10);
+    assertEquals(all.getMedian(), merged.getMedian(), 0.05);
+  }
+}
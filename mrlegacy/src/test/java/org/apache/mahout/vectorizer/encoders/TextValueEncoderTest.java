@@ -60,6 +60,22 @@ public final class TextValueEncoderTest extends MahoutTestCase {
     assertEquals(v3.zSum(), v3.dot(v1), 0);
   }
 
+  @Test
+  public void testDoubleHashing() {
+    TextValueEncoder enc = new TextValueEncoder("text");
+    enc.setDoubleHashing(true);
+    Vector v1 = new DenseVector(200);
+    enc.addToVector("test1 and more", v1);
+
+    StaticWordValueEncoder w = new StaticWordValueEncoder("text");
+    w.setDoubleHashing(true);
+    Vector v2 = new DenseVector(200);
+    w.addToVector("test1", v2);
+    w.addToVector("and", v2);
+    w.addToVector("more", v2);
+    assertEquals(0, v1.minus(v2).norm(1), 0);
+  }
+
   @Test
   public void testAsString() {
     Locale.setDefault(Locale.ENGLISH);
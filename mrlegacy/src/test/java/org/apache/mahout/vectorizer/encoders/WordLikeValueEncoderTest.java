@@ -17,6 +17,7 @@
 
 package org.apache.mahout.vectorizer.encoders;
 
+import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import org.apache.mahout.common.MahoutTestCase;
@@ -26,6 +27,7 @@ import org.junit.Test;
 
 import java.util.Iterator;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReference;
 
 public final class WordLikeValueEncoderTest extends MahoutTestCase {
 
@@ -96,4 +98,74 @@ public final class WordLikeValueEncoderTest extends MahoutTestCase {
     }
     assertFalse(j.hasNext());
   }
+
+  @Test
+  public void testDoubleHashing() {
+    StaticWordValueEncoder enc = new StaticWordValueEncoder("word");
+    enc.setDoubleHashing(true);
+    enc.setProbes(3);
+    enc.setDictionary(ImmutableMap.<String, Double>of("word1", 3.0, "word2", 1.5));
+
+    Vector v1 = new DenseVector(1000);
+    enc.addToVector("word1", v1);
+    assertEquals(9.0, v1.norm(1), 0);
+
+    // the string and byte forms land in the same places, and so do probes looked up one at a time
+    Vector v2 = new DenseVector(1000);
+    enc.addToVector("word1".getBytes(Charsets.UTF_8), v2);
+    assertEquals(0, v1.minus(v2).norm(1), 0);
+    for (int probe = 0; probe < 3; probe++) {
+      assertTrue(v1.get(enc.hashForProbe("word1".getBytes(Charsets.UTF_8), 1000, "word", probe)) > 0);
+    }
+
+    Vector v3 = new DenseVector(1000);
+    enc.addToVector("word3", v3);
+    assertEquals(0.75 * 3, v3.norm(1), 0);
+    assertEquals(0, v1.dot(v3), 0);
+
+    // a different name moves the features
+    StaticWordValueEncoder other = new StaticWordValueEncoder("other");
+    other.setDoubleHashing(true);
+    other.setProbes(3);
+    Vector v4 = new DenseVector(1000);
+    other.addToVector("word1", v4);
+    assertEquals(0, v1.dot(v4), 0);
+  }
+
+  @Test
+  public void testSharedBetweenThreads() throws Exception {
+    final StaticWordValueEncoder enc = new StaticWordValueEncoder("word");
+    enc.setDoubleHashing(true);
+    enc.setProbes(3);
+    final Vector expected = new DenseVector(10007);
+    for (int i = 0; i < 5000; i++) {
+      enc.addToVector("word" + i, expected);
+      enc.addToVector(("word" + i).getBytes(Charsets.UTF_8), expected);
+    }
+
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            Vector v = new DenseVector(10007);
+            for (int i = 0; i < 5000; i++) {
+              enc.addToVector("word" + i, v);
+              enc.addToVector(("word" + i).getBytes(Charsets.UTF_8), v);
+            }
+            assertEquals(0, expected.minus(v).norm(1), 0);
+          } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertNull(failure.get());
+  }
 }